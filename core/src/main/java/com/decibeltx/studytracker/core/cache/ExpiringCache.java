@@ -0,0 +1,142 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Small, thread-safe, in-process cache that holds at most {@code maxSize} entries, evicting the
+ * least-recently used entry when full, and treats entries older than the configured time-to-live
+ * as absent. Hit, miss and eviction counts are recorded for monitoring. An optional listener is
+ * notified with the key of each entry evicted for size or age.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class ExpiringCache<K, V> {
+
+  private final String name;
+
+  private final int maxSize;
+
+  private final long ttlNanos;
+
+  private final Map<K, Entry<V>> entries;
+
+  private final AtomicLong hits = new AtomicLong();
+
+  private final AtomicLong misses = new AtomicLong();
+
+  private final AtomicLong evictions = new AtomicLong();
+
+  private final Consumer<K> evictionListener;
+
+  public ExpiringCache(String name, int maxSize, long ttl, TimeUnit unit) {
+    this(name, maxSize, ttl, unit, key -> {
+    });
+  }
+
+  public ExpiringCache(String name, int maxSize, long ttl, TimeUnit unit,
+      Consumer<K> evictionListener) {
+    this.name = name;
+    this.evictionListener = evictionListener;
+    this.maxSize = maxSize;
+    this.ttlNanos = unit.toNanos(ttl);
+    this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+        if (size() > ExpiringCache.this.maxSize) {
+          evictions.incrementAndGet();
+          evictionListener.accept(eldest.getKey());
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Returns the cached value for the key, or null if it is absent or has expired.
+   *
+   * @param key cache key
+   * @return cached value or null
+   */
+  public synchronized V get(K key) {
+    Entry<V> entry = entries.get(key);
+    if (entry != null && System.nanoTime() - entry.created > ttlNanos) {
+      entries.remove(key);
+      evictions.incrementAndGet();
+      evictionListener.accept(key);
+      entry = null;
+    }
+    if (entry == null) {
+      misses.incrementAndGet();
+      return null;
+    }
+    hits.incrementAndGet();
+    return entry.value;
+  }
+
+  /**
+   * Returns whether an unexpired value is cached for the key, without recording a hit or miss.
+   *
+   * @param key cache key
+   * @return true if the key has a cached value
+   */
+  public synchronized boolean containsKey(K key) {
+    Entry<V> entry = entries.get(key);
+    return entry != null && System.nanoTime() - entry.created <= ttlNanos;
+  }
+
+  public synchronized void put(K key, V value) {
+    entries.put(key, new Entry<>(value, System.nanoTime()));
+  }
+
+  public synchronized void remove(K key) {
+    entries.remove(key);
+  }
+
+  public synchronized void clear() {
+    entries.clear();
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public CacheStatistics getStatistics() {
+    return new CacheStatistics(name, hits.get(), misses.get(), evictions.get(), size());
+  }
+
+  private static final class Entry<V> {
+
+    private final V value;
+    private final long created;
+
+    private Entry(V value, long created) {
+      this.value = value;
+      this.created = created;
+    }
+
+  }
+
+}
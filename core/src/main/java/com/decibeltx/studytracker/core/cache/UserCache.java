@@ -0,0 +1,127 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.cache;
+
+import com.decibeltx.studytracker.core.model.User;
+import java.util.ArrayList;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Near cache of {@link User} records, keyed by ID, account name and email. Callers receive copies
+ * of the cached records, so that changes to a returned user are not visible to other callers
+ * until it is saved. Records must be evicted whenever they are modified or deleted. A record
+ * loaded while an eviction is in progress is returned but not cached, so a copy read before a
+ * change can never be cached after it.
+ */
+public class UserCache {
+
+  private static final String ID = "id:";
+
+  private static final String ACCOUNT_NAME = "accountName:";
+
+  private static final String EMAIL = "email:";
+
+  private final ExpiringCache<String, User> cache;
+
+  private final AtomicLong evictions = new AtomicLong();
+
+  public UserCache(int maxSize, long ttl, TimeUnit unit) {
+    this.cache = new ExpiringCache<>("users", maxSize, ttl, unit);
+  }
+
+  public Optional<User> findById(String id, Supplier<Optional<User>> loader) {
+    return find(ID + id, loader);
+  }
+
+  public Optional<User> findByAccountName(String accountName, Supplier<Optional<User>> loader) {
+    return find(ACCOUNT_NAME + accountName, loader);
+  }
+
+  public Optional<User> findByEmail(String email, Supplier<Optional<User>> loader) {
+    return find(EMAIL + email, loader);
+  }
+
+  /**
+   * Removes all entries for the user, under both its current and its previously cached account
+   * name and email.
+   *
+   * @param user modified or deleted user
+   */
+  public synchronized void evict(User user) {
+    evictions.incrementAndGet();
+    if (user.getId() != null) {
+      User cached = cache.get(ID + user.getId());
+      if (cached != null) {
+        cache.remove(ACCOUNT_NAME + cached.getAccountName());
+        cache.remove(EMAIL + cached.getEmail());
+      }
+      cache.remove(ID + user.getId());
+    }
+    cache.remove(ACCOUNT_NAME + user.getAccountName());
+    cache.remove(EMAIL + user.getEmail());
+  }
+
+  public synchronized void clear() {
+    evictions.incrementAndGet();
+    cache.clear();
+  }
+
+  public CacheStatistics getStatistics() {
+    return cache.getStatistics();
+  }
+
+  private Optional<User> find(String key, Supplier<Optional<User>> loader) {
+    User cached = cache.get(key);
+    if (cached != null) {
+      return Optional.of(copy(cached));
+    }
+    long generation = evictions.get();
+    Optional<User> optional = loader.get();
+    optional.ifPresent(user -> {
+      User copy = copy(user);
+      synchronized (this) {
+        if (evictions.get() == generation) {
+          cache.put(ID + user.getId(), copy);
+          cache.put(ACCOUNT_NAME + user.getAccountName(), copy);
+          cache.put(EMAIL + user.getEmail(), copy);
+        }
+      }
+    });
+    return optional;
+  }
+
+  private static User copy(User user) {
+    User copy = new User();
+    copy.setId(user.getId());
+    copy.setAccountName(user.getAccountName());
+    copy.setDepartment(user.getDepartment());
+    copy.setTitle(user.getTitle());
+    copy.setDisplayName(user.getDisplayName());
+    copy.setEmail(user.getEmail());
+    copy.setAdmin(user.isAdmin());
+    copy.setActive(user.isActive());
+    if (user.getSearchTokens() != null) {
+      copy.setSearchTokens(new ArrayList<>(user.getSearchTokens()));
+    }
+    return copy;
+  }
+
+}
@@ -16,11 +16,103 @@
 
 package com.decibeltx.studytracker.core.config;
 
+import com.decibeltx.studytracker.core.events.ActivityWriteBuffer;
+import com.decibeltx.studytracker.core.events.AsyncStudyEventListenerFactory;
+import com.decibeltx.studytracker.core.events.InstrumentedEventListenerFactory;
+import com.decibeltx.studytracker.core.events.StudyEventDispatcher;
+import com.decibeltx.studytracker.core.events.StudyEventMetrics;
+import com.decibeltx.studytracker.core.events.StudyEventMonitor;
+import com.decibeltx.studytracker.core.events.outbox.EventOutbox;
+import com.decibeltx.studytracker.core.events.outbox.OutboxWorker;
+import com.decibeltx.studytracker.core.repository.StudyRepository;
+import com.decibeltx.studytracker.core.repository.UserRepository;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.data.mongodb.core.MongoOperations;
 
 @Configuration
 @ComponentScan(basePackages = {"com.decibeltx.studytracker.core.events"})
 public class EventConfiguration {
 
+  @Autowired
+  private Environment env;
+
+  @Bean
+  public static AsyncStudyEventListenerFactory asyncStudyEventListenerFactory() {
+    return new AsyncStudyEventListenerFactory();
+  }
+
+  @Bean
+  public static InstrumentedEventListenerFactory instrumentedEventListenerFactory() {
+    return new InstrumentedEventListenerFactory();
+  }
+
+  @Bean
+  public StudyEventMonitor studyEventMonitor(ObjectProvider<StudyEventMetrics> metrics) {
+    return new StudyEventMonitor(
+        env.getProperty("events.metrics.slow-threshold-ms", Long.class, 500L),
+        TimeUnit.MILLISECONDS,
+        metrics.orderedStream().collect(Collectors.toList())
+    );
+  }
+
+  @Bean
+  public StudyEventDispatcher studyEventDispatcher() {
+    return new StudyEventDispatcher(
+        env.getProperty("events.async.enabled", Boolean.class, false),
+        env.getProperty("events.async.partitions", Integer.class, 4),
+        env.getProperty("events.async.queue-capacity", Integer.class, 1000)
+    );
+  }
+
+  @Bean
+  public ActivityWriteBuffer activityWriteBuffer(MongoOperations mongoOperations,
+      ApplicationEventPublisher applicationEventPublisher) {
+    return new ActivityWriteBuffer(
+        mongoOperations,
+        applicationEventPublisher,
+        env.getProperty("events.activity-buffer.enabled", Boolean.class, false),
+        env.getProperty("events.activity-buffer.max-batch-size", Integer.class, 500),
+        env.getProperty("events.activity-buffer.flush-interval-ms", Long.class, 1000L),
+        TimeUnit.MILLISECONDS
+    );
+  }
+
+  @Bean
+  public EventOutbox eventOutbox(MongoOperations mongoOperations) {
+    return new EventOutbox(
+        mongoOperations,
+        env.getProperty("events.outbox.max-attempts", Integer.class, 10),
+        TimeUnit.SECONDS.toMillis(env.getProperty("events.outbox.lease-seconds", Long.class, 300L)),
+        TimeUnit.SECONDS.toMillis(env.getProperty("events.outbox.backoff-seconds", Long.class, 5L)),
+        TimeUnit.SECONDS.toMillis(
+            env.getProperty("events.outbox.max-backoff-seconds", Long.class, 3600L))
+    );
+  }
+
+  @Bean(initMethod = "start")
+  @ConditionalOnProperty(name = "events.outbox.enabled", havingValue = "true")
+  public OutboxWorker outboxWorker(EventOutbox eventOutbox,
+      AsyncStudyEventListenerFactory asyncStudyEventListenerFactory,
+      StudyEventDispatcher studyEventDispatcher, StudyRepository studyRepository,
+      UserRepository userRepository) {
+    return new OutboxWorker(
+        eventOutbox,
+        asyncStudyEventListenerFactory,
+        studyEventDispatcher,
+        studyRepository,
+        userRepository,
+        TimeUnit.SECONDS.toMillis(env.getProperty("events.outbox.poll-seconds", Long.class, 10L)),
+        env.getProperty("events.outbox.batch-size", Integer.class, 50)
+    );
+  }
+
 }
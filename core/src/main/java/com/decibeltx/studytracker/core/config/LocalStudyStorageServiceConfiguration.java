@@ -16,10 +16,13 @@
 
 package com.decibeltx.studytracker.core.config;
 
+import com.decibeltx.studytracker.core.storage.ContentAddressedStudyStorageService;
 import com.decibeltx.studytracker.core.storage.LocalFileSystemStudyStorageService;
 import com.decibeltx.studytracker.core.storage.StudyStorageService;
+import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.context.annotation.Bean;
@@ -35,11 +38,24 @@ public class LocalStudyStorageServiceConfiguration {
   private Environment env;
 
   @Bean
-  public StudyStorageService localFileSystemStudyStorageService() {
+  public StudyStorageService localFileSystemStudyStorageService() throws IOException {
     Assert.notNull(env.getProperty("storage.local-dir"),
         "Local storage directory is not set. Eg. storage.local-dir=/path/to/storage");
     Path path = Paths.get(env.getRequiredProperty("storage.local-dir"));
-    LocalFileSystemStudyStorageService service = new LocalFileSystemStudyStorageService(path);
+    int listingCacheSize = env.getProperty("storage.local.listing-cache.size", Integer.class, 1000);
+    long listingCacheTtl = env.getProperty("storage.local.listing-cache.ttl-seconds", Long.class,
+        300L);
+    boolean watch = env.getProperty("storage.local.listing-cache.watch", Boolean.class, true);
+    LocalFileSystemStudyStorageService service;
+    if ("cas".equals(env.getProperty("storage.mode"))) {
+      Path blobPath = Paths.get(env.getProperty("storage.cas.blob-dir",
+          path.resolve(".blobs").toString()));
+      service = new ContentAddressedStudyStorageService(path, blobPath, listingCacheSize,
+          listingCacheTtl, TimeUnit.SECONDS, watch);
+    } else {
+      service = new LocalFileSystemStudyStorageService(path, listingCacheSize, listingCacheTtl,
+          TimeUnit.SECONDS, watch);
+    }
     if (env.containsProperty("storage.overwrite-existing")) {
       service.setOverwriteExisting(
           env.getRequiredProperty("storage.overwrite-existing", Boolean.class));
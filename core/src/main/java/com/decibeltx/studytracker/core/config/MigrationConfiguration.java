@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.config;
+
+import com.decibeltx.studytracker.core.migration.BackfillActivityProgramIdMigration;
+import com.decibeltx.studytracker.core.migration.BackfillSearchTokensMigration;
+import com.decibeltx.studytracker.core.migration.CreateActivityArchiveIndexMigration;
+import com.decibeltx.studytracker.core.migration.DropActivityStudyDateIndexMigration;
+import com.decibeltx.studytracker.core.migration.Migration;
+import com.decibeltx.studytracker.core.migration.MigrationRunner;
+import com.decibeltx.studytracker.core.migration.RemoveEmbeddedStudyActivityMigration;
+import com.decibeltx.studytracker.core.migration.SeedCodeSequencesMigration;
+import com.decibeltx.studytracker.core.service.AssayService;
+import com.decibeltx.studytracker.core.service.StudyService;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.data.mongodb.core.MongoOperations;
+
+@Configuration
+@ConditionalOnProperty(name = "migrations.enabled", havingValue = "true", matchIfMissing = true)
+public class MigrationConfiguration {
+
+  @Autowired
+  private Environment env;
+
+  @Bean
+  public RemoveEmbeddedStudyActivityMigration removeEmbeddedStudyActivityMigration() {
+    return new RemoveEmbeddedStudyActivityMigration();
+  }
+
+  @Bean
+  public SeedCodeSequencesMigration seedCodeSequencesMigration(StudyService studyService,
+      AssayService assayService) {
+    return new SeedCodeSequencesMigration(studyService, assayService);
+  }
+
+  @Bean
+  public BackfillSearchTokensMigration backfillSearchTokensMigration() {
+    return new BackfillSearchTokensMigration();
+  }
+
+  @Bean
+  public BackfillActivityProgramIdMigration backfillActivityProgramIdMigration() {
+    return new BackfillActivityProgramIdMigration();
+  }
+
+  @Bean
+  public DropActivityStudyDateIndexMigration dropActivityStudyDateIndexMigration() {
+    return new DropActivityStudyDateIndexMigration();
+  }
+
+  @Bean
+  public CreateActivityArchiveIndexMigration createActivityArchiveIndexMigration() {
+    return new CreateActivityArchiveIndexMigration();
+  }
+
+  @Bean(initMethod = "run")
+  public MigrationRunner migrationRunner(MongoOperations mongoOperations,
+      List<Migration> migrations) {
+    long leaseMinutes = env.getProperty("migrations.lease-minutes", Long.class, 5L);
+    return new MigrationRunner(mongoOperations, migrations,
+        TimeUnit.MINUTES.toMillis(leaseMinutes));
+  }
+
+}
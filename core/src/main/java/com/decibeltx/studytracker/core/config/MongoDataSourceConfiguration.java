@@ -16,6 +16,8 @@
 
 package com.decibeltx.studytracker.core.config;
 
+import com.decibeltx.studytracker.core.repository.support.BatchingDbRefResolver;
+import com.decibeltx.studytracker.core.repository.support.BatchingMongoTemplate;
 import com.mongodb.ConnectionString;
 import com.mongodb.MongoClientSettings;
 import com.mongodb.MongoCredential;
@@ -23,9 +25,12 @@ import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.env.Environment;
 import org.springframework.data.mongodb.config.AbstractMongoClientConfiguration;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
 import org.springframework.util.Assert;
 
 @Configuration
@@ -52,6 +57,31 @@ public class MongoDataSourceConfiguration extends AbstractMongoClientConfigurati
     return MongoClients.create(settings);
   }
 
+  @Bean
+  public BatchingDbRefResolver dbRefResolver() {
+    return new BatchingDbRefResolver(mongoDbFactory());
+  }
+
+  /**
+   * Uses a {@link BatchingDbRefResolver} in place of the default resolver, so that referenced
+   * records are fetched in bulk and materialized once per resolution scope.
+   */
+  @Bean
+  @Override
+  public MappingMongoConverter mappingMongoConverter() throws Exception {
+    MappingMongoConverter converter = new MappingMongoConverter(dbRefResolver(),
+        mongoMappingContext());
+    converter.setCustomConversions(customConversions());
+    converter.setCodecRegistryProvider(mongoDbFactory());
+    return converter;
+  }
+
+  @Bean
+  @Override
+  public MongoTemplate mongoTemplate() throws Exception {
+    return new BatchingMongoTemplate(mongoDbFactory(), mappingMongoConverter(), dbRefResolver());
+  }
+
   @Override
   protected String getDatabaseName() {
     return env.getRequiredProperty("db.name");
@@ -16,6 +16,8 @@
 
 package com.decibeltx.studytracker.core.config;
 
+import com.decibeltx.studytracker.core.repository.CursorPagingMongoRepository;
+import com.decibeltx.studytracker.core.search.SearchTokenEventListener;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
@@ -25,7 +27,10 @@ import org.springframework.data.mongodb.repository.config.EnableMongoRepositorie
 import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
 
 @Configuration
-@EnableMongoRepositories(basePackages = {"com.decibeltx.studytracker.core.repository"})
+@EnableMongoRepositories(
+    basePackages = {"com.decibeltx.studytracker.core.repository"},
+    repositoryBaseClass = CursorPagingMongoRepository.class
+)
 @EnableMongoAuditing
 public class MongoRepositoryConfiguration {
 
@@ -34,6 +39,11 @@ public class MongoRepositoryConfiguration {
     return new ValidatingMongoEventListener(validator());
   }
 
+  @Bean
+  public SearchTokenEventListener searchTokenEventListener() {
+    return new SearchTokenEventListener();
+  }
+
   @Bean
   public LocalValidatorFactoryBean validator() {
     return new LocalValidatorFactoryBean();
@@ -16,11 +16,58 @@
 
 package com.decibeltx.studytracker.core.config;
 
+import com.decibeltx.studytracker.core.cache.UserCache;
+import com.decibeltx.studytracker.core.service.ActivityService;
+import com.decibeltx.studytracker.core.service.HistoryService;
+import com.decibeltx.studytracker.core.service.StatisticsService;
+import com.decibeltx.studytracker.core.service.impl.ActivityRetentionJob;
+import com.decibeltx.studytracker.core.service.impl.HistoryServiceImpl;
+import com.decibeltx.studytracker.core.service.impl.StatisticsReconciliationJob;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 
 @Configuration
 @ComponentScan(basePackages = {"com.decibeltx.studytracker.core.service"})
 public class ServiceConfiguration {
 
+  @Autowired
+  private Environment env;
+
+  @Bean
+  public UserCache userCache() {
+    return new UserCache(
+        env.getProperty("users.cache.max-size", Integer.class, 1000),
+        env.getProperty("users.cache.ttl-seconds", Long.class, 300L),
+        TimeUnit.SECONDS
+    );
+  }
+
+  @Bean
+  public HistoryService historyService() {
+    return new HistoryServiceImpl(
+        env.getProperty("activity.history.snapshot-interval", Integer.class, 20));
+  }
+
+  @Bean(initMethod = "start")
+  @ConditionalOnProperty(name = "statistics.reconciliation.enabled", havingValue = "true")
+  public StatisticsReconciliationJob statisticsReconciliationJob(
+      StatisticsService statisticsService) {
+    return new StatisticsReconciliationJob(statisticsService,
+        env.getProperty("statistics.reconciliation.interval-minutes", Long.class, 60L));
+  }
+
+  @Bean(initMethod = "start")
+  @ConditionalOnProperty(name = "activity.retention.enabled", havingValue = "true")
+  public ActivityRetentionJob activityRetentionJob(ActivityService activityService) {
+    return new ActivityRetentionJob(activityService,
+        env.getProperty("activity.retention.months", Integer.class, 12),
+        env.getProperty("activity.retention.batch-size", Integer.class, 1000),
+        env.getProperty("activity.retention.interval-minutes", Long.class, 1440L));
+  }
+
 }
@@ -0,0 +1,299 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.events;
+
+import com.decibeltx.studytracker.core.model.Activity;
+import com.decibeltx.studytracker.core.model.Study;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+/**
+ * Write-behind buffer for {@link Activity} records. Records are collected in memory and written in
+ * a single bulk insert once {@code maxBatchSize} records are waiting, or after the flush interval
+ * has elapsed, along with one bulk update that advances the {@code updatedAt} timestamp of each
+ * affected study. Pending records are flushed synchronously on shutdown. When buffering is
+ * disabled, each record is flushed as soon as it is added. A {@link NewActivityEvent} is published
+ * for the records of each batch that are written successfully.
+ *
+ * <p>If the bulk insert fails, the batch is written again one record at a time, in order, so that
+ * a duplicate record does not cost the rest of the batch. A record that cannot be written is put
+ * back at the head of the buffer, along with every record queued after it, and retried on the
+ * next flush, up to {@code MAX_ATTEMPTS} times, after which it is counted as failed and
+ * discarded.</p>
+ *
+ * <p>Records are assigned an {@link ObjectId} when they are added, under the same lock as the
+ * buffer, so that IDs increase in the order in which records were queued. Since the bulk insert
+ * is ordered and no record is written ahead of one that failed, records are stored and published
+ * in ID order, and the ID of the last record a client received can be used to resume an activity
+ * feed without skipping records that were retried.</p>
+ */
+public class ActivityWriteBuffer implements DisposableBean {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ActivityWriteBuffer.class);
+
+  private static final int MAX_ATTEMPTS = 3;
+
+  private final MongoOperations mongoOperations;
+
+  private final ApplicationEventPublisher eventPublisher;
+
+  private final int maxBatchSize;
+
+  private final ScheduledExecutorService scheduler;
+
+  private final Object flushLock = new Object();
+
+  private List<Activity> pending = new ArrayList<>();
+
+  private final Map<String, Integer> attempts = new HashMap<>();
+
+  private final AtomicLong flushes = new AtomicLong();
+
+  private final AtomicLong written = new AtomicLong();
+
+  private final AtomicLong failed = new AtomicLong();
+
+  private final AtomicLong largestBatch = new AtomicLong();
+
+  private final AtomicLong flushNanos = new AtomicLong();
+
+  private final AtomicLong slowestFlushNanos = new AtomicLong();
+
+  public ActivityWriteBuffer(MongoOperations mongoOperations,
+      ApplicationEventPublisher eventPublisher, boolean enabled, int maxBatchSize,
+      long flushInterval, TimeUnit unit) {
+    this.mongoOperations = mongoOperations;
+    this.eventPublisher = eventPublisher;
+    this.maxBatchSize = enabled ? maxBatchSize : 1;
+    if (enabled) {
+      this.scheduler = Executors
+          .newSingleThreadScheduledExecutor(r -> new Thread(r, "activity-writer"));
+      scheduler.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval, unit);
+    } else {
+      this.scheduler = null;
+    }
+  }
+
+  /**
+   * Queues an activity record for writing, flushing the buffer if it is full.
+   *
+   * @param activity the record to write
+   */
+  public void add(Activity activity) {
+    boolean full;
+    synchronized (this) {
+      if (activity.getId() == null) {
+        activity.setId(new ObjectId().toHexString());
+      }
+      pending.add(activity);
+      full = pending.size() >= maxBatchSize;
+    }
+    if (full) {
+      flush();
+    }
+  }
+
+  /**
+   * Writes all pending records. Records that cannot be written are requeued, and discarded once
+   * they have failed {@code MAX_ATTEMPTS} times.
+   */
+  public void flush() {
+    synchronized (flushLock) {
+      List<Activity> batch;
+      synchronized (this) {
+        if (pending.isEmpty()) {
+          return;
+        }
+        batch = pending;
+        pending = new ArrayList<>();
+      }
+      long start = System.nanoTime();
+      List<Activity> saved = batch;
+      try {
+        insert(batch);
+      } catch (Exception e) {
+        LOGGER.warn(String.format("Failed to write %d activity records in bulk, writing them "
+            + "individually", batch.size()), e);
+        saved = insertEach(batch);
+      }
+      written.addAndGet(saved.size());
+      if (!saved.isEmpty()) {
+        try {
+          updateStudies(saved);
+        } catch (Exception e) {
+          LOGGER.warn("Failed to update study timestamps for new activity", e);
+        }
+      }
+      long elapsed = System.nanoTime() - start;
+      flushes.incrementAndGet();
+      flushNanos.addAndGet(elapsed);
+      slowestFlushNanos.accumulateAndGet(elapsed, Math::max);
+      largestBatch.accumulateAndGet(batch.size(), Math::max);
+      if (!saved.isEmpty()) {
+        try {
+          eventPublisher.publishEvent(new NewActivityEvent(this, saved));
+        } catch (Exception e) {
+          LOGGER.warn("Failed to publish new activity event", e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Inserts each record on its own, in order, returning those that were written. Records already
+   * written by the failed bulk insert are rejected as duplicates, and count as written. Writing
+   * stops at the first record that fails, which is requeued with all of the records after it, so
+   * that no record is stored ahead of an earlier one.
+   */
+  private List<Activity> insertEach(List<Activity> batch) {
+    List<Activity> saved = new ArrayList<>();
+    List<Activity> retry = new ArrayList<>();
+    for (int i = 0; i < batch.size(); i++) {
+      Activity activity = batch.get(i);
+      try {
+        mongoOperations.insert(activity);
+        saved.add(activity);
+      } catch (DuplicateKeyException e) {
+        saved.add(activity);
+      } catch (Exception e) {
+        LOGGER.warn("Failed to write activity record " + activity.getId(), e);
+        retry.addAll(batch.subList(i, batch.size()));
+        break;
+      }
+    }
+    synchronized (this) {
+      for (Activity activity : saved) {
+        attempts.remove(activity.getId());
+      }
+      List<Activity> requeued = new ArrayList<>(retry);
+      if (!retry.isEmpty()) {
+        Activity first = retry.get(0);
+        int count = attempts.merge(first.getId(), 1, Integer::sum);
+        if (count >= MAX_ATTEMPTS) {
+          requeued.remove(0);
+          attempts.remove(first.getId());
+          failed.incrementAndGet();
+          LOGGER.error(String.format("Discarding activity record %s after %d failed attempts",
+              first.getId(), count));
+        }
+      }
+      requeued.addAll(pending);
+      pending = requeued;
+    }
+    return saved;
+  }
+
+  private void insert(List<Activity> batch) {
+    mongoOperations.bulkOps(BulkMode.ORDERED, Activity.class).insert(batch).execute();
+    synchronized (this) {
+      if (!attempts.isEmpty()) {
+        for (Activity activity : batch) {
+          attempts.remove(activity.getId());
+        }
+      }
+    }
+  }
+
+  private void updateStudies(List<Activity> batch) {
+    Map<String, Date> timestamps = new HashMap<>();
+    for (Activity activity : batch) {
+      if (activity.getStudy() != null && activity.getStudy().getId() != null) {
+        timestamps.merge(activity.getStudy().getId(), activity.getDate(),
+            (a, b) -> a.after(b) ? a : b);
+      }
+    }
+    if (!timestamps.isEmpty()) {
+      BulkOperations studyUpdates = mongoOperations.bulkOps(BulkMode.UNORDERED, Study.class);
+      for (Map.Entry<String, Date> entry : timestamps.entrySet()) {
+        studyUpdates.updateOne(new Query(Criteria.where("id").is(entry.getKey())),
+            new Update().max("updatedAt", entry.getValue()));
+      }
+      studyUpdates.execute();
+    }
+  }
+
+  public synchronized int getPendingCount() {
+    return pending.size();
+  }
+
+  public long getFlushCount() {
+    return flushes.get();
+  }
+
+  public long getWrittenCount() {
+    return written.get();
+  }
+
+  public long getFailedCount() {
+    return failed.get();
+  }
+
+  public long getLargestBatchSize() {
+    return largestBatch.get();
+  }
+
+  /**
+   * Returns the mean number of records written per flush.
+   *
+   * @return mean batch size
+   */
+  public double getMeanBatchSize() {
+    long count = flushes.get();
+    return count == 0 ? 0.0 : (double) (written.get() + failed.get()) / count;
+  }
+
+  public long getTotalFlushTime(TimeUnit unit) {
+    return unit.convert(flushNanos.get(), TimeUnit.NANOSECONDS);
+  }
+
+  public long getSlowestFlushTime(TimeUnit unit) {
+    return unit.convert(slowestFlushNanos.get(), TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Stops the background flush and writes any remaining records.
+   */
+  @Override
+  public void destroy() throws InterruptedException {
+    if (scheduler != null) {
+      scheduler.shutdown();
+      scheduler.awaitTermination(30, TimeUnit.SECONDS);
+    }
+    flush();
+  }
+
+}
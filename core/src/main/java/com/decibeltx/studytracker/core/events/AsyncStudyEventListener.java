@@ -0,0 +1,54 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.events;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import org.springframework.context.event.EventListener;
+
+/**
+ * Marks a {@link StudyEvent} listener method for asynchronous execution by the {@link
+ * StudyEventDispatcher}, rather than on the publishing thread. Events for the same study are
+ * delivered to the listener in the order they were published. Listeners annotated with plain
+ * {@link EventListener} continue to run synchronously.
+ *
+ * <p>Durable listeners, which perform side effects that must not be lost (eg. calls to external
+ * services), are delivered through the event outbox when it is enabled, and are retried on
+ * failure. Durable listeners may be invoked more than once
+ * for the same event, and should tolerate repeated delivery.</p>
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@EventListener
+public @interface AsyncStudyEventListener {
+
+  /**
+   * Whether deliveries to this listener should be persisted and retried.
+   */
+  boolean durable() default false;
+
+  /**
+   * Event types to deliver to this listener. All types are delivered if empty.
+   */
+  StudyEvent.Type[] types() default {};
+
+}
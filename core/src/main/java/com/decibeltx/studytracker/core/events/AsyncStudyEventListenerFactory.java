@@ -0,0 +1,127 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.events;
+
+import com.decibeltx.studytracker.core.events.StudyEventMetrics.Outcome;
+import com.decibeltx.studytracker.core.events.outbox.OutboxWorker;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.EventListenerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+
+/**
+ * Creates listeners for methods annotated with {@link AsyncStudyEventListener}, which hand study
+ * events off to the {@link StudyEventDispatcher}, or to the {@link OutboxWorker} for durable
+ * listeners when the outbox is enabled. Both are looked up on first use, since listener factories
+ * are instantiated before regular beans. Listeners are registered by an ID derived from their
+ * class and method names, which the outbox uses to deliver stored events. Both the hand-off and the
+ * later invocation are timed by the {@link StudyEventMonitor}.
+ */
+public class AsyncStudyEventListenerFactory implements EventListenerFactory, BeanFactoryAware,
+    Ordered {
+
+  private final Map<String, AsyncListenerMethodAdapter> listeners = new ConcurrentHashMap<>();
+
+  private BeanFactory beanFactory;
+
+  @Override
+  public void setBeanFactory(BeanFactory beanFactory) {
+    this.beanFactory = beanFactory;
+  }
+
+  @Override
+  public int getOrder() {
+    return 50;
+  }
+
+  @Override
+  public boolean supportsMethod(Method method) {
+    return AnnotatedElementUtils.hasAnnotation(method, AsyncStudyEventListener.class);
+  }
+
+  @Override
+  public ApplicationListener<?> createApplicationListener(String beanName, Class<?> type,
+      Method method) {
+    AsyncListenerMethodAdapter adapter = new AsyncListenerMethodAdapter(beanName, type, method);
+    listeners.put(adapter.id, adapter);
+    return adapter;
+  }
+
+  /**
+   * Returns the listener registered with the given ID, or null if there is none.
+   *
+   * @param id listener ID
+   * @return listener invocation
+   */
+  public Consumer<StudyEvent> getListener(String id) {
+    AsyncListenerMethodAdapter adapter = listeners.get(id);
+    return adapter == null ? null : adapter::processEvent;
+  }
+
+  private class AsyncListenerMethodAdapter extends InstrumentedListenerMethodAdapter {
+
+    private final boolean durable;
+
+    private final Set<StudyEvent.Type> types = EnumSet.noneOf(StudyEvent.Type.class);
+
+    private AsyncListenerMethodAdapter(String beanName, Class<?> targetClass, Method method) {
+      super(beanName, targetClass, method, AsyncStudyEventListenerFactory.this.beanFactory);
+      AsyncStudyEventListener annotation = AnnotatedElementUtils
+          .findMergedAnnotation(method, AsyncStudyEventListener.class);
+      this.durable = annotation != null && annotation.durable();
+      if (annotation != null) {
+        types.addAll(Arrays.asList(annotation.types()));
+      }
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationEvent event) {
+      if (!(event instanceof StudyEvent)) {
+        processEvent(event);
+        return;
+      } else if (!types.isEmpty() && !types.contains(((StudyEvent) event).getType())) {
+        return;
+      }
+      long start = System.nanoTime();
+      OutboxWorker outboxWorker = durable
+          ? beanFactory.getBeanProvider(OutboxWorker.class).getIfAvailable() : null;
+      if (outboxWorker != null) {
+        outboxWorker.submit(id, (StudyEvent) event);
+      } else {
+        beanFactory.getBean(StudyEventDispatcher.class)
+            .dispatch((StudyEvent) event, () -> processEvent(event));
+      }
+      StudyEventMonitor monitor = getMonitor();
+      if (monitor != null) {
+        monitor.recordListener(name, event, Outcome.DISPATCHED, System.nanoTime() - start);
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.events;
+
+import java.lang.reflect.Method;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.EventListener;
+import org.springframework.context.event.EventListenerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+
+/**
+ * Creates timed listeners for this application's {@link EventListener} methods, so that the time
+ * spent in each listener is reported to the {@link StudyEventMonitor}. Methods annotated with
+ * {@link AsyncStudyEventListener} are handled first by the {@link AsyncStudyEventListenerFactory},
+ * which times them in the same way.
+ */
+public class InstrumentedEventListenerFactory implements EventListenerFactory, BeanFactoryAware,
+    Ordered {
+
+  private static final String BASE_PACKAGE = "com.decibeltx.studytracker.";
+
+  private BeanFactory beanFactory;
+
+  @Override
+  public void setBeanFactory(BeanFactory beanFactory) {
+    this.beanFactory = beanFactory;
+  }
+
+  @Override
+  public int getOrder() {
+    return 60;
+  }
+
+  @Override
+  public boolean supportsMethod(Method method) {
+    return method.getDeclaringClass().getName().startsWith(BASE_PACKAGE)
+        && AnnotatedElementUtils.hasAnnotation(method, EventListener.class);
+  }
+
+  @Override
+  public ApplicationListener<?> createApplicationListener(String beanName, Class<?> type,
+      Method method) {
+    return new InstrumentedListenerMethodAdapter(beanName, type, method, beanFactory);
+  }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.events;
+
+import com.decibeltx.studytracker.core.events.StudyEventMetrics.Outcome;
+import java.lang.reflect.Method;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.event.ApplicationListenerMethodAdapter;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Listener method adapter that reports the time taken by each invocation to the
+ * {@link StudyEventMonitor}, when one is registered.
+ */
+class InstrumentedListenerMethodAdapter extends ApplicationListenerMethodAdapter {
+
+  protected final String id;
+
+  protected final String name;
+
+  protected final BeanFactory beanFactory;
+
+  private volatile StudyEventMonitor monitor;
+
+  InstrumentedListenerMethodAdapter(String beanName, Class<?> targetClass, Method method,
+      BeanFactory beanFactory) {
+    super(beanName, targetClass, method);
+    Class<?> userClass = ClassUtils.getUserClass(targetClass);
+    this.id = userClass.getName() + "#" + method.getName();
+    this.name = userClass.getSimpleName() + "#" + method.getName();
+    this.beanFactory = beanFactory;
+  }
+
+  @Override
+  public void processEvent(ApplicationEvent event) {
+    StudyEventMonitor monitor = getMonitor();
+    if (monitor == null) {
+      super.processEvent(event);
+      return;
+    }
+    long start = System.nanoTime();
+    Outcome outcome = Outcome.FAILURE;
+    try {
+      super.processEvent(event);
+      outcome = Outcome.SUCCESS;
+    } finally {
+      monitor.recordListener(name, event, outcome, System.nanoTime() - start);
+    }
+  }
+
+  protected StudyEventMonitor getMonitor() {
+    if (monitor == null) {
+      monitor = beanFactory.getBeanProvider(StudyEventMonitor.class).getIfAvailable();
+    }
+    return monitor;
+  }
+
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.events;
+
+import com.decibeltx.studytracker.core.model.Activity;
+import java.util.Collections;
+import java.util.List;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published after a batch of {@link Activity} records has been written to the database.
+ */
+public class NewActivityEvent extends ApplicationEvent {
+
+  private final List<Activity> activities;
+
+  public NewActivityEvent(Object source, List<Activity> activities) {
+    super(source);
+    this.activities = Collections.unmodifiableList(activities);
+  }
+
+  public List<Activity> getActivities() {
+    return activities;
+  }
+
+}
@@ -21,11 +21,11 @@ import com.decibeltx.studytracker.core.model.Study;
 import com.decibeltx.studytracker.core.repository.StudyRepository;
 import com.decibeltx.studytracker.core.storage.StorageFolder;
 import com.decibeltx.studytracker.core.storage.StudyStorageService;
-import java.util.Date;
+import com.decibeltx.studytracker.core.storage.exception.StudyStorageException;
+import java.util.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -39,21 +39,27 @@ public class NewStudyFolderListener {
   @Autowired
   private StudyRepository studyRepository;
 
-  @EventListener
-  public void onApplicationEvent(StudyEvent studyEvent) {
+  /**
+   * Creates the study's storage folder and records it with an atomic field update. The listener
+   * runs asynchronously, so it works on a freshly loaded copy of the study rather than the event's
+   * instance, which may still be in use by the publishing thread or other listeners.
+   */
+  @AsyncStudyEventListener(durable = true, types = Type.NEW_STUDY)
+  public void onApplicationEvent(StudyEvent studyEvent) throws StudyStorageException {
     if (studyEvent.getType().equals(Type.NEW_STUDY)) {
-      Study study = studyEvent.getStudy();
-      LOGGER.info(String.format("Creating storage folder for study: %s", study.getCode()));
-      try {
-        studyStorageService.createStudyFolder(study);
-        StorageFolder folder = studyStorageService.getStudyFolder(study);
-        study.setStorageFolder(folder);
-        study.setUpdatedAt(new Date());
-        studyRepository.save(study);
-      } catch (Exception e) {
-        e.printStackTrace();
-        LOGGER.error("Failed to create storage folder for study: " + study.getCode());
+      String studyId = studyEvent.getStudyId() != null
+          ? studyEvent.getStudyId() : studyEvent.getStudy().getId();
+      Optional<Study> optional = studyRepository.findById(studyId);
+      if (!optional.isPresent()) {
+        LOGGER.warn(String.format("Study %s no longer exists, skipping storage folder creation.",
+            studyId));
+        return;
       }
+      Study study = optional.get();
+      LOGGER.info(String.format("Creating storage folder for study: %s", study.getCode()));
+      studyStorageService.createStudyFolder(study);
+      StorageFolder folder = studyStorageService.getStudyFolder(study);
+      studyRepository.updateField(study.getId(), "storageFolder", folder, studyEvent.getUser());
     }
   }
 }
@@ -20,7 +20,6 @@ import com.decibeltx.studytracker.core.events.StudyEvent.Type;
 import com.decibeltx.studytracker.core.model.Study;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -28,7 +27,7 @@ public class NewStudyNotebookListener {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(NewStudyFolderListener.class);
 
-  @EventListener
+  @AsyncStudyEventListener(types = Type.NEW_STUDY)
   public void onApplicationEvent(StudyEvent studyEvent) {
     if (studyEvent.getType().equals(Type.NEW_STUDY)) {
       Study study = studyEvent.getStudy();
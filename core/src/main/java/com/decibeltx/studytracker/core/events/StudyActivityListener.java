@@ -16,22 +16,22 @@
 
 package com.decibeltx.studytracker.core.events;
 
-import com.decibeltx.studytracker.core.exception.RecordNotFoundException;
 import com.decibeltx.studytracker.core.model.Activity;
+import com.decibeltx.studytracker.core.model.Assay;
+import com.decibeltx.studytracker.core.model.ChangeSet;
 import com.decibeltx.studytracker.core.model.Study;
-import com.decibeltx.studytracker.core.repository.ActivityRepository;
-import com.decibeltx.studytracker.core.repository.StudyRepository;
-import java.util.Date;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
 import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoOperations;
 import org.springframework.stereotype.Component;
 
 /**
  * Invoked on any {@link StudyEvent} event. Creates a new {@link Activity} record to associate with
- * the target study.
+ * the target study, its program and any assay the event refers to. The record is written by the
+ * {@link ActivityWriteBuffer} along with the study's last-updated timestamp.
  */
 @Component
 public class StudyActivityListener {
@@ -39,26 +39,64 @@ public class StudyActivityListener {
   private static final Logger LOGGER = LoggerFactory.getLogger(StudyActivityListener.class);
 
   @Autowired
-  private StudyRepository studyRepository;
+  private ActivityWriteBuffer activityWriteBuffer;
 
   @Autowired
-  private ActivityRepository activityRepository;
+  private MongoOperations mongoOperations;
 
   @EventListener
   @Order(1)
   public void onApplicationEvent(StudyEvent studyEvent) {
-    LOGGER.info("Logging new study event: " + studyEvent.toString());
+    LOGGER.info("Logging new study event: {}", studyEvent);
+    StudyEventData data = studyEvent.getData();
+    ChangeSet changes = data != null ? data.getChanges() : null;
     Activity activity = new Activity();
     activity.setAction(studyEvent.getType().toString());
     activity.setUser(studyEvent.getUser());
-    activity.setDate(new Date());
-    activity.setStudy(studyEvent.getStudy());
-    activity.setData(studyEvent.getData());
-    activityRepository.save(activity);
-    Study study = studyRepository.findById(studyEvent.getStudy().getId())
-        .orElseThrow(RecordNotFoundException::new);
-    study.getActivity().add(activity);
-    study.setUpdatedAt(new Date());
-    studyRepository.save(study);
+    activity.setDate(changes != null && changes.getDate() != null
+        ? changes.getDate() : studyEvent.getDate());
+    Study study = studyEvent.getStudy();
+    activity.setStudy(study);
+    if (study.getProgram() != null) {
+      activity.setProgramId(study.getProgram().getId());
+    }
+    Assay assay = getAssay(data);
+    activity.setAssay(assay);
+    activity.setData(getActivityData(studyEvent, assay));
+    activityWriteBuffer.add(activity);
   }
+
+  /**
+   * Returns the assay an event refers to: either by ID, or, for assay updates carrying a
+   * {@link ChangeSet}, the assay the changes were recorded against.
+   */
+  private Assay getAssay(StudyEventData data) {
+    if (data == null) {
+      return null;
+    }
+    String assayId = data.getAssayId();
+    ChangeSet changes = data.getChanges();
+    if (assayId == null && changes != null
+        && mongoOperations.getCollectionName(Assay.class).equals(changes.getEntity())) {
+      assayId = changes.getEntityId();
+    }
+    return assayId != null ? mongoOperations.findById(assayId, Assay.class) : null;
+  }
+
+  /**
+   * Returns the activity record's data: the study for new studies and the assay for new or
+   * deleted assays, which the event does not carry, or otherwise the value carried by the event.
+   */
+  private static Object getActivityData(StudyEvent studyEvent, Assay assay) {
+    switch (studyEvent.getType()) {
+      case NEW_STUDY:
+        return studyEvent.getStudy();
+      case NEW_ASSAY:
+      case DELETED_ASSAY:
+        return assay;
+      default:
+        return studyEvent.getData() != null ? studyEvent.getData().getValue() : null;
+    }
+  }
+
 }
@@ -16,11 +16,23 @@
 
 package com.decibeltx.studytracker.core.events;
 
+import com.decibeltx.studytracker.core.exception.RecordNotFoundException;
 import com.decibeltx.studytracker.core.model.Study;
 import com.decibeltx.studytracker.core.model.User;
+import java.util.Date;
+import java.util.UUID;
+import java.util.function.Supplier;
 import org.springframework.context.ApplicationEvent;
 import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
 
+/**
+ * Compact envelope describing a change to a study. The event itself carries only identifiers, a
+ * date and a small payload; the full {@link Study} and {@link User} records are resolved on
+ * first access and cached for the remaining listeners. Events published in-process are created
+ * with the records already in hand, while replayed events load them on demand, so listeners that
+ * only need the IDs never touch the database.
+ */
 public class StudyEvent extends ApplicationEvent {
 
   public enum Type {
@@ -47,43 +59,127 @@ public class StudyEvent extends ApplicationEvent {
     ASSAY_STATUS_CHANGED
   }
 
+  private final String id;
   private final Type type;
-  private final Study study;
-  private final User user;
-  private final Object data;
+  private final String studyId;
+  private final Long studyVersion;
+  private final String userId;
+  private final Date date;
+  private final StudyEventData data;
+
+  private transient Supplier<Study> studyLoader;
+  private transient Supplier<User> userLoader;
+  private transient Study study;
+  private transient User user;
 
   public StudyEvent(@NonNull Object source, @NonNull Study study, @NonNull User user,
-      @NonNull Type type, Object data) {
-    super(source);
-    this.type = type;
+      @NonNull Type type, StudyEventData data) {
+    this(source, UUID.randomUUID().toString(), type, study.getId(),
+        study.getUpdatedAt() != null ? study.getUpdatedAt().getTime() : null,
+        user != null ? user.getId() : null, new Date(), data, null, null);
     this.study = study;
     this.user = user;
+  }
+
+  /**
+   * Creates an event whose study and user are loaded on first access.
+   *
+   * @param source publishing object
+   * @param id unique event ID
+   * @param type event type
+   * @param studyId ID of the affected study
+   * @param studyVersion last-modified time of the study when the event was raised, in millis
+   * @param userId ID of the user responsible for the change, if any
+   * @param date time the event was raised
+   * @param data event payload
+   * @param studyLoader loads the study, returning null if it no longer exists
+   * @param userLoader loads the user, returning null if it no longer exists
+   */
+  public StudyEvent(@NonNull Object source, @NonNull String id, @NonNull Type type,
+      @NonNull String studyId, @Nullable Long studyVersion, @Nullable String userId,
+      @NonNull Date date, StudyEventData data, Supplier<Study> studyLoader,
+      Supplier<User> userLoader) {
+    super(source);
+    this.id = id;
+    this.type = type;
+    this.studyId = studyId;
+    this.studyVersion = studyVersion;
+    this.userId = userId;
+    this.date = date;
     this.data = data;
+    this.studyLoader = studyLoader;
+    this.userLoader = userLoader;
+  }
+
+  public String getId() {
+    return id;
   }
 
   public Type getType() {
     return type;
   }
 
-  public Study getStudy() {
-    return study;
+  public String getStudyId() {
+    return studyId;
   }
 
-  public User getUser() {
-    return user;
+  public Long getStudyVersion() {
+    return studyVersion;
+  }
+
+  public String getUserId() {
+    return userId;
   }
 
-  public Object getData() {
+  public Date getDate() {
+    return new Date(date.getTime());
+  }
+
+  public StudyEventData getData() {
     return data;
   }
 
+  /**
+   * Returns the affected study, loading it on first access.
+   *
+   * @return the study
+   * @throws RecordNotFoundException if the study no longer exists
+   */
+  public synchronized Study getStudy() {
+    if (study == null && studyLoader != null) {
+      study = studyLoader.get();
+      studyLoader = null;
+    }
+    if (study == null) {
+      throw new RecordNotFoundException("Study not found: " + studyId);
+    }
+    return study;
+  }
+
+  /**
+   * Returns the user responsible for the event, loading it on first access.
+   *
+   * @return the user, or null if the event has no user or it no longer exists
+   */
+  public synchronized User getUser() {
+    if (user == null && userLoader != null) {
+      user = userLoader.get();
+      userLoader = null;
+    }
+    return user;
+  }
+
   @Override
   public String toString() {
-    return "StudyEvent{" +
-        "type=" + type +
-        ", study=" + study +
-        ", user=" + user +
-        ", data=" + data +
-        '}';
+    Object value = data != null ? data.getValue() : null;
+    return "StudyEvent{"
+        + "id=" + id
+        + ", type=" + type
+        + ", studyId=" + studyId
+        + ", studyVersion=" + studyVersion
+        + ", userId=" + userId
+        + ", date=" + date.toInstant()
+        + ", data=" + (value != null ? value.getClass().getSimpleName() : null)
+        + '}';
   }
 }
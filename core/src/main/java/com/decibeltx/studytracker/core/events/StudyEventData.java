@@ -0,0 +1,123 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.decibeltx.studytracker.core.events;
+
+import com.decibeltx.studytracker.core.model.Assay;
+import com.decibeltx.studytracker.core.model.ChangeSet;
+import com.decibeltx.studytracker.core.model.Comment;
+import com.decibeltx.studytracker.core.model.Conclusions;
+import com.decibeltx.studytracker.core.model.ExternalLink;
+import com.decibeltx.studytracker.core.model.StudyRelationship;
+import com.decibeltx.studytracker.core.storage.BasicStorageFile;
+import com.decibeltx.studytracker.core.storage.StorageFile;
+import lombok.Data;
+
+/**
+ * Payload of a {@link StudyEvent}. Studies and assays are referred to by ID and loaded by the
+ * listeners that need them, so that the payload stays small when it is stored in the event outbox.
+ * Other values are the small embedded records, change sets and file metadata that the event
+ * describes.
+ */
+@Data
+public class StudyEventData {
+
+  private String assayId;
+
+  private ChangeSet changes;
+
+  private BasicStorageFile file;
+
+  private Comment comment;
+
+  private Conclusions conclusions;
+
+  private ExternalLink externalLink;
+
+  private StudyRelationship relationship;
+
+  public static StudyEventData ofAssay(Assay assay) {
+    StudyEventData data = new StudyEventData();
+    data.setAssayId(assay.getId());
+    return data;
+  }
+
+  public static StudyEventData ofChanges(ChangeSet changes) {
+    StudyEventData data = new StudyEventData();
+    data.setChanges(changes);
+    return data;
+  }
+
+  public static StudyEventData ofFile(StorageFile storageFile) {
+    BasicStorageFile file = new BasicStorageFile();
+    file.setName(storageFile.getName());
+    file.setPath(storageFile.getPath());
+    file.setUrl(storageFile.getUrl());
+    if (storageFile instanceof BasicStorageFile) {
+      file.setSize(((BasicStorageFile) storageFile).getSize());
+      file.setChecksum(((BasicStorageFile) storageFile).getChecksum());
+    }
+    StudyEventData data = new StudyEventData();
+    data.setFile(file);
+    return data;
+  }
+
+  public static StudyEventData ofComment(Comment comment) {
+    StudyEventData data = new StudyEventData();
+    data.setComment(comment);
+    return data;
+  }
+
+  public static StudyEventData ofConclusions(Conclusions conclusions) {
+    StudyEventData data = new StudyEventData();
+    data.setConclusions(conclusions);
+    return data;
+  }
+
+  public static StudyEventData ofExternalLink(ExternalLink externalLink) {
+    StudyEventData data = new StudyEventData();
+    data.setExternalLink(externalLink);
+    return data;
+  }
+
+  public static StudyEventData ofRelationship(StudyRelationship relationship) {
+    StudyEventData data = new StudyEventData();
+    data.setRelationship(relationship);
+    return data;
+  }
+
+  /**
+   * Returns the value the event describes, other than a referenced study or assay.
+   *
+   * @return the change set, file, or embedded record, or null if there is none
+   */
+  public Object getValue() {
+    if (changes != null) {
+      return changes;
+    } else if (file != null) {
+      return file;
+    } else if (comment != null) {
+      return comment;
+    } else if (conclusions != null) {
+      return conclusions;
+    } else if (externalLink != null) {
+      return externalLink;
+    } else {
+      return relationship;
+    }
+  }
+
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.events;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+
+/**
+ * Runs {@link AsyncStudyEventListener} tasks off the publishing thread. Tasks are partitioned by
+ * study ID across a fixed number of single-threaded workers, each with a bounded queue, so that
+ * events for one study are always handled in publication order while different studies are
+ * handled in parallel. When a partition's queue is full, the publishing thread is blocked until
+ * there is room, so that no event is dropped or reordered. A listener that publishes an event to
+ * its own partition while that partition's queue is full is never blocked, since the worker would
+ * be waiting on itself; the task runs on the calling thread instead. Events for other partitions
+ * wait for room like any other publisher, so that they are never run ahead of that partition's
+ * queued events. Tasks that are queued while the dispatcher shuts down are run on the calling
+ * thread rather than lost. When disabled, all tasks run on the calling thread.
+ */
+public class StudyEventDispatcher implements DisposableBean {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(StudyEventDispatcher.class);
+
+  private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+  private final ThreadPoolExecutor[] partitions;
+
+  private final AtomicLong submitted = new AtomicLong();
+
+  private final AtomicLong blocked = new AtomicLong();
+
+  private final AtomicReferenceArray<Thread> workers;
+
+  private final AtomicLong failed = new AtomicLong();
+
+  public StudyEventDispatcher(boolean enabled, int partitionCount, int queueCapacity) {
+    if (enabled) {
+      this.partitions = new ThreadPoolExecutor[partitionCount];
+      this.workers = new AtomicReferenceArray<>(partitionCount);
+      for (int i = 0; i < partitionCount; i++) {
+        int partition = i;
+        String threadName = "study-events-" + i;
+        partitions[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(queueCapacity), r -> {
+              Thread thread = new Thread(r, threadName);
+              workers.set(partition, thread);
+              return thread;
+            }, (task, executor) -> handleFullQueue(partition, task, executor));
+      }
+    } else {
+      this.partitions = new ThreadPoolExecutor[0];
+      this.workers = new AtomicReferenceArray<>(0);
+    }
+  }
+
+  /**
+   * Waits for room in the partition's queue, unless the caller is the partition's own worker or
+   * the partition has shut down, in which case the task is run on the calling thread.
+   */
+  private void handleFullQueue(int partition, Runnable task, ThreadPoolExecutor executor) {
+    if (executor.isShutdown() || workers.get(partition) == Thread.currentThread()) {
+      LOGGER.warn("Study event queue is unavailable, running listener on the calling thread.");
+      task.run();
+      return;
+    }
+    blocked.incrementAndGet();
+    try {
+      executor.getQueue().put(task);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RejectedExecutionException("Interrupted waiting for study event queue", e);
+    }
+    // The worker may have drained the queue and exited between the check above and the put
+    if (executor.isShutdown() && executor.getQueue().remove(task)) {
+      LOGGER.warn("Study event queue shut down, running listener on the calling thread.");
+      task.run();
+    }
+  }
+
+  /**
+   * Runs the listener task for the given event, either on the partition assigned to the event's
+   * study, or immediately if asynchronous dispatch is disabled.
+   *
+   * @param event the event being handled
+   * @param task the listener invocation
+   */
+  public void dispatch(StudyEvent event, Runnable task) {
+    submitted.incrementAndGet();
+    Runnable guarded = () -> {
+      try {
+        task.run();
+      } catch (Exception e) {
+        failed.incrementAndGet();
+        LOGGER.error("Failed to handle study event: " + event.getType(), e);
+      }
+    };
+    if (partitions.length == 0) {
+      guarded.run();
+      return;
+    }
+    String key = event.getStudyId() != null
+        ? event.getStudyId() : event.getStudy().getCode();
+    int partition = key == null ? 0 : Math.floorMod(key.hashCode(), partitions.length);
+    partitions[partition].execute(guarded);
+  }
+
+  public boolean isEnabled() {
+    return partitions.length > 0;
+  }
+
+  /**
+   * Returns the number of tasks waiting to run, across all partitions.
+   *
+   * @return queued task count
+   */
+  public int getQueueDepth() {
+    int depth = 0;
+    for (ThreadPoolExecutor executor : partitions) {
+      depth = depth + executor.getQueue().size();
+    }
+    return depth;
+  }
+
+  public long getSubmittedCount() {
+    return submitted.get();
+  }
+
+  /**
+   * Returns the number of times a publishing thread has had to wait for room in a full partition
+   * queue.
+   *
+   * @return blocked publish count
+   */
+  public long getBlockedCount() {
+    return blocked.get();
+  }
+
+  public long getFailedCount() {
+    return failed.get();
+  }
+
+  /**
+   * Stops accepting new tasks and waits for queued events to be handled.
+   */
+  @Override
+  public void destroy() throws InterruptedException {
+    for (ThreadPoolExecutor executor : partitions) {
+      executor.shutdown();
+    }
+    for (ThreadPoolExecutor executor : partitions) {
+      if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+        LOGGER.warn(String.format("Discarding %d unprocessed study events.",
+            executor.shutdownNow().size()));
+      }
+    }
+  }
+
+}
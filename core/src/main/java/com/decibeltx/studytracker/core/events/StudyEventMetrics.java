@@ -0,0 +1,56 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.events;
+
+/**
+ * Receives the timings collected by the {@link StudyEventMonitor}, for export to a metrics system.
+ * Implementations are registered as beans, and must be thread-safe.
+ */
+public interface StudyEventMetrics {
+
+  /**
+   * Result of a listener invocation. Listeners that run asynchronously are recorded twice: once as
+   * {@code DISPATCHED}, timing the hand-off on the publishing thread, and once with the result of
+   * the invocation itself.
+   */
+  enum Outcome {
+    SUCCESS,
+    FAILURE,
+    DISPATCHED
+  }
+
+  /**
+   * Records the time taken to publish an event, including all listeners invoked on the publishing
+   * thread.
+   *
+   * @param event event type
+   * @param nanos elapsed time
+   */
+  void recordPublish(String event, long nanos);
+
+  /**
+   * Records the time taken by a single listener invocation.
+   *
+   * @param listener listener name
+   * @param event event type
+   * @param outcome invocation result
+   * @param nanos elapsed time
+   */
+  void recordListener(String listener, String event, Outcome outcome, long nanos);
+
+}
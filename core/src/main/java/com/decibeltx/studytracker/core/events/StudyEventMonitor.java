@@ -0,0 +1,114 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.events;
+
+import com.decibeltx.studytracker.core.events.StudyEventMetrics.Outcome;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Times study event publication and each listener invocation, passing the timings on to the
+ * registered {@link StudyEventMetrics}. The listener timings of each event published through the
+ * {@link StudyEventPublisher} are collected on the publishing thread, and a summary is logged at
+ * debug level for any event that takes longer than the slow-event threshold.
+ */
+public class StudyEventMonitor {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(StudyEventMonitor.class);
+
+  private final ThreadLocal<Map<String, Long>> timings = new ThreadLocal<>();
+
+  private final long slowEventNanos;
+
+  private final List<StudyEventMetrics> metrics;
+
+  public StudyEventMonitor(long slowEventThreshold, TimeUnit unit,
+      List<StudyEventMetrics> metrics) {
+    this.slowEventNanos = unit.toNanos(slowEventThreshold);
+    this.metrics = metrics;
+  }
+
+  /**
+   * Runs the publication of a study event, timing it and the listeners it invokes on the current
+   * thread.
+   *
+   * @param event event being published
+   * @param publication publishes the event
+   */
+  public void publish(StudyEvent event, Runnable publication) {
+    Map<String, Long> outer = timings.get();
+    Map<String, Long> breakdown = new LinkedHashMap<>();
+    timings.set(breakdown);
+    long start = System.nanoTime();
+    try {
+      publication.run();
+    } finally {
+      long elapsed = System.nanoTime() - start;
+      if (outer == null) {
+        timings.remove();
+      } else {
+        timings.set(outer);
+      }
+      String name = getEventName(event);
+      for (StudyEventMetrics m : metrics) {
+        m.recordPublish(name, elapsed);
+      }
+      if (elapsed >= slowEventNanos && LOGGER.isDebugEnabled()) {
+        LOGGER.debug("Publishing {} event for study {} took {} ms: {}", name,
+            event.getStudyId(), TimeUnit.NANOSECONDS.toMillis(elapsed),
+            breakdown.entrySet().stream()
+                .map(e -> e.getKey() + "=" + TimeUnit.NANOSECONDS.toMillis(e.getValue()) + "ms")
+                .collect(Collectors.joining(", ")));
+      }
+    }
+  }
+
+  /**
+   * Records a single listener invocation.
+   *
+   * @param listener listener name
+   * @param event handled event
+   * @param outcome invocation result
+   * @param nanos elapsed time
+   */
+  public void recordListener(String listener, ApplicationEvent event, Outcome outcome,
+      long nanos) {
+    String name = getEventName(event);
+    for (StudyEventMetrics m : metrics) {
+      m.recordListener(listener, name, outcome, nanos);
+    }
+    Map<String, Long> breakdown = timings.get();
+    if (breakdown != null) {
+      breakdown.merge(outcome == Outcome.DISPATCHED ? listener + " (dispatch)" : listener, nanos,
+          Long::sum);
+    }
+  }
+
+  private static String getEventName(ApplicationEvent event) {
+    return event instanceof StudyEvent
+        ? ((StudyEvent) event).getType().toString()
+        : event.getClass().getSimpleName();
+  }
+
+}
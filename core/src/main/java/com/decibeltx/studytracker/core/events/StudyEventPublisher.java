@@ -29,8 +29,12 @@ public class StudyEventPublisher {
   @Autowired
   private ApplicationEventPublisher publisher;
 
-  public void publishStudyEvent(Study study, User user, Type type, Object data) {
-    publisher.publishEvent(new StudyEvent(this, study, user, type, data));
+  @Autowired
+  private StudyEventMonitor studyEventMonitor;
+
+  public void publishStudyEvent(Study study, User user, Type type, StudyEventData data) {
+    StudyEvent event = new StudyEvent(this, study, user, type, data);
+    studyEventMonitor.publish(event, () -> publisher.publishEvent(event));
   }
 
   public void publishStudyEvent(Study study, User user, Type type) {
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.events.outbox;
+
+import com.decibeltx.studytracker.core.events.StudyEvent;
+import com.decibeltx.studytracker.core.model.OutboxEvent;
+import com.decibeltx.studytracker.core.model.OutboxEvent.Status;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+/**
+ * Durable queue of {@link StudyEvent} deliveries, backed by the {@code event_outbox} collection.
+ * Each record is claimed atomically with a lease, so that several application instances can drain
+ * the outbox concurrently, and records whose lease has expired (eg. because their worker died) are
+ * claimed again. Failed deliveries are retried with exponential backoff until the maximum number of
+ * attempts is reached.
+ */
+public class EventOutbox {
+
+  private final MongoOperations mongoOperations;
+
+  private final int maxAttempts;
+
+  private final long leaseMillis;
+
+  private final long backoffMillis;
+
+  private final long maxBackoffMillis;
+
+  public EventOutbox(MongoOperations mongoOperations, int maxAttempts, long leaseMillis,
+      long backoffMillis, long maxBackoffMillis) {
+    this.mongoOperations = mongoOperations;
+    this.maxAttempts = maxAttempts;
+    this.leaseMillis = leaseMillis;
+    this.backoffMillis = backoffMillis;
+    this.maxBackoffMillis = maxBackoffMillis;
+  }
+
+  /**
+   * Records a pending delivery of the event to the named listener.
+   *
+   * @param listener listener ID
+   * @param event the event to deliver
+   * @return the stored record
+   */
+  public OutboxEvent enqueue(String listener, StudyEvent event) {
+    Date now = new Date();
+    OutboxEvent outboxEvent = new OutboxEvent();
+    outboxEvent.setListener(listener);
+    outboxEvent.setType(event.getType().toString());
+    outboxEvent.setEventId(event.getId());
+    outboxEvent.setStudyId(event.getStudyId());
+    outboxEvent.setStudyVersion(event.getStudyVersion());
+    outboxEvent.setUserId(event.getUserId());
+    outboxEvent.setData(event.getData());
+    outboxEvent.setStatus(Status.PENDING);
+    outboxEvent.setCreatedAt(event.getDate());
+    outboxEvent.setNextAttemptAt(now);
+    return mongoOperations.insert(outboxEvent);
+  }
+
+  /**
+   * Claims up to {@code limit} deliveries that are due, leasing them to the given owner. Records
+   * whose lease has expired are reclaimed first, then pending records in the order they became
+   * due. Each is selected and sorted by its own compound index, so a claim does not depend on the
+   * size of the backlog.
+   *
+   * @param owner ID of the claiming worker
+   * @param limit maximum number of records to claim
+   * @return the claimed records
+   */
+  public List<OutboxEvent> claim(String owner, int limit) {
+    List<OutboxEvent> claimed = new ArrayList<>();
+    while (claimed.size() < limit) {
+      Date now = new Date();
+      OutboxEvent outboxEvent = claimOne(owner, now, new Query(
+          Criteria.where("status").is(Status.PROCESSING).and("leaseExpiresAt").lt(now))
+          .with(Sort.by(Sort.Direction.ASC, "leaseExpiresAt")));
+      if (outboxEvent == null) {
+        outboxEvent = claimOne(owner, now, new Query(
+            Criteria.where("status").is(Status.PENDING).and("nextAttemptAt").lte(now))
+            .with(Sort.by(Sort.Direction.ASC, "nextAttemptAt")));
+      }
+      if (outboxEvent == null) {
+        break;
+      }
+      claimed.add(outboxEvent);
+    }
+    return claimed;
+  }
+
+  private OutboxEvent claimOne(String owner, Date now, Query query) {
+    Update update = new Update()
+        .set("status", Status.PROCESSING)
+        .set("leaseOwner", owner)
+        .set("leaseExpiresAt", new Date(now.getTime() + leaseMillis))
+        .inc("attempts", 1);
+    return mongoOperations.findAndModify(query, update,
+        FindAndModifyOptions.options().returnNew(true), OutboxEvent.class);
+  }
+
+  /**
+   * Marks a claimed delivery as complete. Has no effect if the lease has since been taken over by
+   * another worker.
+   *
+   * @param outboxEvent claimed record
+   */
+  public void complete(OutboxEvent outboxEvent) {
+    Update update = new Update()
+        .set("status", Status.COMPLETE)
+        .set("completedAt", new Date())
+        .unset("leaseOwner")
+        .unset("leaseExpiresAt");
+    mongoOperations.updateFirst(leased(outboxEvent), update, OutboxEvent.class);
+  }
+
+  /**
+   * Records a failed delivery attempt, scheduling a retry after an exponentially increasing delay,
+   * or moving the record to the {@code DEAD} state if it has used all of its attempts.
+   *
+   * @param outboxEvent claimed record
+   * @param error cause of the failure
+   */
+  public void fail(OutboxEvent outboxEvent, Exception error) {
+    Update update = new Update()
+        .set("lastError", error.getClass().getName() + ": " + error.getMessage())
+        .unset("leaseOwner")
+        .unset("leaseExpiresAt");
+    if (outboxEvent.getAttempts() >= maxAttempts) {
+      update.set("status", Status.DEAD);
+    } else {
+      update.set("status", Status.PENDING)
+          .set("nextAttemptAt", new Date(System.currentTimeMillis()
+              + getBackoff(outboxEvent.getAttempts())));
+    }
+    mongoOperations.updateFirst(leased(outboxEvent), update, OutboxEvent.class);
+  }
+
+  /**
+   * Returns a dead-lettered delivery to the queue, with a fresh set of attempts.
+   *
+   * @param id record ID
+   * @return true if the record was found in the {@code DEAD} state
+   */
+  public boolean retry(String id) {
+    Query query = new Query(Criteria.where("id").is(id).and("status").is(Status.DEAD));
+    Update update = new Update()
+        .set("status", Status.PENDING)
+        .set("attempts", 0)
+        .set("nextAttemptAt", new Date());
+    return mongoOperations.updateFirst(query, update, OutboxEvent.class).getModifiedCount() > 0;
+  }
+
+  /**
+   * Returns how long a claimed delivery is leased to its worker before it may be claimed again.
+   *
+   * @return lease duration, in milliseconds
+   */
+  public long getLeaseMillis() {
+    return leaseMillis;
+  }
+
+  public long count(Status status) {
+    return mongoOperations.count(new Query(Criteria.where("status").is(status)),
+        OutboxEvent.class);
+  }
+
+  private long getBackoff(int attempts) {
+    long delay = backoffMillis << Math.min(Math.max(attempts - 1, 0), 30);
+    return Math.min(delay, maxBackoffMillis);
+  }
+
+  private static Query leased(OutboxEvent outboxEvent) {
+    return new Query(Criteria.where("id").is(outboxEvent.getId())
+        .and("leaseOwner").is(outboxEvent.getLeaseOwner()));
+  }
+
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.events.outbox;
+
+import com.decibeltx.studytracker.core.events.AsyncStudyEventListenerFactory;
+import com.decibeltx.studytracker.core.events.StudyEvent;
+import com.decibeltx.studytracker.core.events.StudyEvent.Type;
+import com.decibeltx.studytracker.core.events.StudyEventDispatcher;
+import com.decibeltx.studytracker.core.exception.RecordNotFoundException;
+import com.decibeltx.studytracker.core.exception.StudyTrackerException;
+import com.decibeltx.studytracker.core.model.OutboxEvent;
+import com.decibeltx.studytracker.core.model.Study;
+import com.decibeltx.studytracker.core.repository.StudyRepository;
+import com.decibeltx.studytracker.core.repository.UserRepository;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+
+/**
+ * Drains the {@link EventOutbox} in the background. Pending deliveries are claimed in batches on a
+ * fixed polling interval, or immediately after a new event is enqueued on this instance, and are
+ * handed to the {@link StudyEventDispatcher} so that each study's events are still handled in
+ * order. The worker waits for each batch for no longer than the outbox lease, after which the
+ * unfinished deliveries may be claimed by another worker. The study and user for each event are
+ * re-read from the database only if the listener asks for them, and deliveries for studies that
+ * no longer exist are discarded.
+ */
+public class OutboxWorker implements DisposableBean {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(OutboxWorker.class);
+
+  private final String workerId = UUID.randomUUID().toString();
+
+  private final EventOutbox outbox;
+
+  private final AsyncStudyEventListenerFactory listenerFactory;
+
+  private final StudyEventDispatcher dispatcher;
+
+  private final StudyRepository studyRepository;
+
+  private final UserRepository userRepository;
+
+  private final long pollMillis;
+
+  private final int batchSize;
+
+  private final ScheduledExecutorService scheduler = Executors
+      .newSingleThreadScheduledExecutor(r -> new Thread(r, "event-outbox"));
+
+  public OutboxWorker(EventOutbox outbox, AsyncStudyEventListenerFactory listenerFactory,
+      StudyEventDispatcher dispatcher, StudyRepository studyRepository,
+      UserRepository userRepository, long pollMillis, int batchSize) {
+    this.outbox = outbox;
+    this.listenerFactory = listenerFactory;
+    this.dispatcher = dispatcher;
+    this.studyRepository = studyRepository;
+    this.userRepository = userRepository;
+    this.pollMillis = pollMillis;
+    this.batchSize = batchSize;
+  }
+
+  public void start() {
+    LOGGER.info(String.format("Starting event outbox worker %s", workerId));
+    scheduler.scheduleWithFixedDelay(this::drain, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Stores a delivery of the event to the given listener, and schedules an immediate drain of the
+   * outbox.
+   *
+   * @param listener listener ID
+   * @param event the event to deliver
+   */
+  public void submit(String listener, StudyEvent event) {
+    outbox.enqueue(listener, event);
+    try {
+      scheduler.execute(this::drain);
+    } catch (RejectedExecutionException e) {
+      LOGGER.warn("Event outbox worker is stopped, event will be delivered by another instance.");
+    }
+  }
+
+  private void drain() {
+    try {
+      List<OutboxEvent> batch = outbox.claim(workerId, batchSize);
+      while (!batch.isEmpty()) {
+        CountDownLatch latch = new CountDownLatch(batch.size());
+        for (OutboxEvent outboxEvent : batch) {
+          deliver(outboxEvent, latch);
+        }
+        if (!latch.await(outbox.getLeaseMillis(), TimeUnit.MILLISECONDS)) {
+          LOGGER.warn(String.format("%d outbox deliveries did not finish within their lease, "
+              + "leaving them to be claimed again.", latch.getCount()));
+          return;
+        }
+        batch = outbox.claim(workerId, batchSize);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Exception e) {
+      LOGGER.error("Failed to drain the event outbox", e);
+    }
+  }
+
+  private void deliver(OutboxEvent outboxEvent, CountDownLatch latch) {
+    AtomicBoolean missing = new AtomicBoolean(false);
+    StudyEvent event = new StudyEvent(this,
+        outboxEvent.getEventId() != null ? outboxEvent.getEventId() : outboxEvent.getId(),
+        Type.valueOf(outboxEvent.getType()),
+        outboxEvent.getStudyId(),
+        outboxEvent.getStudyVersion(),
+        outboxEvent.getUserId(),
+        outboxEvent.getCreatedAt(),
+        outboxEvent.getData(),
+        () -> {
+          Study study = studyRepository.findById(outboxEvent.getStudyId()).orElse(null);
+          missing.set(study == null);
+          return study;
+        },
+        () -> outboxEvent.getUserId() != null
+            ? userRepository.findById(outboxEvent.getUserId()).orElse(null) : null
+    );
+    dispatcher.dispatch(event, () -> {
+      try {
+        Consumer<StudyEvent> listener = listenerFactory.getListener(outboxEvent.getListener());
+        if (listener == null) {
+          throw new StudyTrackerException("No listener registered with ID: "
+              + outboxEvent.getListener());
+        }
+        listener.accept(event);
+        outbox.complete(outboxEvent);
+      } catch (RecordNotFoundException e) {
+        if (missing.get()) {
+          LOGGER.warn(String.format("Study %s no longer exists, discarding %s event",
+              outboxEvent.getStudyId(), outboxEvent.getType()));
+          outbox.complete(outboxEvent);
+        } else {
+          fail(outboxEvent, e);
+        }
+      } catch (Exception e) {
+        fail(outboxEvent, e);
+      } finally {
+        latch.countDown();
+      }
+    });
+  }
+
+  private void fail(OutboxEvent outboxEvent, Exception e) {
+    LOGGER.warn(String.format("Delivery of %s event %s to %s failed on attempt %d",
+        outboxEvent.getType(), outboxEvent.getId(), outboxEvent.getListener(),
+        outboxEvent.getAttempts()), e);
+    outbox.fail(outboxEvent, e);
+  }
+
+  /**
+   * Stops polling and waits for the current batch to finish. Unfinished deliveries are picked up
+   * again once their leases expire.
+   */
+  @Override
+  public void destroy() throws InterruptedException {
+    scheduler.shutdown();
+    scheduler.awaitTermination(30, TimeUnit.SECONDS);
+  }
+
+}
@@ -36,10 +36,14 @@ import com.decibeltx.studytracker.core.repository.CollaboratorRepository;
 import com.decibeltx.studytracker.core.repository.ProgramRepository;
 import com.decibeltx.studytracker.core.repository.StudyRepository;
 import com.decibeltx.studytracker.core.repository.UserRepository;
+import com.decibeltx.studytracker.core.service.AutocompleteService;
+import com.decibeltx.studytracker.core.service.SequenceService;
+import com.decibeltx.studytracker.core.service.StatisticsService;
 import com.decibeltx.studytracker.core.service.StudyCommentService;
 import com.decibeltx.studytracker.core.service.StudyConclusionsService;
 import com.decibeltx.studytracker.core.service.StudyExternalLinkService;
 import com.decibeltx.studytracker.core.service.StudyService;
+import com.decibeltx.studytracker.core.service.UserService;
 import com.decibeltx.studytracker.core.storage.StorageFolder;
 import com.decibeltx.studytracker.core.storage.StudyStorageService;
 import com.decibeltx.studytracker.core.storage.exception.StudyStorageNotFoundException;
@@ -91,6 +95,18 @@ public class ExampleDataGenerator {
   @Autowired
   private StudyConclusionsService conclusionsService;
 
+  @Autowired
+  private SequenceService sequenceService;
+
+  @Autowired
+  private AutocompleteService autocompleteService;
+
+  @Autowired
+  private UserService userService;
+
+  @Autowired
+  private StatisticsService statisticsService;
+
   public List<Program> generateExamplePrograms() {
     List<Program> programs = new ArrayList<>();
 
@@ -497,6 +513,8 @@ public class ExampleDataGenerator {
       studyRepository.deleteAll();
       assayRepository.deleteAll();
       activityRepository.deleteAll();
+      sequenceService.deleteAll();
+      userService.clearCache();
 
       LOGGER.info("Inserting example data...");
       programRepository.insert(generateExamplePrograms());
@@ -513,6 +531,8 @@ public class ExampleDataGenerator {
         studyRepository.save(study);
       }
       createAssayFolders();
+      autocompleteService.rebuild();
+      statisticsService.reconcile();
 
       LOGGER.info("Done.");
 
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.decibeltx.studytracker.core.exception;
+
+/**
+ * Thrown when a client-supplied request parameter, such as a sort field or page cursor, cannot be
+ * used to fulfill the request.
+ */
+public class InvalidRequestException extends StudyTrackerException {
+
+  public InvalidRequestException() {
+  }
+
+  public InvalidRequestException(String message) {
+    super(message);
+  }
+
+  public InvalidRequestException(String message, Throwable cause) {
+    super(message, cause);
+  }
+
+  public InvalidRequestException(Throwable cause) {
+    super(cause);
+  }
+
+  public InvalidRequestException(String message, Throwable cause, boolean enableSuppression,
+      boolean writableStackTrace) {
+    super(message, cause, enableSuppression, writableStackTrace);
+  }
+
+}
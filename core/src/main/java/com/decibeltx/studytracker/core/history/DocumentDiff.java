@@ -0,0 +1,189 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.history;
+
+import com.decibeltx.studytracker.core.model.FieldChange;
+import com.mongodb.DBRef;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mapping.context.MappingContext;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+
+/**
+ * Computes and applies field-level differences between stored versions of a record. Embedded
+ * documents are compared field by field, while lists and references are compared as whole values.
+ * Recorded values have references replaced by the referenced record IDs, and are converted back
+ * to references, using the record's mapping metadata, when changes are applied.
+ */
+public class DocumentDiff {
+
+  /**
+   * Fields that are maintained automatically on each save, and so are not recorded as changes.
+   */
+  private static final Set<String> IGNORED_FIELDS = Collections.unmodifiableSet(new HashSet<>(
+      Arrays.asList("_id", "_class", "updatedAt", "lastModifiedBy", "searchTokens")));
+
+  private final MappingContext<? extends MongoPersistentEntity<?>, MongoPersistentProperty>
+      mappingContext;
+
+  public DocumentDiff(
+      MappingContext<? extends MongoPersistentEntity<?>, MongoPersistentProperty> mappingContext) {
+    this.mappingContext = mappingContext;
+  }
+
+  /**
+   * Returns the changes that transform the {@code before} document into the {@code after}
+   * document, in document field order.
+   *
+   * @param before stored version of the record
+   * @param after updated version of the record
+   * @return changed fields
+   */
+  public List<FieldChange> diff(Document before, Document after) {
+    List<FieldChange> changes = new ArrayList<>();
+    diff(null, before, after, changes);
+    return changes;
+  }
+
+  private void diff(String prefix, Document before, Document after, List<FieldChange> changes) {
+    Set<String> keys = new LinkedHashSet<>(before.keySet());
+    keys.addAll(after.keySet());
+    for (String key : keys) {
+      if (prefix == null && IGNORED_FIELDS.contains(key)) {
+        continue;
+      }
+      String path = prefix == null ? key : prefix + "." + key;
+      Object oldValue = before.get(key);
+      Object newValue = after.get(key);
+      if (oldValue instanceof Document && newValue instanceof Document) {
+        diff(path, (Document) oldValue, (Document) newValue, changes);
+      } else if (!Objects.equals(oldValue, newValue)) {
+        changes.add(new FieldChange(path, normalize(oldValue), normalize(newValue)));
+      }
+    }
+  }
+
+  /**
+   * Applies a change to the provided document, converting recorded reference IDs back to
+   * references.
+   *
+   * @param type type of the record the document represents
+   * @param document document to modify
+   * @param change change to apply
+   */
+  public void apply(Class<?> type, Document document, FieldChange change) {
+    String[] path = change.getPath().split("\\.");
+    MongoPersistentEntity<?> entity = mappingContext.getPersistentEntity(type);
+    Document target = document;
+    MongoPersistentProperty property = null;
+    for (int i = 0; i < path.length; i++) {
+      property = entity != null ? findProperty(entity, path[i]) : null;
+      if (i == path.length - 1) {
+        break;
+      }
+      Object child = target.get(path[i]);
+      if (!(child instanceof Document)) {
+        child = new Document();
+        target.put(path[i], child);
+      }
+      target = (Document) child;
+      entity = property != null && property.isEntity()
+          ? mappingContext.getPersistentEntity(property.getActualType()) : null;
+    }
+    String field = path[path.length - 1];
+    if (change.getNewValue() == null) {
+      target.remove(field);
+    } else {
+      target.put(field, restore(change.getNewValue(), property));
+    }
+  }
+
+  /**
+   * Replaces references with the referenced record IDs, and removes type hints, so that values
+   * can be stored and serialized without resolving the referenced records.
+   */
+  private static Object normalize(Object value) {
+    if (value instanceof DBRef) {
+      return ((DBRef) value).getId().toString();
+    } else if (value instanceof ObjectId) {
+      return value.toString();
+    } else if (value instanceof Document) {
+      Document document = new Document();
+      for (Map.Entry<String, Object> entry : ((Document) value).entrySet()) {
+        if (!"_class".equals(entry.getKey())) {
+          document.put(entry.getKey(), normalize(entry.getValue()));
+        }
+      }
+      return document;
+    } else if (value instanceof List) {
+      return ((List<?>) value).stream().map(DocumentDiff::normalize)
+          .collect(Collectors.toList());
+    } else {
+      return value;
+    }
+  }
+
+  private Object restore(Object value, MongoPersistentProperty property) {
+    if (value == null || property == null) {
+      return value;
+    } else if (value instanceof List) {
+      return ((List<?>) value).stream().map(v -> restore(v, property))
+          .collect(Collectors.toList());
+    } else if (property.isDbReference()) {
+      MongoPersistentEntity<?> target =
+          mappingContext.getPersistentEntity(property.getActualType());
+      String id = value.toString();
+      return target == null ? value
+          : new DBRef(target.getCollection(), ObjectId.isValid(id) ? new ObjectId(id) : id);
+    } else if (property.isEntity() && value instanceof Map) {
+      MongoPersistentEntity<?> entity =
+          mappingContext.getPersistentEntity(property.getActualType());
+      Document document = new Document();
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        String key = entry.getKey().toString();
+        document.put(key, restore(entry.getValue(),
+            entity != null ? findProperty(entity, key) : null));
+      }
+      return document;
+    } else {
+      return value;
+    }
+  }
+
+  private static MongoPersistentProperty findProperty(MongoPersistentEntity<?> entity,
+      String fieldName) {
+    for (MongoPersistentProperty property : entity) {
+      if (property.getFieldName().equals(fieldName)) {
+        return property;
+      }
+    }
+    return null;
+  }
+
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.migration;
+
+import com.decibeltx.studytracker.core.model.Activity;
+import com.decibeltx.studytracker.core.model.Study;
+import com.mongodb.DBRef;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+/**
+ * Copies each study's program ID onto its existing activity records. New records are given the
+ * program ID as they are written.
+ */
+public class BackfillActivityProgramIdMigration implements Migration {
+
+  private static final int BATCH_SIZE = 1000;
+
+  @Override
+  public String getId() {
+    return "0004";
+  }
+
+  @Override
+  public String getDescription() {
+    return "Populate the program ID of existing activity records";
+  }
+
+  @Override
+  public void migrate(MongoOperations mongoOperations) {
+    Query query = new Query();
+    query.fields().include("program");
+    String activityCollection = mongoOperations.getCollectionName(Activity.class);
+    BulkOperations operations = mongoOperations.bulkOps(BulkMode.UNORDERED, activityCollection);
+    int count = 0;
+    for (Document study : mongoOperations
+        .find(query, Document.class, mongoOperations.getCollectionName(Study.class))) {
+      Object program = study.get("program");
+      if (!(program instanceof DBRef)) {
+        continue;
+      }
+      operations.updateMulti(
+          new Query(Criteria.where("study.$id").is(study.get("_id"))
+              .and("programId").exists(false)),
+          new Update().set("programId", ((DBRef) program).getId().toString()));
+      if (++count % BATCH_SIZE == 0) {
+        operations.execute();
+        operations = mongoOperations.bulkOps(BulkMode.UNORDERED, activityCollection);
+      }
+    }
+    if (count % BATCH_SIZE != 0) {
+      operations.execute();
+    }
+  }
+
+}
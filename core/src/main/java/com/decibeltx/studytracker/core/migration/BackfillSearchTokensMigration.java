@@ -0,0 +1,80 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.migration;
+
+import com.decibeltx.studytracker.core.model.Study;
+import com.decibeltx.studytracker.core.model.User;
+import com.decibeltx.studytracker.core.search.SearchTokens;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+/**
+ * Populates the indexed {@code searchTokens} field of existing studies and users. New and updated
+ * records are tokenized as they are saved.
+ */
+public class BackfillSearchTokensMigration implements Migration {
+
+  private static final int BATCH_SIZE = 1000;
+
+  @Override
+  public String getId() {
+    return "0003";
+  }
+
+  @Override
+  public String getDescription() {
+    return "Populate search tokens for existing studies and users";
+  }
+
+  @Override
+  public void migrate(MongoOperations mongoOperations) {
+    backfill(mongoOperations, Study.class, "code", "name");
+    backfill(mongoOperations, User.class, "displayName", "accountName");
+  }
+
+  private void backfill(MongoOperations mongoOperations, Class<?> model, String... fields) {
+    String collection = mongoOperations.getCollectionName(model);
+    Query query = new Query();
+    for (String field : fields) {
+      query.fields().include(field);
+    }
+    BulkOperations operations = mongoOperations.bulkOps(BulkMode.UNORDERED, collection);
+    int count = 0;
+    for (Document document : mongoOperations.find(query, Document.class, collection)) {
+      String[] values = new String[fields.length];
+      for (int i = 0; i < fields.length; i++) {
+        values[i] = document.getString(fields[i]);
+      }
+      operations.updateOne(new Query(Criteria.where("_id").is(document.get("_id"))),
+          new Update().set("searchTokens", SearchTokens.tokenize(values)));
+      if (++count % BATCH_SIZE == 0) {
+        operations.execute();
+        operations = mongoOperations.bulkOps(BulkMode.UNORDERED, collection);
+      }
+    }
+    if (count % BATCH_SIZE != 0) {
+      operations.execute();
+    }
+  }
+
+}
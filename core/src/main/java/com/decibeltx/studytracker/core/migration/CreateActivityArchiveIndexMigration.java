@@ -0,0 +1,49 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.decibeltx.studytracker.core.migration;
+
+import com.decibeltx.studytracker.core.service.impl.ActivityServiceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.index.Index;
+
+/**
+ * Creates the index on the activity archive collection used to read the change history of an
+ * entity. The collection is created with the index, before any record is archived.
+ */
+public class CreateActivityArchiveIndexMigration implements Migration {
+
+  private static final String INDEX_NAME = "entity_date";
+
+  @Override
+  public String getId() {
+    return "0006";
+  }
+
+  @Override
+  public String getDescription() {
+    return "Create the activity archive entity_date index";
+  }
+
+  @Override
+  public void migrate(MongoOperations mongoOperations) {
+    mongoOperations.indexOps(ActivityServiceImpl.ARCHIVE_COLLECTION).ensureIndex(new Index()
+        .on("data.entityId", Sort.Direction.ASC).on("date", Sort.Direction.ASC)
+        .named(INDEX_NAME).sparse());
+  }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.decibeltx.studytracker.core.migration;
+
+import com.decibeltx.studytracker.core.model.Activity;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+
+/**
+ * Drops the original {@code study_date} activity index, which has been replaced by
+ * {@code study_date_id}. The replacement includes {@code _id}, so that study activity pages can be
+ * sorted by date and ID without an in-memory sort.
+ */
+public class DropActivityStudyDateIndexMigration implements Migration {
+
+  private static final String INDEX_NAME = "study_date";
+
+  @Override
+  public String getId() {
+    return "0005";
+  }
+
+  @Override
+  public String getDescription() {
+    return "Drop the activity study_date index, replaced by study_date_id";
+  }
+
+  @Override
+  public void migrate(MongoOperations mongoOperations) {
+    IndexOperations indexOperations = mongoOperations.indexOps(Activity.class);
+    boolean exists = indexOperations.getIndexInfo().stream()
+        .anyMatch(index -> INDEX_NAME.equals(index.getName()));
+    if (exists) {
+      indexOperations.dropIndex(INDEX_NAME);
+    }
+  }
+
+}
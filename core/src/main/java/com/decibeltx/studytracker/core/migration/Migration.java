@@ -0,0 +1,51 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.migration;
+
+import org.springframework.data.mongodb.core.MongoOperations;
+
+/**
+ * A one-time, idempotent change to the persisted data model, applied at startup by the {@link
+ * MigrationRunner}. Migrations are applied in order of their IDs, and each is recorded in the
+ * {@code migrations} collection once it completes, so it is never applied twice.
+ */
+public interface Migration {
+
+  /**
+   * Unique, sortable identifier for the migration, eg. {@code 0001}.
+   *
+   * @return migration ID
+   */
+  String getId();
+
+  /**
+   * Short, human-readable description of the migration.
+   *
+   * @return description
+   */
+  String getDescription();
+
+  /**
+   * Applies the migration. Implementations should be safe to re-run, in case a previous attempt
+   * failed part-way through.
+   *
+   * @param mongoOperations operations for the target database
+   */
+  void migrate(MongoOperations mongoOperations);
+
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.migration;
+
+import com.decibeltx.studytracker.core.exception.StudyTrackerException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+/**
+ * Applies pending {@link Migration} instances in order of their IDs. Each migration is claimed by
+ * inserting a {@code RUNNING} record into the {@code migrations} collection before it is applied,
+ * so that only one application instance will run it when several start at once. The record is
+ * marked {@code APPLIED} on success, and removed on failure so that the migration is retried on
+ * the next startup.
+ *
+ * <p>A running migration holds a lease on its record, which is renewed in the background while it
+ * is applied. If the instance applying it dies, the lease is left to expire, and the next instance
+ * to start takes over the record and re-runs the migration, which is safe because migrations are
+ * idempotent. A record can also be released by hand by deleting it from the {@code migrations}
+ * collection.</p>
+ */
+public class MigrationRunner {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(MigrationRunner.class);
+
+  public static final String COLLECTION = "migrations";
+
+  private static final String STATUS_RUNNING = "RUNNING";
+
+  private static final String STATUS_APPLIED = "APPLIED";
+
+  private final MongoOperations mongoOperations;
+
+  private final List<Migration> migrations;
+
+  private final long leaseMillis;
+
+  private final String owner = UUID.randomUUID().toString();
+
+  public MigrationRunner(MongoOperations mongoOperations, List<Migration> migrations,
+      long leaseMillis) {
+    this.mongoOperations = mongoOperations;
+    this.migrations = new ArrayList<>(migrations);
+    this.migrations.sort(Comparator.comparing(Migration::getId));
+    this.leaseMillis = leaseMillis;
+  }
+
+  public void run() {
+    for (Migration migration : migrations) {
+      Document record = mongoOperations.findById(migration.getId(), Document.class, COLLECTION);
+      if (record != null && STATUS_APPLIED.equals(record.getString("status"))) {
+        continue;
+      }
+      if (record == null ? !claim(migration) : !takeOver(migration)) {
+        LOGGER.warn(String.format("Migration %s is being applied by another instance, "
+            + "skipping remaining migrations.", migration.getId()));
+        return;
+      }
+      LOGGER.info(String.format("Applying migration %s: %s", migration.getId(),
+          migration.getDescription()));
+      ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "migration-lease");
+        thread.setDaemon(true);
+        return thread;
+      });
+      heartbeat.scheduleWithFixedDelay(() -> renew(migration), leaseMillis / 3, leaseMillis / 3,
+          TimeUnit.MILLISECONDS);
+      try {
+        migration.migrate(mongoOperations);
+      } catch (Exception e) {
+        heartbeat.shutdownNow();
+        mongoOperations.remove(owned(migration), COLLECTION);
+        throw new StudyTrackerException("Migration failed: " + migration.getId(), e);
+      }
+      heartbeat.shutdownNow();
+      mongoOperations.updateFirst(owned(migration),
+          new Update().set("status", STATUS_APPLIED).set("appliedAt", new Date())
+              .unset("owner").unset("leaseExpiresAt"), COLLECTION);
+    }
+  }
+
+  private boolean claim(Migration migration) {
+    Document record = new Document()
+        .append("_id", migration.getId())
+        .append("description", migration.getDescription())
+        .append("status", STATUS_RUNNING)
+        .append("owner", owner)
+        .append("startedAt", new Date())
+        .append("leaseExpiresAt", leaseExpiry());
+    try {
+      mongoOperations.insert(record, COLLECTION);
+      return true;
+    } catch (DuplicateKeyException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Claims a {@code RUNNING} record whose lease has expired, or that predates leases, so that a
+   * migration left behind by a crashed instance is re-run rather than blocking startup forever.
+   */
+  private boolean takeOver(Migration migration) {
+    Query query = new Query(Criteria.where("_id").is(migration.getId())
+        .and("status").is(STATUS_RUNNING)
+        .orOperator(Criteria.where("leaseExpiresAt").lt(new Date()),
+            Criteria.where("leaseExpiresAt").exists(false)));
+    Document previous = mongoOperations.findAndModify(query,
+        new Update().set("owner", owner).set("startedAt", new Date())
+            .set("leaseExpiresAt", leaseExpiry()), Document.class, COLLECTION);
+    if (previous == null) {
+      return false;
+    }
+    LOGGER.warn(String.format("Lease on migration %s held by %s has expired, re-running it.",
+        migration.getId(), previous.getString("owner")));
+    return true;
+  }
+
+  private void renew(Migration migration) {
+    try {
+      mongoOperations.updateFirst(owned(migration),
+          new Update().set("leaseExpiresAt", leaseExpiry()), COLLECTION);
+    } catch (Exception e) {
+      LOGGER.warn("Failed to renew lease on migration " + migration.getId(), e);
+    }
+  }
+
+  private Date leaseExpiry() {
+    return new Date(System.currentTimeMillis() + leaseMillis);
+  }
+
+  private Query owned(Migration migration) {
+    return new Query(Criteria.where("_id").is(migration.getId()).and("owner").is(owner));
+  }
+
+}
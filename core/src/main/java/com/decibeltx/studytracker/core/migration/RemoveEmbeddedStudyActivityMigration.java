@@ -0,0 +1,48 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.migration;
+
+import com.decibeltx.studytracker.core.model.Study;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+/**
+ * Removes the embedded list of activity references from study documents. Activity records are
+ * stored in their own collection, and are looked up by study when requested.
+ */
+public class RemoveEmbeddedStudyActivityMigration implements Migration {
+
+  @Override
+  public String getId() {
+    return "0001";
+  }
+
+  @Override
+  public String getDescription() {
+    return "Remove embedded activity references from study documents";
+  }
+
+  @Override
+  public void migrate(MongoOperations mongoOperations) {
+    mongoOperations.updateMulti(new Query(Criteria.where("activity").exists(true)),
+        new Update().unset("activity"), Study.class);
+  }
+
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.migration;
+
+import com.decibeltx.studytracker.core.service.AssayService;
+import com.decibeltx.studytracker.core.service.StudyService;
+import org.springframework.data.mongodb.core.MongoOperations;
+
+/**
+ * Initializes the study, external study and assay code sequences in the {@code counters}
+ * collection from the codes of existing records, so that generated codes continue from the
+ * highest code already in use.
+ */
+public class SeedCodeSequencesMigration implements Migration {
+
+  private final StudyService studyService;
+
+  private final AssayService assayService;
+
+  public SeedCodeSequencesMigration(StudyService studyService, AssayService assayService) {
+    this.studyService = studyService;
+    this.assayService = assayService;
+  }
+
+  @Override
+  public String getId() {
+    return "0002";
+  }
+
+  @Override
+  public String getDescription() {
+    return "Seed study, external study and assay code sequences from existing records";
+  }
+
+  @Override
+  public void migrate(MongoOperations mongoOperations) {
+    studyService.seedCodeSequences();
+    assayService.seedCodeSequences();
+  }
+
+}
@@ -21,10 +21,20 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.Date;
 import javax.validation.constraints.NotNull;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.DBRef;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Document(collection = "activity")
+@CompoundIndexes({
+    @CompoundIndex(name = "study_date_id", def = "{ 'study.$id': 1, 'date': -1, '_id': -1 }"),
+    @CompoundIndex(name = "program_date", def = "{ 'programId': 1, 'date': -1, '_id': -1 }"),
+    @CompoundIndex(name = "user_date", def = "{ 'user.$id': 1, 'date': -1, '_id': -1 }"),
+    @CompoundIndex(name = "action_date", def = "{ 'action': 1, 'date': -1, '_id': -1 }"),
+    @CompoundIndex(name = "date", def = "{ 'date': -1, '_id': -1 }"),
+    @CompoundIndex(name = "entity_date", def = "{ 'data.entityId': 1, 'date': 1 }", sparse = true)
+})
 public class Activity {
 
   @Id
@@ -36,6 +46,12 @@ public class Activity {
   @JsonIgnore
   private Study study;
 
+  /**
+   * ID of the study's program at the time the activity was recorded, copied from the study so that
+   * program activity can be queried without resolving studies.
+   */
+  private String programId;
+
   @Linked(model = Assay.class)
   @DBRef
   @JsonIgnore
@@ -53,6 +69,12 @@ public class Activity {
 
   private Object data;
 
+  /**
+   * Set once the record's data has been moved to the archive collection, leaving this record as a
+   * summary in the activity collection.
+   */
+  private boolean archived;
+
   @JsonProperty("studyCode")
   public String getStudyCode() {
     return study != null ? study.getCode() : null;
@@ -81,6 +103,10 @@ public class Activity {
     return study;
   }
 
+  public String getProgramId() {
+    return programId;
+  }
+
   public Assay getAssay() {
     return assay;
   }
@@ -101,6 +127,10 @@ public class Activity {
     return data;
   }
 
+  public boolean isArchived() {
+    return archived;
+  }
+
   public void setId(String id) {
     this.id = id;
   }
@@ -109,6 +139,10 @@ public class Activity {
     this.study = study;
   }
 
+  public void setProgramId(String programId) {
+    this.programId = programId;
+  }
+
   public void setAssay(Assay assay) {
     this.assay = assay;
   }
@@ -128,4 +162,8 @@ public class Activity {
   public void setData(Object data) {
     this.data = data;
   }
+
+  public void setArchived(boolean archived) {
+    this.archived = archived;
+  }
 }
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.model;
+
+import com.decibeltx.studytracker.core.events.StudyEvent.Type;
+import java.util.Date;
+import lombok.Data;
+
+/**
+ * Optional constraints on an activity query. Each field that is set narrows the results, and the
+ * {@code from} and {@code to} dates are inclusive and exclusive bounds on the activity date.
+ */
+@Data
+public class ActivityFilter {
+
+  private String programId;
+
+  private String studyId;
+
+  private String userId;
+
+  private Type type;
+
+  private Date from;
+
+  private Date to;
+
+}
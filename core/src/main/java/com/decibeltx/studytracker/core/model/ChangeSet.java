@@ -0,0 +1,58 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.model;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import lombok.Data;
+
+/**
+ * The field-level changes made to a study or assay by a single update, recorded as the data of
+ * the update's {@link Activity} in place of a copy of the whole record.
+ */
+@Data
+public class ChangeSet {
+
+  private String entity;
+
+  private String entityId;
+
+  private List<FieldChange> changes = new ArrayList<>();
+
+  /**
+   * Time the changes were made, shared by the update's activity and any snapshot taken of the
+   * updated record.
+   */
+  private Date date;
+
+  public ChangeSet() {
+  }
+
+  public ChangeSet(String entity, String entityId, List<FieldChange> changes, Date date) {
+    this.entity = entity;
+    this.entityId = entityId;
+    this.changes = changes;
+    this.date = date;
+  }
+
+  public boolean isEmpty() {
+    return changes == null || changes.isEmpty();
+  }
+
+}
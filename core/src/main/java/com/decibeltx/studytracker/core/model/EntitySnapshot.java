@@ -0,0 +1,52 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.model;
+
+import java.util.Date;
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * The persisted state of a study or assay at a point in time. Snapshots are taken periodically as
+ * changes are recorded, and past versions of a record are rebuilt from the latest snapshot before
+ * the requested time plus the {@link ChangeSet} records that follow it.
+ */
+@Document(collection = "entity_snapshots")
+@CompoundIndex(name = "entity_date", def = "{ 'entityId': 1, 'date': -1 }")
+@Data
+public class EntitySnapshot {
+
+  @Id
+  private String id;
+
+  private String entity;
+
+  private String entityId;
+
+  private Date date;
+
+  /**
+   * Number of changes recorded since the snapshot was taken.
+   */
+  private int changes;
+
+  private org.bson.Document state;
+
+}
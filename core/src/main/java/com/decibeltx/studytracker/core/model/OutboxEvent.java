@@ -0,0 +1,83 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.model;
+
+import com.decibeltx.studytracker.core.events.StudyEventData;
+import java.util.Date;
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * A study event awaiting delivery to a single durable listener. Records are claimed by workers
+ * under a time-limited lease, retried with backoff on failure, and moved to the {@code DEAD} state
+ * once their attempts are exhausted. Completed records expire after a week.
+ */
+@Document(collection = "event_outbox")
+@CompoundIndexes({
+    @CompoundIndex(name = "status_next_attempt", def = "{ 'status': 1, 'nextAttemptAt': 1 }"),
+    @CompoundIndex(name = "status_lease_expires", def = "{ 'status': 1, 'leaseExpiresAt': 1 }")
+})
+@Data
+public class OutboxEvent {
+
+  public enum Status {
+    PENDING,
+    PROCESSING,
+    COMPLETE,
+    DEAD
+  }
+
+  @Id
+  private String id;
+
+  private String eventId;
+
+  private String listener;
+
+  private String type;
+
+  private String studyId;
+
+  private Long studyVersion;
+
+  private String userId;
+
+  private StudyEventData data;
+
+  private Status status;
+
+  private int attempts;
+
+  private Date createdAt;
+
+  private Date nextAttemptAt;
+
+  private String leaseOwner;
+
+  private Date leaseExpiresAt;
+
+  private String lastError;
+
+  @Indexed(expireAfterSeconds = 604800)
+  private Date completedAt;
+
+}
@@ -19,6 +19,7 @@ package com.decibeltx.studytracker.core.model;
 import com.decibeltx.studytracker.core.keyword.Keyword;
 import com.decibeltx.studytracker.core.notebook.NotebookEntry;
 import com.decibeltx.studytracker.core.storage.StorageFolder;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Date;
@@ -35,11 +36,22 @@ import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedBy;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.domain.Persistable;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.DBRef;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Document(collection = "studies")
+@CompoundIndexes({
+    @CompoundIndex(name = "owner_active", def = "{ 'owner.$id': 1, 'active': 1 }"),
+    @CompoundIndex(name = "users_active", def = "{ 'users.$id': 1, 'active': 1 }"),
+    @CompoundIndex(name = "active_status", def = "{ 'active': 1, 'status': 1 }"),
+    @CompoundIndex(name = "legacy_active", def = "{ 'legacy': 1, 'active': 1 }"),
+    @CompoundIndex(name = "program_legacy", def = "{ 'program.$id': 1, 'legacy': 1 }"),
+    @CompoundIndex(name = "collaborator", def = "{ 'collaborator.$id': 1 }"),
+    @CompoundIndex(name = "active_updated", def = "{ 'active': 1, 'updatedAt': -1, '_id': -1 }")
+})
 @Data
 public class Study implements Persistable<String> {
 
@@ -50,6 +62,7 @@ public class Study implements Persistable<String> {
   @NotNull
   private String code;
 
+  @Indexed
   private String externalCode;
 
   @NotNull
@@ -113,10 +126,6 @@ public class Study implements Persistable<String> {
 
   private List<Keyword> keywords = new ArrayList<>();
 
-  @Linked(model = Activity.class)
-  @DBRef
-  private List<Activity> activity = new ArrayList<>();
-
   @Linked(model = Assay.class)
   @DBRef(lazy = true)
   private List<Assay> assays = new ArrayList<>();
@@ -131,6 +140,10 @@ public class Study implements Persistable<String> {
 
   private List<Comment> comments = new ArrayList<>();
 
+  @JsonIgnore
+  @Indexed
+  private List<String> searchTokens = new ArrayList<>();
+
   @Override
   public boolean isNew() {
     return id == null;
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.decibeltx.studytracker.core.model;
+
+import java.util.Collection;
+import lombok.Data;
+
+/**
+ * Optional constraints on a study query. Each field that is set narrows the results. Only active
+ * studies are returned, unless {@code active} is set to false or null.
+ */
+@Data
+public class StudyFilter {
+
+  private String ownerId;
+
+  private String userId;
+
+  private Collection<Status> statuses;
+
+  private Boolean legacy;
+
+  private Boolean external;
+
+  private Boolean active = true;
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.decibeltx.studytracker.core.model;
+
+import java.util.Date;
+import lombok.Data;
+
+/**
+ * Lightweight, read-only view of a {@link Study}, used by study list views. Summaries are built
+ * from a field projection of the study document, with only the display fields of the referenced
+ * program, owner and collaborator records, so that payload size does not grow with the study's
+ * history.
+ */
+@Data
+public class StudySummary {
+
+  private String id;
+
+  private String code;
+
+  private String externalCode;
+
+  private String name;
+
+  private Status status;
+
+  private boolean legacy;
+
+  private boolean active;
+
+  private ProgramSummary program;
+
+  private UserSummary owner;
+
+  private CollaboratorSummary collaborator;
+
+  private String storageFolderUrl;
+
+  private Date startDate;
+
+  private Date endDate;
+
+  private Date createdAt;
+
+  private Date updatedAt;
+
+  @Data
+  public static class ProgramSummary {
+
+    private String id;
+
+    private String code;
+
+    private String name;
+
+  }
+
+  @Data
+  public static class UserSummary {
+
+    private String id;
+
+    private String accountName;
+
+    private String displayName;
+
+  }
+
+  @Data
+  public static class CollaboratorSummary {
+
+    private String id;
+
+    private String label;
+
+    private String organizationName;
+
+  }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.decibeltx.studytracker.core.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * A chunked upload of a single study or assay file. Chunks may be received in any order and are
+ * recorded, with their SHA-256 checksums, by index. Each chunk write in progress holds a lease on
+ * the session, so that a session is only committed once every chunk has been received and no
+ * chunk is still being written; the lease expires if the writer dies mid-chunk. Sessions that are
+ * neither committed nor extended by a new chunk are discarded, along with their staged content,
+ * once they expire.
+ */
+@Document(collection = "upload_sessions")
+@Data
+public class UploadSession {
+
+  public enum Status {
+    OPEN,
+    COMMITTING
+  }
+
+  @Id
+  private String id;
+
+  private String studyId;
+
+  private String assayId;
+
+  private String fileName;
+
+  private long size;
+
+  private long chunkSize;
+
+  private int chunkCount;
+
+  private Map<String, String> chunks = new HashMap<>();
+
+  @JsonIgnore
+  private String stagingPath;
+
+  private Status status;
+
+  @JsonIgnore
+  private List<Writer> writers = new ArrayList<>();
+
+  private String createdBy;
+
+  private Date createdAt;
+
+  @Indexed
+  private Date expiresAt;
+
+  /**
+   * Returns the size of the chunk at the target index, which is the session's chunk size for all
+   * but the final chunk.
+   *
+   * @param index chunk index
+   * @return chunk size in bytes
+   */
+  public long getChunkLength(int index) {
+    return index < chunkCount - 1 ? chunkSize : size - chunkSize * (chunkCount - 1);
+  }
+
+  /**
+   * Returns the indexes of the chunks received so far, in ascending order.
+   *
+   * @return received chunk indexes
+   */
+  public List<Integer> getReceivedChunks() {
+    return chunks.keySet().stream()
+        .map(Integer::valueOf)
+        .sorted()
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Returns the indexes of the chunks not yet received, in ascending order.
+   *
+   * @return missing chunk indexes
+   */
+  public List<Integer> getMissingChunks() {
+    List<Integer> missing = new ArrayList<>();
+    for (int i = 0; i < chunkCount; i++) {
+      if (!chunks.containsKey(String.valueOf(i))) {
+        missing.add(i);
+      }
+    }
+    return missing;
+  }
+
+  /**
+   * A chunk write in progress, which prevents the session from being committed until it is
+   * finished or its lease expires.
+   */
+  @Data
+  public static class Writer {
+
+    private String token;
+
+    private int index;
+
+    private Date leaseExpiresAt;
+
+  }
+
+}
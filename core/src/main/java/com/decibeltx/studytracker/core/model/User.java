@@ -16,6 +16,9 @@
 
 package com.decibeltx.studytracker.core.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.util.ArrayList;
+import java.util.List;
 import javax.validation.constraints.NotNull;
 import lombok.Data;
 import org.springframework.data.annotation.Id;
@@ -48,6 +51,10 @@ public class User implements Persistable<String> {
 
   private boolean active = true;
 
+  @JsonIgnore
+  @Indexed
+  private List<String> searchTokens = new ArrayList<>();
+
   @Override
   public boolean isNew() {
     return id == null;
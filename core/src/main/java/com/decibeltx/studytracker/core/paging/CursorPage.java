@@ -0,0 +1,63 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.decibeltx.studytracker.core.paging;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A single page of records returned by keyset pagination. {@code nextCursor} is an opaque token
+ * that can be passed back to fetch the following page, and is {@code null} when there are no
+ * more records.
+ *
+ * @param <T> record type
+ */
+public final class CursorPage<T> {
+
+  private final List<T> content;
+
+  private final String nextCursor;
+
+  private final int limit;
+
+  public CursorPage(List<T> content, String nextCursor, int limit) {
+    this.content = Collections.unmodifiableList(content);
+    this.nextCursor = nextCursor;
+    this.limit = limit;
+  }
+
+  public List<T> getContent() {
+    return content;
+  }
+
+  public String getNextCursor() {
+    return nextCursor;
+  }
+
+  public int getLimit() {
+    return limit;
+  }
+
+  public int getSize() {
+    return content.size();
+  }
+
+  public boolean isHasMore() {
+    return nextCursor != null;
+  }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.decibeltx.studytracker.core.paging;
+
+import org.springframework.data.domain.Sort.Direction;
+
+/**
+ * Describes a single page request for keyset (cursor) pagination: the property to sort on, the
+ * sort direction, the opaque cursor returned with the previous page (if any), and the maximum
+ * number of records to return.
+ */
+public final class CursorRequest {
+
+  public static final int DEFAULT_LIMIT = 50;
+
+  private final String sort;
+
+  private final Direction direction;
+
+  private final String cursor;
+
+  private final int limit;
+
+  private CursorRequest(String sort, Direction direction, String cursor, int limit) {
+    this.sort = sort;
+    this.direction = direction;
+    this.cursor = cursor;
+    this.limit = limit;
+  }
+
+  public static CursorRequest of(String sort, Direction direction, String cursor, int limit) {
+    return new CursorRequest(sort, direction == null ? Direction.ASC : direction, cursor,
+        Math.max(1, limit));
+  }
+
+  public static CursorRequest of(String sort, int limit) {
+    return of(sort, Direction.ASC, null, limit);
+  }
+
+  public static CursorRequest of(String sort) {
+    return of(sort, Direction.ASC, null, DEFAULT_LIMIT);
+  }
+
+  /**
+   * Returns a request for the page following the provided page, with otherwise identical
+   * parameters.
+   *
+   * @param cursor cursor of the next page
+   * @return next page request
+   */
+  public CursorRequest next(String cursor) {
+    return new CursorRequest(sort, direction, cursor, limit);
+  }
+
+  public String getSort() {
+    return sort;
+  }
+
+  public Direction getDirection() {
+    return direction;
+  }
+
+  public String getCursor() {
+    return cursor;
+  }
+
+  public int getLimit() {
+    return limit;
+  }
+
+  public boolean hasCursor() {
+    return cursor != null && !cursor.trim().isEmpty();
+  }
+
+  @Override
+  public String toString() {
+    return "CursorRequest{" +
+        "sort='" + sort + '\'' +
+        ", direction=" + direction +
+        ", cursor='" + cursor + '\'' +
+        ", limit=" + limit +
+        '}';
+  }
+
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.decibeltx.studytracker.core.paging;
+
+import com.decibeltx.studytracker.core.exception.InvalidRequestException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+import org.springframework.data.domain.Sort.Direction;
+
+/**
+ * Position of the last record of a page: the value of the sort property and the record ID used as
+ * a tie-breaker. Cursors are serialized to URL-safe, opaque strings, and carry the sort property
+ * and direction they were created with, so that a cursor cannot be replayed against a different
+ * ordering.
+ */
+public final class PageCursor {
+
+  private static final String VERSION = "1";
+
+  private static final String SEPARATOR = "|";
+
+  private final String sort;
+
+  private final Direction direction;
+
+  private final Object value;
+
+  private final String id;
+
+  public PageCursor(String sort, Direction direction, Object value, String id) {
+    this.sort = sort;
+    this.direction = direction;
+    this.value = value instanceof Enum ? ((Enum<?>) value).name() : value;
+    this.id = id;
+  }
+
+  /**
+   * Decodes a cursor string created by {@link #encode()}.
+   *
+   * @param cursor encoded cursor
+   * @return decoded cursor
+   * @throws InvalidRequestException if the cursor is malformed
+   */
+  public static PageCursor decode(String cursor) {
+    String decoded;
+    try {
+      decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    } catch (IllegalArgumentException e) {
+      throw new InvalidRequestException("Malformed page cursor: " + cursor, e);
+    }
+    String[] bits = decoded.split("\\|", 6);
+    if (bits.length != 6 || !VERSION.equals(bits[0])) {
+      throw new InvalidRequestException("Malformed page cursor: " + cursor);
+    }
+    try {
+      return new PageCursor(bits[1], Direction.fromString(bits[2]),
+          decodeValue(bits[3], bits[5]), bits[4]);
+    } catch (IllegalArgumentException e) {
+      throw new InvalidRequestException("Malformed page cursor: " + cursor, e);
+    }
+  }
+
+  private static Object decodeValue(String type, String value) {
+    switch (type) {
+      case "N":
+        return null;
+      case "S":
+        return value;
+      case "D":
+        return new Date(Long.parseLong(value));
+      case "I":
+        return Integer.parseInt(value);
+      case "L":
+        return Long.parseLong(value);
+      case "F":
+        return Double.parseDouble(value);
+      case "B":
+        return Boolean.parseBoolean(value);
+      default:
+        throw new IllegalArgumentException("Unknown cursor value type: " + type);
+    }
+  }
+
+  private static String valueType(Object value) {
+    if (value == null) {
+      return "N";
+    } else if (value instanceof Date) {
+      return "D";
+    } else if (value instanceof Integer) {
+      return "I";
+    } else if (value instanceof Long) {
+      return "L";
+    } else if (value instanceof Number) {
+      return "F";
+    } else if (value instanceof Boolean) {
+      return "B";
+    } else {
+      return "S";
+    }
+  }
+
+  private static String valueString(Object value) {
+    if (value == null) {
+      return "";
+    } else if (value instanceof Date) {
+      return String.valueOf(((Date) value).getTime());
+    } else {
+      return value.toString();
+    }
+  }
+
+  /**
+   * Serializes the cursor into an opaque, URL-safe string.
+   *
+   * @return encoded cursor
+   */
+  public String encode() {
+    String raw = String.join(SEPARATOR, VERSION, sort, direction.name(), valueType(value), id,
+        valueString(value));
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  public String getSort() {
+    return sort;
+  }
+
+  public Direction getDirection() {
+    return direction;
+  }
+
+  public Object getValue() {
+    return value;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+}
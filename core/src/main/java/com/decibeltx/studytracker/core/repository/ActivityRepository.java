@@ -18,17 +18,11 @@ package com.decibeltx.studytracker.core.repository;
 
 import com.decibeltx.studytracker.core.model.Activity;
 import java.util.List;
-import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 
-public interface ActivityRepository extends MongoRepository<Activity, String> {
-
-  List<Activity> findByAction(String action);
+public interface ActivityRepository extends CursorPagingRepository<Activity, String> {
 
   @Query("{ 'study.id': ?0 }")
   List<Activity> findByStudyId(String studyId);
 
-  @Query("{ 'assay.id': ?0 }")
-  List<Activity> findByAssayId(String assayId);
-
 }
@@ -19,16 +19,16 @@ package com.decibeltx.studytracker.core.repository;
 import com.decibeltx.studytracker.core.model.Assay;
 import java.util.List;
 import java.util.Optional;
-import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 
-public interface AssayRepository extends MongoRepository<Assay, String> {
+public interface AssayRepository extends CursorPagingRepository<Assay, String> {
 
   Optional<Assay> findByCode(String code);
 
-  List<Assay> findByStudyId(String studyId);
+  @Query(value = "{ 'code': { '$regex': ?0 } }", fields = "{ 'code': 1 }")
+  List<Assay> findCodesMatching(String regex);
 
-  @Query("{ 'code': { '$regex': ?0, '$options': 'i' } }")
-  List<Assay> findByCodePrefix(String prefix);
+  @Query(value = "{}", fields = "{ 'code': 1 }")
+  List<Assay> findAllCodes();
 
 }
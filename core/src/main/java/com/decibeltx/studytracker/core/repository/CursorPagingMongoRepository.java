@@ -0,0 +1,220 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.decibeltx.studytracker.core.repository;
+
+import com.decibeltx.studytracker.core.exception.InvalidRequestException;
+import com.decibeltx.studytracker.core.paging.CursorPage;
+import com.decibeltx.studytracker.core.paging.CursorRequest;
+import com.decibeltx.studytracker.core.paging.PageCursor;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.repository.query.MongoEntityInformation;
+import org.springframework.data.mongodb.repository.support.SimpleMongoRepository;
+
+/**
+ * Base repository implementation that adds keyset pagination to {@link SimpleMongoRepository}.
+ * Registered as the repository base class in {@code MongoRepositoryConfiguration}. Pages may only
+ * be sorted by the ID, a uniquely indexed property, or a property followed by {@code _id} in one
+ * of the entity's compound indexes, so that no page requires an in-memory sort.
+ *
+ * @param <T>  entity type
+ * @param <I> ID type
+ */
+public class CursorPagingMongoRepository<T, I extends Serializable>
+    extends SimpleMongoRepository<T, I> implements CursorPagingRepository<T, I> {
+
+  private static final String ID_PROPERTY = "id";
+
+  private static final Map<Class<?>, Set<String>> INDEXED_SORT_FIELDS =
+      new ConcurrentHashMap<>();
+
+  private final MongoEntityInformation<T, I> entityInformation;
+
+  private final MongoOperations mongoOperations;
+
+  public CursorPagingMongoRepository(MongoEntityInformation<T, I> metadata,
+      MongoOperations mongoOperations) {
+    super(metadata, mongoOperations);
+    this.entityInformation = metadata;
+    this.mongoOperations = mongoOperations;
+  }
+
+  @Override
+  public CursorPage<T> findPage(CursorRequest request) {
+    return findPage(null, request);
+  }
+
+  @Override
+  public CursorPage<T> findPage(Criteria criteria, CursorRequest request) {
+    return findPage(criteria, request, false);
+  }
+
+  @Override
+  public CursorPage<I> findIdPage(Criteria criteria, CursorRequest request) {
+    CursorPage<T> page = findPage(criteria, request, true);
+    List<I> ids = new ArrayList<>();
+    for (T record : page.getContent()) {
+      ids.add(entityInformation.getRequiredId(record));
+    }
+    return new CursorPage<>(ids, page.getNextCursor(), page.getLimit());
+  }
+
+  private CursorPage<T> findPage(Criteria criteria, CursorRequest request, boolean keysOnly) {
+
+    MongoPersistentEntity<?> entity = mongoOperations.getConverter().getMappingContext()
+        .getRequiredPersistentEntity(entityInformation.getJavaType());
+    MongoPersistentProperty property = getSortProperty(entity, request.getSort());
+    String sort = property.getName();
+    Direction direction = request.getDirection();
+
+    Criteria filter = criteria;
+    if (request.hasCursor()) {
+      PageCursor cursor = PageCursor.decode(request.getCursor());
+      if (!cursor.getSort().equals(sort) || cursor.getDirection() != direction) {
+        throw new InvalidRequestException("Page cursor does not match the requested sort order.");
+      }
+      Criteria keyset = property.isIdProperty()
+          ? idCriteria(Criteria.where(ID_PROPERTY), direction, cursor.getId())
+          : keysetCriteria(sort, direction, cursor);
+      filter = filter == null ? keyset : new Criteria().andOperator(filter, keyset);
+    }
+
+    Query query = filter == null ? new Query() : new Query(filter);
+    Sort order = Sort.by(direction, sort);
+    if (!property.isIdProperty() && !isUnique(property)) {
+      order = order.and(Sort.by(direction, ID_PROPERTY));
+    }
+    query.with(order).limit(request.getLimit() + 1);
+    if (keysOnly) {
+      query.fields().include(sort);
+    }
+
+    List<T> records = mongoOperations.find(query, entityInformation.getJavaType(),
+        entityInformation.getCollectionName());
+    String nextCursor = null;
+    if (records.size() > request.getLimit()) {
+      records = records.subList(0, request.getLimit());
+      T last = records.get(records.size() - 1);
+      Object value = entity.getPropertyAccessor(last).getProperty(property);
+      I id = entityInformation.getRequiredId(last);
+      nextCursor = new PageCursor(sort, direction, value, id.toString()).encode();
+    }
+    return new CursorPage<>(records, nextCursor, request.getLimit());
+
+  }
+
+  @Override
+  public List<T> findAll(Query query) {
+    return mongoOperations.find(query, entityInformation.getJavaType(),
+        entityInformation.getCollectionName());
+  }
+
+  private MongoPersistentProperty getSortProperty(MongoPersistentEntity<?> entity, String sort) {
+    if (sort == null || sort.trim().isEmpty()) {
+      return entity.getRequiredIdProperty();
+    }
+    MongoPersistentProperty property = entity.getPersistentProperty(sort);
+    if (property == null || property.isCollectionLike() || property.isMap()
+        || property.isDbReference() || property.isEntity()) {
+      throw new InvalidRequestException("Invalid sort property for "
+          + entityInformation.getJavaType().getSimpleName() + ": " + sort);
+    }
+    if (!property.isIdProperty() && !isUnique(property)
+        && !getIndexedSortFields().contains(property.getFieldName())) {
+      throw new InvalidRequestException("Records of type "
+          + entityInformation.getJavaType().getSimpleName() + " cannot be sorted by: " + sort);
+    }
+    return property;
+  }
+
+  /**
+   * Unique properties never tie, so they are sorted on without the ID tie-breaker, which lets the
+   * single-field unique index provide the order.
+   */
+  private static boolean isUnique(MongoPersistentProperty property) {
+    Indexed indexed = property.findAnnotation(Indexed.class);
+    return indexed != null && indexed.unique();
+  }
+
+  /**
+   * Returns the fields that are followed by {@code _id} in one of the entity's compound indexes,
+   * and so can be used to sort pages without an in-memory sort.
+   */
+  private Set<String> getIndexedSortFields() {
+    return INDEXED_SORT_FIELDS.computeIfAbsent(entityInformation.getJavaType(), type -> {
+      List<CompoundIndex> indexes = new ArrayList<>();
+      CompoundIndexes compoundIndexes = type.getAnnotation(CompoundIndexes.class);
+      if (compoundIndexes != null) {
+        indexes.addAll(Arrays.asList(compoundIndexes.value()));
+      }
+      indexes.addAll(Arrays.asList(type.getAnnotationsByType(CompoundIndex.class)));
+      Set<String> fields = new HashSet<>();
+      for (CompoundIndex index : indexes) {
+        String previous = null;
+        for (String key : Document.parse(index.def()).keySet()) {
+          if ("_id".equals(key) && previous != null) {
+            fields.add(previous);
+          }
+          previous = key;
+        }
+      }
+      return fields;
+    });
+  }
+
+  private static Criteria idCriteria(Criteria criteria, Direction direction, String id) {
+    return direction.isAscending() ? criteria.gt(id) : criteria.lt(id);
+  }
+
+  /**
+   * Builds the range criteria selecting all records that come after the cursor position. Null
+   * values sort before all other values in MongoDB, so they are handled separately.
+   */
+  private static Criteria keysetCriteria(String sort, Direction direction, PageCursor cursor) {
+    Object value = cursor.getValue();
+    Criteria tie = idCriteria(Criteria.where(sort).is(value).and(ID_PROPERTY), direction,
+        cursor.getId());
+    if (value == null) {
+      return direction.isAscending()
+          ? new Criteria().orOperator(Criteria.where(sort).ne(null), tie)
+          : tie;
+    } else if (direction.isAscending()) {
+      return new Criteria().orOperator(Criteria.where(sort).gt(value), tie);
+    } else {
+      return new Criteria().orOperator(Criteria.where(sort).lt(value), tie,
+          Criteria.where(sort).is(null));
+    }
+  }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.decibeltx.studytracker.core.repository;
+
+import com.decibeltx.studytracker.core.paging.CursorPage;
+import com.decibeltx.studytracker.core.paging.CursorRequest;
+import java.util.List;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.repository.NoRepositoryBean;
+
+/**
+ * Extension of {@link MongoRepository} that supports keyset (cursor) pagination. Each page is
+ * fetched with a range query on the sort property, using the record ID as a tie-breaker, so the
+ * cost of fetching a page does not depend on how deep into the result set it is.
+ *
+ * @param <T>  entity type
+ * @param <I> ID type
+ */
+@NoRepositoryBean
+public interface CursorPagingRepository<T, I> extends MongoRepository<T, I> {
+
+  /**
+   * Returns a single page of all records, ordered by the requested sort property.
+   *
+   * @param request page request
+   * @return page of records
+   */
+  CursorPage<T> findPage(CursorRequest request);
+
+  /**
+   * Returns a single page of records matching the provided criteria, ordered by the requested sort
+   * property.
+   *
+   * @param criteria query criteria
+   * @param request  page request
+   * @return page of records
+   */
+  CursorPage<T> findPage(Criteria criteria, CursorRequest request);
+
+  /**
+   * Returns the IDs of a single page of records matching the provided criteria, as
+   * {@link #findPage(Criteria, CursorRequest)} does, reading only the ID and sort property of each
+   * record. Used to page through a lighter projection of the records.
+   *
+   * @param criteria query criteria
+   * @param request  page request
+   * @return page of record IDs
+   */
+  CursorPage<I> findIdPage(Criteria criteria, CursorRequest request);
+
+  /**
+   * Returns all records matching the provided query. Unlike derived and {@code @Query} methods,
+   * the query is run through {@link MongoOperations#find(Query, Class, String)}, so the eager
+   * {@code @DBRef} targets of the whole result set are fetched in bulk.
+   *
+   * @param query query, with optional sort and limit
+   * @return matching records
+   */
+  List<T> findAll(Query query);
+
+}
@@ -19,9 +19,8 @@ package com.decibeltx.studytracker.core.repository;
 import com.decibeltx.studytracker.core.model.Program;
 import java.util.List;
 import java.util.Optional;
-import org.springframework.data.mongodb.repository.MongoRepository;
 
-public interface ProgramRepository extends MongoRepository<Program, String> {
+public interface ProgramRepository extends CursorPagingRepository<Program, String> {
 
   Optional<Program> findByName(String name);
 
@@ -19,34 +19,43 @@ package com.decibeltx.studytracker.core.repository;
 import com.decibeltx.studytracker.core.model.Study;
 import java.util.List;
 import java.util.Optional;
-import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 
-public interface StudyRepository extends MongoRepository<Study, String> {
+public interface StudyRepository extends CursorPagingRepository<Study, String>,
+    StudyRepositoryCustom {
 
   Optional<Study> findByCode(String code);
 
   Optional<Study> findByExternalCode(String code);
 
-  @Query("{ 'program.id': ?0 }")
-  List<Study> findByProgramId(String programId);
-
   List<Study> findByName(String name);
 
-  @Query("{ 'program.id': ?0, 'legacy': false }")
-  List<Study> findActiveProgramStudies(String programId);
+  /**
+   * Fetches the {@code code} and {@code legacy} fields of all studies with a code matching the
+   * provided regular expression. Used in seeding study code sequences.
+   *
+   * @param regex anchored regular expression
+   * @return partially-populated studies
+   */
+  @Query(value = "{ 'code': { '$regex': ?0 } }", fields = "{ 'code': 1, 'legacy': 1 }")
+  List<Study> findCodesMatching(String regex);
 
   /**
-   * Fetches all studies that have an {@code externalCode} value that starts with the provided
-   * prefix. Used in generating additional externa study codes.
+   * Fetches the {@code externalCode} field of all studies with an external code matching the
+   * provided regular expression. Used in seeding external study code sequences.
    *
-   * @param prefix
-   * @return
+   * @param regex anchored regular expression
+   * @return partially-populated studies
    */
-  @Query("{ 'externalCode': { '$regex': ?0, '$options': 'i' } }")
-  List<Study> findByExternalCodePrefix(String prefix);
+  @Query(value = "{ 'externalCode': { '$regex': ?0 } }", fields = "{ 'externalCode': 1 }")
+  List<Study> findExternalCodesMatching(String regex);
 
-  @Query("{ $or: [{ name: { '$regex': ?0, '$options': 'i'  }}, { code: { '$regex': ?0, '$options': 'i'  }} ] }")
-  List<Study> findByNameOrCodeLike(String keyword);
+  /**
+   * Fetches the code fields of every study, without resolving any referenced records.
+   *
+   * @return partially-populated studies
+   */
+  @Query(value = "{}", fields = "{ 'code': 1, 'externalCode': 1, 'legacy': 1 }")
+  List<Study> findAllCodes();
 
 }
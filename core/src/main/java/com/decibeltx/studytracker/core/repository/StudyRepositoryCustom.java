@@ -0,0 +1,110 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.decibeltx.studytracker.core.repository;
+
+import com.decibeltx.studytracker.core.model.StudySummary;
+import com.decibeltx.studytracker.core.model.User;
+import java.util.Date;
+import java.util.List;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+/**
+ * Custom {@code Study} queries that cannot be expressed as derived or annotated repository
+ * methods.
+ */
+public interface StudyRepositoryCustom {
+
+  /**
+   * Returns {@link StudySummary} records for all studies matching the provided criteria, most
+   * recently updated first. Only the summary fields are read from the studies collection, and
+   * referenced records are fetched in a single query per collection.
+   *
+   * @param criteria query criteria
+   * @return study summaries
+   */
+  List<StudySummary> findSummaries(Criteria criteria);
+
+  /**
+   * Returns {@link StudySummary} records for the studies with the given IDs, in the same order as
+   * the IDs. IDs that do not match a study are skipped.
+   *
+   * @param ids study IDs
+   * @return study summaries
+   */
+  List<StudySummary> findSummariesById(List<String> ids);
+
+  /**
+   * Sets the {@code updatedAt} timestamp of the study with the given ID, without rewriting the rest
+   * of the document.
+   *
+   * @param id        study ID
+   * @param updatedAt new timestamp
+   */
+  void updateTimestamp(String id, Date updatedAt);
+
+  /**
+   * Sets or, if the value is {@code null}, removes a single field of the study with the given ID.
+   * The study's {@code updatedAt} and {@code lastModifiedBy} fields are updated in the same
+   * operation.
+   *
+   * @param id         study ID
+   * @param field      name of the field to set
+   * @param value      new value
+   * @param modifiedBy user making the change
+   * @return true if a matching study was found
+   */
+  boolean updateField(String id, String field, Object value, User modifiedBy);
+
+  /**
+   * Appends an element to an embedded array field of the study with the given ID, using
+   * {@code $push}.
+   *
+   * @param id         study ID
+   * @param field      name of the array field
+   * @param element    element to append
+   * @param modifiedBy user making the change
+   * @return true if a matching study was found
+   */
+  boolean pushElement(String id, String field, Object element, User modifiedBy);
+
+  /**
+   * Replaces the element with the given ID in an embedded array field of the study, using the
+   * positional {@code $set} operator.
+   *
+   * @param id         study ID
+   * @param field      name of the array field
+   * @param elementId  ID of the element to replace
+   * @param element    replacement element
+   * @param modifiedBy user making the change
+   * @return true if the study and element were found
+   */
+  boolean updateElement(String id, String field, String elementId, Object element,
+      User modifiedBy);
+
+  /**
+   * Removes all elements matching the provided criteria from an embedded array field of the study,
+   * using {@code $pull}.
+   *
+   * @param id         study ID
+   * @param field      name of the array field
+   * @param element    criteria matching the elements to remove
+   * @param modifiedBy user making the change
+   * @return true if a matching study was found
+   */
+  boolean pullElement(String id, String field, Criteria element, User modifiedBy);
+
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.decibeltx.studytracker.core.repository;
+
+import com.decibeltx.studytracker.core.model.Collaborator;
+import com.decibeltx.studytracker.core.model.Program;
+import com.decibeltx.studytracker.core.model.Status;
+import com.decibeltx.studytracker.core.model.Study;
+import com.decibeltx.studytracker.core.model.StudySummary;
+import com.decibeltx.studytracker.core.model.StudySummary.CollaboratorSummary;
+import com.decibeltx.studytracker.core.model.StudySummary.ProgramSummary;
+import com.decibeltx.studytracker.core.model.StudySummary.UserSummary;
+import com.decibeltx.studytracker.core.model.User;
+import com.mongodb.DBRef;
+import com.mongodb.client.result.UpdateResult;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+public class StudyRepositoryImpl implements StudyRepositoryCustom {
+
+  private static final String[] SUMMARY_FIELDS = {"code", "externalCode", "name", "status",
+      "legacy", "active", "program", "owner", "collaborator", "storageFolder.url", "startDate",
+      "endDate", "createdAt", "updatedAt"};
+
+  @Autowired
+  private MongoOperations mongoOperations;
+
+  @Override
+  public List<StudySummary> findSummaries(Criteria criteria) {
+    return findSummaries(criteria, Sort.by(Direction.DESC, "updatedAt"));
+  }
+
+  @Override
+  public List<StudySummary> findSummariesById(List<String> ids) {
+    Map<String, StudySummary> summaries = new HashMap<>();
+    for (StudySummary summary : findSummaries(Criteria.where("id").in(ids), Sort.unsorted())) {
+      summaries.put(summary.getId(), summary);
+    }
+    List<StudySummary> ordered = new ArrayList<>();
+    for (String id : ids) {
+      if (summaries.containsKey(id)) {
+        ordered.add(summaries.get(id));
+      }
+    }
+    return ordered;
+  }
+
+  private List<StudySummary> findSummaries(Criteria criteria, Sort sort) {
+
+    // Map the criteria against the study entity, so that ID and reference fields are converted
+    MongoPersistentEntity<?> entity = mongoOperations.getConverter().getMappingContext()
+        .getRequiredPersistentEntity(Study.class);
+    Document fields = new Document();
+    for (String field : SUMMARY_FIELDS) {
+      fields.put(field, 1);
+    }
+    Query query = new BasicQuery(new QueryMapper(mongoOperations.getConverter())
+        .getMappedObject(criteria.getCriteriaObject(), entity), fields);
+    query.with(sort);
+    List<Document> documents = mongoOperations
+        .find(query, Document.class, mongoOperations.getCollectionName(Study.class));
+
+    // Fetch the referenced records in bulk
+    Map<Object, Document> programs = findReferenced(documents, "program", Program.class,
+        "code", "name");
+    Map<Object, Document> users = findReferenced(documents, "owner", User.class,
+        "accountName", "displayName");
+    Map<Object, Document> collaborators = findReferenced(documents, "collaborator",
+        Collaborator.class, "label", "organizationName");
+
+    List<StudySummary> summaries = new ArrayList<>();
+    for (Document document : documents) {
+      StudySummary summary = new StudySummary();
+      summary.setId(document.getObjectId("_id").toHexString());
+      summary.setCode(document.getString("code"));
+      summary.setExternalCode(document.getString("externalCode"));
+      summary.setName(document.getString("name"));
+      if (document.getString("status") != null) {
+        summary.setStatus(Status.valueOf(document.getString("status")));
+      }
+      summary.setLegacy(document.getBoolean("legacy", false));
+      summary.setActive(document.getBoolean("active", false));
+      summary.setStartDate(document.get("startDate", Date.class));
+      summary.setEndDate(document.get("endDate", Date.class));
+      summary.setCreatedAt(document.get("createdAt", Date.class));
+      summary.setUpdatedAt(document.get("updatedAt", Date.class));
+      Document folder = document.get("storageFolder", Document.class);
+      if (folder != null) {
+        summary.setStorageFolderUrl(folder.getString("url"));
+      }
+
+      Document program = getReferenced(document, "program", programs);
+      if (program != null) {
+        ProgramSummary programSummary = new ProgramSummary();
+        programSummary.setId(program.getObjectId("_id").toHexString());
+        programSummary.setCode(program.getString("code"));
+        programSummary.setName(program.getString("name"));
+        summary.setProgram(programSummary);
+      }
+
+      Document owner = getReferenced(document, "owner", users);
+      if (owner != null) {
+        UserSummary userSummary = new UserSummary();
+        userSummary.setId(owner.getObjectId("_id").toHexString());
+        userSummary.setAccountName(owner.getString("accountName"));
+        userSummary.setDisplayName(owner.getString("displayName"));
+        summary.setOwner(userSummary);
+      }
+
+      Document collaborator = getReferenced(document, "collaborator", collaborators);
+      if (collaborator != null) {
+        CollaboratorSummary collaboratorSummary = new CollaboratorSummary();
+        collaboratorSummary.setId(collaborator.getObjectId("_id").toHexString());
+        collaboratorSummary.setLabel(collaborator.getString("label"));
+        collaboratorSummary.setOrganizationName(collaborator.getString("organizationName"));
+        summary.setCollaborator(collaboratorSummary);
+      }
+
+      summaries.add(summary);
+    }
+
+    return summaries;
+
+  }
+
+  @Override
+  public void updateTimestamp(String id, Date updatedAt) {
+    mongoOperations.updateFirst(new Query(Criteria.where("id").is(id)),
+        new Update().set("updatedAt", updatedAt), Study.class);
+  }
+
+  @Override
+  public boolean updateField(String id, String field, Object value, User modifiedBy) {
+    Update update = modified(modifiedBy);
+    if (value == null) {
+      update.unset(field);
+    } else {
+      update.set(field, value);
+    }
+    return update(Criteria.where("id").is(id), update);
+  }
+
+  @Override
+  public boolean pushElement(String id, String field, Object element, User modifiedBy) {
+    return update(Criteria.where("id").is(id), modified(modifiedBy).push(field, element));
+  }
+
+  @Override
+  public boolean updateElement(String id, String field, String elementId, Object element,
+      User modifiedBy) {
+    return update(Criteria.where("id").is(id).and(field + ".id").is(elementId),
+        modified(modifiedBy).set(field + ".$", element));
+  }
+
+  @Override
+  public boolean pullElement(String id, String field, Criteria element, User modifiedBy) {
+    return update(Criteria.where("id").is(id),
+        modified(modifiedBy).pull(field, new Query(element)));
+  }
+
+  private boolean update(Criteria criteria, Update update) {
+    UpdateResult result = mongoOperations.updateFirst(new Query(criteria), update, Study.class);
+    return result.getMatchedCount() > 0;
+  }
+
+  private static Update modified(User modifiedBy) {
+    Update update = new Update().set("updatedAt", new Date());
+    if (modifiedBy != null) {
+      update.set("lastModifiedBy", modifiedBy);
+    }
+    return update;
+  }
+
+  private static Document getReferenced(Document document, String field,
+      Map<Object, Document> referenced) {
+    Object value = document.get(field);
+    return value instanceof DBRef ? referenced.get(((DBRef) value).getId()) : null;
+  }
+
+  private Map<Object, Document> findReferenced(Collection<Document> documents, String field,
+      Class<?> model, String... fields) {
+    Set<Object> ids = new HashSet<>();
+    for (Document document : documents) {
+      Object value = document.get(field);
+      if (value instanceof DBRef) {
+        ids.add(((DBRef) value).getId());
+      }
+    }
+    if (ids.isEmpty()) {
+      return Collections.emptyMap();
+    }
+    Query query = new Query(Criteria.where("_id").in(ids));
+    for (String f : fields) {
+      query.fields().include(f);
+    }
+    Map<Object, Document> referenced = new HashMap<>();
+    for (Document document : mongoOperations
+        .find(query, Document.class, mongoOperations.getCollectionName(model))) {
+      referenced.put(document.get("_id"), document);
+    }
+    return referenced;
+  }
+
+}
@@ -17,18 +17,12 @@
 package com.decibeltx.studytracker.core.repository;
 
 import com.decibeltx.studytracker.core.model.User;
-import java.util.List;
 import java.util.Optional;
-import org.springframework.data.mongodb.repository.MongoRepository;
-import org.springframework.data.mongodb.repository.Query;
 
-public interface UserRepository extends MongoRepository<User, String> {
+public interface UserRepository extends CursorPagingRepository<User, String> {
 
   Optional<User> findByEmail(String email);
 
   Optional<User> findByAccountName(String accountName);
 
-  @Query("{ displayName: { '$regex': ?0, '$options': 'i'  }}")
-  List<User> findByDisplayNameLike(String keyword);
-
 }
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.decibeltx.studytracker.core.repository.support;
+
+import com.mongodb.DBRef;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.bson.Document;
+import org.springframework.data.mapping.AssociationHandler;
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.data.mongodb.core.convert.DbRefProxyHandler;
+import org.springframework.data.mongodb.core.convert.DbRefResolverCallback;
+import org.springframework.data.mongodb.core.convert.DefaultDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+
+/**
+ * {@link DefaultDbRefResolver} that resolves references through the active {@link
+ * DbRefResolutionScope}, so that each referenced record is fetched and materialized once per
+ * scope. Supports prefetching all eager references of a result set with a single {@code $in}
+ * query per referenced collection, which replaces the per-reference lookups of the default
+ * resolver. Outside of a scope, references are resolved the default way.
+ */
+public class BatchingDbRefResolver extends DefaultDbRefResolver {
+
+  public BatchingDbRefResolver(MongoDbFactory mongoDbFactory) {
+    super(mongoDbFactory);
+  }
+
+  private static boolean isLazy(MongoPersistentProperty property) {
+    return property.getDBRef() != null && property.getDBRef().lazy();
+  }
+
+  @Override
+  public Object resolveDbRef(MongoPersistentProperty property, DBRef dbref,
+      DbRefResolverCallback callback, DbRefProxyHandler proxyHandler) {
+    Optional<DbRefResolutionScope> optional = DbRefResolutionScope.current();
+    if (dbref == null || isLazy(property) || !optional.isPresent()) {
+      return super.resolveDbRef(property, dbref, callback, proxyHandler);
+    }
+    DbRefResolutionScope scope = optional.get();
+    Object entity = scope.getEntity(dbref.getCollectionName(), dbref.getId());
+    if (entity == null) {
+      entity = super.resolveDbRef(property, dbref, callback, proxyHandler);
+      if (entity != null) {
+        scope.putEntity(dbref.getCollectionName(), dbref.getId(), entity);
+      }
+    }
+    return entity;
+  }
+
+  @Override
+  public Document fetch(DBRef dbRef) {
+    Optional<DbRefResolutionScope> optional = DbRefResolutionScope.current();
+    if (!optional.isPresent()) {
+      return super.fetch(dbRef);
+    }
+    DbRefResolutionScope scope = optional.get();
+    if (scope.hasDocument(dbRef.getCollectionName(), dbRef.getId())) {
+      return scope.getDocument(dbRef.getCollectionName(), dbRef.getId());
+    }
+    Document document = super.fetch(dbRef);
+    scope.putDocument(dbRef.getCollectionName(), dbRef.getId(), document);
+    return document;
+  }
+
+  @Override
+  public List<Document> bulkFetch(List<DBRef> dbRefs) {
+    Optional<DbRefResolutionScope> optional = DbRefResolutionScope.current();
+    if (!optional.isPresent() || dbRefs.isEmpty()) {
+      return super.bulkFetch(dbRefs);
+    }
+    DbRefResolutionScope scope = optional.get();
+    fetchMissing(scope, dbRefs);
+    List<Document> documents = new ArrayList<>();
+    for (DBRef dbRef : dbRefs) {
+      Document document = scope.getDocument(dbRef.getCollectionName(), dbRef.getId());
+      if (document != null) {
+        documents.add(document);
+      }
+    }
+    return documents;
+  }
+
+  /**
+   * Fetches the targets of all eager {@code @DBRef} properties of the given documents into the
+   * active scope, using one query per referenced collection. Does nothing if no scope is open.
+   *
+   * @param entity    entity metadata of the documents
+   * @param documents raw documents, prior to conversion
+   */
+  public void prefetch(MongoPersistentEntity<?> entity, Collection<Document> documents) {
+    Optional<DbRefResolutionScope> optional = DbRefResolutionScope.current();
+    if (!optional.isPresent() || documents.isEmpty()) {
+      return;
+    }
+    Map<String, List<DBRef>> references = new LinkedHashMap<>();
+    entity.doWithAssociations((AssociationHandler<MongoPersistentProperty>) association -> {
+      MongoPersistentProperty property = association.getInverse();
+      if (!property.isDbReference() || isLazy(property)) {
+        return;
+      }
+      for (Document document : documents) {
+        Object value = document.get(property.getFieldName());
+        if (value instanceof DBRef) {
+          addReference(references, (DBRef) value);
+        } else if (value instanceof Collection) {
+          for (Object item : (Collection<?>) value) {
+            if (item instanceof DBRef) {
+              addReference(references, (DBRef) item);
+            }
+          }
+        }
+      }
+    });
+    for (List<DBRef> dbRefs : references.values()) {
+      fetchMissing(optional.get(), dbRefs);
+    }
+  }
+
+  private static void addReference(Map<String, List<DBRef>> references, DBRef dbRef) {
+    references.computeIfAbsent(dbRef.getCollectionName(), c -> new ArrayList<>()).add(dbRef);
+  }
+
+  /**
+   * Fetches the referenced documents that are not yet in the scope. All references must point to
+   * the same collection.
+   */
+  private void fetchMissing(DbRefResolutionScope scope, List<DBRef> dbRefs) {
+    Map<Object, DBRef> missing = new LinkedHashMap<>();
+    for (DBRef dbRef : dbRefs) {
+      if (!scope.hasDocument(dbRef.getCollectionName(), dbRef.getId())) {
+        missing.putIfAbsent(dbRef.getId(), dbRef);
+      }
+    }
+    if (missing.isEmpty()) {
+      return;
+    }
+    String collection = dbRefs.get(0).getCollectionName();
+    for (Document document : super.bulkFetch(new ArrayList<>(missing.values()))) {
+      scope.putDocument(collection, document.get("_id"), document);
+      missing.remove(document.get("_id"));
+    }
+    for (Object id : missing.keySet()) {
+      scope.putDocument(collection, id, null);
+    }
+  }
+
+}
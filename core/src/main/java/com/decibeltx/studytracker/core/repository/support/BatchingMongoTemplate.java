@@ -0,0 +1,143 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.decibeltx.studytracker.core.repository.support;
+
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import java.util.ArrayList;
+import java.util.List;
+import org.bson.Document;
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.data.mongodb.core.CursorPreparer;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.mapping.DBRef;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.mapping.event.AfterConvertEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterLoadEvent;
+import org.springframework.data.mongodb.core.query.Collation;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+
+/**
+ * {@link MongoTemplate} that loads multi-record results in two phases: the raw documents are read
+ * first, then the eager {@code @DBRef} targets of the whole result set are fetched with one query
+ * per referenced collection by the {@link BatchingDbRefResolver}, and only then are the documents
+ * converted to entities. Writes evict the affected collection from the active {@link
+ * DbRefResolutionScope}.
+ */
+public class BatchingMongoTemplate extends MongoTemplate {
+
+  private final BatchingDbRefResolver dbRefResolver;
+
+  public BatchingMongoTemplate(MongoDbFactory mongoDbFactory, MongoConverter mongoConverter,
+      BatchingDbRefResolver dbRefResolver) {
+    super(mongoDbFactory, mongoConverter);
+    this.dbRefResolver = dbRefResolver;
+  }
+
+  private static boolean hasEagerReferences(MongoPersistentEntity<?> entity) {
+    for (MongoPersistentProperty property : entity.getPersistentProperties(DBRef.class)) {
+      if (!property.getDBRef().lazy()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  protected <T> List<T> doFind(String collectionName, Document query, Document fields,
+      Class<T> entityClass, CursorPreparer preparer) {
+    MongoPersistentEntity<?> entity = getConverter().getMappingContext()
+        .getPersistentEntity(entityClass);
+    if (entity == null || !hasEagerReferences(entity)) {
+      return super.doFind(collectionName, query, fields, entityClass, preparer);
+    }
+    DbRefResolutionScope scope = DbRefResolutionScope.open();
+    try {
+      List<Document> documents = super.doFind(collectionName, query, fields, Document.class,
+          preparer);
+      dbRefResolver.prefetch(entity, documents);
+      List<T> results = new ArrayList<>(documents.size());
+      for (Document document : documents) {
+        maybeEmitEvent(new AfterLoadEvent<>(document, entityClass, collectionName));
+        T source = getConverter().read(entityClass, document);
+        if (source != null) {
+          maybeEmitEvent(new AfterConvertEvent<>(document, source, collectionName));
+          results.add(source);
+        }
+      }
+      return results;
+    } finally {
+      scope.close();
+    }
+  }
+
+  @Override
+  protected Object insertDocument(String collectionName, Document document,
+      Class<?> entityClass) {
+    DbRefResolutionScope.evict(collectionName);
+    return super.insertDocument(collectionName, document, entityClass);
+  }
+
+  @Override
+  protected List<Object> insertDocumentList(String collectionName, List<Document> documents) {
+    DbRefResolutionScope.evict(collectionName);
+    return super.insertDocumentList(collectionName, documents);
+  }
+
+  @Override
+  protected Object saveDocument(String collectionName, Document document,
+      Class<?> entityClass) {
+    DbRefResolutionScope.evict(collectionName);
+    return super.saveDocument(collectionName, document, entityClass);
+  }
+
+  @Override
+  protected UpdateResult doUpdate(String collectionName, Query query, UpdateDefinition update,
+      Class<?> entityClass, boolean upsert, boolean multi) {
+    DbRefResolutionScope.evict(collectionName);
+    return super.doUpdate(collectionName, query, update, entityClass, upsert, multi);
+  }
+
+  @Override
+  protected <T> DeleteResult doRemove(String collectionName, Query query, Class<T> entityClass,
+      boolean multi) {
+    DbRefResolutionScope.evict(collectionName);
+    return super.doRemove(collectionName, query, entityClass, multi);
+  }
+
+  @Override
+  protected <T> T doFindAndModify(String collectionName, Document query, Document fields,
+      Document sort, Class<T> entityClass, Update update, FindAndModifyOptions options) {
+    DbRefResolutionScope.evict(collectionName);
+    return super.doFindAndModify(collectionName, query, fields, sort, entityClass, update,
+        options);
+  }
+
+  @Override
+  protected <T> T doFindAndRemove(String collectionName, Document query, Document fields,
+      Document sort, Collation collation,
+      Class<T> entityClass) {
+    DbRefResolutionScope.evict(collectionName);
+    return super.doFindAndRemove(collectionName, query, fields, sort, collation, entityClass);
+  }
+
+}
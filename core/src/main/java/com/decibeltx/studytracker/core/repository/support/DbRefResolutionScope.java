@@ -0,0 +1,104 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.decibeltx.studytracker.core.repository.support;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import org.bson.Document;
+
+/**
+ * Thread-bound identity map for documents and entities resolved from {@code @DBRef} properties.
+ * While a scope is open, each referenced record is fetched and materialized at most once, no
+ * matter how many loaded records point to it. Scopes may be nested: only closing the outermost
+ * scope discards the cached records. Any write to a collection evicts that collection's cached
+ * records from the current scope.
+ */
+public final class DbRefResolutionScope implements AutoCloseable {
+
+  private static final ThreadLocal<DbRefResolutionScope> CURRENT = new ThreadLocal<>();
+
+  private final Map<String, Map<Object, Document>> documents = new HashMap<>();
+
+  private final Map<String, Map<Object, Object>> entities = new HashMap<>();
+
+  private int depth = 0;
+
+  private DbRefResolutionScope() {
+  }
+
+  /**
+   * Opens a new scope, or joins the scope already open on the current thread.
+   *
+   * @return the active scope
+   */
+  public static DbRefResolutionScope open() {
+    DbRefResolutionScope scope = CURRENT.get();
+    if (scope == null) {
+      scope = new DbRefResolutionScope();
+      CURRENT.set(scope);
+    }
+    scope.depth = scope.depth + 1;
+    return scope;
+  }
+
+  public static Optional<DbRefResolutionScope> current() {
+    return Optional.ofNullable(CURRENT.get());
+  }
+
+  /**
+   * Removes all cached records of the given collection from the current scope, if one is open.
+   *
+   * @param collection collection name
+   */
+  public static void evict(String collection) {
+    DbRefResolutionScope scope = CURRENT.get();
+    if (scope != null) {
+      scope.documents.remove(collection);
+      scope.entities.remove(collection);
+    }
+  }
+
+  public Document getDocument(String collection, Object id) {
+    return documents.getOrDefault(collection, new HashMap<>()).get(id);
+  }
+
+  public void putDocument(String collection, Object id, Document document) {
+    documents.computeIfAbsent(collection, c -> new HashMap<>()).put(id, document);
+  }
+
+  public boolean hasDocument(String collection, Object id) {
+    return documents.containsKey(collection) && documents.get(collection).containsKey(id);
+  }
+
+  public Object getEntity(String collection, Object id) {
+    return entities.getOrDefault(collection, new HashMap<>()).get(id);
+  }
+
+  public void putEntity(String collection, Object id, Object entity) {
+    entities.computeIfAbsent(collection, c -> new HashMap<>()).put(id, entity);
+  }
+
+  @Override
+  public void close() {
+    depth = depth - 1;
+    if (depth <= 0) {
+      CURRENT.remove();
+    }
+  }
+
+}
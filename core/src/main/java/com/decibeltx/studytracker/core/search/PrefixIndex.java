@@ -0,0 +1,210 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Thread-safe, in-memory word prefix index of lightweight values, used to serve autocomplete
+ * suggestions without querying the database. Each value is indexed under every word of its
+ * searchable fields, in a sorted map, so that all words starting with a prefix can be found with a
+ * single range scan. The first word of each field is also indexed separately, so that the values
+ * that best match a keyword are collected before any that only match it in later words. Reads are
+ * lock-free, while writes to the same index are serialized.
+ *
+ * @param <T> indexed value type
+ */
+public class PrefixIndex<T> {
+
+  private static final char KEY_SEPARATOR = '\u0000';
+
+  private static final int MAX_CANDIDATES = 1000;
+
+  private volatile State<T> state = new State<>();
+
+  /**
+   * Adds or replaces the value with the provided ID.
+   *
+   * @param id     unique ID of the value
+   * @param value  value to return in search results
+   * @param fields searchable field values, in order of importance
+   */
+  public synchronized void put(String id, T value, String... fields) {
+    state.put(id, new Entry<>(value, fields));
+  }
+
+  /**
+   * Removes the value with the provided ID, if present.
+   *
+   * @param id unique ID of the value
+   */
+  public synchronized void remove(String id) {
+    state.remove(id);
+  }
+
+  /**
+   * Replaces the contents of the index with the provided values. The new contents are built
+   * separately and swapped in, so concurrent searches see either the old or the new contents.
+   *
+   * @param values values to index, keyed by ID
+   * @param fields searchable field values of each value, keyed by ID
+   */
+  public synchronized void reload(Map<String, T> values, Map<String, String[]> fields) {
+    State<T> reloaded = new State<>();
+    for (Map.Entry<String, T> value : values.entrySet()) {
+      reloaded.put(value.getKey(), new Entry<>(value.getValue(), fields.get(value.getKey())));
+    }
+    state = reloaded;
+  }
+
+  /**
+   * Returns values with a word starting with each word of the keyword, ranked by how closely
+   * they match.
+   *
+   * @param keyword search keyword
+   * @param limit   maximum number of results
+   * @return matching values
+   */
+  public List<T> search(String keyword, int limit) {
+    List<String> terms = SearchTokens.terms(keyword);
+    if (terms.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    // Values with a field starting with the keyword are collected first, as the best matches,
+    // then the range of words matching the longest, and so most selective, term
+    String longest = terms.get(0);
+    for (String term : terms) {
+      if (term.length() > longest.length()) {
+        longest = term;
+      }
+    }
+    State<T> current = state;
+    Map<String, Entry<T>> candidates = new LinkedHashMap<>();
+    collect(current, current.leadingWords, terms.get(0), terms, candidates);
+    collect(current, current.words, longest, terms, candidates);
+
+    List<T> results = new ArrayList<>();
+    for (Entry<T> entry : SearchTokens.rankResults(keyword, new ArrayList<>(candidates.values()),
+        limit, e -> e.fields)) {
+      results.add(entry.value);
+    }
+    return results;
+  }
+
+  /**
+   * Adds the values indexed under words starting with the prefix that match every term, until
+   * the candidate limit is reached.
+   */
+  private static <T> void collect(State<T> current, NavigableMap<String, String> index,
+      String prefix, List<String> terms, Map<String, Entry<T>> candidates) {
+    for (String id : index.subMap(prefix, true, prefix + Character.MAX_VALUE, true).values()) {
+      if (candidates.size() >= MAX_CANDIDATES) {
+        return;
+      }
+      if (!candidates.containsKey(id)) {
+        Entry<T> entry = current.entries.get(id);
+        if (entry != null && entry.matches(terms)) {
+          candidates.put(id, entry);
+        }
+      }
+    }
+  }
+
+  public int size() {
+    return state.entries.size();
+  }
+
+  private static final class State<T> {
+
+    private final NavigableMap<String, String> words = new ConcurrentSkipListMap<>();
+    private final NavigableMap<String, String> leadingWords = new ConcurrentSkipListMap<>();
+    private final Map<String, Entry<T>> entries = new ConcurrentHashMap<>();
+
+    private void put(String id, Entry<T> entry) {
+      remove(id);
+      entries.put(id, entry);
+      for (String word : entry.words) {
+        words.put(word + KEY_SEPARATOR + id, id);
+      }
+      for (String word : entry.leadingWords) {
+        leadingWords.put(word + KEY_SEPARATOR + id, id);
+      }
+    }
+
+    private void remove(String id) {
+      Entry<T> entry = entries.remove(id);
+      if (entry != null) {
+        for (String word : entry.words) {
+          words.remove(word + KEY_SEPARATOR + id);
+        }
+        for (String word : entry.leadingWords) {
+          leadingWords.remove(word + KEY_SEPARATOR + id);
+        }
+      }
+    }
+
+  }
+
+  private static final class Entry<T> {
+
+    private final T value;
+    private final String[] fields;
+    private final Set<String> words = new LinkedHashSet<>();
+    private final Set<String> leadingWords = new LinkedHashSet<>();
+
+    private Entry(T value, String[] fields) {
+      this.value = value;
+      this.fields = fields.clone();
+      for (String field : fields) {
+        List<String> fieldWords = SearchTokens.words(field);
+        words.addAll(fieldWords);
+        if (!fieldWords.isEmpty()) {
+          leadingWords.add(fieldWords.get(0));
+        }
+      }
+    }
+
+    private boolean matches(List<String> terms) {
+      for (String term : terms) {
+        boolean found = false;
+        for (String word : words) {
+          if (word.startsWith(term)) {
+            found = true;
+            break;
+          }
+        }
+        if (!found) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+  }
+
+}
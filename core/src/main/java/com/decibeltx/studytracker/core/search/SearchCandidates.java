@@ -0,0 +1,88 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.decibeltx.studytracker.core.search;
+
+import com.decibeltx.studytracker.core.repository.CursorPagingRepository;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+/**
+ * Fetches the candidate records for a search keyword, which are then ordered with
+ * {@link SearchTokens#rankResults(String, List, int, Function)}. Candidates are every record
+ * whose {@code searchTokens} contain all of the keyword's terms, up to a fixed limit. Records with
+ * a ranked field starting with the keyword are fetched first, so that the best matches are never
+ * among those dropped by the limit when a short keyword matches many records.
+ */
+public final class SearchCandidates {
+
+  private SearchCandidates() {
+  }
+
+  /**
+   * Returns up to {@code limit} candidate records for the keyword.
+   *
+   * @param repository   repository of the searched records
+   * @param keyword      search keyword, with at least one term
+   * @param limit        maximum number of candidates
+   * @param id           returns the ID of a record
+   * @param rankedOnly   if true, only the ID and ranked fields of each record are read
+   * @param rankedFields names of the fields the results are ranked by
+   * @param <T>          record type
+   * @return candidate records, best matches first
+   */
+  public static <T> List<T> find(CursorPagingRepository<T, ?> repository, String keyword,
+      int limit, Function<T, Object> id, boolean rankedOnly, String... rankedFields) {
+
+    Criteria tokens = Criteria.where("searchTokens").all(SearchTokens.terms(keyword));
+    String pattern = SearchTokens.prefixPattern(keyword);
+    List<Criteria> prefixes = new ArrayList<>();
+    for (String field : rankedFields) {
+      prefixes.add(Criteria.where(field).regex(pattern, "i"));
+    }
+
+    // Records starting with the keyword
+    Query query = new Query(new Criteria().andOperator(tokens,
+        new Criteria().orOperator(prefixes.toArray(new Criteria[0])))).limit(limit);
+    List<T> candidates = new ArrayList<>(repository.findAll(project(query, rankedOnly,
+        rankedFields)));
+
+    // All other records matching every term
+    if (candidates.size() < limit) {
+      List<Object> ids = candidates.stream().map(id).collect(Collectors.toList());
+      query = new Query(Criteria.where("searchTokens").all(SearchTokens.terms(keyword))
+          .and("id").nin(ids)).limit(limit - candidates.size());
+      candidates.addAll(repository.findAll(project(query, rankedOnly, rankedFields)));
+    }
+
+    return candidates;
+
+  }
+
+  private static Query project(Query query, boolean rankedOnly, String... rankedFields) {
+    if (rankedOnly) {
+      for (String field : rankedFields) {
+        query.fields().include(field);
+      }
+    }
+    return query;
+  }
+
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.search;
+
+import com.decibeltx.studytracker.core.model.Study;
+import com.decibeltx.studytracker.core.model.User;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertEvent;
+
+/**
+ * Refreshes the {@code searchTokens} field of {@link Study} and {@link User} records each time they
+ * are saved, so that the search index always reflects the current names and codes.
+ */
+public class SearchTokenEventListener extends AbstractMongoEventListener<Object> {
+
+  @Override
+  public void onBeforeConvert(BeforeConvertEvent<Object> event) {
+    Object source = event.getSource();
+    if (source instanceof Study) {
+      Study study = (Study) source;
+      study.setSearchTokens(SearchTokens.tokenize(study.getCode(), study.getName()));
+    } else if (source instanceof User) {
+      User user = (User) source;
+      user.setSearchTokens(SearchTokens.tokenize(user.getDisplayName(), user.getAccountName()));
+    }
+  }
+
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Builds the normalized prefix tokens stored in the indexed {@code searchTokens} field of
+ * searchable records, and the matching query terms for a search keyword. Values are lower-cased
+ * and split into words on any non-alphanumeric character, and every prefix of each word, up to
+ * {@link #MAX_TOKEN_LENGTH} characters, is stored as a token. A record matches a keyword when its
+ * tokens contain every term of the keyword, so each term is a single indexed equality lookup.
+ */
+public final class SearchTokens {
+
+  public static final int MAX_TOKEN_LENGTH = 15;
+
+  private static final String WORD = "[\\p{L}\\p{N}]";
+
+  private static final String NON_WORD = "[^\\p{L}\\p{N}]";
+
+  private static final Pattern SEPARATOR = Pattern.compile(NON_WORD + "+");
+
+  private SearchTokens() {
+  }
+
+  /**
+   * Returns the prefix tokens for all words in the provided values.
+   *
+   * @param values field values, which may be null
+   * @return tokens
+   */
+  public static List<String> tokenize(String... values) {
+    Set<String> tokens = new LinkedHashSet<>();
+    for (String value : values) {
+      for (String word : words(value)) {
+        for (int i = 1; i <= Math.min(word.length(), MAX_TOKEN_LENGTH); i++) {
+          tokens.add(word.substring(0, i));
+        }
+      }
+    }
+    return new ArrayList<>(tokens);
+  }
+
+  /**
+   * Returns the query terms for a search keyword, each truncated to the maximum token length.
+   *
+   * @param keyword search keyword
+   * @return terms, or an empty list if the keyword contains no searchable characters
+   */
+  public static List<String> terms(String keyword) {
+    Set<String> terms = new LinkedHashSet<>();
+    for (String word : words(keyword)) {
+      terms.add(word.length() > MAX_TOKEN_LENGTH ? word.substring(0, MAX_TOKEN_LENGTH) : word);
+    }
+    return new ArrayList<>(terms);
+  }
+
+  /**
+   * Scores how closely the provided field values match a search keyword, lower being better: a
+   * value with exactly the keyword's words scores 0, a value whose leading words start with the
+   * keyword's words scores 1, a value with later words starting with the keyword's words scores 2,
+   * and anything else scores 3. Values and keywords are split into words as
+   * {@link #tokenize(String...)} does.
+   *
+   * @param keyword search keyword
+   * @param values  field values, in order of importance
+   * @return match score
+   */
+  public static int rank(String keyword, String... values) {
+    List<String> query = words(keyword);
+    if (query.isEmpty()) {
+      return 3;
+    }
+    int best = 3;
+    for (String value : values) {
+      List<String> words = words(value);
+      if (words.equals(query)) {
+        return 0;
+      } else if (matchesAt(words, query, 0)) {
+        best = Math.min(best, 1);
+      } else {
+        for (int i = 1; i < words.size() && best > 2; i++) {
+          if (matchesAt(words, query, i)) {
+            best = 2;
+          }
+        }
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Returns a regular expression that, matched case-insensitively, selects values starting with the
+   * words of a search keyword, as scored 0 or 1 by {@link #rank(String, String...)}. Words contain
+   * only letters and digits, so need no escaping.
+   *
+   * @param keyword search keyword
+   * @return regular expression, or null if the keyword contains no searchable characters
+   */
+  public static String prefixPattern(String keyword) {
+    List<String> query = words(keyword);
+    if (query.isEmpty()) {
+      return null;
+    }
+    StringBuilder pattern = new StringBuilder("^").append(NON_WORD).append('*');
+    for (int i = 0; i < query.size(); i++) {
+      if (i > 0) {
+        pattern.append(WORD).append('*').append(NON_WORD).append('+');
+      }
+      pattern.append(query.get(i));
+    }
+    return pattern.toString();
+  }
+
+  /**
+   * Returns true if each query word is a prefix of the value word at the same offset from the
+   * given position.
+   */
+  private static boolean matchesAt(List<String> words, List<String> query, int start) {
+    if (start + query.size() > words.size()) {
+      return false;
+    }
+    for (int i = 0; i < query.size(); i++) {
+      if (!words.get(start + i).startsWith(query.get(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Orders search results by their {@link #rank(String, String...)} score, preserving the original
+   * order of equally-ranked results, and returns at most {@code limit} of them.
+   *
+   * @param keyword    search keyword
+   * @param candidates candidate results
+   * @param limit      maximum number of results
+   * @param fields     returns the ranked field values of a result
+   * @param <T>        result type
+   * @return ranked results
+   */
+  public static <T> List<T> rankResults(String keyword, List<T> candidates, int limit,
+      Function<T, String[]> fields) {
+    List<T> results = new ArrayList<>(candidates);
+    results.sort(Comparator.comparingInt(r -> rank(keyword, fields.apply(r))));
+    return results.size() > limit ? new ArrayList<>(results.subList(0, Math.max(limit, 0)))
+        : results;
+  }
+
+  private static String normalize(String value) {
+    return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Splits a value into its normalized words.
+   *
+   * @param value value to split, which may be null
+   * @return lower-case words
+   */
+  public static List<String> words(String value) {
+    List<String> words = new ArrayList<>();
+    if (value != null) {
+      for (String word : SEPARATOR.split(normalize(value))) {
+        if (!word.isEmpty()) {
+          words.add(word);
+        }
+      }
+    }
+    return words;
+  }
+
+}
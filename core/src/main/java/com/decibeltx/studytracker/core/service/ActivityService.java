@@ -18,15 +18,25 @@ package com.decibeltx.studytracker.core.service;
 
 import com.decibeltx.studytracker.core.events.StudyEvent.Type;
 import com.decibeltx.studytracker.core.model.Activity;
+import com.decibeltx.studytracker.core.model.ActivityFilter;
 import com.decibeltx.studytracker.core.model.Assay;
 import com.decibeltx.studytracker.core.model.Program;
 import com.decibeltx.studytracker.core.model.Study;
+import com.decibeltx.studytracker.core.paging.CursorPage;
+import com.decibeltx.studytracker.core.paging.CursorRequest;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 
+/**
+ * Reads and writes study activity records. Records that have been archived are stored as summaries
+ * in the activity collection, with their data held in the archive collection. Lists and pages of
+ * activity return archived records as summaries without data; {@link #findById(String)} and
+ * {@link #findChanges(String, Date, Date)} read the archived data.
+ */
 public interface ActivityService {
 
   List<Activity> findAll();
@@ -39,12 +49,50 @@ public interface ActivityService {
 
   List<Activity> findByStudy(Study study);
 
+  CursorPage<Activity> findByStudy(Study study, CursorRequest request);
+
   List<Activity> findByAssay(Assay assay);
 
   List<Activity> findByProgram(Program program);
 
   List<Activity> findByType(Type type);
 
+  /**
+   * Returns a page of activity matching the provided filter. Program, user and type constraints,
+   * with or without a date range, are each served by an index on the activity collection.
+   *
+   * @param filter activity constraints
+   * @param request page request
+   * @return page of matching activity
+   */
+  CursorPage<Activity> findPage(ActivityFilter filter, CursorRequest request);
+
+  /**
+   * Returns up to {@code limit} records created after the activity with the given ID, oldest
+   * first.
+   *
+   * @param activityId ID of the last activity seen
+   * @param limit maximum number of records
+   * @return newer activity
+   */
+  List<Activity> findCreatedAfter(String activityId, int limit);
+
+  List<Activity> findByStudyCreatedAfter(Study study, String activityId, int limit);
+
+  List<Activity> findByProgramCreatedAfter(Program program, String activityId, int limit);
+
+  /**
+   * Returns the activity recording changes to the study or assay with the provided ID, made after
+   * {@code after} and up to and including {@code until}, oldest first. Only the date and data of
+   * each record are loaded.
+   *
+   * @param entityId study or assay ID
+   * @param after exclusive lower date bound
+   * @param until inclusive upper date bound
+   * @return change activity
+   */
+  List<Activity> findChanges(String entityId, Date after, Date until);
+
   Activity create(Activity activity);
 
   Activity update(Activity activity);
@@ -53,4 +101,15 @@ public interface ActivityService {
 
   void deleteStudyActivity(Study study);
 
+  /**
+   * Moves the data of up to {@code limit} records dated before {@code cutoff} to the archive
+   * collection, oldest first, leaving summary records in the activity collection. Safe to re-run
+   * after a failure part-way through.
+   *
+   * @param cutoff date before which activity is archived
+   * @param limit maximum number of records to archive
+   * @return number of records archived
+   */
+  int archive(Date cutoff, int limit);
+
 }
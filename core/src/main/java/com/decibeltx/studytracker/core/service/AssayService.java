@@ -18,6 +18,8 @@ package com.decibeltx.studytracker.core.service;
 
 import com.decibeltx.studytracker.core.model.Assay;
 import com.decibeltx.studytracker.core.model.Status;
+import com.decibeltx.studytracker.core.paging.CursorPage;
+import com.decibeltx.studytracker.core.paging.CursorRequest;
 import java.util.List;
 import java.util.Optional;
 
@@ -31,6 +33,8 @@ public interface AssayService {
 
   List<Assay> findAll();
 
+  CursorPage<Assay> findAll(CursorRequest request);
+
   void create(Assay assay);
 
   void update(Assay assay);
@@ -47,4 +51,9 @@ public interface AssayService {
 
   String generateAssayCode(Assay assay);
 
+  /**
+   * Initializes the per-study assay code sequences from the codes of existing assays.
+   */
+  void seedCodeSequences();
+
 }
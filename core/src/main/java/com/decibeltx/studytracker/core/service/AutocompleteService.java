@@ -0,0 +1,72 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.service;
+
+import com.decibeltx.studytracker.core.model.Study;
+import com.decibeltx.studytracker.core.model.StudySuggestion;
+import com.decibeltx.studytracker.core.model.User;
+import com.decibeltx.studytracker.core.model.UserSuggestion;
+import java.util.List;
+
+/**
+ * Serves study and user autocomplete suggestions from in-memory prefix indexes. The indexes are
+ * loaded at startup and kept up to date as studies and users are created, modified and removed.
+ */
+public interface AutocompleteService {
+
+  /**
+   * Returns active studies with a code or name word starting with each word of the keyword.
+   *
+   * @param keyword search keyword
+   * @param limit   maximum number of suggestions
+   * @return ranked suggestions
+   */
+  List<StudySuggestion> suggestStudies(String keyword, int limit);
+
+  /**
+   * Returns active users with a display name or account name word starting with each word of the
+   * keyword.
+   *
+   * @param keyword search keyword
+   * @param limit   maximum number of suggestions
+   * @return ranked suggestions
+   */
+  List<UserSuggestion> suggestUsers(String keyword, int limit);
+
+  /**
+   * Adds, updates or, if it is no longer active, removes the study in the index.
+   *
+   * @param study study
+   */
+  void indexStudy(Study study);
+
+  /**
+   * Adds, updates or, if it is no longer active, removes the user in the index.
+   *
+   * @param user user
+   */
+  void indexUser(User user);
+
+  void removeUser(User user);
+
+  /**
+   * Reloads both indexes from the database.
+   */
+  void rebuild();
+
+}
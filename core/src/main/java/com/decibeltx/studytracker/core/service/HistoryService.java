@@ -0,0 +1,80 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.service;
+
+import com.decibeltx.studytracker.core.model.ChangeSet;
+import java.util.Date;
+import java.util.Optional;
+
+/**
+ * Records field-level changes to studies and assays, and rebuilds past versions of them from those
+ * changes and periodic snapshots of their stored state.
+ */
+public interface HistoryService {
+
+  /**
+   * Records the initial state of a newly-created record.
+   *
+   * @param record the new record
+   */
+  void recordCreated(Object record);
+
+  /**
+   * Returns the changes between the stored version of a record and the provided, updated version.
+   * Must be called before the updated record is saved, and the changes passed to
+   * {@link #recordChanges(ChangeSet)} once the save succeeds.
+   *
+   * @param record the updated record
+   * @return changed fields
+   */
+  ChangeSet diff(Object record);
+
+  /**
+   * Returns the change made by setting a single field of a stored record. Must be called before
+   * the field is updated, and the change passed to {@link #recordChanges(ChangeSet)} once the
+   * update succeeds.
+   *
+   * @param type record type
+   * @param id record ID
+   * @param field name of the stored field
+   * @param value new field value
+   * @return changed field
+   */
+  ChangeSet diff(Class<?> type, String id, String field, Object value);
+
+  /**
+   * Records changes that have been saved, taking a snapshot of the stored record, dated with the
+   * changes, once enough changes have accumulated.
+   *
+   * @param changes changes returned by {@code diff}
+   */
+  void recordChanges(ChangeSet changes);
+
+  /**
+   * Rebuilds a record as it was at the provided time, or returns nothing if there is no recorded
+   * history for the record at that time.
+   *
+   * @param type record type
+   * @param id record ID
+   * @param date point in time
+   * @param <T> record type
+   * @return the past version of the record
+   */
+  <T> Optional<T> findVersionAt(Class<T> type, String id, Date date);
+
+}
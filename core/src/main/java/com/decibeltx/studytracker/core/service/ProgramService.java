@@ -17,6 +17,8 @@
 package com.decibeltx.studytracker.core.service;
 
 import com.decibeltx.studytracker.core.model.Program;
+import com.decibeltx.studytracker.core.paging.CursorPage;
+import com.decibeltx.studytracker.core.paging.CursorRequest;
 import java.util.List;
 import java.util.Optional;
 
@@ -28,6 +30,8 @@ public interface ProgramService {
 
   List<Program> findAll();
 
+  CursorPage<Program> findAll(CursorRequest request);
+
   List<Program> findByCode(String code);
 
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.service;
+
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * Named, monotonically increasing sequences, used to generate record codes. Sequences are stored
+ * in the {@code counters} collection and incremented atomically, so values are unique across
+ * application instances.
+ */
+public interface SequenceService {
+
+  /**
+   * Increments the named sequence and returns its new value. If the sequence does not yet exist,
+   * it is first initialized with the value provided by the seed function, which should reflect
+   * the highest value already in use.
+   *
+   * @param name sequence name
+   * @param seed supplies the initial value for a new sequence
+   * @return the next value in the sequence
+   */
+  long next(String name, LongSupplier seed);
+
+  /**
+   * Raises the named sequence to the provided value, if it is not already higher. Creates the
+   * sequence if it does not exist.
+   *
+   * @param name  sequence name
+   * @param value minimum current value
+   */
+  void seed(String name, long value);
+
+  /**
+   * Removes all sequences. They are re-initialized from their seed functions on next use.
+   */
+  void deleteAll();
+
+  /**
+   * Returns the numeric portion of a code made up of the provided prefix followed by digits, or
+   * {@code -1} if the code does not have that form.
+   *
+   * @param code   code to parse
+   * @param prefix expected prefix
+   * @return numeric suffix, or -1
+   */
+  static long parseSuffix(String code, String prefix) {
+    if (code == null || !code.startsWith(prefix) || code.length() == prefix.length()) {
+      return -1L;
+    }
+    String suffix = code.substring(prefix.length());
+    for (char c : suffix.toCharArray()) {
+      if (!Character.isDigit(c)) {
+        return -1L;
+      }
+    }
+    return Long.parseLong(suffix);
+  }
+
+  /**
+   * Returns an anchored regular expression matching codes made up of the provided prefix followed
+   * by digits.
+   *
+   * @param prefix code prefix
+   * @return regular expression
+   */
+  static String suffixPattern(String prefix) {
+    return "^" + Pattern.quote(prefix) + "\\d+$";
+  }
+
+}
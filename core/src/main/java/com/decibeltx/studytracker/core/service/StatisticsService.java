@@ -0,0 +1,63 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.service;
+
+import com.decibeltx.studytracker.core.model.Status;
+import java.util.Map;
+
+/**
+ * Maintains pre-computed counts of active studies, by program and status, and of active assays,
+ * by assay type and status. Counts are updated incrementally as study and assay events occur, and
+ * periodically recomputed from the source collections to correct any drift.
+ */
+public interface StatisticsService {
+
+  /**
+   * Returns the number of active studies in each status, keyed by program ID.
+   *
+   * @return study counts
+   */
+  Map<String, Map<Status, Long>> getStudyCountsByProgram();
+
+  /**
+   * Returns the number of active assays in each status, keyed by assay type.
+   *
+   * @return assay counts
+   */
+  Map<String, Map<Status, Long>> getAssayCountsByType();
+
+  /**
+   * Updates the counts to reflect the current state of the study.
+   *
+   * @param studyId study ID
+   */
+  void refreshStudy(String studyId);
+
+  /**
+   * Updates the counts to reflect the current state of the study's assays.
+   *
+   * @param studyId study ID
+   */
+  void refreshAssays(String studyId);
+
+  /**
+   * Recomputes all counts from the studies and assays collections.
+   */
+  void reconcile();
+
+}
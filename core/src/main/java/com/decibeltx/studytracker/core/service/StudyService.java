@@ -19,6 +19,12 @@ package com.decibeltx.studytracker.core.service;
 import com.decibeltx.studytracker.core.model.Program;
 import com.decibeltx.studytracker.core.model.Status;
 import com.decibeltx.studytracker.core.model.Study;
+import com.decibeltx.studytracker.core.model.StudyFilter;
+import com.decibeltx.studytracker.core.model.StudySummary;
+import com.decibeltx.studytracker.core.model.User;
+import com.decibeltx.studytracker.core.paging.CursorPage;
+import com.decibeltx.studytracker.core.paging.CursorRequest;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -42,6 +48,111 @@ public interface StudyService {
    */
   List<Study> findAll();
 
+  /**
+   * Returns all studies that have not been removed (ie. {@code active} is true).
+   *
+   * @return active studies
+   */
+  List<Study> findAllActive();
+
+  /**
+   * Returns a single page of active studies, using keyset pagination.
+   *
+   * @param request page request
+   * @return page of active studies
+   */
+  CursorPage<Study> findAllActive(CursorRequest request);
+
+  /**
+   * Returns all studies matching the provided filter.
+   *
+   * @param filter query constraints
+   * @return matching studies
+   */
+  List<Study> find(StudyFilter filter);
+
+  /**
+   * Returns a single page of studies matching the provided filter, using keyset pagination.
+   *
+   * @param filter  query constraints
+   * @param request page request
+   * @return page of studies
+   */
+  CursorPage<Study> findPage(StudyFilter filter, CursorRequest request);
+
+  /**
+   * Returns lightweight {@link StudySummary} records for all active studies, most recently updated
+   * first.
+   *
+   * @return active study summaries
+   */
+  List<StudySummary> findActiveSummaries();
+
+  /**
+   * Returns lightweight {@link StudySummary} records for all studies matching the provided filter,
+   * most recently updated first.
+   *
+   * @param filter study filter
+   * @return matching study summaries
+   */
+  List<StudySummary> findSummaries(StudyFilter filter);
+
+  /**
+   * Returns a single page of {@link StudySummary} records matching the provided filter, ordered by
+   * the requested sort property.
+   *
+   * @param filter  study filter
+   * @param request page request
+   * @return page of study summaries
+   */
+  CursorPage<StudySummary> findSummaryPage(StudyFilter filter, CursorRequest request);
+
+  /**
+   * Returns {@link StudySummary} records for the studies with the given IDs, in the same order.
+   *
+   * @param ids study IDs
+   * @return study summaries
+   */
+  List<StudySummary> findSummariesById(List<String> ids);
+
+  /**
+   * Finds all active studies owned by the given {@link User}.
+   *
+   * @param user study owner
+   * @return list of studies
+   */
+  List<Study> findByOwner(User user);
+
+  /**
+   * Finds all active studies that include the given {@link User} as a team member.
+   *
+   * @param user study team member
+   * @return list of studies
+   */
+  List<Study> findByUser(User user);
+
+  /**
+   * Finds all active studies with one of the provided statuses.
+   *
+   * @param statuses statuses to match
+   * @return list of studies
+   */
+  List<Study> findByStatus(Collection<Status> statuses);
+
+  /**
+   * Finds all active legacy studies.
+   *
+   * @return list of studies
+   */
+  List<Study> findLegacy();
+
+  /**
+   * Finds all studies performed with an external collaborator.
+   *
+   * @return list of studies
+   */
+  List<Study> findExternal();
+
   /**
    * Finds all studies associated with a given {@link Program}
    *
@@ -111,6 +222,11 @@ public interface StudyService {
    */
   String generateExternalStudyCode(Study study);
 
+  /**
+   * Initializes the study and external study code sequences from the codes of existing studies.
+   */
+  void seedCodeSequences();
+
   /**
    * Updates the status of the study with the provided PKID to the provided status.
    *
@@ -121,11 +237,32 @@ public interface StudyService {
 
   /**
    * Searches the study repository using the provided keyword and returns matching {@link Study}
-   * records.
+   * records. Every word in the keyword must match the start of a word in the study's code or name.
+   * Results are ranked by how closely they match, and limited in number.
    *
    * @param keyword
    * @return
    */
   List<Study> search(String keyword);
 
+  /**
+   * Searches the study repository as {@link #search(String)} does, returning at most the given
+   * number of the best matching studies.
+   *
+   * @param keyword search keyword
+   * @param limit   maximum number of results
+   * @return matching studies, best match first
+   */
+  List<Study> search(String keyword, int limit);
+
+  /**
+   * Searches the study repository as {@link #search(String, int)} does, returning lightweight
+   * {@link StudySummary} records of the best matching studies.
+   *
+   * @param keyword search keyword
+   * @param limit   maximum number of results
+   * @return matching study summaries, best match first
+   */
+  List<StudySummary> searchSummaries(String keyword, int limit);
+
 }
@@ -16,7 +16,10 @@
 
 package com.decibeltx.studytracker.core.service;
 
+import com.decibeltx.studytracker.core.cache.CacheStatistics;
 import com.decibeltx.studytracker.core.model.User;
+import com.decibeltx.studytracker.core.paging.CursorPage;
+import com.decibeltx.studytracker.core.paging.CursorRequest;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,6 +29,8 @@ public interface UserService {
 
   List<User> findAll();
 
+  CursorPage<User> findAll(CursorRequest request);
+
   Optional<User> findByEmail(String email);
 
   Optional<User> findByAccountName(String accountName);
@@ -38,4 +43,12 @@ public interface UserService {
 
   void delete(User user);
 
+  /**
+   * Discards all cached user records, forcing subsequent lookups to read from the database. Used
+   * after users are modified outside of this service, eg. by bulk directory synchronization.
+   */
+  void clearCache();
+
+  CacheStatistics getCacheStatistics();
+
 }
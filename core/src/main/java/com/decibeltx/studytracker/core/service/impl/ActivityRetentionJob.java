@@ -0,0 +1,83 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.service.impl;
+
+import com.decibeltx.studytracker.core.service.ActivityService;
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+
+/**
+ * Periodically archives activity older than the retention period, in batches, starting shortly
+ * after startup. Archived records remain available through the {@link ActivityService}.
+ */
+public class ActivityRetentionJob implements DisposableBean {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ActivityRetentionJob.class);
+
+  private final ActivityService activityService;
+
+  private final int retentionMonths;
+
+  private final int batchSize;
+
+  private final long intervalMinutes;
+
+  private final ScheduledExecutorService scheduler = Executors
+      .newSingleThreadScheduledExecutor(r -> new Thread(r, "activity-retention"));
+
+  public ActivityRetentionJob(ActivityService activityService, int retentionMonths,
+      int batchSize, long intervalMinutes) {
+    this.activityService = activityService;
+    this.retentionMonths = retentionMonths;
+    this.batchSize = batchSize;
+    this.intervalMinutes = intervalMinutes;
+  }
+
+  public void start() {
+    scheduler.scheduleWithFixedDelay(this::run, 1, intervalMinutes * 60, TimeUnit.SECONDS);
+  }
+
+  private void run() {
+    try {
+      Date cutoff = Date.from(ZonedDateTime.now().minusMonths(retentionMonths).toInstant());
+      int total = 0;
+      int count;
+      do {
+        count = activityService.archive(cutoff, batchSize);
+        total = total + count;
+      } while (count == batchSize && !Thread.currentThread().isInterrupted());
+      if (total > 0) {
+        LOGGER.info("Archived {} activity records dated before {}", total, cutoff);
+      }
+    } catch (Exception e) {
+      LOGGER.error("Failed to archive activity", e);
+    }
+  }
+
+  @Override
+  public void destroy() {
+    scheduler.shutdownNow();
+  }
+
+}
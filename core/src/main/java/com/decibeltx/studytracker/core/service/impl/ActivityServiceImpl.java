@@ -19,29 +19,45 @@ package com.decibeltx.studytracker.core.service.impl;
 import com.decibeltx.studytracker.core.events.StudyEvent.Type;
 import com.decibeltx.studytracker.core.exception.RecordNotFoundException;
 import com.decibeltx.studytracker.core.model.Activity;
+import com.decibeltx.studytracker.core.model.ActivityFilter;
 import com.decibeltx.studytracker.core.model.Assay;
 import com.decibeltx.studytracker.core.model.Program;
 import com.decibeltx.studytracker.core.model.Study;
+import com.decibeltx.studytracker.core.paging.CursorPage;
+import com.decibeltx.studytracker.core.paging.CursorRequest;
 import com.decibeltx.studytracker.core.repository.ActivityRepository;
-import com.decibeltx.studytracker.core.repository.StudyRepository;
 import com.decibeltx.studytracker.core.service.ActivityService;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import org.bson.Document;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 @Service
 public class ActivityServiceImpl implements ActivityService {
 
+  public static final String ARCHIVE_COLLECTION = "activity_archive";
+
   @Autowired
   private ActivityRepository activityRepository;
 
   @Autowired
-  private StudyRepository studyRepository;
+  private MongoOperations mongoOperations;
 
   @Override
   public List<Activity> findAll() {
@@ -60,31 +76,105 @@ public class ActivityServiceImpl implements ActivityService {
 
   @Override
   public Optional<Activity> findById(String id) {
-    return activityRepository.findById(id);
+    Optional<Activity> optional = activityRepository.findById(id);
+    optional.ifPresent(this::restore);
+    return optional;
   }
 
   @Override
   public List<Activity> findByStudy(Study study) {
-    return activityRepository.findByStudyId(study.getId());
+    return activityRepository.findAll(
+        new Query(Criteria.where("study.id").is(study.getId())));
+  }
+
+  @Override
+  public CursorPage<Activity> findByStudy(Study study, CursorRequest request) {
+    return activityRepository.findPage(Criteria.where("study.id").is(study.getId()), request);
   }
 
   @Override
   public List<Activity> findByAssay(Assay assay) {
-    return activityRepository.findByAssayId(assay.getId());
+    return activityRepository.findAll(
+        new Query(Criteria.where("assay.id").is(assay.getId())));
   }
 
   @Override
   public List<Activity> findByProgram(Program program) {
-    List<Activity> activities = new ArrayList<>();
-    for (Study study : studyRepository.findByProgramId(program.getId())) {
-      activities.addAll(study.getActivity());
-    }
-    return activities;
+    return activityRepository.findAll(
+        new Query(Criteria.where("programId").is(program.getId())));
   }
 
   @Override
   public List<Activity> findByType(Type type) {
-    return activityRepository.findByAction(type.toString());
+    return activityRepository.findAll(
+        new Query(Criteria.where("action").is(type.toString())));
+  }
+
+  @Override
+  public CursorPage<Activity> findPage(ActivityFilter filter, CursorRequest request) {
+    Criteria criteria = new Criteria();
+    if (filter.getProgramId() != null) {
+      criteria.and("programId").is(filter.getProgramId());
+    }
+    if (filter.getStudyId() != null) {
+      criteria.and("study.id").is(filter.getStudyId());
+    }
+    if (filter.getUserId() != null) {
+      criteria.and("user.id").is(filter.getUserId());
+    }
+    if (filter.getType() != null) {
+      criteria.and("action").is(filter.getType().toString());
+    }
+    if (filter.getFrom() != null || filter.getTo() != null) {
+      Criteria date = criteria.and("date");
+      if (filter.getFrom() != null) {
+        date.gte(filter.getFrom());
+      }
+      if (filter.getTo() != null) {
+        date.lt(filter.getTo());
+      }
+    }
+    return activityRepository.findPage(criteria, request);
+  }
+
+  @Override
+  public List<Activity> findCreatedAfter(String activityId, int limit) {
+    return findCreatedAfter(new Criteria(), activityId, limit);
+  }
+
+  @Override
+  public List<Activity> findByStudyCreatedAfter(Study study, String activityId, int limit) {
+    return findCreatedAfter(Criteria.where("study.id").is(study.getId()), activityId, limit);
+  }
+
+  @Override
+  public List<Activity> findByProgramCreatedAfter(Program program, String activityId,
+      int limit) {
+    return findCreatedAfter(Criteria.where("programId").is(program.getId()), activityId, limit);
+  }
+
+  private List<Activity> findCreatedAfter(Criteria criteria, String activityId, int limit) {
+    Query query = new Query(criteria.and("id").gt(new ObjectId(activityId)))
+        .with(Sort.by(Sort.Direction.ASC, "id"))
+        .limit(limit);
+    return mongoOperations.find(query, Activity.class);
+  }
+
+  @Override
+  public List<Activity> findChanges(String entityId, Date after, Date until) {
+    List<Activity> activities = new ArrayList<>(
+        mongoOperations.find(changesQuery(entityId, after, until), Activity.class));
+    activities.addAll(mongoOperations
+        .find(changesQuery(entityId, after, until), Activity.class, ARCHIVE_COLLECTION));
+    activities.sort(Comparator.comparing(Activity::getDate).thenComparing(Activity::getId));
+    return activities;
+  }
+
+  private static Query changesQuery(String entityId, Date after, Date until) {
+    Query query = new Query(Criteria.where("data.entityId").is(entityId)
+        .and("date").gt(after).lte(until));
+    query.fields().include("date").include("data");
+    return query;
   }
 
   @Override
@@ -111,10 +201,50 @@ public class ActivityServiceImpl implements ActivityService {
 
   @Override
   public void deleteStudyActivity(Study study) {
-    study.setActivity(new ArrayList<>());
-    studyRepository.save(study);
-    for (Activity activity : this.findByStudy(study)) {
-      this.delete(activity);
+    List<Activity> activities = activityRepository.findAll(
+        new Query(Criteria.where("study.id").is(study.getId())));
+    mongoOperations.remove(new Query(Criteria.where("_id").in(activities.stream()
+        .map(a -> new ObjectId(a.getId())).collect(Collectors.toList()))), ARCHIVE_COLLECTION);
+    activityRepository.deleteAll(activities);
+  }
+
+  @Override
+  public int archive(Date cutoff, int limit) {
+    String collection = mongoOperations.getCollectionName(Activity.class);
+    Query query = new Query(Criteria.where("date").lt(cutoff).and("archived").ne(true))
+        .with(Sort.by(Sort.Direction.ASC, "date"))
+        .limit(limit);
+    List<Document> documents = mongoOperations.find(query, Document.class, collection);
+    if (documents.isEmpty()) {
+      return 0;
+    }
+
+    // Write the archive copies before the summaries, so that an interrupted run loses nothing
+    BulkOperations archive = mongoOperations.bulkOps(BulkMode.UNORDERED, ARCHIVE_COLLECTION);
+    List<Object> ids = new ArrayList<>();
+    for (Document document : documents) {
+      ids.add(document.get("_id"));
+      archive.replaceOne(new Query(Criteria.where("_id").is(document.get("_id"))), document,
+          FindAndReplaceOptions.options().upsert());
+    }
+    archive.execute();
+    mongoOperations.updateMulti(new Query(Criteria.where("_id").in(ids)),
+        new Update().unset("data").set("archived", true), collection);
+    return documents.size();
+  }
+
+  /**
+   * Copies the data of an archived record back from the archive collection.
+   */
+  private void restore(Activity activity) {
+    if (!activity.isArchived()) {
+      return;
+    }
+    Query query = new Query(Criteria.where("_id").is(new ObjectId(activity.getId())));
+    query.fields().include("data");
+    Activity archived = mongoOperations.findOne(query, Activity.class, ARCHIVE_COLLECTION);
+    if (archived != null) {
+      activity.setData(archived.getData());
     }
   }
 }
@@ -17,19 +17,27 @@
 package com.decibeltx.studytracker.core.service.impl;
 
 import com.decibeltx.studytracker.core.events.StudyEvent.Type;
+import com.decibeltx.studytracker.core.events.StudyEventData;
 import com.decibeltx.studytracker.core.events.StudyEventPublisher;
 import com.decibeltx.studytracker.core.exception.RecordNotFoundException;
 import com.decibeltx.studytracker.core.model.Assay;
+import com.decibeltx.studytracker.core.model.ChangeSet;
 import com.decibeltx.studytracker.core.model.Status;
 import com.decibeltx.studytracker.core.model.Study;
+import com.decibeltx.studytracker.core.paging.CursorPage;
+import com.decibeltx.studytracker.core.paging.CursorRequest;
 import com.decibeltx.studytracker.core.repository.AssayRepository;
 import com.decibeltx.studytracker.core.repository.StudyRepository;
 import com.decibeltx.studytracker.core.service.AssayService;
+import com.decibeltx.studytracker.core.service.HistoryService;
+import com.decibeltx.studytracker.core.service.SequenceService;
 import java.util.List;
 import java.util.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -46,6 +54,12 @@ public class AssayServiceImpl implements AssayService {
   @Autowired
   private StudyEventPublisher eventPublisher;
 
+  @Autowired
+  private SequenceService sequenceService;
+
+  @Autowired
+  private HistoryService historyService;
+
   @Override
   public Optional<Assay> findById(String id) {
     return assayRepository.findById(id);
@@ -58,7 +72,7 @@ public class AssayServiceImpl implements AssayService {
 
   @Override
   public List<Assay> findByStudyId(String studyId) {
-    return assayRepository.findByStudyId(studyId);
+    return assayRepository.findAll(new Query(Criteria.where("study.id").is(studyId)));
   }
 
   @Override
@@ -66,6 +80,11 @@ public class AssayServiceImpl implements AssayService {
     return assayRepository.findAll();
   }
 
+  @Override
+  public CursorPage<Assay> findAll(CursorRequest request) {
+    return assayRepository.findPage(request);
+  }
+
   @Override
   public void create(Assay assay) {
     LOGGER.info("Creating new assay record with name: " + assay.getName());
@@ -74,9 +93,11 @@ public class AssayServiceImpl implements AssayService {
     assay.setCode(generateAssayCode(assay));
     assay.setActive(true);
     assayRepository.insert(assay);
+    historyService.recordCreated(assay);
     study.getAssays().add(assay);
     studyRepository.save(study);
-    eventPublisher.publishStudyEvent(study, assay.getCreatedBy(), Type.NEW_ASSAY, assay);
+    eventPublisher.publishStudyEvent(study, assay.getCreatedBy(), Type.NEW_ASSAY,
+        StudyEventData.ofAssay(assay));
   }
 
   @Override
@@ -85,8 +106,11 @@ public class AssayServiceImpl implements AssayService {
     Assay assay = assayRepository.findById(updated.getId())
         .orElseThrow(RecordNotFoundException::new);
     Study study = assay.getStudy();
+    ChangeSet changes = historyService.diff(updated);
     assayRepository.save(updated);
-    eventPublisher.publishStudyEvent(study, assay.getLastModifiedBy(), Type.UPDATED_ASSAY, updated);
+    historyService.recordChanges(changes);
+    eventPublisher.publishStudyEvent(study, assay.getLastModifiedBy(), Type.UPDATED_ASSAY,
+        StudyEventData.ofChanges(changes));
   }
 
   @Override
@@ -94,23 +118,52 @@ public class AssayServiceImpl implements AssayService {
     assay.setActive(false);
     Study study = assay.getStudy();
     assayRepository.save(assay);
-    eventPublisher.publishStudyEvent(study, assay.getLastModifiedBy(), Type.DELETED_ASSAY, assay);
+    eventPublisher.publishStudyEvent(study, assay.getLastModifiedBy(), Type.DELETED_ASSAY,
+        StudyEventData.ofAssay(assay));
   }
 
   @Override
   public void updateStatus(Assay assay, Status status) {
     assay.setStatus(status);
+    ChangeSet changes = historyService.diff(assay);
     assayRepository.save(assay);
+    historyService.recordChanges(changes);
     Study study = assay.getStudy();
     eventPublisher
-        .publishStudyEvent(study, assay.getLastModifiedBy(), Type.ASSAY_STATUS_CHANGED, status);
+        .publishStudyEvent(study, assay.getLastModifiedBy(), Type.ASSAY_STATUS_CHANGED,
+            StudyEventData.ofChanges(changes));
   }
 
   @Override
   public String generateAssayCode(Assay assay) {
     Study study = assay.getStudy();
-    String prefix = study.getProgram().getCode() + "-";
-    int count = assayRepository.findByCodePrefix(prefix).size();
-    return study.getCode() + "-" + String.format("%05d", count + 1);
+    String prefix = study.getCode() + "-";
+    long count = sequenceService.next(assaySequence(prefix), () -> {
+      long max = 0L;
+      for (Assay a : assayRepository.findCodesMatching(SequenceService.suffixPattern(prefix))) {
+        max = Math.max(max, SequenceService.parseSuffix(a.getCode(), prefix));
+      }
+      return max;
+    });
+    return prefix + String.format("%05d", count);
+  }
+
+  @Override
+  public void seedCodeSequences() {
+    for (Assay assay : assayRepository.findAllCodes()) {
+      String code = assay.getCode();
+      if (code == null || code.lastIndexOf('-') < 0) {
+        continue;
+      }
+      String prefix = code.substring(0, code.lastIndexOf('-') + 1);
+      long value = SequenceService.parseSuffix(code, prefix);
+      if (value > 0) {
+        sequenceService.seed(assaySequence(prefix), value);
+      }
+    }
+  }
+
+  private static String assaySequence(String prefix) {
+    return "assay:" + prefix;
   }
 }
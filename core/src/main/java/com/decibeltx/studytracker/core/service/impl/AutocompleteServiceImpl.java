@@ -0,0 +1,161 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.service.impl;
+
+import com.decibeltx.studytracker.core.events.StudyEvent;
+import com.decibeltx.studytracker.core.model.Status;
+import com.decibeltx.studytracker.core.model.Study;
+import com.decibeltx.studytracker.core.model.StudySuggestion;
+import com.decibeltx.studytracker.core.model.User;
+import com.decibeltx.studytracker.core.model.UserSuggestion;
+import com.decibeltx.studytracker.core.search.PrefixIndex;
+import com.decibeltx.studytracker.core.service.AutocompleteService;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+@Service
+public class AutocompleteServiceImpl implements AutocompleteService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AutocompleteServiceImpl.class);
+
+  private final PrefixIndex<StudySuggestion> studyIndex = new PrefixIndex<>();
+
+  private final PrefixIndex<UserSuggestion> userIndex = new PrefixIndex<>();
+
+  @Autowired
+  private MongoOperations mongoOperations;
+
+  @Override
+  public List<StudySuggestion> suggestStudies(String keyword, int limit) {
+    return studyIndex.search(keyword, limit);
+  }
+
+  @Override
+  public List<UserSuggestion> suggestUsers(String keyword, int limit) {
+    return userIndex.search(keyword, limit);
+  }
+
+  @Override
+  public void indexStudy(Study study) {
+    if (study.isActive()) {
+      StudySuggestion suggestion = new StudySuggestion();
+      suggestion.setId(study.getId());
+      suggestion.setCode(study.getCode());
+      suggestion.setName(study.getName());
+      suggestion.setStatus(study.getStatus());
+      studyIndex.put(study.getId(), suggestion, study.getCode(), study.getName());
+    } else {
+      studyIndex.remove(study.getId());
+    }
+  }
+
+  @Override
+  public void indexUser(User user) {
+    if (user.isActive()) {
+      userIndex.put(user.getId(), toSuggestion(user.getId(), user.getAccountName(),
+          user.getDisplayName(), user.getEmail()), user.getDisplayName(), user.getAccountName());
+    } else {
+      userIndex.remove(user.getId());
+    }
+  }
+
+  @Override
+  public void removeUser(User user) {
+    userIndex.remove(user.getId());
+  }
+
+  @Override
+  @EventListener(ContextRefreshedEvent.class)
+  public void rebuild() {
+
+    Map<String, StudySuggestion> studies = new HashMap<>();
+    Map<String, String[]> studyFields = new HashMap<>();
+    for (Document document : activeRecords(Study.class, "code", "name", "status")) {
+      StudySuggestion suggestion = new StudySuggestion();
+      suggestion.setId(document.getObjectId("_id").toHexString());
+      suggestion.setCode(document.getString("code"));
+      suggestion.setName(document.getString("name"));
+      if (document.getString("status") != null) {
+        suggestion.setStatus(Status.valueOf(document.getString("status")));
+      }
+      studies.put(suggestion.getId(), suggestion);
+      studyFields.put(suggestion.getId(), new String[]{suggestion.getCode(), suggestion.getName()});
+    }
+    studyIndex.reload(studies, studyFields);
+
+    Map<String, UserSuggestion> users = new HashMap<>();
+    Map<String, String[]> userFields = new HashMap<>();
+    for (Document document : activeRecords(User.class, "accountName", "displayName", "email")) {
+      UserSuggestion suggestion = toSuggestion(document.getObjectId("_id").toHexString(),
+          document.getString("accountName"), document.getString("displayName"),
+          document.getString("email"));
+      users.put(suggestion.getId(), suggestion);
+      userFields.put(suggestion.getId(),
+          new String[]{suggestion.getDisplayName(), suggestion.getAccountName()});
+    }
+    userIndex.reload(users, userFields);
+
+    LOGGER.info(String.format("Loaded autocomplete indexes with %d studies and %d users",
+        studyIndex.size(), userIndex.size()));
+
+  }
+
+  @EventListener
+  public void onStudyEvent(StudyEvent event) {
+    switch (event.getType()) {
+      case NEW_STUDY:
+      case UPDATED_STUDY:
+      case DELETED_STUDY:
+      case STUDY_STATUS_CHANGED:
+        indexStudy(event.getStudy());
+        break;
+      default:
+        break;
+    }
+  }
+
+  private List<Document> activeRecords(Class<?> model, String... fields) {
+    Query query = new Query(Criteria.where("active").is(true));
+    for (String field : fields) {
+      query.fields().include(field);
+    }
+    return mongoOperations.find(query, Document.class, mongoOperations.getCollectionName(model));
+  }
+
+  private static UserSuggestion toSuggestion(String id, String accountName, String displayName,
+      String email) {
+    UserSuggestion suggestion = new UserSuggestion();
+    suggestion.setId(id);
+    suggestion.setAccountName(accountName);
+    suggestion.setDisplayName(displayName);
+    suggestion.setEmail(email);
+    return suggestion;
+  }
+
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.service.impl;
+
+import com.decibeltx.studytracker.core.exception.RecordNotFoundException;
+import com.decibeltx.studytracker.core.history.DocumentDiff;
+import com.decibeltx.studytracker.core.model.Activity;
+import com.decibeltx.studytracker.core.model.ChangeSet;
+import com.decibeltx.studytracker.core.model.EntitySnapshot;
+import com.decibeltx.studytracker.core.model.FieldChange;
+import com.decibeltx.studytracker.core.service.ActivityService;
+import com.decibeltx.studytracker.core.service.HistoryService;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+/**
+ * {@link HistoryService} implementation that diffs records against their stored documents. A
+ * snapshot of a record is taken when it is created, or before its first recorded change, and again
+ * after every {@code snapshotInterval} changes, which bounds the number of changes that must be
+ * applied to rebuild any past version.
+ */
+public class HistoryServiceImpl implements HistoryService {
+
+  @Autowired
+  private MongoOperations mongoOperations;
+
+  @Autowired
+  private ActivityService activityService;
+
+  private final int snapshotInterval;
+
+  private DocumentDiff documentDiff;
+
+  public HistoryServiceImpl(int snapshotInterval) {
+    this.snapshotInterval = Math.max(1, snapshotInterval);
+  }
+
+  private DocumentDiff getDocumentDiff() {
+    if (documentDiff == null) {
+      documentDiff = new DocumentDiff(mongoOperations.getConverter().getMappingContext());
+    }
+    return documentDiff;
+  }
+
+  @Override
+  public void recordCreated(Object record) {
+    MongoPersistentEntity<?> entity = getEntity(record.getClass());
+    saveSnapshot(entity.getCollection(), getId(entity, record), toDocument(record), new Date());
+  }
+
+  @Override
+  public ChangeSet diff(Object record) {
+    MongoPersistentEntity<?> entity = getEntity(record.getClass());
+    String id = getId(entity, record);
+    Date date = new Date();
+    Document before = findStored(entity.getCollection(), id);
+    List<FieldChange> changes = getDocumentDiff().diff(before, toDocument(record));
+    if (!changes.isEmpty()) {
+      ensureSnapshot(entity.getCollection(), id, before, date);
+    }
+    return new ChangeSet(entity.getCollection(), id, changes, date);
+  }
+
+  @Override
+  public ChangeSet diff(Class<?> type, String id, String field, Object value) {
+    MongoPersistentEntity<?> entity = getEntity(type);
+    Date date = new Date();
+    Document before = findStored(entity.getCollection(), id);
+    Object converted = mongoOperations.getConverter().convertToMongoType(value);
+    List<FieldChange> changes = getDocumentDiff()
+        .diff(new Document(field, before.get(field)), new Document(field, converted));
+    if (!changes.isEmpty()) {
+      ensureSnapshot(entity.getCollection(), id, before, date);
+    }
+    return new ChangeSet(entity.getCollection(), id, changes, date);
+  }
+
+  /**
+   * Counts saved changes against the record's latest snapshot, taking a new snapshot of the stored
+   * record once the interval is reached. The new snapshot has the same date as the changes, so
+   * that rebuilding a version from it does not apply them a second time.
+   */
+  @Override
+  public void recordChanges(ChangeSet changes) {
+    if (changes.isEmpty()) {
+      return;
+    }
+    Query query = new Query(Criteria.where("entityId").is(changes.getEntityId()))
+        .with(Sort.by(Direction.DESC, "date"))
+        .limit(1);
+    EntitySnapshot snapshot = mongoOperations.findOne(query, EntitySnapshot.class);
+    if (snapshot == null || snapshot.getChanges() + 1 >= snapshotInterval) {
+      Document after = findStored(changes.getEntity(), changes.getEntityId());
+      saveSnapshot(changes.getEntity(), changes.getEntityId(), after, changes.getDate());
+    } else {
+      mongoOperations.updateFirst(new Query(Criteria.where("id").is(snapshot.getId())),
+          new Update().inc("changes", 1), EntitySnapshot.class);
+    }
+  }
+
+  @Override
+  public <T> Optional<T> findVersionAt(Class<T> type, String id, Date date) {
+    Query query = new Query(Criteria.where("entityId").is(id).and("date").lte(date))
+        .with(Sort.by(Direction.DESC, "date"))
+        .limit(1);
+    EntitySnapshot snapshot = mongoOperations.findOne(query, EntitySnapshot.class);
+    if (snapshot == null) {
+      return Optional.empty();
+    }
+    Document state = snapshot.getState();
+    for (Activity activity : activityService.findChanges(id, snapshot.getDate(), date)) {
+      if (activity.getData() instanceof ChangeSet) {
+        for (FieldChange change : ((ChangeSet) activity.getData()).getChanges()) {
+          getDocumentDiff().apply(type, state, change);
+        }
+      }
+    }
+    return Optional.of(mongoOperations.getConverter().read(type, state));
+  }
+
+  /**
+   * Gives a record with no snapshot, such as one created before history was recorded, a snapshot
+   * of its stored state before its first recorded change, made at {@code date}.
+   */
+  private void ensureSnapshot(String collection, String id, Document before, Date date) {
+    if (!mongoOperations.exists(new Query(Criteria.where("entityId").is(id)),
+        EntitySnapshot.class)) {
+      Object updatedAt = before.get("updatedAt");
+      saveSnapshot(collection, id, before,
+          updatedAt instanceof Date ? (Date) updatedAt : new Date(date.getTime() - 1));
+    }
+  }
+
+  private void saveSnapshot(String collection, String id, Document state, Date date) {
+    EntitySnapshot snapshot = new EntitySnapshot();
+    snapshot.setEntity(collection);
+    snapshot.setEntityId(id);
+    snapshot.setDate(date);
+    snapshot.setState(state);
+    mongoOperations.insert(snapshot);
+  }
+
+  private Document findStored(String collection, String id) {
+    Document document = mongoOperations.findOne(
+        new Query(Criteria.where("_id").is(ObjectId.isValid(id) ? new ObjectId(id) : id)),
+        Document.class, collection);
+    if (document == null) {
+      throw new RecordNotFoundException(id);
+    }
+    return document;
+  }
+
+  private Document toDocument(Object record) {
+    Document document = new Document();
+    mongoOperations.getConverter().write(record, document);
+    return document;
+  }
+
+  private MongoPersistentEntity<?> getEntity(Class<?> type) {
+    MongoConverter converter = mongoOperations.getConverter();
+    return converter.getMappingContext().getRequiredPersistentEntity(type);
+  }
+
+  private static String getId(MongoPersistentEntity<?> entity, Object record) {
+    Object id = entity.getIdentifierAccessor(record).getIdentifier();
+    if (id == null) {
+      throw new RecordNotFoundException();
+    }
+    return id.toString();
+  }
+
+}
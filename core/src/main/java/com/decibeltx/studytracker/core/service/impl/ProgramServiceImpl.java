@@ -17,6 +17,8 @@
 package com.decibeltx.studytracker.core.service.impl;
 
 import com.decibeltx.studytracker.core.model.Program;
+import com.decibeltx.studytracker.core.paging.CursorPage;
+import com.decibeltx.studytracker.core.paging.CursorRequest;
 import com.decibeltx.studytracker.core.repository.ProgramRepository;
 import com.decibeltx.studytracker.core.service.ProgramService;
 import java.util.List;
@@ -45,6 +47,11 @@ public class ProgramServiceImpl implements ProgramService {
     return programRepository.findAll();
   }
 
+  @Override
+  public CursorPage<Program> findAll(CursorRequest request) {
+    return programRepository.findPage(request);
+  }
+
   @Override
   public List<Program> findByCode(String code) {
     return programRepository.findByCode(code);
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.service.impl;
+
+import com.decibeltx.studytracker.core.service.SequenceService;
+import java.util.function.LongSupplier;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+@Service
+public class SequenceServiceImpl implements SequenceService {
+
+  public static final String COLLECTION = "counters";
+
+  @Autowired
+  private MongoOperations mongoOperations;
+
+  @Override
+  public long next(String name, LongSupplier seed) {
+    Document counter = increment(name);
+    if (counter == null) {
+      seed(name, seed.getAsLong());
+      counter = increment(name);
+    }
+    return counter.get("seq", Number.class).longValue();
+  }
+
+  @Override
+  public void seed(String name, long value) {
+    try {
+      mongoOperations.upsert(byName(name), new Update().max("seq", value), COLLECTION);
+    } catch (DuplicateKeyException e) {
+      // Another instance created the counter concurrently, so the upsert is retried as an update
+      mongoOperations.updateFirst(byName(name), new Update().max("seq", value), COLLECTION);
+    }
+  }
+
+  @Override
+  public void deleteAll() {
+    mongoOperations.dropCollection(COLLECTION);
+  }
+
+  private Document increment(String name) {
+    return mongoOperations.findAndModify(byName(name), new Update().inc("seq", 1L),
+        FindAndModifyOptions.options().returnNew(true), Document.class, COLLECTION);
+  }
+
+  private static Query byName(String name) {
+    return new Query(Criteria.where("_id").is(name));
+  }
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.service.impl;
+
+import com.decibeltx.studytracker.core.service.StatisticsService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+
+/**
+ * Periodically recomputes the dashboard statistics from source, starting shortly after startup,
+ * to correct drift caused by missed or out-of-order events.
+ */
+public class StatisticsReconciliationJob implements DisposableBean {
+
+  private static final Logger LOGGER = LoggerFactory
+      .getLogger(StatisticsReconciliationJob.class);
+
+  private final StatisticsService statisticsService;
+
+  private final long intervalMinutes;
+
+  private final ScheduledExecutorService scheduler = Executors
+      .newSingleThreadScheduledExecutor(r -> new Thread(r, "statistics-reconciliation"));
+
+  public StatisticsReconciliationJob(StatisticsService statisticsService, long intervalMinutes) {
+    this.statisticsService = statisticsService;
+    this.intervalMinutes = intervalMinutes;
+  }
+
+  public void start() {
+    scheduler.scheduleWithFixedDelay(this::run, 1, intervalMinutes * 60, TimeUnit.SECONDS);
+  }
+
+  private void run() {
+    try {
+      statisticsService.reconcile();
+    } catch (Exception e) {
+      LOGGER.error("Failed to reconcile statistics", e);
+    }
+  }
+
+  @Override
+  public void destroy() {
+    scheduler.shutdownNow();
+  }
+
+}
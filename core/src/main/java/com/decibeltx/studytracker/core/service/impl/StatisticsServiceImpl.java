@@ -0,0 +1,279 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.service.impl;
+
+import com.decibeltx.studytracker.core.events.AsyncStudyEventListener;
+import com.decibeltx.studytracker.core.events.StudyEvent;
+import com.decibeltx.studytracker.core.events.StudyEvent.Type;
+import com.decibeltx.studytracker.core.model.Assay;
+import com.decibeltx.studytracker.core.model.Status;
+import com.decibeltx.studytracker.core.model.Study;
+import com.decibeltx.studytracker.core.service.StatisticsService;
+import com.mongodb.BulkWriteError;
+import com.mongodb.DBRef;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+/**
+ * Stores counts in the {@code statistics} collection, one document per kind, group and status.
+ * Which counter each study and assay currently contributes to is recorded in the
+ * {@code statistics_state} collection. When a record changes, its state entry is swapped
+ * atomically and the old and new counters are adjusted with {@code $inc}, so that handling the
+ * same change twice has no further effect.
+ *
+ * <p>Reconciliation rebuilds the state entries one record at a time, stamping each with a new
+ * generation, and skips entries that events have updated since it started. Entries from older
+ * generations are then removed, and the counters are rebuilt from the remaining entries, so the
+ * state collection is never emptied while events are being handled.</p>
+ */
+@Service
+public class StatisticsServiceImpl implements StatisticsService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(StatisticsServiceImpl.class);
+
+  public static final String COUNTERS = "statistics";
+
+  public static final String STATE = "statistics_state";
+
+  private static final String STUDY = "study";
+
+  private static final String ASSAY = "assay";
+
+  private static final int DUPLICATE_KEY = 11000;
+
+  @Autowired
+  private MongoOperations mongoOperations;
+
+  @AsyncStudyEventListener(types = {
+      Type.NEW_STUDY,
+      Type.UPDATED_STUDY,
+      Type.STUDY_STATUS_CHANGED,
+      Type.DELETED_STUDY,
+      Type.NEW_ASSAY,
+      Type.UPDATED_ASSAY,
+      Type.ASSAY_STATUS_CHANGED,
+      Type.DELETED_ASSAY
+  })
+  public void onStudyEvent(StudyEvent event) {
+    String studyId = event.getStudyId();
+    switch (event.getType()) {
+      case NEW_ASSAY:
+      case UPDATED_ASSAY:
+      case ASSAY_STATUS_CHANGED:
+      case DELETED_ASSAY:
+        refreshAssays(studyId);
+        break;
+      default:
+        refreshStudy(studyId);
+        break;
+    }
+  }
+
+  @Override
+  public Map<String, Map<Status, Long>> getStudyCountsByProgram() {
+    return getCounts(STUDY);
+  }
+
+  @Override
+  public Map<String, Map<Status, Long>> getAssayCountsByType() {
+    return getCounts(ASSAY);
+  }
+
+  @Override
+  public void refreshStudy(String studyId) {
+    Query query = new Query(Criteria.where("_id").is(new ObjectId(studyId)));
+    query.fields().include("status").include("program").include("active");
+    Document study = mongoOperations.findOne(query, Document.class, collection(Study.class));
+    update(STUDY + ":" + studyId, study == null ? null : studyCounter(study));
+  }
+
+  @Override
+  public void refreshAssays(String studyId) {
+    Query query = new Query(Criteria.where("study.$id").is(new ObjectId(studyId)));
+    query.fields().include("status").include("assayType").include("active");
+    for (Document assay : mongoOperations.find(query, Document.class, collection(Assay.class))) {
+      update(ASSAY + ":" + assay.getObjectId("_id").toHexString(), assayCounter(assay));
+    }
+  }
+
+  @Override
+  public void reconcile() {
+    LOGGER.info("Reconciling study and assay statistics...");
+    Date start = new Date();
+    ObjectId generation = new ObjectId();
+    BulkOperations stateOps = mongoOperations.bulkOps(BulkMode.UNORDERED, STATE);
+    int states = 0;
+
+    Query studyQuery = new Query(Criteria.where("active").is(true));
+    studyQuery.fields().include("status").include("program").include("active");
+    for (Document study : mongoOperations
+        .find(studyQuery, Document.class, collection(Study.class))) {
+      String counter = studyCounter(study);
+      if (counter != null) {
+        reconcileState(stateOps, STUDY + ":" + study.getObjectId("_id").toHexString(), counter,
+            generation, start);
+        states++;
+      }
+    }
+
+    Query assayQuery = new Query(Criteria.where("active").is(true));
+    assayQuery.fields().include("status").include("assayType").include("active");
+    for (Document assay : mongoOperations
+        .find(assayQuery, Document.class, collection(Assay.class))) {
+      String counter = assayCounter(assay);
+      if (counter != null) {
+        reconcileState(stateOps, ASSAY + ":" + assay.getObjectId("_id").toHexString(), counter,
+            generation, start);
+        states++;
+      }
+    }
+
+    if (states > 0) {
+      try {
+        stateOps.execute();
+      } catch (BulkOperationException e) {
+        for (BulkWriteError error : e.getErrors()) {
+          if (error.getCode() != DUPLICATE_KEY) {
+            throw e;
+          }
+        }
+      }
+    }
+
+    // Remove entries for records that are no longer counted, unless they changed since the start
+    mongoOperations.remove(new Query(Criteria.where("generation").ne(generation)
+        .orOperator(Criteria.where("updatedAt").lt(start),
+            Criteria.where("updatedAt").exists(false))), STATE);
+
+    // Rebuild the counters from the state entries
+    Map<String, Long> counts = new HashMap<>();
+    Aggregation aggregation = Aggregation.newAggregation(
+        Aggregation.match(Criteria.where("counter").ne(null)),
+        Aggregation.group("counter").count().as("count"));
+    for (Document result : mongoOperations.aggregate(aggregation, STATE, Document.class)) {
+      counts.put(result.getString("_id"), ((Number) result.get("count")).longValue());
+    }
+    if (!counts.isEmpty()) {
+      BulkOperations counterOps = mongoOperations.bulkOps(BulkMode.UNORDERED, COUNTERS);
+      for (Map.Entry<String, Long> entry : counts.entrySet()) {
+        counterOps.upsert(new Query(Criteria.where("_id").is(entry.getKey())),
+            counterFields(new Update(), entry.getKey()).set("count", entry.getValue()));
+      }
+      counterOps.execute();
+    }
+    mongoOperations.remove(new Query(Criteria.where("_id").nin(counts.keySet())), COUNTERS);
+
+    LOGGER.info(String.format("Reconciled %d statistics counters.", counts.size()));
+  }
+
+  /**
+   * Replaces the state entry of a single record, unless it has been updated by an event since the
+   * reconciliation started, in which case the newer entry is kept. The upsert of an entry that was
+   * updated concurrently fails with a duplicate key error, which is ignored.
+   */
+  private static void reconcileState(BulkOperations stateOps, String recordId, String counter,
+      ObjectId generation, Date start) {
+    Query query = new Query(Criteria.where("_id").is(recordId)
+        .orOperator(Criteria.where("updatedAt").lt(start),
+            Criteria.where("updatedAt").exists(false)));
+    stateOps.upsert(query, new Update()
+        .set("counter", counter)
+        .set("generation", generation)
+        .set("updatedAt", start));
+  }
+
+  /**
+   * Moves a record from the counter it was last counted in to the given counter, or removes it
+   * from the counts if the new counter is null. Records that are no longer counted keep a state
+   * entry with a null counter, so that a concurrent reconciliation does not count them again.
+   */
+  private void update(String recordId, String counter) {
+    Query query = new Query(Criteria.where("_id").is(recordId));
+    Document previous = mongoOperations.findAndModify(query,
+        new Update().set("counter", counter).set("updatedAt", new Date()),
+        FindAndModifyOptions.options().upsert(true).returnNew(false), Document.class, STATE);
+    String previousCounter = previous == null ? null : previous.getString("counter");
+    if (previousCounter != null && !previousCounter.equals(counter)) {
+      mongoOperations.updateFirst(new Query(Criteria.where("_id").is(previousCounter)),
+          new Update().inc("count", -1), COUNTERS);
+    }
+    if (counter != null && !counter.equals(previousCounter)) {
+      mongoOperations.upsert(new Query(Criteria.where("_id").is(counter)),
+          counterFields(new Update(), counter).inc("count", 1), COUNTERS);
+    }
+  }
+
+  private Map<String, Map<Status, Long>> getCounts(String kind) {
+    Map<String, Map<Status, Long>> counts = new TreeMap<>();
+    Query query = new Query(Criteria.where("kind").is(kind).and("count").gt(0));
+    for (Document counter : mongoOperations.find(query, Document.class, COUNTERS)) {
+      counts.computeIfAbsent(counter.getString("group"), k -> new LinkedHashMap<>())
+          .put(Status.valueOf(counter.getString("status")),
+              ((Number) counter.get("count")).longValue());
+    }
+    return counts;
+  }
+
+  private static Update counterFields(Update update, String counter) {
+    String[] parts = counter.split(":");
+    return update
+        .setOnInsert("kind", parts[0])
+        .setOnInsert("group", parts[1])
+        .setOnInsert("status", parts[2]);
+  }
+
+  private static String studyCounter(Document study) {
+    Object program = study.get("program");
+    if (!Boolean.TRUE.equals(study.getBoolean("active")) || !(program instanceof DBRef)
+        || study.getString("status") == null) {
+      return null;
+    }
+    return STUDY + ":" + ((DBRef) program).getId() + ":" + study.getString("status");
+  }
+
+  private static String assayCounter(Document assay) {
+    if (!Boolean.TRUE.equals(assay.getBoolean("active")) || assay.getString("assayType") == null
+        || assay.getString("status") == null) {
+      return null;
+    }
+    return ASSAY + ":" + assay.getString("assayType") + ":" + assay.getString("status");
+  }
+
+  private String collection(Class<?> model) {
+    return mongoOperations.getCollectionName(model);
+  }
+
+}
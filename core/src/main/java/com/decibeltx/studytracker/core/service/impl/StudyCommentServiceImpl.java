@@ -17,7 +17,9 @@
 package com.decibeltx.studytracker.core.service.impl;
 
 import com.decibeltx.studytracker.core.events.StudyEvent;
+import com.decibeltx.studytracker.core.events.StudyEventData;
 import com.decibeltx.studytracker.core.events.StudyEventPublisher;
+import com.decibeltx.studytracker.core.exception.RecordNotFoundException;
 import com.decibeltx.studytracker.core.model.Comment;
 import com.decibeltx.studytracker.core.model.Study;
 import com.decibeltx.studytracker.core.repository.StudyRepository;
@@ -28,6 +30,7 @@ import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -61,23 +64,23 @@ public class StudyCommentServiceImpl implements StudyCommentService {
     comment.setId(UUID.randomUUID().toString());
     comment.setCreatedAt(new Date());
     study.getComments().add(comment);
-    studyRepository.save(study);
+    studyRepository.pushElement(study.getId(), "comments", comment, study.getLastModifiedBy());
     studyEventPublisher.publishStudyEvent(study, study.getLastModifiedBy(),
-        StudyEvent.Type.NEW_COMMENT, comment);
+        StudyEvent.Type.NEW_COMMENT, StudyEventData.ofComment(comment));
     return comment;
   }
 
   @Override
   public Comment updateStudyComment(Study study, Comment comment) {
     comment.setUpdatedAt(new Date());
-    List<Comment> comments = study.getComments().stream()
-        .filter(s -> !s.getId().equals(comment.getId()))
-        .collect(Collectors.toList());
-    comments.add(comment);
-    study.setComments(comments);
-    studyRepository.save(study);
+    if (!studyRepository.updateElement(study.getId(), "comments", comment.getId(), comment,
+        study.getLastModifiedBy())) {
+      throw new RecordNotFoundException(String.format("No comment with ID %s found for study %s",
+          comment.getId(), study.getCode()));
+    }
+    study.getComments().replaceAll(c -> c.getId().equals(comment.getId()) ? comment : c);
     studyEventPublisher.publishStudyEvent(study, study.getLastModifiedBy(),
-        StudyEvent.Type.EDITED_COMMENT, comment);
+        StudyEvent.Type.EDITED_COMMENT, StudyEventData.ofComment(comment));
     return comment;
   }
 
@@ -87,7 +90,8 @@ public class StudyCommentServiceImpl implements StudyCommentService {
         .filter(s -> !s.getId().equals(commentId))
         .collect(Collectors.toList());
     study.setComments(comments);
-    studyRepository.save(study);
+    studyRepository.pullElement(study.getId(), "comments", Criteria.where("id").is(commentId),
+        study.getLastModifiedBy());
     studyEventPublisher.publishStudyEvent(study, study.getLastModifiedBy(),
         StudyEvent.Type.DELETED_COMMENT);
   }
@@ -17,6 +17,7 @@
 package com.decibeltx.studytracker.core.service.impl;
 
 import com.decibeltx.studytracker.core.events.StudyEvent.Type;
+import com.decibeltx.studytracker.core.events.StudyEventData;
 import com.decibeltx.studytracker.core.events.StudyEventPublisher;
 import com.decibeltx.studytracker.core.model.Conclusions;
 import com.decibeltx.studytracker.core.model.Study;
@@ -47,9 +48,10 @@ public class StudyConclusionsServiceImpl implements StudyConclusionsService {
     conclusions.setCreatedAt(new Date());
     conclusions.setId(UUID.randomUUID().toString());
     study.setConclusions(conclusions);
-    studyRepository.save(study);
+    studyRepository.updateField(study.getId(), "conclusions", conclusions,
+        study.getLastModifiedBy());
     studyEventPublisher.publishStudyEvent(study, study.getLastModifiedBy(),
-        Type.NEW_STUDY_CONCLUSIONS, conclusions);
+        Type.NEW_STUDY_CONCLUSIONS, StudyEventData.ofConclusions(conclusions));
     return conclusions;
   }
 
@@ -57,16 +59,17 @@ public class StudyConclusionsServiceImpl implements StudyConclusionsService {
   public Conclusions updateStudyConclusions(Study study, Conclusions conclusions) {
     conclusions.setUpdatedAt(new Date());
     study.setConclusions(conclusions);
-    studyRepository.save(study);
+    studyRepository.updateField(study.getId(), "conclusions", conclusions,
+        study.getLastModifiedBy());
     studyEventPublisher.publishStudyEvent(study, study.getLastModifiedBy(),
-        Type.EDITED_STUDY_CONCLUSIONS, conclusions);
+        Type.EDITED_STUDY_CONCLUSIONS, StudyEventData.ofConclusions(conclusions));
     return conclusions;
   }
 
   @Override
   public void deleteStudyConclusions(Study study) {
     study.setConclusions(null);
-    studyRepository.save(study);
+    studyRepository.updateField(study.getId(), "conclusions", null, study.getLastModifiedBy());
     studyEventPublisher.publishStudyEvent(study, study.getLastModifiedBy(),
         Type.DELETED_STUDY_CONCLUSIONS);
   }
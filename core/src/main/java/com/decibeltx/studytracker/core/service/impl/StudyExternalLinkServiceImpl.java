@@ -17,6 +17,7 @@
 package com.decibeltx.studytracker.core.service.impl;
 
 import com.decibeltx.studytracker.core.events.StudyEvent.Type;
+import com.decibeltx.studytracker.core.events.StudyEventData;
 import com.decibeltx.studytracker.core.events.StudyEventPublisher;
 import com.decibeltx.studytracker.core.exception.RecordNotFoundException;
 import com.decibeltx.studytracker.core.model.ExternalLink;
@@ -30,6 +31,7 @@ import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -66,30 +68,29 @@ public class StudyExternalLinkServiceImpl implements StudyExternalLinkService {
     study.getExternalLinks().add(externalLink);
     LOGGER.info(String.format("Adding new external link for study %s: %s",
         study.getCode(), externalLink));
-    studyRepository.save(study);
+    studyRepository.pushElement(study.getId(), "externalLinks", externalLink,
+        study.getLastModifiedBy());
     studyEventPublisher.publishStudyEvent(study, study.getLastModifiedBy(),
-        Type.NEW_STUDY_EXTERNAL_LINK, externalLink);
+        Type.NEW_STUDY_EXTERNAL_LINK, StudyEventData.ofExternalLink(externalLink));
     return externalLink;
   }
 
   @Override
   public ExternalLink updateStudyExternalLink(Study study, ExternalLink externalLink) {
-    boolean failed = true;
+    if (!studyRepository.updateElement(study.getId(), "externalLinks", externalLink.getId(),
+        externalLink, study.getLastModifiedBy())) {
+      throw new RecordNotFoundException(
+          String.format("Cannot find external link with ID %s for study %s",
+              externalLink.getId(), study.getCode()));
+    }
     for (ExternalLink link : study.getExternalLinks()) {
       if (link.getId().equals(externalLink.getId())) {
         link.setLabel(externalLink.getLabel());
         link.setUrl(externalLink.getUrl());
-        failed = false;
       }
     }
-    if (failed) {
-      throw new RecordNotFoundException(
-          String.format("Cannot find external link with ID %s for study %s",
-              externalLink.getId(), study.getCode()));
-    }
-    studyRepository.save(study);
     studyEventPublisher.publishStudyEvent(study, study.getLastModifiedBy(),
-        Type.UPDATED_STUDY_EXTERNAL_LINK, externalLink);
+        Type.UPDATED_STUDY_EXTERNAL_LINK, StudyEventData.ofExternalLink(externalLink));
     return externalLink;
   }
 
@@ -107,7 +108,8 @@ public class StudyExternalLinkServiceImpl implements StudyExternalLinkService {
     study.setExternalLinks(links);
     LOGGER
         .info(String.format("Removing external link with ID %s for study %s", id, study.getCode()));
-    studyRepository.save(study);
+    studyRepository.pullElement(study.getId(), "externalLinks", Criteria.where("id").is(id),
+        study.getLastModifiedBy());
     studyEventPublisher
         .publishStudyEvent(study, study.getLastModifiedBy(), Type.DELETED_STUDY_EXTERNAL_LINK);
   }
@@ -17,6 +17,7 @@
 package com.decibeltx.studytracker.core.service.impl;
 
 import com.decibeltx.studytracker.core.events.StudyEvent;
+import com.decibeltx.studytracker.core.events.StudyEventData;
 import com.decibeltx.studytracker.core.events.StudyEventPublisher;
 import com.decibeltx.studytracker.core.model.Study;
 import com.decibeltx.studytracker.core.model.StudyRelationship;
@@ -26,6 +27,7 @@ import com.decibeltx.studytracker.core.service.StudyRelationshipService;
 import java.util.List;
 import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -73,45 +75,26 @@ public class StudyRelationshipServiceImpl implements StudyRelationshipService {
     }
     StudyRelationship targetRelationship = new StudyRelationship(targetType, sourceStudy);
 
-    List<StudyRelationship> sourceRelationships = sourceStudy.getStudyRelationships()
-        .stream()
-        .filter(r -> r.getStudyId().equals(targetStudy.getId()))
-        .collect(Collectors.toList());
-    sourceRelationships.add(sourceRelationship);
-    sourceStudy.setStudyRelationships(sourceRelationships);
-
-    List<StudyRelationship> targetRelationships = targetStudy.getStudyRelationships()
-        .stream()
-        .filter(r -> r.getStudyId().equals(sourceStudy.getId()))
-        .collect(Collectors.toList());
-    targetRelationships.add(targetRelationship);
-    targetStudy.setStudyRelationships(targetRelationships);
+    removeRelationship(sourceStudy, targetStudy);
+    sourceStudy.getStudyRelationships().add(sourceRelationship);
+    studyRepository.pushElement(sourceStudy.getId(), "studyRelationships", sourceRelationship,
+        sourceStudy.getLastModifiedBy());
 
-    studyRepository.save(sourceStudy);
-    studyRepository.save(targetStudy);
+    removeRelationship(targetStudy, sourceStudy);
+    targetStudy.getStudyRelationships().add(targetRelationship);
+    studyRepository.pushElement(targetStudy.getId(), "studyRelationships", targetRelationship,
+        targetStudy.getLastModifiedBy());
 
     studyEventPublisher.publishStudyEvent(sourceStudy, sourceStudy.getLastModifiedBy(),
-        StudyEvent.Type.NEW_STUDY_RELATIONSHIP, sourceRelationship);
+        StudyEvent.Type.NEW_STUDY_RELATIONSHIP, StudyEventData.ofRelationship(sourceRelationship));
     studyEventPublisher.publishStudyEvent(targetStudy, targetStudy.getLastModifiedBy(),
-        StudyEvent.Type.NEW_STUDY_RELATIONSHIP, targetRelationship);
+        StudyEvent.Type.NEW_STUDY_RELATIONSHIP, StudyEventData.ofRelationship(targetRelationship));
   }
 
   @Override
   public void removeStudyRelationship(Study sourceStudy, Study targetStudy) {
-    List<StudyRelationship> sourceRelationships = sourceStudy.getStudyRelationships()
-        .stream()
-        .filter(r -> r.getStudyId().equals(targetStudy.getId()))
-        .collect(Collectors.toList());
-    sourceStudy.setStudyRelationships(sourceRelationships);
-
-    List<StudyRelationship> targetRelationships = targetStudy.getStudyRelationships()
-        .stream()
-        .filter(r -> r.getStudyId().equals(sourceStudy.getId()))
-        .collect(Collectors.toList());
-    targetStudy.setStudyRelationships(targetRelationships);
-
-    studyRepository.save(sourceStudy);
-    studyRepository.save(targetStudy);
+    removeRelationship(sourceStudy, targetStudy);
+    removeRelationship(targetStudy, sourceStudy);
 
     studyEventPublisher.publishStudyEvent(sourceStudy, sourceStudy.getLastModifiedBy(),
         StudyEvent.Type.DELETED_STUDY_RELATIONSHIP);
@@ -119,4 +102,18 @@ public class StudyRelationshipServiceImpl implements StudyRelationshipService {
         StudyEvent.Type.DELETED_STUDY_RELATIONSHIP);
   }
 
+  /**
+   * Removes any relationship from the study to the related study, both in memory and in the
+   * database, with a single {@code $pull}.
+   */
+  private void removeRelationship(Study study, Study related) {
+    List<StudyRelationship> relationships = study.getStudyRelationships()
+        .stream()
+        .filter(r -> !related.getCode().equals(r.getStudyId()))
+        .collect(Collectors.toList());
+    study.setStudyRelationships(relationships);
+    studyRepository.pullElement(study.getId(), "studyRelationships",
+        Criteria.where("study").is(related), study.getLastModifiedBy());
+  }
+
 }
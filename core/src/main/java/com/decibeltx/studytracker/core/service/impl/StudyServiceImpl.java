@@ -18,24 +18,38 @@ package com.decibeltx.studytracker.core.service.impl;
 
 import com.decibeltx.studytracker.core.events.StudyEvent;
 import com.decibeltx.studytracker.core.events.StudyEvent.Type;
+import com.decibeltx.studytracker.core.events.StudyEventData;
 import com.decibeltx.studytracker.core.events.StudyEventPublisher;
 import com.decibeltx.studytracker.core.exception.DuplicateRecordException;
 import com.decibeltx.studytracker.core.exception.InvalidConstraintException;
-import com.decibeltx.studytracker.core.exception.RecordNotFoundException;
 import com.decibeltx.studytracker.core.exception.StudyTrackerException;
+import com.decibeltx.studytracker.core.model.ChangeSet;
 import com.decibeltx.studytracker.core.model.Collaborator;
 import com.decibeltx.studytracker.core.model.Program;
 import com.decibeltx.studytracker.core.model.Status;
 import com.decibeltx.studytracker.core.model.Study;
+import com.decibeltx.studytracker.core.model.StudyFilter;
+import com.decibeltx.studytracker.core.model.StudySummary;
+import com.decibeltx.studytracker.core.model.User;
+import com.decibeltx.studytracker.core.paging.CursorPage;
+import com.decibeltx.studytracker.core.paging.CursorRequest;
 import com.decibeltx.studytracker.core.repository.StudyRepository;
-import com.decibeltx.studytracker.core.service.ProgramService;
+import com.decibeltx.studytracker.core.search.SearchCandidates;
+import com.decibeltx.studytracker.core.search.SearchTokens;
+import com.decibeltx.studytracker.core.service.HistoryService;
+import com.decibeltx.studytracker.core.service.SequenceService;
 import com.decibeltx.studytracker.core.service.StudyService;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 import javax.validation.ConstraintViolationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
@@ -44,15 +58,24 @@ public class StudyServiceImpl implements StudyService {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(StudyServiceImpl.class);
 
+  private static final long STUDY_CODE_OFFSET = 10000L;
+
+  private static final int SEARCH_CANDIDATES = 200;
+
+  private static final int SEARCH_LIMIT = 50;
+
   @Autowired
   private StudyRepository studyRepository;
 
   @Autowired
-  private ProgramService programService;
+  private SequenceService sequenceService;
 
   @Autowired
   private StudyEventPublisher studyEventPublisher;
 
+  @Autowired
+  private HistoryService historyService;
+
   @Override
   public Optional<Study> findById(String id) {
     return studyRepository.findById(id);
@@ -63,9 +86,115 @@ public class StudyServiceImpl implements StudyService {
     return studyRepository.findAll();
   }
 
+  @Override
+  public List<Study> findAllActive() {
+    return studyRepository.findAll(new Query(Criteria.where("active").is(true)));
+  }
+
+  @Override
+  public CursorPage<Study> findAllActive(CursorRequest request) {
+    return studyRepository.findPage(Criteria.where("active").is(true), request);
+  }
+
+  @Override
+  public List<Study> find(StudyFilter filter) {
+    return studyRepository.findAll(new Query(toCriteria(filter)));
+  }
+
+  @Override
+  public CursorPage<Study> findPage(StudyFilter filter, CursorRequest request) {
+    return studyRepository.findPage(toCriteria(filter), request);
+  }
+
+  private static Criteria toCriteria(StudyFilter filter) {
+    Criteria criteria = new Criteria();
+    if (filter.getOwnerId() != null) {
+      criteria.and("owner.id").is(filter.getOwnerId());
+    }
+    if (filter.getUserId() != null) {
+      criteria.and("users.id").is(filter.getUserId());
+    }
+    if (filter.getActive() != null) {
+      criteria.and("active").is(filter.getActive());
+    }
+    if (filter.getStatuses() != null) {
+      criteria.and("status").in(filter.getStatuses());
+    }
+    if (filter.getLegacy() != null) {
+      criteria.and("legacy").is(filter.getLegacy());
+    }
+    if (filter.getExternal() != null) {
+      Criteria collaborator = criteria.and("collaborator");
+      if (filter.getExternal()) {
+        collaborator.ne(null);
+      } else {
+        collaborator.is(null);
+      }
+    }
+    return criteria;
+  }
+
+  @Override
+  public List<StudySummary> findActiveSummaries() {
+    return findSummaries(new StudyFilter());
+  }
+
+  @Override
+  public List<StudySummary> findSummaries(StudyFilter filter) {
+    return studyRepository.findSummaries(toCriteria(filter));
+  }
+
+  @Override
+  public CursorPage<StudySummary> findSummaryPage(StudyFilter filter, CursorRequest request) {
+    CursorPage<String> page = studyRepository.findIdPage(toCriteria(filter), request);
+    return new CursorPage<>(studyRepository.findSummariesById(page.getContent()),
+        page.getNextCursor(), page.getLimit());
+  }
+
+  @Override
+  public List<StudySummary> findSummariesById(List<String> ids) {
+    return studyRepository.findSummariesById(ids);
+  }
+
+  @Override
+  public List<Study> findByOwner(User user) {
+    StudyFilter filter = new StudyFilter();
+    filter.setOwnerId(user.getId());
+    return find(filter);
+  }
+
+  @Override
+  public List<Study> findByUser(User user) {
+    StudyFilter filter = new StudyFilter();
+    filter.setUserId(user.getId());
+    return find(filter);
+  }
+
+  @Override
+  public List<Study> findByStatus(Collection<Status> statuses) {
+    StudyFilter filter = new StudyFilter();
+    filter.setStatuses(statuses);
+    return find(filter);
+  }
+
+  @Override
+  public List<Study> findLegacy() {
+    StudyFilter filter = new StudyFilter();
+    filter.setLegacy(true);
+    return find(filter);
+  }
+
+  @Override
+  public List<Study> findExternal() {
+    StudyFilter filter = new StudyFilter();
+    filter.setExternal(true);
+    filter.setActive(null);
+    return find(filter);
+  }
+
   @Override
   public List<Study> findByProgram(Program program) {
-    return studyRepository.findByProgramId(program.getId());
+    return studyRepository.findAll(new Query(Criteria.where("program.id").is(program.getId())));
   }
 
   @Override
@@ -101,12 +230,16 @@ public class StudyServiceImpl implements StudyService {
 
     if (study.getCode() == null) {
       study.setCode(this.generateStudyCode(study));
+    } else if (!study.isLegacy()) {
+      seedStudyCode(study.getCode());
     }
     study.setActive(true);
 
     // External study
     if (study.getCollaborator() != null && StringUtils.isEmpty(study.getExternalCode())) {
       study.setExternalCode(this.generateExternalStudyCode(study));
+    } else if (!StringUtils.isEmpty(study.getExternalCode())) {
+      seedExternalStudyCode(study.getExternalCode());
     }
 
     try {
@@ -121,20 +254,22 @@ public class StudyServiceImpl implements StudyService {
 
     LOGGER.info(String.format("Successfully created new study with code %s and ID %s",
         study.getCode(), study.getId()));
+    historyService.recordCreated(study);
 
     // Publish events
     studyEventPublisher
-        .publishStudyEvent(study, study.getCreatedBy(), StudyEvent.Type.NEW_STUDY, study);
+        .publishStudyEvent(study, study.getCreatedBy(), StudyEvent.Type.NEW_STUDY);
 
   }
 
   @Override
   public void update(Study study) {
     LOGGER.info("Attempting to update existing study with code: " + study.getCode());
-    studyRepository.findById(study.getId()).orElseThrow(RecordNotFoundException::new);
+    ChangeSet changes = historyService.diff(study);
     studyRepository.save(study);
-    studyEventPublisher
-        .publishStudyEvent(study, study.getLastModifiedBy(), StudyEvent.Type.UPDATED_STUDY, study);
+    historyService.recordChanges(changes);
+    studyEventPublisher.publishStudyEvent(study, study.getLastModifiedBy(),
+        StudyEvent.Type.UPDATED_STUDY, StudyEventData.ofChanges(changes));
   }
 
   @Override
@@ -150,12 +285,17 @@ public class StudyServiceImpl implements StudyService {
     if (study.isLegacy()) {
       throw new StudyTrackerException("Legacy studies do not recieve new study codes.");
     }
-    Program program = study.getProgram();
-    Integer count = 10001;
-    for (Program p : programService.findByCode(program.getCode())) {
-      count = count + (studyRepository.findActiveProgramStudies(p.getId())).size();
-    }
-    return program.getCode() + "-" + count.toString();
+    String prefix = study.getProgram().getCode() + "-";
+    long count = sequenceService.next(studySequence(prefix), () -> {
+      long max = 0L;
+      for (Study s : studyRepository.findCodesMatching(SequenceService.suffixPattern(prefix))) {
+        if (!s.isLegacy()) {
+          max = Math.max(max, SequenceService.parseSuffix(s.getCode(), prefix) - STUDY_CODE_OFFSET);
+        }
+      }
+      return max;
+    });
+    return prefix + (STUDY_CODE_OFFSET + count);
   }
 
   @Override
@@ -164,22 +304,106 @@ public class StudyServiceImpl implements StudyService {
     if (collaborator == null) {
       throw new StudyTrackerException("External studies require a valid collaborator reference.");
     }
-    Integer count =
-        1 + studyRepository.findByExternalCodePrefix(collaborator.getCode() + "-").size();
-    return collaborator.getCode() + "-" + String.format("%05d", count);
+    String prefix = collaborator.getCode() + "-";
+    long count = sequenceService.next(externalStudySequence(prefix), () -> {
+      long max = 0L;
+      for (Study s : studyRepository
+          .findExternalCodesMatching(SequenceService.suffixPattern(prefix))) {
+        max = Math.max(max, SequenceService.parseSuffix(s.getExternalCode(), prefix));
+      }
+      return max;
+    });
+    return prefix + String.format("%05d", count);
+  }
+
+  @Override
+  public void seedCodeSequences() {
+    for (Study study : studyRepository.findAllCodes()) {
+      if (!study.isLegacy() && study.getCode() != null) {
+        seedStudyCode(study.getCode());
+      }
+      if (!StringUtils.isEmpty(study.getExternalCode())) {
+        seedExternalStudyCode(study.getExternalCode());
+      }
+    }
+  }
+
+  /**
+   * Raises the sequence for the provided study code's prefix, so that generated codes do not
+   * collide with a code that was assigned explicitly.
+   */
+  private void seedStudyCode(String code) {
+    if (code.lastIndexOf('-') < 0) {
+      return;
+    }
+    String prefix = code.substring(0, code.lastIndexOf('-') + 1);
+    long value = SequenceService.parseSuffix(code, prefix) - STUDY_CODE_OFFSET;
+    if (value > 0) {
+      sequenceService.seed(studySequence(prefix), value);
+    }
+  }
+
+  private void seedExternalStudyCode(String code) {
+    if (code.lastIndexOf('-') < 0) {
+      return;
+    }
+    String prefix = code.substring(0, code.lastIndexOf('-') + 1);
+    long value = SequenceService.parseSuffix(code, prefix);
+    if (value > 0) {
+      sequenceService.seed(externalStudySequence(prefix), value);
+    }
+  }
+
+  private static String studySequence(String prefix) {
+    return "study:" + prefix;
+  }
+
+  private static String externalStudySequence(String prefix) {
+    return "external-study:" + prefix;
   }
 
   @Override
   public void updateStatus(Study study, Status status) {
+    ChangeSet changes = historyService.diff(Study.class, study.getId(), "status", status);
     study.setStatus(status);
-    studyRepository.save(study);
+    studyRepository.updateField(study.getId(), "status", status, study.getLastModifiedBy());
+    historyService.recordChanges(changes);
     studyEventPublisher
-        .publishStudyEvent(study, study.getLastModifiedBy(), Type.STUDY_STATUS_CHANGED, status);
+        .publishStudyEvent(study, study.getLastModifiedBy(), Type.STUDY_STATUS_CHANGED,
+            StudyEventData.ofChanges(changes));
   }
 
   @Override
   public List<Study> search(String keyword) {
-    return studyRepository.findByNameOrCodeLike(keyword);
+    return search(keyword, SEARCH_LIMIT);
+  }
+
+  @Override
+  public List<Study> search(String keyword, int limit) {
+    List<String> terms = SearchTokens.terms(keyword);
+    if (terms.isEmpty()) {
+      return new ArrayList<>();
+    }
+    List<Study> studies = SearchCandidates.find(studyRepository, keyword, SEARCH_CANDIDATES,
+        Study::getId, false, "code", "name");
+    return SearchTokens.rankResults(keyword, studies, Math.min(limit, SEARCH_LIMIT),
+        s -> new String[]{s.getCode(), s.getName()});
+  }
+
+  @Override
+  public List<StudySummary> searchSummaries(String keyword, int limit) {
+    List<String> terms = SearchTokens.terms(keyword);
+    if (terms.isEmpty()) {
+      return new ArrayList<>();
+    }
+
+    // Only the ranked fields of the candidates are read
+    List<Study> candidates = SearchCandidates.find(studyRepository, keyword, SEARCH_CANDIDATES,
+        Study::getId, true, "code", "name");
+    List<Study> studies = SearchTokens.rankResults(keyword, candidates,
+        Math.min(limit, SEARCH_LIMIT), s -> new String[]{s.getCode(), s.getName()});
+    return studyRepository.findSummariesById(
+        studies.stream().map(Study::getId).collect(Collectors.toList()));
   }
 
 }
@@ -16,10 +16,18 @@
 
 package com.decibeltx.studytracker.core.service.impl;
 
+import com.decibeltx.studytracker.core.cache.CacheStatistics;
+import com.decibeltx.studytracker.core.cache.UserCache;
 import com.decibeltx.studytracker.core.exception.RecordNotFoundException;
 import com.decibeltx.studytracker.core.model.User;
+import com.decibeltx.studytracker.core.paging.CursorPage;
+import com.decibeltx.studytracker.core.paging.CursorRequest;
 import com.decibeltx.studytracker.core.repository.UserRepository;
+import com.decibeltx.studytracker.core.search.SearchCandidates;
+import com.decibeltx.studytracker.core.search.SearchTokens;
+import com.decibeltx.studytracker.core.service.AutocompleteService;
 import com.decibeltx.studytracker.core.service.UserService;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -28,12 +36,22 @@ import org.springframework.stereotype.Service;
 @Service
 public class UserServiceImpl implements UserService {
 
+  private static final int SEARCH_CANDIDATES = 200;
+
+  private static final int SEARCH_LIMIT = 50;
+
   @Autowired
   private UserRepository userRepository;
 
+  @Autowired
+  private AutocompleteService autocompleteService;
+
+  @Autowired
+  private UserCache userCache;
+
   @Override
   public Optional<User> findById(String id) {
-    return userRepository.findById(id);
+    return userCache.findById(id, () -> userRepository.findById(id));
   }
 
   @Override
@@ -41,35 +59,65 @@ public class UserServiceImpl implements UserService {
     return userRepository.findAll();
   }
 
+  @Override
+  public CursorPage<User> findAll(CursorRequest request) {
+    return userRepository.findPage(request);
+  }
+
   @Override
   public Optional<User> findByEmail(String email) {
-    return userRepository.findByEmail(email);
+    return userCache.findByEmail(email, () -> userRepository.findByEmail(email));
   }
 
   @Override
   public Optional<User> findByAccountName(String accountName) {
-    return userRepository.findByAccountName(accountName);
+    return userCache
+        .findByAccountName(accountName, () -> userRepository.findByAccountName(accountName));
   }
 
   @Override
   public List<User> search(String keyword) {
-    return userRepository.findByDisplayNameLike(keyword);
+    List<String> terms = SearchTokens.terms(keyword);
+    if (terms.isEmpty()) {
+      return new ArrayList<>();
+    }
+    List<User> users = SearchCandidates.find(userRepository, keyword, SEARCH_CANDIDATES,
+        User::getId, false, "displayName", "accountName");
+    return SearchTokens.rankResults(keyword, users, SEARCH_LIMIT,
+        u -> new String[]{u.getDisplayName(), u.getAccountName()});
   }
 
   @Override
   public void create(User user) {
     userRepository.insert(user);
+    autocompleteService.indexUser(user);
   }
 
   @Override
   public void update(User user) {
     userRepository.findById(user.getId()).orElseThrow(RecordNotFoundException::new);
+    userCache.evict(user);
     userRepository.save(user);
+    userCache.evict(user);
+    autocompleteService.indexUser(user);
   }
 
   @Override
   public void delete(User user) {
+    userCache.evict(user);
     userRepository.delete(user);
+    userCache.evict(user);
+    autocompleteService.removeUser(user);
+  }
+
+  @Override
+  public void clearCache() {
+    userCache.clear();
+  }
+
+  @Override
+  public CacheStatistics getCacheStatistics() {
+    return userCache.getStatistics();
   }
 
 }
@@ -24,6 +24,8 @@ public class BasicStorageFile implements StorageFile {
   private String url;
   private String path;
   private String name;
+  private Long size;
+  private String checksum;
 
   @Override
   public String getUrl() {
@@ -64,4 +66,20 @@ public class BasicStorageFile implements StorageFile {
   public void setPath(Path path) {
     this.path = path.toString();
   }
+
+  public Long getSize() {
+    return size;
+  }
+
+  public void setSize(Long size) {
+    this.size = size;
+  }
+
+  public String getChecksum() {
+    return checksum;
+  }
+
+  public void setChecksum(String checksum) {
+    this.checksum = checksum;
+  }
 }
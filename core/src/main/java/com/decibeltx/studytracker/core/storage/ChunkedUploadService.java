@@ -0,0 +1,576 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.decibeltx.studytracker.core.storage;
+
+import com.decibeltx.studytracker.core.exception.InvalidRequestException;
+import com.decibeltx.studytracker.core.exception.RecordNotFoundException;
+import com.decibeltx.studytracker.core.model.Assay;
+import com.decibeltx.studytracker.core.model.Study;
+import com.decibeltx.studytracker.core.model.UploadSession;
+import com.decibeltx.studytracker.core.model.UploadSession.Status;
+import com.decibeltx.studytracker.core.model.User;
+import com.decibeltx.studytracker.core.storage.exception.StudyStorageException;
+import com.decibeltx.studytracker.core.storage.exception.StudyStorageLimitExceededException;
+import com.decibeltx.studytracker.core.storage.exception.StudyStorageWriteException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+/**
+ * Manages chunked, resumable uploads of large study and assay files on top of any {@link
+ * StudyStorageService}. A client creates an {@link UploadSession}, uploads its numbered chunks in
+ * any order and in parallel, re-sending any that are missing from the session after an
+ * interruption, and then commits the session to assemble the file in study storage.
+ *
+ * <p>Chunks are staged as separate files in the staging directory and streamed, in order, to
+ * the storage service on commit. With {@link LocalFileSystemStudyStorageService}, chunks are
+ * instead written at their offsets into a hidden part file in the target folder, so committing
+ * the session moves the assembled file into place without copying it again.</p>
+ *
+ * <p>The staged content is created with the session and is never re-created by a chunk write,
+ * so a write that races with an abort, expiry or commit fails rather than leaving orphaned
+ * content behind. Each chunk write holds a lease on the session while it is in progress, and a
+ * session is only claimed for commit, in a single update, once every chunk has been received and
+ * it holds no unexpired lease. A lease left behind by a writer that died mid-chunk therefore only
+ * delays a commit until it expires.</p>
+ */
+public class ChunkedUploadService implements DisposableBean {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ChunkedUploadService.class);
+
+  private static final int MAX_CHUNKS = 10000;
+  private static final long TRANSFER_CHUNK_SIZE = 8L * 1024 * 1024;
+
+  private final StudyStorageService studyStorageService;
+
+  private final MongoOperations mongoOperations;
+
+  private final Path stagingPath;
+
+  private final long maxSize;
+
+  private final long defaultChunkSize;
+
+  private final long maxChunkSize;
+
+  private final long sessionTtlMillis;
+
+  private final long writerLeaseMillis;
+
+  private final ScheduledExecutorService scheduler = Executors
+      .newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "upload-session-cleanup");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  /**
+   * Creates the service.
+   *
+   * @param studyStorageService storage service that committed files are saved to
+   * @param mongoOperations store for upload sessions
+   * @param stagingPath directory that chunks are staged in, for storage services other than local
+   * storage
+   * @param maxSize maximum size of an uploaded file
+   * @param defaultChunkSize chunk size used when the client does not request one
+   * @param maxChunkSize maximum size of a single chunk
+   * @param sessionTtlMillis time after the last received chunk at which an uncommitted session
+   * is discarded
+   * @param writerLeaseMillis time after which a chunk write that has not finished no longer
+   * prevents the session from being committed
+   */
+  public ChunkedUploadService(StudyStorageService studyStorageService,
+      MongoOperations mongoOperations, Path stagingPath, long maxSize, long defaultChunkSize,
+      long maxChunkSize, long sessionTtlMillis, long writerLeaseMillis) {
+    this.studyStorageService = studyStorageService;
+    this.mongoOperations = mongoOperations;
+    this.stagingPath = stagingPath;
+    this.maxSize = maxSize;
+    this.defaultChunkSize = defaultChunkSize;
+    this.maxChunkSize = maxChunkSize;
+    this.sessionTtlMillis = sessionTtlMillis;
+    this.writerLeaseMillis = writerLeaseMillis;
+  }
+
+  public void start() {
+    long interval = Math.max(TimeUnit.MILLISECONDS.toSeconds(sessionTtlMillis) / 4, 60L);
+    scheduler.scheduleWithFixedDelay(this::run, interval, interval, TimeUnit.SECONDS);
+  }
+
+  private void run() {
+    try {
+      int count = discardExpired();
+      if (count > 0) {
+        LOGGER.info("Discarded {} expired upload sessions", count);
+      }
+    } catch (Exception e) {
+      LOGGER.error("Failed to discard expired upload sessions", e);
+    }
+  }
+
+  /**
+   * Starts an upload of a file to the study's storage folder.
+   *
+   * @param study target study
+   * @param fileName name of the uploaded file
+   * @param size total size of the file, in bytes
+   * @param chunkSize requested chunk size, or null to use the default
+   * @param user user starting the upload
+   * @return the new session
+   */
+  public UploadSession createStudySession(Study study, String fileName, long size,
+      Long chunkSize, User user) throws StudyStorageException {
+    UploadSession session = newSession(fileName, size, chunkSize, user);
+    session.setStudyId(study.getId());
+    if (studyStorageService instanceof LocalFileSystemStudyStorageService) {
+      session.setStagingPath(((LocalFileSystemStudyStorageService) studyStorageService)
+          .getStudyPartPath(study, session.getId()).toString());
+    }
+    return insert(session);
+  }
+
+  /**
+   * Starts an upload of a file to the assay's storage folder.
+   *
+   * @param assay target assay
+   * @param fileName name of the uploaded file
+   * @param size total size of the file, in bytes
+   * @param chunkSize requested chunk size, or null to use the default
+   * @param user user starting the upload
+   * @return the new session
+   */
+  public UploadSession createAssaySession(Assay assay, String fileName, long size,
+      Long chunkSize, User user) throws StudyStorageException {
+    UploadSession session = newSession(fileName, size, chunkSize, user);
+    session.setStudyId(assay.getStudy().getId());
+    session.setAssayId(assay.getId());
+    if (studyStorageService instanceof LocalFileSystemStudyStorageService) {
+      session.setStagingPath(((LocalFileSystemStudyStorageService) studyStorageService)
+          .getAssayPartPath(assay, session.getId()).toString());
+    }
+    return insert(session);
+  }
+
+  private UploadSession newSession(String fileName, long size, Long chunkSize, User user)
+      throws StudyStorageException {
+    if (size <= 0) {
+      throw new InvalidRequestException("Upload size must be greater than zero: " + size);
+    }
+    if (size > maxSize) {
+      throw new StudyStorageLimitExceededException(
+          String.format("Upload of %d bytes exceeds the maximum size of %d bytes", size, maxSize));
+    }
+    long sessionChunkSize = chunkSize != null ? chunkSize : defaultChunkSize;
+    if (sessionChunkSize <= 0 || sessionChunkSize > maxChunkSize) {
+      throw new InvalidRequestException(String.format(
+          "Chunk size must be between 1 and %d bytes: %d", maxChunkSize, sessionChunkSize));
+    }
+    long chunkCount = (size + sessionChunkSize - 1) / sessionChunkSize;
+    if (chunkCount > MAX_CHUNKS) {
+      throw new InvalidRequestException(String.format(
+          "Upload of %d bytes in chunks of %d bytes exceeds the limit of %d chunks",
+          size, sessionChunkSize, MAX_CHUNKS));
+    }
+    Date now = new Date();
+    UploadSession session = new UploadSession();
+    session.setId(UUID.randomUUID().toString());
+    session.setFileName(StorageUtils.getUploadFileName(fileName));
+    session.setSize(size);
+    session.setChunkSize(sessionChunkSize);
+    session.setChunkCount((int) chunkCount);
+    session.setStagingPath(stagingPath.resolve(session.getId()).toString());
+    session.setStatus(Status.OPEN);
+    session.setCreatedBy(user != null ? user.getId() : null);
+    session.setCreatedAt(now);
+    session.setExpiresAt(new Date(now.getTime() + sessionTtlMillis));
+    return session;
+  }
+
+  private UploadSession insert(UploadSession session) throws StudyStorageWriteException {
+    Path path = Paths.get(session.getStagingPath());
+    try {
+      if (isLocal()) {
+        Files.createFile(path);
+      } else {
+        Files.createDirectories(path);
+      }
+    } catch (IOException e) {
+      throw new StudyStorageWriteException(
+          "Failed to create staging content for upload " + session.getId(), e);
+    }
+    LOGGER.info("Starting upload session {} for file {} ({} bytes in {} chunks)",
+        session.getId(), session.getFileName(), session.getSize(), session.getChunkCount());
+    try {
+      return mongoOperations.insert(session);
+    } catch (RuntimeException e) {
+      FileUtils.deleteQuietly(path.toFile());
+      throw e;
+    }
+  }
+
+  public Optional<UploadSession> findSession(String id) {
+    return Optional.ofNullable(mongoOperations.findById(id, UploadSession.class));
+  }
+
+  private UploadSession getSession(String id) {
+    return findSession(id)
+        .orElseThrow(() -> new RecordNotFoundException("Upload session not found: " + id));
+  }
+
+  /**
+   * Stages a single chunk of the upload, replacing any previously received content of the chunk.
+   * The chunk must be exactly the session's chunk size, or the remainder of the file for the
+   * final chunk, and must match the expected checksum, if one is provided. The chunk is marked
+   * as missing, and the session as leased to the writer, until the write completes. The write
+   * fails if its lease expires and the session is committed in the meantime.
+   *
+   * @param id session ID
+   * @param index zero-based chunk index
+   * @param inputStream chunk content
+   * @param expectedChecksum SHA-256 checksum of the chunk as a hex string, or null
+   * @return the updated session
+   */
+  public UploadSession putChunk(String id, int index, InputStream inputStream,
+      String expectedChecksum) throws StudyStorageException {
+    UploadSession session = getSession(id);
+    if (index < 0 || index >= session.getChunkCount()) {
+      throw new InvalidRequestException(String.format(
+          "Chunk index must be between 0 and %d: %d", session.getChunkCount() - 1, index));
+    }
+    String token = acquireWriter(id, index);
+    long length = session.getChunkLength(index);
+    UploadStream upload = new UploadStream(inputStream, length);
+    boolean written = false;
+    try {
+      writeChunk(session, index, upload, expectedChecksum);
+      written = true;
+    } finally {
+      if (!written) {
+        mongoOperations.updateFirst(new Query(Criteria.where("id").is(id)),
+            releaseWriter(token), UploadSession.class);
+      }
+    }
+    Update update = releaseWriter(token)
+        .set("chunks." + index, upload.getChecksum())
+        .set("expiresAt", new Date(System.currentTimeMillis() + sessionTtlMillis));
+    UploadSession updated = mongoOperations.findAndModify(
+        new Query(Criteria.where("id").is(id).and("status").is(Status.OPEN)
+            .and("writers.token").is(token)),
+        update, new FindAndModifyOptions().returnNew(true), UploadSession.class);
+    if (updated == null) {
+      throw new InvalidRequestException("Upload session is no longer open: " + id);
+    }
+    return updated;
+  }
+
+  /**
+   * Leases an open session to a chunk write and marks the chunk as missing until the write
+   * completes, since its staged content is about to be overwritten.
+   *
+   * @return the writer's lease token
+   */
+  private String acquireWriter(String id, int index) {
+    long now = System.currentTimeMillis();
+    UploadSession.Writer writer = new UploadSession.Writer();
+    writer.setToken(UUID.randomUUID().toString());
+    writer.setIndex(index);
+    writer.setLeaseExpiresAt(new Date(now + writerLeaseMillis));
+    Query query = new Query(Criteria.where("id").is(id).and("status").is(Status.OPEN));
+    Update update = new Update()
+        .push("writers", writer)
+        .unset("chunks." + index)
+        .set("expiresAt", new Date(now + sessionTtlMillis));
+    if (mongoOperations.updateFirst(query, update, UploadSession.class).getMatchedCount() == 0) {
+      throw new InvalidRequestException("Upload session is no longer open: " + id);
+    }
+    return writer.getToken();
+  }
+
+  private static Update releaseWriter(String token) {
+    return new Update().pull("writers", new Query(Criteria.where("token").is(token)));
+  }
+
+  private void writeChunk(UploadSession session, int index, UploadStream upload,
+      String expectedChecksum) throws StudyStorageException {
+    long length = session.getChunkLength(index);
+    try {
+      if (isLocal()) {
+        writeChunkInPlace(session, index, upload);
+      } else {
+        writeChunkFile(session, index, upload);
+      }
+    } catch (UploadStream.SizeLimitExceededException e) {
+      throw new InvalidRequestException(
+          String.format("Chunk %d is larger than %d bytes", index, length), e);
+    } catch (IOException e) {
+      throw new StudyStorageWriteException(
+          String.format("Failed to write chunk %d of upload %s", index, session.getId()), e);
+    }
+    if (upload.getSize() != length) {
+      throw new InvalidRequestException(String.format(
+          "Chunk %d must be %d bytes, but %d bytes were received", index, length,
+          upload.getSize()));
+    }
+    if (expectedChecksum != null && !expectedChecksum.equalsIgnoreCase(upload.getChecksum())) {
+      throw new InvalidRequestException(String.format(
+          "Checksum of chunk %d does not match: expected %s, received %s", index,
+          expectedChecksum, upload.getChecksum()));
+    }
+  }
+
+  private boolean isLocal() {
+    return studyStorageService instanceof LocalFileSystemStudyStorageService;
+  }
+
+  private void writeChunkInPlace(UploadSession session, int index, UploadStream upload)
+      throws IOException {
+    long offset = session.getChunkSize() * index;
+    try (FileChannel channel = FileChannel.open(Paths.get(session.getStagingPath()),
+        StandardOpenOption.WRITE);
+        ReadableByteChannel source = Channels.newChannel(upload)) {
+      long position = 0L;
+      long transferred;
+      while ((transferred = channel.transferFrom(source, offset + position,
+          TRANSFER_CHUNK_SIZE)) > 0) {
+        position += transferred;
+      }
+    }
+  }
+
+  private static void writeChunkFile(UploadSession session, int index, UploadStream upload)
+      throws IOException {
+    Path directory = Paths.get(session.getStagingPath());
+    Path part = Files.createTempFile(directory, "chunk-" + index + "-", ".part");
+    try {
+      Files.copy(upload, part, StandardCopyOption.REPLACE_EXISTING);
+      LocalFileSystemStudyStorageService.move(part, getChunkPath(directory, index));
+    } finally {
+      Files.deleteIfExists(part);
+    }
+  }
+
+  private static Path getChunkPath(Path directory, int index) {
+    return directory.resolve("chunk-" + index);
+  }
+
+  /**
+   * Assembles the chunks of a study file upload in study storage and ends the session.
+   *
+   * @param id session ID
+   * @param study target study of the session
+   * @return the new file
+   */
+  public StorageFile commitStudyFile(String id, Study study) throws StudyStorageException {
+    UploadSession session = claim(id);
+    if (!study.getId().equals(session.getStudyId()) || session.getAssayId() != null) {
+      release(session);
+      throw new RecordNotFoundException("Upload session not found for study: " + id);
+    }
+    return commit(session, study, null);
+  }
+
+  /**
+   * Assembles the chunks of an assay file upload in assay storage and ends the session.
+   *
+   * @param id session ID
+   * @param assay target assay of the session
+   * @return the new file
+   */
+  public StorageFile commitAssayFile(String id, Assay assay) throws StudyStorageException {
+    UploadSession session = claim(id);
+    if (!assay.getId().equals(session.getAssayId())) {
+      release(session);
+      throw new RecordNotFoundException("Upload session not found for assay: " + id);
+    }
+    return commit(session, null, assay);
+  }
+
+  /**
+   * Marks a complete session as committing, so that no further chunks are accepted and
+   * concurrent commits of the same session are rejected. The session is only claimed if it is
+   * open, has no unexpired chunk write leases and has received every chunk, all checked by the
+   * same update, which also discards any expired leases.
+   */
+  private UploadSession claim(String id) {
+    UploadSession session = getSession(id);
+    Date now = new Date();
+    Criteria criteria = Criteria.where("id").is(id).and("status").is(Status.OPEN)
+        .and("writers").not().elemMatch(Criteria.where("leaseExpiresAt").gt(now));
+    for (int i = 0; i < session.getChunkCount(); i++) {
+      criteria = criteria.and("chunks." + i).exists(true);
+    }
+    Update update = new Update()
+        .set("status", Status.COMMITTING)
+        .pull("writers", new Query(Criteria.where("leaseExpiresAt").lte(now)))
+        .set("expiresAt", new Date(now.getTime() + sessionTtlMillis));
+    UploadSession claimed = mongoOperations.findAndModify(new Query(criteria), update,
+        new FindAndModifyOptions().returnNew(true), UploadSession.class);
+    if (claimed != null) {
+      return claimed;
+    }
+    session = getSession(id);
+    if (session.getStatus() != Status.OPEN) {
+      throw new InvalidRequestException("Upload session is already being committed: " + id);
+    }
+    List<Integer> missing = session.getMissingChunks();
+    if (!missing.isEmpty()) {
+      throw new InvalidRequestException(String.format(
+          "Upload session %s is missing %d of %d chunks, starting with chunk %d", id,
+          missing.size(), session.getChunkCount(), missing.get(0)));
+    }
+    long writers = session.getWriters().stream()
+        .filter(writer -> writer.getLeaseExpiresAt().after(now))
+        .count();
+    throw new InvalidRequestException(String.format(
+        "Upload session %s has %d chunks still being written", id, writers));
+  }
+
+  private void release(UploadSession session) {
+    mongoOperations.updateFirst(new Query(Criteria.where("id").is(session.getId())),
+        new Update().set("status", Status.OPEN), UploadSession.class);
+  }
+
+  private StorageFile commit(UploadSession session, Study study, Assay assay)
+      throws StudyStorageException {
+    LOGGER.info("Committing upload session {} as file {}", session.getId(),
+        session.getFileName());
+    StorageFile storageFile;
+    try {
+      if (isLocal()) {
+        storageFile = ((LocalFileSystemStudyStorageService) studyStorageService)
+            .commitPartFile(Paths.get(session.getStagingPath()), session.getFileName());
+      } else {
+        try (InputStream inputStream = openChunks(session)) {
+          storageFile = assay != null
+              ? studyStorageService.saveAssayFile(session.getFileName(), inputStream, assay)
+              : studyStorageService.saveStudyFile(session.getFileName(), inputStream, study);
+        }
+      }
+    } catch (IOException | UncheckedIOException e) {
+      release(session);
+      throw new StudyStorageWriteException("Failed to read chunks of upload " + session.getId(),
+          e);
+    } catch (StudyStorageException | RuntimeException e) {
+      release(session);
+      throw e;
+    }
+    discard(session);
+    return storageFile;
+  }
+
+  /**
+   * Returns the staged chunks of the session as a single stream, opening each chunk only once
+   * the previous one has been read.
+   */
+  private static InputStream openChunks(UploadSession session) {
+    Path directory = Paths.get(session.getStagingPath());
+    return new SequenceInputStream(new Enumeration<InputStream>() {
+
+      private int next = 0;
+
+      @Override
+      public boolean hasMoreElements() {
+        return next < session.getChunkCount();
+      }
+
+      @Override
+      public InputStream nextElement() {
+        try {
+          return Files.newInputStream(getChunkPath(directory, next++));
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+
+    });
+  }
+
+  /**
+   * Cancels an uncommitted upload and deletes its staged content.
+   *
+   * @param id session ID
+   */
+  public void abort(String id) {
+    UploadSession session = mongoOperations.findAndRemove(
+        new Query(Criteria.where("id").is(id).and("status").is(Status.OPEN)),
+        UploadSession.class);
+    if (session == null) {
+      throw new RecordNotFoundException("Open upload session not found: " + id);
+    }
+    LOGGER.info("Aborting upload session {}", id);
+    FileUtils.deleteQuietly(Paths.get(session.getStagingPath()).toFile());
+  }
+
+  /**
+   * Deletes all sessions that have expired, along with their staged content.
+   *
+   * @return the number of discarded sessions
+   */
+  public int discardExpired() {
+    List<UploadSession> expired = mongoOperations.find(
+        new Query(Criteria.where("expiresAt").lt(new Date())), UploadSession.class);
+    int count = 0;
+    for (UploadSession session : expired) {
+      UploadSession removed = mongoOperations.findAndRemove(
+          new Query(Criteria.where("id").is(session.getId()).and("expiresAt").lt(new Date())),
+          UploadSession.class);
+      if (removed != null) {
+        FileUtils.deleteQuietly(Paths.get(removed.getStagingPath()).toFile());
+        count = count + 1;
+      }
+    }
+    return count;
+  }
+
+  private void discard(UploadSession session) {
+    mongoOperations.remove(new Query(Criteria.where("id").is(session.getId())),
+        UploadSession.class);
+    FileUtils.deleteQuietly(Paths.get(session.getStagingPath()).toFile());
+  }
+
+  @Override
+  public void destroy() {
+    scheduler.shutdownNow();
+  }
+
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.decibeltx.studytracker.core.storage;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Local file system storage that keeps each distinct file content once. Uploaded content is stored
+ * in the blob directory under its SHA-256 checksum, and the files in program, study and assay
+ * folders are read-only hard links to those blobs, so folders can still be browsed, listed and
+ * served like those of {@link LocalFileSystemStudyStorageService}. The blob directory must be on
+ * the same file system as the storage root, which is verified when the service is created. Each
+ * blob is also indexed by its inode number, so that the blob behind a replaced file can be found
+ * without reading the file again.
+ */
+public class ContentAddressedStudyStorageService extends LocalFileSystemStudyStorageService {
+
+  private static final Logger LOGGER = LoggerFactory
+      .getLogger(ContentAddressedStudyStorageService.class);
+
+  private static final String LINK_COUNT_ATTRIBUTE = "unix:nlink";
+
+  private static final String INODE_ATTRIBUTE = "unix:ino";
+
+  private static final String INODE_INDEX_DIR = ".ino";
+
+  private static final Set<PosixFilePermission> READ_ONLY = EnumSet.of(
+      PosixFilePermission.OWNER_READ, PosixFilePermission.GROUP_READ,
+      PosixFilePermission.OTHERS_READ);
+
+  private final Path blobPath;
+
+  private final Path inodeIndexPath;
+
+  private final Object[] locks = new Object[64];
+
+  public ContentAddressedStudyStorageService(Path rootPath, Path blobPath, int listingCacheSize,
+      long listingCacheTtl, TimeUnit unit, boolean watchForChanges) throws IOException {
+    super(rootPath, listingCacheSize, listingCacheTtl, unit, watchForChanges);
+    this.blobPath = Files.createDirectories(blobPath);
+    this.inodeIndexPath = Files.createDirectories(blobPath.resolve(INODE_INDEX_DIR));
+    for (int i = 0; i < locks.length; i++) {
+      locks[i] = new Object();
+    }
+    checkLinksSupported(rootPath);
+  }
+
+  /**
+   * Fails unless a hard link can be created from the storage root to a file in the blob
+   * directory, and link counts and inode numbers can be read. Without them every stored file
+   * would be a full copy, and unreferenced content could never be found and removed.
+   */
+  private void checkLinksSupported(Path rootPath) throws IOException {
+    Path probe = Files.createTempFile(blobPath, PART_PREFIX, PART_SUFFIX);
+    Path link = rootPath.resolve(PART_PREFIX + UUID.randomUUID() + PART_SUFFIX);
+    try {
+      Files.createLink(link, probe);
+      if (getLinkCount(probe) != 2 || getInode(link) != getInode(probe)) {
+        throw new IOException("Link counts and inode numbers are not reported for " + blobPath);
+      }
+    } catch (UnsupportedOperationException | IllegalArgumentException | IOException e) {
+      throw new IOException(String.format("Content-addressed storage requires hard links between "
+          + "the blob directory %s and the storage root %s, on a file system that reports link "
+          + "counts and inode numbers", blobPath, rootPath), e);
+    } finally {
+      Files.deleteIfExists(link);
+      Files.deleteIfExists(probe);
+    }
+  }
+
+  private Path getBlobPath(String checksum) {
+    return blobPath.resolve(checksum.substring(0, 2)).resolve(checksum);
+  }
+
+  private Path getInodeIndexPath(long inode) {
+    return inodeIndexPath.resolve(Long.toString(inode));
+  }
+
+  /**
+   * Stores the content as a read-only blob, unless identical content is already stored, and links
+   * the target file to it. If the target replaces a file whose blob no other file refers to, that
+   * blob is removed.
+   */
+  @Override
+  protected void commitFile(Path partPath, Path target, String checksum) throws IOException {
+    Path blob = getBlobPath(checksum);
+    Path replaced = Files.isRegularFile(target) && getLinkCount(target) == 2
+        ? findBlob(target) : null;
+    synchronized (getLock(checksum)) {
+      if (Files.exists(blob)) {
+        LOGGER.info(String.format("Content of %s is already stored as %s", target, checksum));
+        Files.delete(partPath);
+        if (findBlob(blob) == null) {
+          indexBlob(blob);
+        }
+      } else {
+        Files.createDirectories(blob.getParent());
+        Files.setPosixFilePermissions(partPath, READ_ONLY);
+        move(partPath, blob);
+        indexBlob(blob);
+      }
+      Path link = target.resolveSibling(PART_PREFIX + UUID.randomUUID() + PART_SUFFIX);
+      Files.createLink(link, blob);
+      move(link, target);
+    }
+    if (replaced != null && !replaced.equals(blob)) {
+      synchronized (getLock(replaced.getFileName().toString())) {
+        if (Files.exists(replaced) && getLinkCount(replaced) <= 1) {
+          LOGGER.info("Removing unreferenced stored content: " + replaced.getFileName());
+          Files.deleteIfExists(getInodeIndexPath(getInode(replaced)));
+          Files.delete(replaced);
+        }
+      }
+    }
+  }
+
+  /**
+   * Records the blob under its inode number, replacing any entry left by a removed blob whose
+   * inode has been reused.
+   */
+  private void indexBlob(Path blob) throws IOException {
+    Path entry = getInodeIndexPath(getInode(blob));
+    Path relative = entry.getParent().relativize(blob);
+    try {
+      Files.createSymbolicLink(entry, relative);
+    } catch (FileAlreadyExistsException e) {
+      Files.delete(entry);
+      Files.createSymbolicLink(entry, relative);
+    }
+  }
+
+  /**
+   * Returns the blob that the file is linked to, found through the inode index, or null if the
+   * file is not linked to an indexed blob.
+   */
+  private Path findBlob(Path file) throws IOException {
+    Path entry = getInodeIndexPath(getInode(file));
+    try {
+      Path blob = entry.resolveSibling(Files.readSymbolicLink(entry)).normalize();
+      return Files.isSameFile(file, blob) ? blob : null;
+    } catch (NoSuchFileException e) {
+      return null;
+    }
+  }
+
+  @Override
+  protected boolean isChecksumRequired() {
+    return true;
+  }
+
+  private Object getLock(String checksum) {
+    return locks[Math.floorMod(checksum.hashCode(), locks.length)];
+  }
+
+  private static int getLinkCount(Path path) throws IOException {
+    return (Integer) Files.getAttribute(path, LINK_COUNT_ATTRIBUTE, LinkOption.NOFOLLOW_LINKS);
+  }
+
+  private static long getInode(Path path) throws IOException {
+    return (Long) Files.getAttribute(path, INODE_ATTRIBUTE, LinkOption.NOFOLLOW_LINKS);
+  }
+
+  /**
+   * Returns the number of stored blobs and the disk space saved by sharing them between folders.
+   * Walks the blob directory, so should not be called on every request.
+   *
+   * @return current statistics
+   */
+  public DeduplicationStatistics getStatistics() throws IOException {
+    long blobs = 0L;
+    long files = 0L;
+    long storedBytes = 0L;
+    long logicalBytes = 0L;
+    try (Stream<Path> stream = Files.walk(blobPath, 2)) {
+      for (Path blob : (Iterable<Path>) stream
+          .filter(p -> Files.isRegularFile(p, LinkOption.NOFOLLOW_LINKS))::iterator) {
+        long size = Files.size(blob);
+        int references = Math.max(getLinkCount(blob) - 1, 0);
+        blobs++;
+        files += references;
+        storedBytes += size;
+        logicalBytes += size * references;
+      }
+    }
+    return new DeduplicationStatistics(blobs, files, storedBytes, logicalBytes);
+  }
+
+}
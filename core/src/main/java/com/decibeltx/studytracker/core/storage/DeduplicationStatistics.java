@@ -0,0 +1,51 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.decibeltx.studytracker.core.storage;
+
+import lombok.Data;
+
+/**
+ * Point-in-time space usage of a {@link ContentAddressedStudyStorageService}.
+ */
+@Data
+public class DeduplicationStatistics {
+
+  /**
+   * Number of distinct file contents stored.
+   */
+  private final long blobs;
+
+  /**
+   * Number of files in study and assay folders referring to stored content.
+   */
+  private final long files;
+
+  /**
+   * Bytes used on disk by the stored content.
+   */
+  private final long storedBytes;
+
+  /**
+   * Bytes the folder files would use if each were a separate copy.
+   */
+  private final long logicalBytes;
+
+  public long getSavedBytes() {
+    return logicalBytes - storedBytes;
+  }
+
+}
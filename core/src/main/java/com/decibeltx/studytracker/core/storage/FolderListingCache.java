@@ -0,0 +1,207 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.decibeltx.studytracker.core.storage;
+
+import com.decibeltx.studytracker.core.cache.ExpiringCache;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches the contents of storage folders. Each listed folder is registered with a file system
+ * {@link WatchService} before it is read, so changes made outside of the application evict the
+ * cached listing. Entries also expire after a fixed time, which covers file systems that do not
+ * deliver watch events, such as network mounts. A folder is only watched while its listing is
+ * cached: the watch is cancelled when the listing is evicted, invalidated or not cached at all, so
+ * that the number of watches stays bounded by the cache size.
+ */
+class FolderListingCache {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(FolderListingCache.class);
+
+  private final ExpiringCache<Path, Listing> cache;
+
+  private final Map<Path, WatchKey> watchKeys = new ConcurrentHashMap<>();
+
+  private final AtomicLong invalidations = new AtomicLong();
+
+  private final WatchService watchService;
+
+  FolderListingCache(int maxSize, long ttl, TimeUnit unit, boolean watchForChanges) {
+    this.cache = new ExpiringCache<>("storage-folders", maxSize, ttl, unit, this::unregister);
+    this.watchService = watchForChanges ? createWatchService() : null;
+    if (watchService != null) {
+      Thread thread = new Thread(this::watch, "storage-folder-watcher");
+      thread.setDaemon(true);
+      thread.start();
+    }
+  }
+
+  private static WatchService createWatchService() {
+    try {
+      return FileSystems.getDefault().newWatchService();
+    } catch (IOException | UnsupportedOperationException e) {
+      LOGGER.warn("File system watching is unavailable, storage folder listings will only be "
+          + "refreshed on expiry and local writes", e);
+      return null;
+    }
+  }
+
+  /**
+   * Returns the cached listing of the folder, reading it with the loader if absent. Listings read
+   * while a change is being applied, or whose watch has since been cancelled, are returned but not
+   * cached; the checks and the put are made under the same lock as invalidation, so a listing read
+   * before an invalidation can never be cached after it.
+   *
+   * @param path folder path
+   * @param loader reads the folder contents
+   * @return the folder listing
+   */
+  Listing get(Path path, Function<Path, Listing> loader) {
+    Listing listing = cache.get(path);
+    if (listing == null) {
+      WatchKey key = register(path);
+      long generation = invalidations.get();
+      listing = loader.apply(path);
+      synchronized (this) {
+        if (invalidations.get() == generation && (key == null || key.equals(watchKeys.get(path)))) {
+          cache.put(path, listing);
+        } else if (!cache.containsKey(path)) {
+          unregister(path);
+        }
+      }
+    }
+    return listing;
+  }
+
+  /**
+   * Evicts the listing of the folder, if any.
+   *
+   * @param path folder path
+   */
+  synchronized void invalidate(Path path) {
+    invalidations.incrementAndGet();
+    cache.remove(path);
+    unregister(path);
+  }
+
+  private synchronized void invalidateAll() {
+    invalidations.incrementAndGet();
+    cache.clear();
+    new ArrayList<>(watchKeys.keySet()).forEach(this::unregister);
+  }
+
+  void close() throws IOException {
+    if (watchService != null) {
+      watchService.close();
+    }
+  }
+
+  /**
+   * Watches the folder for changes, if it is not already watched.
+   *
+   * @return the folder's watch key, or null if it cannot be watched
+   */
+  private WatchKey register(Path path) {
+    if (watchService == null) {
+      return null;
+    }
+    try {
+      return watchKeys.computeIfAbsent(path, p -> {
+        try {
+          return p.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+              StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException | ClosedWatchServiceException e) {
+      LOGGER.debug("Unable to watch storage folder: " + path, e);
+      return null;
+    }
+  }
+
+  private void unregister(Path path) {
+    WatchKey key = watchKeys.remove(path);
+    if (key != null) {
+      key.cancel();
+    }
+  }
+
+  private void watch() {
+    try {
+      while (true) {
+        WatchKey key = watchService.take();
+        Path path = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+          if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+            invalidateAll();
+          }
+        }
+        invalidate(path);
+        if (!key.reset()) {
+          watchKeys.remove(path, key);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ClosedWatchServiceException e) {
+      LOGGER.debug("Storage folder watcher stopped");
+    }
+  }
+
+  /**
+   * Files and subfolders at the top level of a storage folder.
+   */
+  static final class Listing {
+
+    private final List<StorageFile> files;
+
+    private final List<StorageFolder> subFolders;
+
+    Listing(List<StorageFile> files, List<StorageFolder> subFolders) {
+      this.files = Collections.unmodifiableList(files);
+      this.subFolders = Collections.unmodifiableList(subFolders);
+    }
+
+    List<StorageFile> getFiles() {
+      return new ArrayList<>(files);
+    }
+
+    List<StorageFolder> getSubFolders() {
+      return new ArrayList<>(subFolders);
+    }
+
+  }
+
+}
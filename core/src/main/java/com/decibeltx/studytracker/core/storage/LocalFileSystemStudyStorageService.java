@@ -22,31 +22,67 @@ import com.decibeltx.studytracker.core.model.Program;
 import com.decibeltx.studytracker.core.model.Study;
 import com.decibeltx.studytracker.core.storage.exception.StudyStorageDuplicateException;
 import com.decibeltx.studytracker.core.storage.exception.StudyStorageException;
+import com.decibeltx.studytracker.core.storage.exception.StudyStorageLimitExceededException;
 import com.decibeltx.studytracker.core.storage.exception.StudyStorageNotFoundException;
 import com.decibeltx.studytracker.core.storage.exception.StudyStorageWriteException;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 
-public class LocalFileSystemStudyStorageService implements StudyStorageService {
+public class LocalFileSystemStudyStorageService implements StudyStorageService, DisposableBean {
 
   private static final Logger LOGGER = LoggerFactory
       .getLogger(LocalFileSystemStudyStorageService.class);
 
+  protected static final String PART_PREFIX = ".upload-";
+  protected static final String PART_SUFFIX = ".part";
+  private static final long TRANSFER_CHUNK_SIZE = 8L * 1024 * 1024;
+
   private final Path rootPath;
   private final Path rootUrl = Paths.get("/static");
+  private final FolderListingCache listingCache;
   private boolean overwriteExisting = false;
   private boolean useExisting = false;
 
   public LocalFileSystemStudyStorageService(Path rootPath) {
+    this(rootPath, 1000, 300, TimeUnit.SECONDS, true);
+  }
+
+  /**
+   * Creates the service with a cache of folder listings.
+   *
+   * @param rootPath storage root directory
+   * @param listingCacheSize maximum number of cached folder listings
+   * @param listingCacheTtl time after which a cached listing is re-read
+   * @param unit unit of {@code listingCacheTtl}
+   * @param watchForChanges whether to evict listings when the file system reports a change
+   */
+  public LocalFileSystemStudyStorageService(Path rootPath, int listingCacheSize,
+      long listingCacheTtl, TimeUnit unit, boolean watchForChanges) {
     this.rootPath = rootPath;
+    this.listingCache = new FolderListingCache(listingCacheSize, listingCacheTtl, unit,
+        watchForChanges);
   }
 
   /**
@@ -61,105 +97,263 @@ public class LocalFileSystemStudyStorageService implements StudyStorageService {
     return rootUrl.resolve(relative).toString();
   }
 
+  private Path getProgramPath(Program program) {
+    return rootPath.resolve(StorageUtils.getProgramFolderName(program));
+  }
+
+  private Path getStudyPath(Study study) {
+    return getProgramPath(study.getProgram()).resolve(StorageUtils.getStudyFolderName(study));
+  }
+
+  private Path getAssayPath(Assay assay) {
+    return getStudyPath(assay.getStudy()).resolve(StorageUtils.getAssayFolderName(assay));
+  }
+
   /**
-   * Returns {@link StorageFile} instances for every file in the target folder, at the top level.
+   * Reads the files and subfolders at the top level of the target folder in a single pass.
    *
    * @param path
    * @return
    */
-  private List<StorageFile> getFolderFiles(Path path) {
-    try {
-      return Files.walk(path, 1)
-          .filter(Files::isRegularFile)
-          .map(f -> {
-            BasicStorageFile file = new BasicStorageFile();
-            file.setPath(f);
-            file.setName(f.getFileName().toString());
-            file.setUrl(getObjectUrl(f));
-            return file;
-          })
-          .collect(Collectors.toList());
+  private FolderListingCache.Listing readFolder(Path path) {
+    List<StorageFile> files = new ArrayList<>();
+    List<StorageFolder> subFolders = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
+      for (Path child : stream) {
+        if (isPartFile(child)) {
+          continue;
+        }
+        BasicFileAttributes attributes;
+        try {
+          attributes = Files.readAttributes(child, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+          LOGGER.debug("Skipping storage entry removed while listing its folder: " + child);
+          continue;
+        }
+        if (attributes.isRegularFile()) {
+          BasicStorageFile file = new BasicStorageFile();
+          file.setPath(child);
+          file.setName(child.getFileName().toString());
+          file.setUrl(getObjectUrl(child));
+          file.setSize(attributes.size());
+          files.add(file);
+        } else if (attributes.isDirectory()) {
+          BasicStorageFolder folder = new BasicStorageFolder();
+          folder.setName(child.getFileName().toString());
+          folder.setPath(child);
+          folder.setUrl(getObjectUrl(child));
+          subFolders.add(folder);
+        }
+      }
     } catch (IOException e) {
       throw new StudyTrackerException(e);
     }
+    return new FolderListingCache.Listing(files, subFolders);
+  }
+
+  private static boolean isPartFile(Path path) {
+    return isPartFileName(path.getFileName().toString());
+  }
+
+  static boolean isPartFileName(String name) {
+    return name.startsWith(PART_PREFIX) && name.endsWith(PART_SUFFIX);
   }
 
   /**
-   * Returns {@link StorageFolder} instances for every subfolder in the target folder.
+   * Returns the folder at the target path, along with its cached contents.
    *
-   * @param path
-   * @return
+   * @param path folder path
+   * @param name name of the record the folder belongs to, for error reporting
+   * @return the folder
+   * @throws StudyStorageNotFoundException if the folder does not exist
    */
-  private List<StorageFolder> getSubfolders(Path path) {
+  private StorageFolder getFolder(Path path, String name) throws StudyStorageNotFoundException {
+    if (!Files.isDirectory(path)) {
+      throw new StudyStorageNotFoundException(name);
+    }
+    FolderListingCache.Listing listing = listingCache.get(path, this::readFolder);
+    BasicStorageFolder folder = new BasicStorageFolder();
+    folder.setPath(path);
+    folder.setName(path.getFileName().toString());
+    folder.setUrl(getObjectUrl(path));
+    folder.setFiles(listing.getFiles());
+    folder.setSubFolders(listing.getSubFolders());
+    return folder;
+  }
+
+  private StorageFile saveFile(File file, Path folderPath) throws StudyStorageException {
+    try (InputStream inputStream = Files.newInputStream(file.toPath())) {
+      return saveFile(file.getName(), inputStream, folderPath);
+    } catch (IOException e) {
+      throw new StudyStorageWriteException("Failed to read file: " + file, e);
+    }
+  }
+
+  /**
+   * Streams the content into a hidden part file in the target folder, then commits it into place
+   * with {@link #commitFile(Path, Path, String)}, so that readers never see a partially written
+   * file and an existing file is only replaced once the new content is complete.
+   *
+   * @param fileName name of the new file
+   * @param inputStream file content
+   * @param folderPath target folder
+   * @return the new file, with its size and checksum
+   */
+  private StorageFile saveFile(String fileName, InputStream inputStream, Path folderPath)
+      throws StudyStorageException {
+    Path newFilePath = folderPath.resolve(StorageUtils.getUploadFileName(fileName));
+    UploadStream upload = UploadStream.of(inputStream);
+    Path partPath = null;
     try {
-      return Files.walk(path, 1)
-          .filter(Files::isDirectory)
-          .map(d -> {
-            BasicStorageFolder folder = new BasicStorageFolder();
-            folder.setName(d.toFile().getName());
-            folder.setPath(d);
-            folder.setUrl(getObjectUrl(d));
-            return folder;
-          })
-          .collect(Collectors.toList());
+      partPath = Files.createTempFile(folderPath, PART_PREFIX, PART_SUFFIX);
+      try (FileChannel channel = FileChannel.open(partPath, StandardOpenOption.WRITE);
+          ReadableByteChannel source = Channels.newChannel(upload)) {
+        long position = 0L;
+        long transferred;
+        while ((transferred = channel.transferFrom(source, position, TRANSFER_CHUNK_SIZE)) > 0) {
+          position += transferred;
+        }
+      }
+      commitFile(partPath, newFilePath, upload.getChecksum());
+    } catch (UploadStream.SizeLimitExceededException e) {
+      throw new StudyStorageLimitExceededException(e.getMessage(), e);
     } catch (IOException e) {
-      throw new StudyTrackerException(e);
+      throw new StudyStorageWriteException("Failed to write file: " + newFilePath, e);
+    } finally {
+      if (partPath != null) {
+        FileUtils.deleteQuietly(partPath.toFile());
+      }
+      listingCache.invalidate(folderPath);
+    }
+    return createStorageFile(newFilePath, upload.getSize(), upload.getChecksum());
+  }
+
+  private BasicStorageFile createStorageFile(Path path, long size, String checksum) {
+    BasicStorageFile storageFile = new BasicStorageFile();
+    storageFile.setPath(path);
+    storageFile.setName(path.getFileName().toString());
+    storageFile.setUrl(getObjectUrl(path));
+    storageFile.setSize(size);
+    storageFile.setChecksum(checksum);
+    return storageFile;
+  }
+
+  /**
+   * Returns the path of a hidden part file in the study's storage folder, which may be written
+   * in place by a chunked upload and committed with {@link #commitPartFile(Path, String)}.
+   *
+   * @param study
+   * @param uploadId unique ID of the upload
+   * @return the part file path
+   * @throws StudyStorageNotFoundException if the study folder does not exist
+   */
+  public Path getStudyPartPath(Study study, String uploadId)
+      throws StudyStorageNotFoundException {
+    Path studyPath = getStudyPath(study);
+    if (!Files.isDirectory(studyPath)) {
+      throw new StudyStorageNotFoundException(study.getCode());
+    }
+    return studyPath.resolve(PART_PREFIX + uploadId + PART_SUFFIX);
+  }
+
+  /**
+   * Returns the path of a hidden part file in the assay's storage folder, which may be written
+   * in place by a chunked upload and committed with {@link #commitPartFile(Path, String)}.
+   *
+   * @param assay
+   * @param uploadId unique ID of the upload
+   * @return the part file path
+   * @throws StudyStorageNotFoundException if the assay folder does not exist
+   */
+  public Path getAssayPartPath(Assay assay, String uploadId)
+      throws StudyStorageNotFoundException {
+    Path assayPath = getAssayPath(assay);
+    if (!Files.isDirectory(assayPath)) {
+      throw new StudyStorageNotFoundException(assay.getCode());
+    }
+    return assayPath.resolve(PART_PREFIX + uploadId + PART_SUFFIX);
+  }
+
+  /**
+   * Commits a fully written part file to a file of the given name in the same folder. The
+   * content is only read back to compute its checksum when the service requires one to commit
+   * it, so a plain local commit is a single rename.
+   *
+   * @param partPath part file returned by {@link #getStudyPartPath(Study, String)} or {@link
+   * #getAssayPartPath(Assay, String)}
+   * @param fileName name of the new file
+   * @return the new file
+   */
+  public StorageFile commitPartFile(Path partPath, String fileName)
+      throws StudyStorageException {
+    if (!isPartFile(partPath) || !Files.isRegularFile(partPath)) {
+      throw new StudyStorageNotFoundException(partPath.getFileName().toString());
+    }
+    Path folderPath = partPath.getParent();
+    Path newFilePath = folderPath.resolve(StorageUtils.getUploadFileName(fileName));
+    try {
+      long size = Files.size(partPath);
+      String checksum = null;
+      if (isChecksumRequired()) {
+        try (UploadStream upload = UploadStream.of(Files.newInputStream(partPath))) {
+          IOUtils.copyLarge(upload, NullOutputStream.NULL_OUTPUT_STREAM);
+          checksum = upload.getChecksum();
+        }
+      }
+      commitFile(partPath, newFilePath, checksum);
+      return createStorageFile(newFilePath, size, checksum);
+    } catch (IOException e) {
+      throw new StudyStorageWriteException("Failed to write file: " + newFilePath, e);
+    } finally {
+      listingCache.invalidate(folderPath);
+    }
+  }
+
+  /**
+   * Whether {@link #commitFile(Path, Path, String)} needs the checksum of the committed content.
+   *
+   * @return false, as files are moved into place without inspecting their content
+   */
+  protected boolean isChecksumRequired() {
+    return false;
+  }
+
+  /**
+   * Moves a fully written part file to its final location, replacing any existing file.
+   *
+   * @param partPath the written content
+   * @param target final file path
+   * @param checksum SHA-256 checksum of the content, which may be null if {@link
+   * #isChecksumRequired()} is false
+   */
+  protected void commitFile(Path partPath, Path target, String checksum) throws IOException {
+    move(partPath, target);
+  }
+
+  protected static void move(Path source, Path target) throws IOException {
+    try {
+      Files.move(source, target, StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
     }
   }
 
   @Override
   public StorageFolder getProgramFolder(Program program) throws StudyStorageNotFoundException {
-    Path path = rootPath.resolve(StorageUtils.getProgramFolderName(program));
-    File file = path.toFile();
-    if (!file.isDirectory() || !file.exists()) {
-      throw new StudyStorageNotFoundException(program.getName());
-    }
-    BasicStorageFolder folder = new BasicStorageFolder();
-    folder.setPath(path);
-    folder.setName(file.getName());
-    folder.setUrl(getObjectUrl(path));
-    folder.setFiles(getFolderFiles(path));
-    folder.setSubFolders(getSubfolders(path));
-    return folder;
+    return getFolder(getProgramPath(program), program.getName());
   }
 
   @Override
   public StorageFolder getStudyFolder(Study study) throws StudyStorageNotFoundException {
     LOGGER.info("Fetching storage folder instance for study: " + study.getCode());
-    StorageFolder programFolder = this.getProgramFolder(study.getProgram());
-    Path programPath = Paths.get(programFolder.getPath());
-    Path studyFolder = programPath.resolve(StorageUtils.getStudyFolderName(study));
-    LOGGER.debug(studyFolder.toString());
-    File file = studyFolder.toFile();
-    if (!file.isDirectory() || !file.exists()) {
-      throw new StudyStorageNotFoundException(study.getCode());
-    }
-    BasicStorageFolder folder = new BasicStorageFolder();
-    folder.setPath(studyFolder);
-    folder.setName(file.getName());
-    folder.setUrl(getObjectUrl(studyFolder));
-    folder.setFiles(getFolderFiles(studyFolder));
-    folder.setSubFolders(getSubfolders(studyFolder));
-    return folder;
+    return getFolder(getStudyPath(study), study.getCode());
   }
 
   @Override
   public StorageFolder getAssayFolder(Assay assay) throws StudyStorageNotFoundException {
     LOGGER.info("Fetching storage folder instance for assay: " + assay.getCode());
-    StorageFolder studyFolder = this.getStudyFolder(assay.getStudy());
-    Path studyPath = Paths.get(studyFolder.getPath());
-    Path assayFolder = studyPath.resolve(StorageUtils.getAssayFolderName(assay));
-    File file = assayFolder.toFile();
-    if (!file.isDirectory() || !file.exists()) {
-      throw new StudyStorageNotFoundException(assay.getCode());
-    }
-    BasicStorageFolder folder = new BasicStorageFolder();
-    folder.setPath(assayFolder);
-    folder.setName(file.getName());
-    folder.setUrl(getObjectUrl(assayFolder));
-    folder.setFiles(getFolderFiles(assayFolder));
-    folder.setSubFolders(getSubfolders(assayFolder));
-    return folder;
+    return getFolder(getAssayPath(assay), assay.getCode());
   }
 
   @Override
@@ -189,6 +383,7 @@ public class LocalFileSystemStudyStorageService implements StudyStorageService {
             "Failed to create program folder: " + newFolder.getAbsolutePath());
       }
     }
+    listingCache.invalidate(rootPath);
     StorageFolder folder = new BasicStorageFolder();
     folder.setName(newFolder.getName());
     folder.setPath(programPath);
@@ -199,8 +394,10 @@ public class LocalFileSystemStudyStorageService implements StudyStorageService {
   @Override
   public StorageFolder createStudyFolder(Study study) throws StudyStorageException {
     LOGGER.info("Creating storage folder instance for study: " + study.getCode());
-    StorageFolder programFolder = this.getProgramFolder(study.getProgram());
-    Path programPath = Paths.get(programFolder.getPath());
+    Path programPath = getProgramPath(study.getProgram());
+    if (!Files.isDirectory(programPath)) {
+      throw new StudyStorageNotFoundException(study.getProgram().getName());
+    }
     Path studyPath = programPath.resolve(StorageUtils.getStudyFolderName(study));
     File newFolder = studyPath.toFile();
     if (newFolder.exists()) {
@@ -224,6 +421,7 @@ public class LocalFileSystemStudyStorageService implements StudyStorageService {
             "Failed to create study folder: " + newFolder.getAbsolutePath());
       }
     }
+    listingCache.invalidate(programPath);
     StorageFolder folder = new BasicStorageFolder();
     folder.setName(newFolder.getName());
     folder.setPath(studyPath);
@@ -235,8 +433,10 @@ public class LocalFileSystemStudyStorageService implements StudyStorageService {
   @Override
   public StorageFolder createAssayFolder(Assay assay) throws StudyStorageException {
     LOGGER.info("Creating storage folder instance for assay: " + assay.getCode());
-    StorageFolder studyFolder = this.getStudyFolder(assay.getStudy());
-    Path studyPath = Paths.get(studyFolder.getPath());
+    Path studyPath = getStudyPath(assay.getStudy());
+    if (!Files.isDirectory(studyPath)) {
+      throw new StudyStorageNotFoundException(assay.getStudy().getCode());
+    }
     Path assayPath = studyPath.resolve(StorageUtils.getAssayFolderName(assay));
     File newFolder = assayPath.toFile();
     if (newFolder.exists()) {
@@ -260,6 +460,7 @@ public class LocalFileSystemStudyStorageService implements StudyStorageService {
             "Failed to create assay folder: " + newFolder.getAbsolutePath());
       }
     }
+    listingCache.invalidate(studyPath);
     StorageFolder folder = new BasicStorageFolder();
     folder.setName(newFolder.getName());
     folder.setPath(assayPath);
@@ -272,38 +473,86 @@ public class LocalFileSystemStudyStorageService implements StudyStorageService {
   public StorageFile saveStudyFile(File file, Study study) throws StudyStorageException {
     LOGGER.info(String.format("Saving file %s to storage folder instance for study %s",
         file.getName(), study.getCode()));
-    StorageFolder studyFolder = this.getStudyFolder(study);
-    Path studyPath = Paths.get(studyFolder.getPath());
-    Path newFilePath = studyPath.resolve(file.getName());
-    File newFile = newFilePath.toFile();
-    try {
-      FileUtils.copyFile(file, newFile);
-    } catch (Exception e) {
-      throw new StudyTrackerException(e);
+    Path studyPath = getStudyPath(study);
+    if (!Files.isDirectory(studyPath)) {
+      throw new StudyStorageNotFoundException(study.getCode());
     }
-    StorageFile studyFile = new BasicStorageFile();
-    studyFile.setPath(newFilePath);
-    studyFile.setUrl(getObjectUrl(newFilePath));
-    return studyFile;
+    return saveFile(file, studyPath);
   }
 
   @Override
   public StorageFile saveAssayFile(File file, Assay assay) throws StudyStorageException {
     LOGGER.info(String.format("Saving file %s to storage folder instance for assay %s",
         file.getName(), assay.getCode()));
-    StorageFolder assayFolder = this.getAssayFolder(assay);
-    Path assayPath = Paths.get(assayFolder.getPath());
-    Path newFilePath = assayPath.resolve(file.getName());
-    File newFile = newFilePath.toFile();
+    Path assayPath = getAssayPath(assay);
+    if (!Files.isDirectory(assayPath)) {
+      throw new StudyStorageNotFoundException(assay.getCode());
+    }
+    return saveFile(file, assayPath);
+  }
+
+  /**
+   * Returns the path of a file at the top level of the study's storage folder.
+   *
+   * @param study
+   * @param fileName name of the file
+   * @return the file path
+   * @throws StudyStorageNotFoundException if the file does not exist
+   */
+  public Path getStudyFilePath(Study study, String fileName)
+      throws StudyStorageNotFoundException {
+    return getFilePath(getStudyPath(study), fileName);
+  }
+
+  /**
+   * Returns the path of a file at the top level of the assay's storage folder.
+   *
+   * @param assay
+   * @param fileName name of the file
+   * @return the file path
+   * @throws StudyStorageNotFoundException if the file does not exist
+   */
+  public Path getAssayFilePath(Assay assay, String fileName)
+      throws StudyStorageNotFoundException {
+    return getFilePath(getAssayPath(assay), fileName);
+  }
+
+  private static Path getFilePath(Path folderPath, String fileName)
+      throws StudyStorageNotFoundException {
+    Path path;
     try {
-      FileUtils.copyFile(file, newFile);
-    } catch (Exception e) {
-      throw new StudyTrackerException(e);
+      path = folderPath.resolve(StorageUtils.getUploadFileName(fileName));
+    } catch (StudyStorageWriteException e) {
+      throw new StudyStorageNotFoundException(fileName);
+    }
+    if (isPartFile(path) || !Files.isRegularFile(path)) {
+      throw new StudyStorageNotFoundException(fileName);
+    }
+    return path;
+  }
+
+  @Override
+  public StorageFile saveStudyFile(String fileName, InputStream inputStream, Study study)
+      throws StudyStorageException {
+    LOGGER.info(String.format("Streaming file %s to storage folder instance for study %s",
+        fileName, study.getCode()));
+    Path studyPath = getStudyPath(study);
+    if (!Files.isDirectory(studyPath)) {
+      throw new StudyStorageNotFoundException(study.getCode());
     }
-    StorageFile assayFile = new BasicStorageFile();
-    assayFile.setPath(newFilePath);
-    assayFile.setUrl(getObjectUrl(newFilePath));
-    return assayFile;
+    return saveFile(fileName, inputStream, studyPath);
+  }
+
+  @Override
+  public StorageFile saveAssayFile(String fileName, InputStream inputStream, Assay assay)
+      throws StudyStorageException {
+    LOGGER.info(String.format("Streaming file %s to storage folder instance for assay %s",
+        fileName, assay.getCode()));
+    Path assayPath = getAssayPath(assay);
+    if (!Files.isDirectory(assayPath)) {
+      throw new StudyStorageNotFoundException(assay.getCode());
+    }
+    return saveFile(fileName, inputStream, assayPath);
   }
 
   public void setOverwriteExisting(boolean overwriteExisting) {
@@ -313,4 +562,9 @@ public class LocalFileSystemStudyStorageService implements StudyStorageService {
   public void setUseExisting(boolean useExisting) {
     this.useExisting = useExisting;
   }
+
+  @Override
+  public void destroy() throws IOException {
+    listingCache.close();
+  }
 }
@@ -16,10 +16,18 @@
 
 package com.decibeltx.studytracker.core.storage;
 
-
 import com.decibeltx.studytracker.core.model.Assay;
 import com.decibeltx.studytracker.core.model.Program;
 import com.decibeltx.studytracker.core.model.Study;
+import com.decibeltx.studytracker.core.storage.exception.StudyStorageException;
+import com.decibeltx.studytracker.core.storage.exception.StudyStorageLimitExceededException;
+import com.decibeltx.studytracker.core.storage.exception.StudyStorageWriteException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.apache.commons.io.FileUtils;
 
 public class StorageUtils {
 
@@ -35,4 +43,54 @@ public class StorageUtils {
     return assay.getName() + " (" + assay.getCode() + ")";
   }
 
+  /**
+   * Returns the file name of an upload, rejecting names that would resolve outside of the target
+   * folder or clash with a partial upload.
+   *
+   * @param fileName requested file name
+   * @return the file name
+   * @throws StudyStorageWriteException if the name is empty, contains a path, is {@code .} or
+   *     {@code ..}, or has the form of a partial upload file
+   */
+  public static String getUploadFileName(String fileName) throws StudyStorageWriteException {
+    if (fileName == null || fileName.trim().isEmpty() || fileName.equals(".")
+        || fileName.equals("..") || fileName.contains("/") || fileName.contains("\\")
+        || LocalFileSystemStudyStorageService.isPartFileName(fileName)) {
+      throw new StudyStorageWriteException("Invalid file name: " + fileName);
+    }
+    return fileName;
+  }
+
+  /**
+   * Writes streamed upload content to a file of the same name in a new temporary directory, for
+   * storage services that can only upload existing files.
+   *
+   * @param fileName name of the uploaded file
+   * @param inputStream file content
+   * @return the temporary file
+   * @throws StudyStorageException if the content cannot be written
+   */
+  public static File spoolToTempFile(String fileName, InputStream inputStream)
+      throws StudyStorageException {
+    try {
+      Path directory = Files.createTempDirectory("study-tracker-upload");
+      Path path = directory.resolve(getUploadFileName(fileName));
+      Files.copy(inputStream, path);
+      return path.toFile();
+    } catch (UploadStream.SizeLimitExceededException e) {
+      throw new StudyStorageLimitExceededException(e.getMessage(), e);
+    } catch (IOException e) {
+      throw new StudyStorageWriteException("Failed to write upload: " + fileName, e);
+    }
+  }
+
+  /**
+   * Deletes a file created by {@link #spoolToTempFile(String, InputStream)} and its directory.
+   *
+   * @param file the temporary file
+   */
+  public static void deleteTempFile(File file) {
+    FileUtils.deleteQuietly(file.getParentFile());
+  }
+
 }
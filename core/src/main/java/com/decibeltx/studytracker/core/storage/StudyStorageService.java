@@ -21,9 +21,11 @@ import com.decibeltx.studytracker.core.model.Program;
 import com.decibeltx.studytracker.core.model.Study;
 import com.decibeltx.studytracker.core.storage.exception.StudyStorageDuplicateException;
 import com.decibeltx.studytracker.core.storage.exception.StudyStorageException;
+import com.decibeltx.studytracker.core.storage.exception.StudyStorageLimitExceededException;
 import com.decibeltx.studytracker.core.storage.exception.StudyStorageNotFoundException;
 import com.decibeltx.studytracker.core.storage.exception.StudyStorageWriteException;
 import java.io.File;
+import java.io.InputStream;
 
 /**
  * Base interface for a service that reads and writes study files to a connected file system.
@@ -111,4 +113,45 @@ public interface StudyStorageService {
    */
   StorageFile saveAssayFile(File file, Assay assay) throws StudyStorageException;
 
+  /**
+   * Writes streamed content to a file in the directory for the target {@link Study}, without
+   * staging it elsewhere first where the storage system allows it. The default implementation
+   * spools the content to a temporary file and passes it to {@link #saveStudyFile(File, Study)}.
+   * Throws a {@link StudyStorageLimitExceededException} if the content is larger than the limit
+   * of the supplied {@link UploadStream}.
+   *
+   * @param fileName name of the new file
+   * @param inputStream file content
+   * @param study
+   * @return
+   */
+  default StorageFile saveStudyFile(String fileName, InputStream inputStream, Study study)
+      throws StudyStorageException {
+    File file = StorageUtils.spoolToTempFile(fileName, inputStream);
+    try {
+      return saveStudyFile(file, study);
+    } finally {
+      StorageUtils.deleteTempFile(file);
+    }
+  }
+
+  /**
+   * Writes streamed content to a file in the directory for the target {@link Assay}. See {@link
+   * #saveStudyFile(String, InputStream, Study)}.
+   *
+   * @param fileName name of the new file
+   * @param inputStream file content
+   * @param assay
+   * @return
+   */
+  default StorageFile saveAssayFile(String fileName, InputStream inputStream, Assay assay)
+      throws StudyStorageException {
+    File file = StorageUtils.spoolToTempFile(fileName, inputStream);
+    try {
+      return saveAssayFile(file, assay);
+    } finally {
+      StorageUtils.deleteTempFile(file);
+    }
+  }
+
 }
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.decibeltx.studytracker.core.storage;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Wraps the content of an uploaded file, counting the bytes read and computing their SHA-256
+ * checksum in the same pass. Reading past the configured maximum size fails with a {@link
+ * SizeLimitExceededException}, so oversized uploads are rejected without being fully written.
+ */
+public class UploadStream extends FilterInputStream {
+
+  private final long maxSize;
+
+  private final MessageDigest digest;
+
+  private long size = 0L;
+
+  private String checksum;
+
+  public UploadStream(InputStream inputStream, long maxSize) {
+    super(inputStream);
+    this.maxSize = maxSize;
+    try {
+      this.digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Returns the stream as an {@link UploadStream}, wrapping it without a size limit if it is not
+   * one already.
+   *
+   * @param inputStream upload content
+   * @return the upload stream
+   */
+  public static UploadStream of(InputStream inputStream) {
+    return inputStream instanceof UploadStream
+        ? (UploadStream) inputStream
+        : new UploadStream(inputStream, Long.MAX_VALUE);
+  }
+
+  @Override
+  public int read() throws IOException {
+    int b = super.read();
+    if (b != -1) {
+      digest.update((byte) b);
+      count(1);
+    }
+    return b;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    int n = super.read(b, off, len);
+    if (n > 0) {
+      digest.update(b, off, n);
+      count(n);
+    }
+    return n;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    throw new IOException("Skipping is not supported for uploads");
+  }
+
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+  private void count(int n) throws SizeLimitExceededException {
+    size += n;
+    if (size > maxSize) {
+      throw new SizeLimitExceededException(maxSize);
+    }
+  }
+
+  /**
+   * Returns the number of bytes read so far.
+   *
+   * @return bytes read
+   */
+  public long getSize() {
+    return size;
+  }
+
+  /**
+   * Returns the hex-encoded SHA-256 checksum of the content. Should only be called once the
+   * stream has been read to the end.
+   *
+   * @return checksum
+   */
+  public String getChecksum() {
+    if (checksum == null) {
+      StringBuilder builder = new StringBuilder();
+      for (byte b : digest.digest()) {
+        builder.append(String.format("%02x", b));
+      }
+      checksum = builder.toString();
+    }
+    return checksum;
+  }
+
+  /**
+   * Thrown when an upload is larger than the permitted size.
+   */
+  public static class SizeLimitExceededException extends IOException {
+
+    public SizeLimitExceededException(long maxSize) {
+      super("Upload exceeds the maximum size of " + maxSize + " bytes");
+    }
+
+  }
+
+}
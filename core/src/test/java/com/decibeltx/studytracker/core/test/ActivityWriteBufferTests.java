@@ -0,0 +1,158 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.test;
+
+import com.decibeltx.studytracker.core.events.ActivityWriteBuffer;
+import com.decibeltx.studytracker.core.events.NewActivityEvent;
+import com.decibeltx.studytracker.core.events.StudyEvent.Type;
+import com.decibeltx.studytracker.core.example.ExampleDataGenerator;
+import com.decibeltx.studytracker.core.exception.RecordNotFoundException;
+import com.decibeltx.studytracker.core.model.Activity;
+import com.decibeltx.studytracker.core.model.Study;
+import com.decibeltx.studytracker.core.model.User;
+import com.decibeltx.studytracker.core.repository.ActivityRepository;
+import com.decibeltx.studytracker.core.repository.StudyRepository;
+import com.decibeltx.studytracker.core.repository.UserRepository;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = TestConfiguration.class)
+@ActiveProfiles({"example"})
+public class ActivityWriteBufferTests {
+
+  @Autowired
+  private MongoOperations mongoOperations;
+
+  @Autowired
+  private ActivityRepository activityRepository;
+
+  @Autowired
+  private StudyRepository studyRepository;
+
+  @Autowired
+  private UserRepository userRepository;
+
+  @Autowired
+  private ExampleDataGenerator exampleDataGenerator;
+
+  @Before
+  public void doBefore() {
+    exampleDataGenerator.populateDatabase();
+  }
+
+  private Activity newActivity(Study study, Date date) {
+    User user = userRepository.findByAccountName("jsmith")
+        .orElseThrow(RecordNotFoundException::new);
+    Activity activity = new Activity();
+    activity.setStudy(study);
+    activity.setUser(user);
+    activity.setAction(Type.UPDATED_STUDY.toString());
+    activity.setDate(date);
+    return activity;
+  }
+
+  @Test
+  public void bufferedWriteTest() throws Exception {
+    Study study = studyRepository.findByCode("CPA-10001")
+        .orElseThrow(RecordNotFoundException::new);
+    long count = activityRepository.count();
+    Date date = new Date(System.currentTimeMillis() + 60000L);
+    List<Object> events = new ArrayList<>();
+    ActivityWriteBuffer buffer = new ActivityWriteBuffer(mongoOperations, events::add, true,
+        3, 1, TimeUnit.HOURS);
+
+    buffer.add(newActivity(study, new Date()));
+    buffer.add(newActivity(study, date));
+    Assert.assertEquals(2, buffer.getPendingCount());
+    Assert.assertEquals(count, activityRepository.count());
+
+    // Reaching the batch size triggers a flush
+    buffer.add(newActivity(study, new Date()));
+    Assert.assertEquals(0, buffer.getPendingCount());
+    Assert.assertEquals(count + 3, activityRepository.count());
+    Assert.assertEquals(1, buffer.getFlushCount());
+    Assert.assertEquals(3, buffer.getLargestBatchSize());
+    study = studyRepository.findByCode("CPA-10001").orElseThrow(RecordNotFoundException::new);
+    Assert.assertEquals(date, study.getUpdatedAt());
+    Assert.assertEquals(1, events.size());
+    NewActivityEvent event = (NewActivityEvent) events.get(0);
+    Assert.assertEquals(3, event.getActivities().size());
+    for (Activity activity : event.getActivities()) {
+      Assert.assertTrue(activityRepository.existsById(activity.getId()));
+    }
+
+    // Remaining records are written on shutdown
+    buffer.add(newActivity(study, new Date()));
+    buffer.destroy();
+    Assert.assertEquals(count + 4, activityRepository.count());
+    Assert.assertEquals(4, buffer.getWrittenCount());
+    Assert.assertEquals(0, buffer.getFailedCount());
+  }
+
+  @Test
+  public void bulkFailureFallbackTest() throws Exception {
+    Study study = studyRepository.findByCode("CPA-10001")
+        .orElseThrow(RecordNotFoundException::new);
+    long count = activityRepository.count();
+    List<Object> events = new ArrayList<>();
+    ActivityWriteBuffer buffer = new ActivityWriteBuffer(mongoOperations, events::add, true,
+        100, 1, TimeUnit.HOURS);
+    Activity existing = newActivity(study, new Date());
+    buffer.add(existing);
+    buffer.flush();
+    Assert.assertEquals(count + 1, activityRepository.count());
+
+    // The duplicate fails the bulk insert, but the rest of the batch is still written
+    Activity activity = newActivity(study, new Date());
+    buffer.add(existing);
+    buffer.add(activity);
+    buffer.flush();
+    Assert.assertEquals(count + 2, activityRepository.count());
+    Assert.assertTrue(activityRepository.existsById(activity.getId()));
+    Assert.assertEquals(0, buffer.getPendingCount());
+    Assert.assertEquals(0, buffer.getFailedCount());
+    Assert.assertEquals(2, events.size());
+    buffer.destroy();
+  }
+
+  @Test
+  public void unbufferedWriteTest() {
+    Study study = studyRepository.findByCode("CPA-10001")
+        .orElseThrow(RecordNotFoundException::new);
+    long count = activityRepository.count();
+    List<Object> events = new ArrayList<>();
+    ActivityWriteBuffer buffer = new ActivityWriteBuffer(mongoOperations, events::add, false,
+        100, 1, TimeUnit.HOURS);
+    buffer.add(newActivity(study, new Date()));
+    Assert.assertEquals(count + 1, activityRepository.count());
+    Assert.assertEquals(1, events.size());
+  }
+
+}
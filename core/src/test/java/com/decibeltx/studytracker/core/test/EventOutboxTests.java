@@ -0,0 +1,162 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.test;
+
+import com.decibeltx.studytracker.core.events.StudyEvent;
+import com.decibeltx.studytracker.core.events.StudyEvent.Type;
+import com.decibeltx.studytracker.core.events.StudyEventData;
+import com.decibeltx.studytracker.core.events.outbox.EventOutbox;
+import com.decibeltx.studytracker.core.example.ExampleDataGenerator;
+import com.decibeltx.studytracker.core.exception.RecordNotFoundException;
+import com.decibeltx.studytracker.core.model.Assay;
+import com.decibeltx.studytracker.core.model.OutboxEvent;
+import com.decibeltx.studytracker.core.model.OutboxEvent.Status;
+import com.decibeltx.studytracker.core.model.Study;
+import com.decibeltx.studytracker.core.model.User;
+import com.decibeltx.studytracker.core.repository.StudyRepository;
+import com.decibeltx.studytracker.core.repository.UserRepository;
+import java.util.List;
+import org.bson.Document;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = TestConfiguration.class)
+@ActiveProfiles({"example"})
+public class EventOutboxTests {
+
+  @Autowired
+  private EventOutbox eventOutbox;
+
+  @Autowired
+  private MongoOperations mongoOperations;
+
+  @Autowired
+  private StudyRepository studyRepository;
+
+  @Autowired
+  private UserRepository userRepository;
+
+  @Autowired
+  private ExampleDataGenerator exampleDataGenerator;
+
+  @Before
+  public void doBefore() {
+    exampleDataGenerator.populateDatabase();
+    mongoOperations.dropCollection(OutboxEvent.class);
+  }
+
+  private StudyEvent newStudyEvent() {
+    Study study = studyRepository.findByCode("CPA-10001")
+        .orElseThrow(RecordNotFoundException::new);
+    User user = userRepository.findByAccountName("jsmith")
+        .orElseThrow(RecordNotFoundException::new);
+    return new StudyEvent(this, study, user, Type.NEW_STUDY, null);
+  }
+
+  @Test
+  public void claimAndCompleteTest() {
+    OutboxEvent stored = eventOutbox.enqueue("listener", newStudyEvent());
+    Assert.assertNotNull(stored.getId());
+    Assert.assertEquals(1, eventOutbox.count(Status.PENDING));
+
+    List<OutboxEvent> claimed = eventOutbox.claim("worker-1", 10);
+    Assert.assertEquals(1, claimed.size());
+    OutboxEvent outboxEvent = claimed.get(0);
+    Assert.assertEquals(Status.PROCESSING, outboxEvent.getStatus());
+    Assert.assertEquals("worker-1", outboxEvent.getLeaseOwner());
+    Assert.assertEquals(1, outboxEvent.getAttempts());
+    Assert.assertEquals(Type.NEW_STUDY.toString(), outboxEvent.getType());
+    Assert.assertTrue(eventOutbox.claim("worker-2", 10).isEmpty());
+
+    eventOutbox.complete(outboxEvent);
+    Assert.assertEquals(1, eventOutbox.count(Status.COMPLETE));
+    Assert.assertTrue(eventOutbox.claim("worker-1", 10).isEmpty());
+  }
+
+  @Test
+  public void assayPayloadTest() {
+    Study study = studyRepository.findByCode("CPA-10001")
+        .orElseThrow(RecordNotFoundException::new);
+    Assay assay = mongoOperations.findOne(new Query(), Assay.class);
+    Assert.assertNotNull(assay);
+    OutboxEvent stored = eventOutbox.enqueue("listener", new StudyEvent(this, study,
+        study.getCreatedBy(), Type.NEW_ASSAY, StudyEventData.ofAssay(assay)));
+
+    Document document = mongoOperations.findById(stored.getId(), Document.class,
+        mongoOperations.getCollectionName(OutboxEvent.class));
+    Assert.assertNotNull(document);
+    Assert.assertEquals(new Document("assayId", assay.getId()), document.get("data"));
+    OutboxEvent outboxEvent = eventOutbox.claim("worker-1", 10).get(0);
+    Assert.assertEquals(assay.getId(), outboxEvent.getData().getAssayId());
+  }
+
+  @Test
+  public void retryWithBackoffTest() {
+    eventOutbox.enqueue("listener", newStudyEvent());
+    OutboxEvent outboxEvent = eventOutbox.claim("worker-1", 10).get(0);
+    eventOutbox.fail(outboxEvent, new IllegalStateException("Service unavailable"));
+    Assert.assertEquals(1, eventOutbox.count(Status.PENDING));
+    Assert.assertTrue(eventOutbox.claim("worker-1", 10).isEmpty());
+    OutboxEvent failed = mongoOperations.findById(outboxEvent.getId(), OutboxEvent.class);
+    Assert.assertNotNull(failed);
+    Assert.assertTrue(failed.getNextAttemptAt().getTime() > System.currentTimeMillis());
+    Assert.assertTrue(failed.getLastError().contains("Service unavailable"));
+  }
+
+  @Test
+  public void deadLetterTest() {
+    EventOutbox outbox = new EventOutbox(mongoOperations, 2, 60000L, 0L, 0L);
+    outbox.enqueue("listener", newStudyEvent());
+    outbox.fail(outbox.claim("worker-1", 10).get(0), new IllegalStateException());
+    OutboxEvent outboxEvent = outbox.claim("worker-1", 10).get(0);
+    Assert.assertEquals(2, outboxEvent.getAttempts());
+    outbox.fail(outboxEvent, new IllegalStateException());
+    Assert.assertEquals(1, outbox.count(Status.DEAD));
+    Assert.assertTrue(outbox.claim("worker-1", 10).isEmpty());
+
+    Assert.assertTrue(outbox.retry(outboxEvent.getId()));
+    Assert.assertEquals(1, outbox.claim("worker-1", 10).size());
+  }
+
+  @Test
+  public void expiredLeaseTest() throws Exception {
+    EventOutbox outbox = new EventOutbox(mongoOperations, 10, 0L, 0L, 0L);
+    outbox.enqueue("listener", newStudyEvent());
+    OutboxEvent first = outbox.claim("worker-1", 10).get(0);
+    Thread.sleep(10);
+    OutboxEvent second = outbox.claim("worker-2", 10).get(0);
+    Assert.assertEquals(first.getId(), second.getId());
+    Assert.assertEquals("worker-2", second.getLeaseOwner());
+
+    // The original worker no longer holds the lease, so its result is ignored
+    outbox.complete(first);
+    Assert.assertEquals(0, outbox.count(Status.COMPLETE));
+    outbox.complete(second);
+    Assert.assertEquals(1, outbox.count(Status.COMPLETE));
+  }
+
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.test;
+
+import com.decibeltx.studytracker.core.events.StudyEvent;
+import com.decibeltx.studytracker.core.events.StudyEvent.Type;
+import com.decibeltx.studytracker.core.events.StudyEventDispatcher;
+import com.decibeltx.studytracker.core.model.Study;
+import com.decibeltx.studytracker.core.model.User;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StudyEventDispatcherTests {
+
+  private static StudyEvent event(String studyId) {
+    Study study = new Study();
+    study.setId(studyId);
+    return new StudyEvent(StudyEventDispatcherTests.class, study, new User(), Type.UPDATED_STUDY,
+        null);
+  }
+
+  @Test
+  public void perStudyOrderingTest() throws Exception {
+    StudyEventDispatcher dispatcher = new StudyEventDispatcher(true, 4, 1000);
+    Map<String, List<Integer>> received = new HashMap<>();
+    for (int s = 0; s < 10; s++) {
+      received.put("study-" + s, Collections.synchronizedList(new ArrayList<>()));
+    }
+    for (int i = 0; i < 100; i++) {
+      for (String id : received.keySet()) {
+        int sequence = i;
+        dispatcher.dispatch(event(id), () -> received.get(id).add(sequence));
+      }
+    }
+    dispatcher.destroy();
+    for (List<Integer> values : received.values()) {
+      Assert.assertEquals(100, values.size());
+      for (int i = 0; i < 100; i++) {
+        Assert.assertEquals(i, values.get(i).intValue());
+      }
+    }
+    Assert.assertEquals(1000, dispatcher.getSubmittedCount());
+    Assert.assertEquals(0, dispatcher.getBlockedCount());
+  }
+
+  @Test
+  public void fullQueueBlocksPublisherTest() throws Exception {
+    StudyEventDispatcher dispatcher = new StudyEventDispatcher(true, 1, 1);
+    CountDownLatch latch = new CountDownLatch(1);
+    List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+    dispatcher.dispatch(event("a"), () -> {
+      try {
+        latch.await(10, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      received.add(1);
+    });
+    dispatcher.dispatch(event("a"), () -> received.add(2));
+    Thread publisher = new Thread(() -> dispatcher.dispatch(event("a"), () -> received.add(3)));
+    publisher.start();
+    publisher.join(200);
+    Assert.assertTrue(publisher.isAlive());
+    latch.countDown();
+    publisher.join(10000);
+    Assert.assertFalse(publisher.isAlive());
+    dispatcher.destroy();
+    Assert.assertEquals(Arrays.asList(1, 2, 3), received);
+    Assert.assertEquals(1, dispatcher.getBlockedCount());
+  }
+
+  @Test
+  public void otherPartitionWorkerWaitsTest() throws Exception {
+    StudyEventDispatcher dispatcher = new StudyEventDispatcher(true, 2, 1);
+    String a = "a";
+    String b = "b";
+    while (Math.floorMod(b.hashCode(), 2) == Math.floorMod(a.hashCode(), 2)) {
+      b = b + "b";
+    }
+    String other = b;
+    CountDownLatch latch = new CountDownLatch(1);
+    List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+    List<String> threads = Collections.synchronizedList(new ArrayList<>());
+    dispatcher.dispatch(event(other), () -> {
+      try {
+        latch.await(10, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      received.add(1);
+      threads.add(Thread.currentThread().getName());
+    });
+    dispatcher.dispatch(event(other), () -> received.add(2));
+    CountDownLatch published = new CountDownLatch(1);
+    dispatcher.dispatch(event(a), () -> {
+      dispatcher.dispatch(event(other), () -> {
+        received.add(3);
+        threads.add(Thread.currentThread().getName());
+      });
+      published.countDown();
+    });
+    Assert.assertFalse(published.await(200, TimeUnit.MILLISECONDS));
+    latch.countDown();
+    Assert.assertTrue(published.await(10, TimeUnit.SECONDS));
+    dispatcher.destroy();
+    Assert.assertEquals(Arrays.asList(1, 2, 3), received);
+    Assert.assertEquals(threads.get(0), threads.get(1));
+  }
+
+  @Test
+  public void disabledDispatcherTest() {
+    StudyEventDispatcher dispatcher = new StudyEventDispatcher(false, 4, 1000);
+    List<String> threads = new ArrayList<>();
+    dispatcher.dispatch(event("a"), () -> threads.add(Thread.currentThread().getName()));
+    Assert.assertEquals(Collections.singletonList(Thread.currentThread().getName()), threads);
+  }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.decibeltx.studytracker.core.test;
+
+import com.decibeltx.studytracker.core.events.StudyEvent;
+import com.decibeltx.studytracker.core.events.StudyEvent.Type;
+import com.decibeltx.studytracker.core.events.StudyEventMetrics;
+import com.decibeltx.studytracker.core.events.StudyEventMonitor;
+import com.decibeltx.studytracker.core.model.Study;
+import com.decibeltx.studytracker.core.model.User;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StudyEventMonitorTests {
+
+  private static StudyEvent event(Type type) {
+    Study study = new Study();
+    study.setId("study");
+    return new StudyEvent(StudyEventMonitorTests.class, study, new User(), type, null);
+  }
+
+  @Test
+  public void recordPublishAndListenerTest() {
+    List<String> published = new ArrayList<>();
+    List<String> listeners = new ArrayList<>();
+    StudyEventMetrics metrics = new StudyEventMetrics() {
+      @Override
+      public void recordPublish(String event, long nanos) {
+        published.add(event);
+      }
+
+      @Override
+      public void recordListener(String listener, String event, Outcome outcome, long nanos) {
+        listeners.add(listener + ":" + event + ":" + outcome);
+      }
+    };
+    StudyEventMonitor monitor = new StudyEventMonitor(0, TimeUnit.MILLISECONDS,
+        Collections.singletonList(metrics));
+    StudyEvent event = event(Type.NEW_STUDY);
+    monitor.publish(event, () -> {
+      monitor.recordListener("A#onEvent", event, StudyEventMetrics.Outcome.SUCCESS, 1000L);
+      monitor.publish(event(Type.UPDATED_STUDY), () -> { });
+      monitor.recordListener("B#onEvent", event, StudyEventMetrics.Outcome.DISPATCHED, 1000L);
+    });
+    Assert.assertEquals(2, published.size());
+    Assert.assertEquals("UPDATED_STUDY", published.get(0));
+    Assert.assertEquals("NEW_STUDY", published.get(1));
+    Assert.assertEquals(2, listeners.size());
+    Assert.assertEquals("A#onEvent:NEW_STUDY:SUCCESS", listeners.get(0));
+    Assert.assertEquals("B#onEvent:NEW_STUDY:DISPATCHED", listeners.get(1));
+  }
+
+  @Test
+  public void failingPublicationIsRecordedTest() {
+    List<String> published = new ArrayList<>();
+    StudyEventMetrics metrics = new StudyEventMetrics() {
+      @Override
+      public void recordPublish(String event, long nanos) {
+        published.add(event);
+      }
+
+      @Override
+      public void recordListener(String listener, String event, Outcome outcome, long nanos) {
+      }
+    };
+    StudyEventMonitor monitor = new StudyEventMonitor(500, TimeUnit.MILLISECONDS,
+        Collections.singletonList(metrics));
+    try {
+      monitor.publish(event(Type.DELETED_STUDY), () -> {
+        throw new IllegalStateException();
+      });
+      Assert.fail();
+    } catch (IllegalStateException e) {
+      Assert.assertEquals(Collections.singletonList("DELETED_STUDY"), published);
+    }
+  }
+
+}
@@ -16,21 +16,28 @@
 
 package com.decibeltx.studytracker.core.test;
 
+import com.decibeltx.studytracker.core.events.StudyEvent;
 import com.decibeltx.studytracker.core.events.StudyEvent.Type;
 import com.decibeltx.studytracker.core.example.ExampleDataGenerator;
 import com.decibeltx.studytracker.core.exception.RecordNotFoundException;
 import com.decibeltx.studytracker.core.model.Activity;
+import com.decibeltx.studytracker.core.model.Assay;
+import com.decibeltx.studytracker.core.model.ChangeSet;
 import com.decibeltx.studytracker.core.model.Program;
 import com.decibeltx.studytracker.core.model.Status;
 import com.decibeltx.studytracker.core.model.Study;
 import com.decibeltx.studytracker.core.model.User;
+import com.decibeltx.studytracker.core.repository.ActivityRepository;
 import com.decibeltx.studytracker.core.repository.ProgramRepository;
 import com.decibeltx.studytracker.core.repository.StudyRepository;
 import com.decibeltx.studytracker.core.repository.UserRepository;
+import com.decibeltx.studytracker.core.service.AssayService;
 import com.decibeltx.studytracker.core.service.StudyService;
 import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -48,6 +55,9 @@ public class StudyEventTests {
   @Autowired
   private StudyService studyService;
 
+  @Autowired
+  private AssayService assayService;
+
   @Autowired
   private StudyRepository studyRepository;
 
@@ -57,6 +67,9 @@ public class StudyEventTests {
   @Autowired
   private UserRepository userRepository;
 
+  @Autowired
+  private ActivityRepository activityRepository;
+
   @Autowired
   private ExampleDataGenerator exampleDataGenerator;
 
@@ -93,9 +106,10 @@ public class StudyEventTests {
     studyService.create(generateStudy());
     Study study = studyRepository.findByCode("CPA-9000").orElseThrow(RecordNotFoundException::new);
     Assert.assertNotNull(study.getId());
-    Assert.assertFalse(study.getActivity().isEmpty());
-    Assert.assertEquals(1, study.getActivity().size());
-    Activity activity = study.getActivity().get(0);
+    List<Activity> activities = activityRepository.findByStudyId(study.getId());
+    Assert.assertFalse(activities.isEmpty());
+    Assert.assertEquals(1, activities.size());
+    Activity activity = activities.get(0);
     Assert.assertEquals(study.getId(), activity.getStudy().getId());
     Assert.assertNotNull(study.getStorageFolder());
   }
@@ -106,11 +120,63 @@ public class StudyEventTests {
     Study study = studyRepository.findByCode("CPA-9000").orElseThrow(RecordNotFoundException::new);
     studyService.updateStatus(study, Status.COMPLETE);
     study = studyRepository.findByCode("CPA-9000").orElseThrow(RecordNotFoundException::new);
-    Assert.assertFalse(study.getActivity().isEmpty());
-    Assert.assertEquals(2, study.getActivity().size());
-    Activity activity = study.getActivity().get(1);
+    List<Activity> activities = activityRepository.findByStudyId(study.getId());
+    Assert.assertFalse(activities.isEmpty());
+    Assert.assertEquals(2, activities.size());
+    Activity activity = activities.get(1);
     Assert.assertEquals(Type.STUDY_STATUS_CHANGED.toString(), activity.getAction());
-    Assert.assertEquals(Status.COMPLETE.toString(), activity.getData());
+    Assert.assertTrue(activity.getData() instanceof ChangeSet);
+    ChangeSet changes = (ChangeSet) activity.getData();
+    Assert.assertEquals(study.getId(), changes.getEntityId());
+    Assert.assertEquals(1, changes.getChanges().size());
+    Assert.assertEquals("status", changes.getChanges().get(0).getPath());
+    Assert.assertEquals(Status.COMPLETE.toString(), changes.getChanges().get(0).getNewValue());
+  }
+
+  @Test
+  public void assayStatusChangeEventTest() {
+    Assay assay = assayService.findByCode("PPB-10001-00001")
+        .orElseThrow(RecordNotFoundException::new);
+    assayService.updateStatus(assay, Status.COMPLETE);
+    List<Activity> activities = activityRepository.findByStudyId(assay.getStudy().getId());
+    Activity activity = activities.stream()
+        .filter(a -> Type.ASSAY_STATUS_CHANGED.toString().equals(a.getAction()))
+        .findFirst()
+        .orElseThrow(RecordNotFoundException::new);
+    Assert.assertTrue(activity.getData() instanceof ChangeSet);
+    Assert.assertNotNull(activity.getAssay());
+    Assert.assertEquals(assay.getId(), activity.getAssay().getId());
+    Assert.assertEquals("PPB-10001-00001", activity.getAssayCode());
+  }
+
+  @Test
+  public void lazyStudyResolutionTest() {
+    Study study = studyRepository.findByCode("CPA-10001")
+        .orElseThrow(RecordNotFoundException::new);
+    AtomicInteger loads = new AtomicInteger();
+    StudyEvent event = new StudyEvent(this, "event-1", Type.UPDATED_STUDY, study.getId(),
+        null, null, new Date(), null,
+        () -> {
+          loads.incrementAndGet();
+          return studyRepository.findById(study.getId()).orElse(null);
+        },
+        () -> null);
+    Assert.assertEquals(study.getId(), event.getStudyId());
+    Assert.assertFalse(event.toString().contains(study.getName()));
+    Assert.assertEquals(0, loads.get());
+    Assert.assertEquals("CPA-10001", event.getStudy().getCode());
+    Assert.assertEquals("CPA-10001", event.getStudy().getCode());
+    Assert.assertEquals(1, loads.get());
+    Assert.assertNull(event.getUser());
+
+    StudyEvent missing = new StudyEvent(this, "event-2", Type.UPDATED_STUDY, "missing", null,
+        null, new Date(), null, () -> null, () -> null);
+    try {
+      missing.getStudy();
+      Assert.fail();
+    } catch (RecordNotFoundException e) {
+      Assert.assertEquals("missing", missing.getStudyId());
+    }
   }
 
 }
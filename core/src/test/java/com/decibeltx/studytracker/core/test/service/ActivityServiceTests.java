@@ -20,18 +20,29 @@ import com.decibeltx.studytracker.core.events.StudyEvent.Type;
 import com.decibeltx.studytracker.core.example.ExampleDataGenerator;
 import com.decibeltx.studytracker.core.exception.RecordNotFoundException;
 import com.decibeltx.studytracker.core.model.Activity;
+import com.decibeltx.studytracker.core.model.ActivityFilter;
 import com.decibeltx.studytracker.core.model.Status;
 import com.decibeltx.studytracker.core.model.Study;
+import com.decibeltx.studytracker.core.paging.CursorPage;
+import com.decibeltx.studytracker.core.paging.CursorRequest;
 import com.decibeltx.studytracker.core.repository.StudyRepository;
 import com.decibeltx.studytracker.core.service.ActivityService;
+import com.decibeltx.studytracker.core.service.impl.ActivityServiceImpl;
 import com.decibeltx.studytracker.core.test.TestConfiguration;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import org.bson.types.ObjectId;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
@@ -47,6 +58,9 @@ public class ActivityServiceTests {
   @Autowired
   private ActivityService activityService;
 
+  @Autowired
+  private MongoOperations mongoOperations;
+
   @Autowired
   private ExampleDataGenerator exampleDataGenerator;
 
@@ -55,13 +69,13 @@ public class ActivityServiceTests {
     exampleDataGenerator.populateDatabase();
   }
 
-  private static final int ACTION_COUNT = 1;
+  private static final int ACTION_COUNT = 2;
 
   @Test
   public void addStudyActivityTest() {
 
     Study study = studyRepository.findByCode("CPA-10001").orElseThrow(RecordNotFoundException::new);
-    Assert.assertEquals(ACTION_COUNT, study.getActivity().size());
+    Assert.assertEquals(ACTION_COUNT, activityService.findByStudy(study).size());
     Activity activity = new Activity();
     activity.setStudy(study);
     activity.setDate(new Date());
@@ -69,14 +83,13 @@ public class ActivityServiceTests {
     activity.setAction(Type.STUDY_STATUS_CHANGED.toString());
     activity.setData(Status.COMPLETE);
     activityService.create(activity);
-    study.getActivity().add(activity);
-    studyRepository.save(study);
 
     Assert.assertNotNull(activity.getId());
     study = studyRepository.findByCode("CPA-10001").orElseThrow(RecordNotFoundException::new);
-    Assert.assertEquals(ACTION_COUNT + 1, study.getActivity().size());
+    List<Activity> activities = activityService.findByStudy(study);
+    Assert.assertEquals(ACTION_COUNT + 1, activities.size());
 
-    activity = study.getActivity().get(ACTION_COUNT);
+    activity = activities.get(ACTION_COUNT);
     Assert.assertEquals(study.getCode(), activity.getStudyCode());
     Assert.assertEquals(study.getCreatedBy().getAccountName(), activity.getUserAccountName());
     Assert.assertEquals(Type.STUDY_STATUS_CHANGED.toString(), activity.getAction());
@@ -96,9 +109,9 @@ public class ActivityServiceTests {
     Assert.assertEquals(4, activities.size());
 
     activities = activityService.findByProgram(study.getProgram());
-    Assert.assertEquals(2, activities.size());
+    Assert.assertEquals(4, activities.size());
     activities = activityService.findByProgram(study2.getProgram());
-    Assert.assertEquals(2, activities.size());
+    Assert.assertEquals(6, activities.size());
 
     activities = activityService.findByType(Type.NEW_STUDY);
     Assert.assertEquals(6, activities.size());
@@ -107,4 +120,90 @@ public class ActivityServiceTests {
 
   }
 
+  @Test
+  public void findPagedStudyActivityTest() {
+    Study study = studyRepository.findByCode("PPB-10001")
+        .orElseThrow(RecordNotFoundException::new);
+    CursorRequest request = CursorRequest.of("date", Direction.DESC, null, 3);
+    CursorPage<Activity> page = activityService.findByStudy(study, request);
+    Assert.assertEquals(3, page.getSize());
+    Assert.assertTrue(page.isHasMore());
+    Assert.assertNotNull(page.getNextCursor());
+    Set<String> ids = new HashSet<>();
+    page.getContent().forEach(a -> ids.add(a.getId()));
+
+    page = activityService.findByStudy(study, request.next(page.getNextCursor()));
+    Assert.assertEquals(1, page.getSize());
+    Assert.assertFalse(page.isHasMore());
+    Assert.assertNull(page.getNextCursor());
+    ids.add(page.getContent().get(0).getId());
+    Assert.assertEquals(4, ids.size());
+  }
+
+  @Test
+  public void findFilteredActivityPageTest() {
+    Study study = studyRepository.findByCode("PPB-10001")
+        .orElseThrow(RecordNotFoundException::new);
+    for (Activity activity : activityService.findByStudy(study)) {
+      Assert.assertEquals(study.getProgram().getId(), activity.getProgramId());
+    }
+
+    ActivityFilter filter = new ActivityFilter();
+    filter.setProgramId(study.getProgram().getId());
+    CursorRequest request = CursorRequest.of("date", Direction.DESC, null, 4);
+    CursorPage<Activity> page = activityService.findPage(filter, request);
+    Assert.assertEquals(4, page.getSize());
+    Assert.assertTrue(page.isHasMore());
+    page = activityService.findPage(filter, request.next(page.getNextCursor()));
+    Assert.assertEquals(2, page.getSize());
+    Assert.assertFalse(page.isHasMore());
+
+    filter.setType(Type.NEW_STUDY);
+    page = activityService.findPage(filter, request);
+    Assert.assertEquals(2, page.getSize());
+    Assert.assertTrue(page.getContent().stream()
+        .allMatch(a -> Type.NEW_STUDY.toString().equals(a.getAction())));
+
+    filter = new ActivityFilter();
+    filter.setUserId(study.getCreatedBy().getId());
+    filter.setFrom(new Date(System.currentTimeMillis() + 60000L));
+    Assert.assertEquals(0, activityService.findPage(filter, request).getSize());
+    filter.setFrom(null);
+    filter.setTo(new Date(System.currentTimeMillis() + 60000L));
+    Assert.assertTrue(activityService.findPage(filter, request).getSize() > 0);
+  }
+
+  @Test
+  public void archiveActivityTest() {
+    Study study = studyRepository.findByCode("PPB-10001")
+        .orElseThrow(RecordNotFoundException::new);
+    Activity activity = new Activity();
+    activity.setStudy(study);
+    activity.setProgramId(study.getProgram().getId());
+    activity.setDate(new Date(System.currentTimeMillis() - 86400000L * 400));
+    activity.setUser(study.getCreatedBy());
+    activity.setAction(Type.STUDY_STATUS_CHANGED.toString());
+    activity.setData(Status.ON_HOLD);
+    activityService.create(activity);
+
+    Date cutoff = new Date(System.currentTimeMillis() - 86400000L * 365);
+    Assert.assertEquals(1, activityService.archive(cutoff, 100));
+    Assert.assertEquals(0, activityService.archive(cutoff, 100));
+    Assert.assertEquals(0, mongoOperations.count(new Query(Criteria.where("_id")
+        .is(new ObjectId(activity.getId())).and("data").exists(true)), Activity.class));
+
+    Activity archived = activityService.findById(activity.getId())
+        .orElseThrow(RecordNotFoundException::new);
+    Assert.assertTrue(archived.isArchived());
+    Assert.assertEquals(Status.ON_HOLD.toString(), archived.getData());
+    List<Activity> activities = activityService.findByStudy(study);
+    Assert.assertEquals(5, activities.size());
+    Assert.assertTrue(activities.stream()
+        .allMatch(a -> a.isArchived() ? a.getData() == null : a.getData() != null));
+
+    activityService.deleteStudyActivity(study);
+    Assert.assertEquals(0, mongoOperations.count(new Query(Criteria.where("_id")
+        .is(new ObjectId(activity.getId()))), ActivityServiceImpl.ARCHIVE_COLLECTION));
+  }
+
 }
@@ -130,6 +130,15 @@ public class AssayServiceTests {
     Assert.assertEquals(study.getCode() + "-00001", code);
   }
 
+  @Test
+  public void assayCodeSequenceTest() {
+    Study study = studyService.findByCode("PPB-10001").orElseThrow(RecordNotFoundException::new);
+    Assay assay = new Assay();
+    assay.setStudy(study);
+    Assert.assertEquals(study.getCode() + "-00003", assayService.generateAssayCode(assay));
+    Assert.assertEquals(study.getCode() + "-00004", assayService.generateAssayCode(assay));
+  }
+
   @Test
   public void inactivateAssayTest() {
     Assay assay = assayService.findByCode("PPB-10001-00001")
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.test.service;
+
+import com.decibeltx.studytracker.core.example.ExampleDataGenerator;
+import com.decibeltx.studytracker.core.exception.RecordNotFoundException;
+import com.decibeltx.studytracker.core.model.Study;
+import com.decibeltx.studytracker.core.model.StudySuggestion;
+import com.decibeltx.studytracker.core.model.User;
+import com.decibeltx.studytracker.core.model.UserSuggestion;
+import com.decibeltx.studytracker.core.search.PrefixIndex;
+import com.decibeltx.studytracker.core.service.AutocompleteService;
+import com.decibeltx.studytracker.core.service.StudyService;
+import com.decibeltx.studytracker.core.service.UserService;
+import com.decibeltx.studytracker.core.test.TestConfiguration;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = TestConfiguration.class)
+@ActiveProfiles({"example"})
+public class AutocompleteServiceTests {
+
+  @Autowired
+  private AutocompleteService autocompleteService;
+
+  @Autowired
+  private StudyService studyService;
+
+  @Autowired
+  private UserService userService;
+
+  @Autowired
+  private ExampleDataGenerator exampleDataGenerator;
+
+  @Before
+  public void doBefore() {
+    exampleDataGenerator.populateDatabase();
+  }
+
+  @Test
+  public void suggestStudiesTest() {
+    List<StudySuggestion> suggestions = autocompleteService.suggestStudies("10001", 10);
+    Assert.assertEquals(3, suggestions.size());
+
+    suggestions = autocompleteService.suggestStudies("cpa-10002", 10);
+    Assert.assertFalse(suggestions.isEmpty());
+    Assert.assertEquals("CPA-10002", suggestions.get(0).getCode());
+
+    suggestions = autocompleteService.suggestStudies("example", 2);
+    Assert.assertEquals(2, suggestions.size());
+
+    Assert.assertTrue(autocompleteService.suggestStudies("xyz", 10).isEmpty());
+    Assert.assertTrue(autocompleteService.suggestStudies("10001", 0).isEmpty());
+    Assert.assertTrue(autocompleteService.suggestStudies("10001", -1).isEmpty());
+  }
+
+  @Test
+  public void studyEventIndexUpdateTest() {
+    Study study = studyService.findByCode("CPA-10001").orElseThrow(RecordNotFoundException::new);
+    study.setName("Renamed Study");
+    studyService.update(study);
+    List<StudySuggestion> suggestions = autocompleteService.suggestStudies("renamed", 10);
+    Assert.assertEquals(1, suggestions.size());
+    Assert.assertEquals("CPA-10001", suggestions.get(0).getCode());
+
+    studyService.delete(study);
+    Assert.assertTrue(autocompleteService.suggestStudies("renamed", 10).isEmpty());
+  }
+
+  @Test
+  public void suggestUsersTest() {
+    List<UserSuggestion> suggestions = autocompleteService.suggestUsers("joe", 10);
+    Assert.assertEquals(1, suggestions.size());
+    Assert.assertEquals("Joe Smith", suggestions.get(0).getDisplayName());
+    Assert.assertTrue(autocompleteService.suggestUsers("frank", 10).isEmpty());
+
+    User user = new User();
+    user.setAccountName("fjones");
+    user.setDisplayName("Frank Jones");
+    user.setEmail("fjones@email.com");
+    userService.create(user);
+    suggestions = autocompleteService.suggestUsers("frank", 10);
+    Assert.assertEquals(1, suggestions.size());
+    Assert.assertEquals("fjones", suggestions.get(0).getAccountName());
+
+    userService.delete(user);
+    Assert.assertTrue(autocompleteService.suggestUsers("frank", 10).isEmpty());
+  }
+
+  @Test
+  public void prefixIndexCandidateLimitTest() {
+    PrefixIndex<String> index = new PrefixIndex<>();
+    for (int i = 0; i < 2000; i++) {
+      index.put("s" + i, "Smith" + i, "Smith" + i + " Person", "psmith" + i);
+      index.put("z" + i, "Zed " + i, "Zed Sam" + i, "zsam" + i);
+    }
+    index.put("john", "John Smith", "John Smith", "jsmith");
+    index.put("sam", "Sam", "Sam Jones", "sjones");
+    List<String> results = index.search("john smith", 10);
+    Assert.assertEquals(1, results.size());
+    Assert.assertEquals("John Smith", results.get(0));
+    Assert.assertEquals("Sam", index.search("sam", 1).get(0));
+  }
+
+}
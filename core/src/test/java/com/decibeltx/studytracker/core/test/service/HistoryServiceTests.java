@@ -0,0 +1,125 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.test.service;
+
+import com.decibeltx.studytracker.core.events.StudyEvent.Type;
+import com.decibeltx.studytracker.core.example.ExampleDataGenerator;
+import com.decibeltx.studytracker.core.exception.RecordNotFoundException;
+import com.decibeltx.studytracker.core.model.Activity;
+import com.decibeltx.studytracker.core.model.ChangeSet;
+import com.decibeltx.studytracker.core.model.Status;
+import com.decibeltx.studytracker.core.model.Study;
+import com.decibeltx.studytracker.core.repository.StudyRepository;
+import com.decibeltx.studytracker.core.service.ActivityService;
+import com.decibeltx.studytracker.core.service.HistoryService;
+import com.decibeltx.studytracker.core.service.StudyService;
+import com.decibeltx.studytracker.core.test.TestConfiguration;
+import java.util.Date;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = TestConfiguration.class)
+@ActiveProfiles({"example"})
+public class HistoryServiceTests {
+
+  @Autowired
+  private StudyRepository studyRepository;
+
+  @Autowired
+  private StudyService studyService;
+
+  @Autowired
+  private ActivityService activityService;
+
+  @Autowired
+  private HistoryService historyService;
+
+  @Autowired
+  private ExampleDataGenerator exampleDataGenerator;
+
+  @Before
+  public void doBefore() {
+    exampleDataGenerator.populateDatabase();
+  }
+
+  @Test
+  public void studyUpdateDiffTest() {
+    Study study = studyRepository.findByCode("CPA-10001").orElseThrow(RecordNotFoundException::new);
+    String description = study.getDescription();
+    study.setDescription("Updated description");
+    studyService.update(study);
+
+    List<Activity> activities = activityService.findByType(Type.UPDATED_STUDY);
+    Assert.assertEquals(1, activities.size());
+    Assert.assertTrue(activities.get(0).getData() instanceof ChangeSet);
+    ChangeSet changes = (ChangeSet) activities.get(0).getData();
+    Assert.assertEquals(study.getId(), changes.getEntityId());
+    Assert.assertEquals(activities.get(0).getDate(), changes.getDate());
+    Assert.assertTrue(changes.getChanges().stream()
+        .anyMatch(c -> c.getPath().equals("description")
+            && description.equals(c.getOldValue())
+            && "Updated description".equals(c.getNewValue())));
+  }
+
+  @Test
+  public void studyVersionTest() throws Exception {
+    Study study = studyRepository.findByCode("CPA-10001").orElseThrow(RecordNotFoundException::new);
+    Assert.assertFalse(historyService
+        .findVersionAt(Study.class, study.getId(), new Date(0L)).isPresent());
+    Status status = study.getStatus();
+    String description = study.getDescription();
+    Thread.sleep(10L);
+    Date created = new Date();
+    Thread.sleep(10L);
+
+    // Enough changes to take at least one further snapshot
+    for (int i = 0; i < 25; i++) {
+      study = studyRepository.findByCode("CPA-10001").orElseThrow(RecordNotFoundException::new);
+      study.setDescription("Description " + i);
+      studyService.update(study);
+    }
+    Thread.sleep(10L);
+    Date updated = new Date();
+    Thread.sleep(10L);
+    studyService.updateStatus(study, Status.COMPLETE);
+
+    Study version = historyService.findVersionAt(Study.class, study.getId(), created)
+        .orElseThrow(RecordNotFoundException::new);
+    Assert.assertEquals(description, version.getDescription());
+    Assert.assertEquals(status, version.getStatus());
+    Assert.assertEquals(study.getProgram().getId(), version.getProgram().getId());
+
+    version = historyService.findVersionAt(Study.class, study.getId(), updated)
+        .orElseThrow(RecordNotFoundException::new);
+    Assert.assertEquals("Description 24", version.getDescription());
+    Assert.assertEquals(status, version.getStatus());
+
+    version = historyService.findVersionAt(Study.class, study.getId(), new Date())
+        .orElseThrow(RecordNotFoundException::new);
+    Assert.assertEquals(Status.COMPLETE, version.getStatus());
+  }
+
+}
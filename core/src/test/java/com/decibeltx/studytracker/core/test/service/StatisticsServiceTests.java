@@ -0,0 +1,182 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.core.test.service;
+
+import com.decibeltx.studytracker.core.example.ExampleDataGenerator;
+import com.decibeltx.studytracker.core.exception.RecordNotFoundException;
+import com.decibeltx.studytracker.core.model.Assay;
+import com.decibeltx.studytracker.core.model.Program;
+import com.decibeltx.studytracker.core.model.Status;
+import com.decibeltx.studytracker.core.model.Study;
+import com.decibeltx.studytracker.core.model.User;
+import com.decibeltx.studytracker.core.repository.AssayRepository;
+import com.decibeltx.studytracker.core.repository.ProgramRepository;
+import com.decibeltx.studytracker.core.repository.StudyRepository;
+import com.decibeltx.studytracker.core.repository.UserRepository;
+import com.decibeltx.studytracker.core.service.AssayService;
+import com.decibeltx.studytracker.core.service.StatisticsService;
+import com.decibeltx.studytracker.core.service.StudyService;
+import com.decibeltx.studytracker.core.service.impl.StatisticsServiceImpl;
+import com.decibeltx.studytracker.core.test.TestConfiguration;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = TestConfiguration.class)
+@ActiveProfiles({"example"})
+public class StatisticsServiceTests {
+
+  @Autowired
+  private StatisticsService statisticsService;
+
+  @Autowired
+  private StudyService studyService;
+
+  @Autowired
+  private AssayService assayService;
+
+  @Autowired
+  private StudyRepository studyRepository;
+
+  @Autowired
+  private AssayRepository assayRepository;
+
+  @Autowired
+  private ProgramRepository programRepository;
+
+  @Autowired
+  private UserRepository userRepository;
+
+  @Autowired
+  private MongoOperations mongoOperations;
+
+  @Autowired
+  private ExampleDataGenerator exampleDataGenerator;
+
+  @Before
+  public void doBefore() {
+    exampleDataGenerator.populateDatabase();
+  }
+
+  private Map<String, Map<Status, Long>> studyCountsFromSource() {
+    Map<String, Map<Status, Long>> counts = new TreeMap<>();
+    for (Study study : studyRepository.findAll()) {
+      if (study.isActive()) {
+        counts.computeIfAbsent(study.getProgram().getId(), k -> new LinkedHashMap<>())
+            .merge(study.getStatus(), 1L, Long::sum);
+      }
+    }
+    return counts;
+  }
+
+  private Map<String, Map<Status, Long>> assayCountsFromSource() {
+    Map<String, Map<Status, Long>> counts = new TreeMap<>();
+    for (Assay assay : assayRepository.findAll()) {
+      if (assay.isActive()) {
+        counts.computeIfAbsent(assay.getAssayType().toString(), k -> new LinkedHashMap<>())
+            .merge(assay.getStatus(), 1L, Long::sum);
+      }
+    }
+    return counts;
+  }
+
+  @Test
+  public void exampleDataStatisticsTest() {
+    Map<String, Map<Status, Long>> studyCounts = statisticsService.getStudyCountsByProgram();
+    Assert.assertFalse(studyCounts.isEmpty());
+    Assert.assertEquals(studyCountsFromSource(), studyCounts);
+    Map<String, Map<Status, Long>> assayCounts = statisticsService.getAssayCountsByType();
+    Assert.assertFalse(assayCounts.isEmpty());
+    Assert.assertEquals(assayCountsFromSource(), assayCounts);
+  }
+
+  @Test
+  public void studyLifecycleStatisticsTest() {
+    Program program = programRepository.findByName("Clinical Program A")
+        .orElseThrow(RecordNotFoundException::new);
+    User user = userRepository.findByAccountName("jsmith")
+        .orElseThrow(RecordNotFoundException::new);
+    Study study = new Study();
+    study.setStatus(Status.IN_PLANNING);
+    study.setName("Study X");
+    study.setProgram(program);
+    study.setDescription("This is a test");
+    study.setLegacy(false);
+    study.setActive(true);
+    study.setCreatedBy(user);
+    study.setLastModifiedBy(user);
+    study.setStartDate(new Date());
+    study.setOwner(user);
+    study.setUsers(Collections.singletonList(user));
+    studyService.create(study);
+    Assert.assertEquals(studyCountsFromSource(), statisticsService.getStudyCountsByProgram());
+
+    studyService.updateStatus(study, Status.ACTIVE);
+    Assert.assertEquals(studyCountsFromSource(), statisticsService.getStudyCountsByProgram());
+
+    // Repeated handling of the same change has no further effect
+    statisticsService.refreshStudy(study.getId());
+    Assert.assertEquals(studyCountsFromSource(), statisticsService.getStudyCountsByProgram());
+
+    studyService.delete(study);
+    Assert.assertEquals(studyCountsFromSource(), statisticsService.getStudyCountsByProgram());
+  }
+
+  @Test
+  public void assayStatusStatisticsTest() {
+    Assay assay = assayService.findByCode("PPB-10001-00001")
+        .orElseThrow(RecordNotFoundException::new);
+    assayService.updateStatus(assay, Status.COMPLETE);
+    Assert.assertEquals(assayCountsFromSource(), statisticsService.getAssayCountsByType());
+    assayService.delete(assay);
+    Assert.assertEquals(assayCountsFromSource(), statisticsService.getAssayCountsByType());
+  }
+
+  @Test
+  public void reconciliationTest() {
+    Map<String, Map<Status, Long>> studyCounts = statisticsService.getStudyCountsByProgram();
+    mongoOperations.remove(new Query(), StatisticsServiceImpl.COUNTERS);
+    Assert.assertTrue(statisticsService.getStudyCountsByProgram().isEmpty());
+    statisticsService.reconcile();
+    Assert.assertEquals(studyCounts, statisticsService.getStudyCountsByProgram());
+    Assert.assertEquals(assayCountsFromSource(), statisticsService.getAssayCountsByType());
+
+    // State entries survive reconciliation, so later changes are not counted twice
+    long stateCount = mongoOperations.count(new Query(), StatisticsServiceImpl.STATE);
+    statisticsService.reconcile();
+    Assert.assertEquals(stateCount,
+        mongoOperations.count(new Query(), StatisticsServiceImpl.STATE));
+    Study study = studyRepository.findByCode("CPA-10001").orElseThrow(RecordNotFoundException::new);
+    statisticsService.refreshStudy(study.getId());
+    Assert.assertEquals(studyCounts, statisticsService.getStudyCountsByProgram());
+  }
+
+}
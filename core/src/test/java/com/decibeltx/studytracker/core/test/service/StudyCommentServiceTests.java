@@ -111,4 +111,23 @@ public class StudyCommentServiceTests {
     Assert.assertTrue(exception instanceof RecordNotFoundException);
   }
 
+  @Test
+  public void concurrentCommentsTest() {
+    Study first = studyService.findByCode("CPA-10001").orElseThrow(RecordNotFoundException::new);
+    Study second = studyService.findByCode("CPA-10001").orElseThrow(RecordNotFoundException::new);
+
+    Comment comment = new Comment();
+    comment.setText("First comment");
+    comment.setCreatedBy(first.getCreatedBy());
+    studyCommentService.addStudyComment(first, comment);
+
+    comment = new Comment();
+    comment.setText("Second comment");
+    comment.setCreatedBy(second.getCreatedBy());
+    studyCommentService.addStudyComment(second, comment);
+
+    Study study = studyService.findByCode("CPA-10001").orElseThrow(RecordNotFoundException::new);
+    Assert.assertEquals(2, study.getComments().size());
+  }
+
 }
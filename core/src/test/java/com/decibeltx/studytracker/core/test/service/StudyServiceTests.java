@@ -22,17 +22,23 @@ import com.decibeltx.studytracker.core.model.Collaborator;
 import com.decibeltx.studytracker.core.model.Program;
 import com.decibeltx.studytracker.core.model.Status;
 import com.decibeltx.studytracker.core.model.Study;
+import com.decibeltx.studytracker.core.model.StudySummary;
 import com.decibeltx.studytracker.core.model.User;
+import com.decibeltx.studytracker.core.paging.CursorPage;
+import com.decibeltx.studytracker.core.paging.CursorRequest;
 import com.decibeltx.studytracker.core.repository.CollaboratorRepository;
 import com.decibeltx.studytracker.core.repository.ProgramRepository;
 import com.decibeltx.studytracker.core.repository.StudyRepository;
 import com.decibeltx.studytracker.core.repository.UserRepository;
+import com.decibeltx.studytracker.core.search.SearchTokens;
 import com.decibeltx.studytracker.core.service.StudyService;
 import com.decibeltx.studytracker.core.test.TestConfiguration;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -80,6 +86,22 @@ public class StudyServiceTests {
     Assert.assertEquals(STUDY_COUNT, studies.size());
   }
 
+  @Test
+  public void findAllStudiesSharedReferencesTest() {
+    List<Study> studies = studyService.findAll();
+    List<Study> owned = studies.stream()
+        .filter(s -> s.getOwner().getAccountName().equals("jsmith"))
+        .collect(Collectors.toList());
+    Assert.assertEquals(2, owned.size());
+    Assert.assertSame(owned.get(0).getOwner(), owned.get(0).getCreatedBy());
+    Assert.assertSame(owned.get(0).getOwner(), owned.get(1).getOwner());
+    Assert.assertNotSame(owned.get(0).getOwner(), studyService.findAll().stream()
+        .filter(s -> s.getId().equals(owned.get(0).getId()))
+        .findFirst()
+        .orElseThrow(RecordNotFoundException::new)
+        .getOwner());
+  }
+
   @Test
   public void findByProgramTest() {
     Program program = programRepository.findByName("Clinical Program A")
@@ -106,6 +128,59 @@ public class StudyServiceTests {
     Assert.assertTrue(studies.isEmpty());
   }
 
+  @Test
+  public void findByFilterTest() {
+    User user = userRepository.findByAccountName("jsmith")
+        .orElseThrow(RecordNotFoundException::new);
+    List<Study> studies = studyService.findByOwner(user);
+    Assert.assertEquals(2, studies.size());
+    studies = studyService.findByUser(user);
+    Assert.assertEquals(2, studies.size());
+    studies = studyService.findByStatus(Arrays.asList(Status.IN_PLANNING, Status.ACTIVE));
+    Assert.assertEquals(3, studies.size());
+    studies = studyService.findLegacy();
+    Assert.assertEquals(1, studies.size());
+    Assert.assertEquals("PPB-00001", studies.get(0).getCode());
+    studies = studyService.findExternal();
+    Assert.assertEquals(1, studies.size());
+    Assert.assertEquals(STUDY_COUNT, studyService.findAllActive().size());
+    Study study = studies.get(0);
+    studyService.delete(study);
+    Assert.assertEquals(STUDY_COUNT - 1, studyService.findAllActive().size());
+  }
+
+  @Test
+  public void findPagedStudiesTest() {
+    CursorRequest request = CursorRequest.of("code", 4);
+    CursorPage<Study> page = studyService.findAllActive(request);
+    Assert.assertEquals(4, page.getSize());
+    Assert.assertTrue(page.isHasMore());
+    Assert.assertEquals("CPA-10001", page.getContent().get(0).getCode());
+    String lastCode = page.getContent().get(3).getCode();
+    page = studyService.findAllActive(request.next(page.getNextCursor()));
+    Assert.assertEquals(STUDY_COUNT - 4, page.getSize());
+    Assert.assertFalse(page.isHasMore());
+    Assert.assertNull(page.getNextCursor());
+    Assert.assertTrue(page.getContent().get(0).getCode().compareTo(lastCode) > 0);
+  }
+
+  @Test
+  public void findStudySummariesTest() {
+    List<StudySummary> summaries = studyService.findActiveSummaries();
+    Assert.assertEquals(STUDY_COUNT, summaries.size());
+    StudySummary summary = summaries.stream()
+        .filter(s -> s.getCode().equals("CPA-10001"))
+        .findFirst()
+        .orElseThrow(RecordNotFoundException::new);
+    Assert.assertNotNull(summary.getId());
+    Assert.assertEquals(Status.IN_PLANNING, summary.getStatus());
+    Assert.assertEquals("Clinical Program A", summary.getProgram().getName());
+    Assert.assertEquals("jsmith", summary.getOwner().getAccountName());
+    Assert.assertNotNull(summary.getOwner().getDisplayName());
+    Assert.assertNotNull(summary.getCollaborator());
+    Assert.assertNotNull(summary.getCollaborator().getOrganizationName());
+  }
+
   @Test
   public void createStudyTest() {
     Optional<Program> optionalProgram = programRepository.findByName("Clinical Program A");
@@ -200,6 +275,59 @@ public class StudyServiceTests {
 
   }
 
+  @Test
+  public void searchStudiesTest() {
+    List<Study> studies = studyService.search("10001");
+    Assert.assertEquals(3, studies.size());
+
+    studies = studyService.search("cpa-10002");
+    Assert.assertFalse(studies.isEmpty());
+    Assert.assertEquals("CPA-10002", studies.get(0).getCode());
+
+    studies = studyService.search("target stu");
+    Assert.assertEquals(2, studies.size());
+
+    studies = studyService.search("cpa 10001");
+    Assert.assertFalse(studies.isEmpty());
+    Assert.assertEquals("CPA-10001", studies.get(0).getCode());
+    Assert.assertEquals(0, SearchTokens.rank("cpa 10001", "CPA-10001"));
+    Assert.assertEquals(2, SearchTokens.rank("study", "Target-Study"));
+
+    Assert.assertTrue(studyService.search("xyz").isEmpty());
+    Assert.assertTrue(studyService.search(" - ").isEmpty());
+  }
+
+  @Test
+  public void studyCodeSequenceTest() {
+    Program program = programRepository.findByName("Clinical Program A")
+        .orElseThrow(RecordNotFoundException::new);
+    User user = userRepository.findByAccountName("jsmith")
+        .orElseThrow(RecordNotFoundException::new);
+    Study study = new Study();
+    study.setProgram(program);
+    Assert.assertEquals("CPA-10003", studyService.generateStudyCode(study));
+    Assert.assertEquals("CPA-10004", studyService.generateStudyCode(study));
+
+    // Re-seeding from existing records must not move the sequence backwards
+    studyService.seedCodeSequences();
+    Assert.assertEquals("CPA-10005", studyService.generateStudyCode(study));
+
+    // Explicitly assigned codes advance the sequence past them
+    study.setStatus(Status.IN_PLANNING);
+    study.setName("Study Y");
+    study.setCode("CPA-10010");
+    study.setDescription("This is a test");
+    study.setCreatedBy(user);
+    study.setLastModifiedBy(user);
+    study.setStartDate(new Date());
+    study.setOwner(user);
+    study.setUsers(Collections.singletonList(user));
+    studyService.create(study);
+    Study next = new Study();
+    next.setProgram(program);
+    Assert.assertEquals("CPA-10011", studyService.generateStudyCode(next));
+  }
+
   @Test
   public void createExternalStudyCodeTest() {
     Collaborator collaborator = collaboratorRepository.findByLabel("Inactive CRO")
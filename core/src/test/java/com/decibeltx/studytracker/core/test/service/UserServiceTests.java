@@ -16,6 +16,8 @@
 
 package com.decibeltx.studytracker.core.test.service;
 
+import com.decibeltx.studytracker.core.cache.CacheStatistics;
+import com.decibeltx.studytracker.core.cache.UserCache;
 import com.decibeltx.studytracker.core.example.ExampleDataGenerator;
 import com.decibeltx.studytracker.core.model.User;
 import com.decibeltx.studytracker.core.repository.UserRepository;
@@ -23,6 +25,7 @@ import com.decibeltx.studytracker.core.service.UserService;
 import com.decibeltx.studytracker.core.test.TestConfiguration;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import javax.validation.ConstraintViolationException;
 import org.junit.Assert;
 import org.junit.Before;
@@ -162,4 +165,54 @@ public class UserServiceTests {
     Assert.assertEquals(0, users.size());
   }
 
+  @Test
+  public void userCacheTest() {
+    CacheStatistics before = userService.getCacheStatistics();
+    User user = userService.findByAccountName("jsmith").orElseThrow(RuntimeException::new);
+    userService.findByAccountName("jsmith").orElseThrow(RuntimeException::new);
+    userService.findById(user.getId()).orElseThrow(RuntimeException::new);
+    userService.findByEmail(user.getEmail()).orElseThrow(RuntimeException::new);
+    CacheStatistics after = userService.getCacheStatistics();
+    Assert.assertEquals(before.getMisses() + 1, after.getMisses());
+    Assert.assertEquals(before.getHits() + 3, after.getHits());
+
+    // Cached records are copies and are not affected by unsaved changes
+    user.setTitle("Changed");
+    Assert.assertNotEquals("Changed",
+        userService.findByAccountName("jsmith").get().getTitle());
+
+    // Updates evict stale entries, including old account names
+    user.setAccountName("jsmith2");
+    userService.update(user);
+    Assert.assertFalse(userService.findByAccountName("jsmith").isPresent());
+    Assert.assertEquals("Changed", userService.findById(user.getId()).get().getTitle());
+    Assert.assertEquals("jsmith2", userService.findByEmail(user.getEmail()).get().getAccountName());
+
+    userService.delete(user);
+    Assert.assertFalse(userService.findById(user.getId()).isPresent());
+    Assert.assertFalse(userService.findByAccountName("jsmith2").isPresent());
+  }
+
+  @Test
+  public void evictionDuringLoadTest() {
+    UserCache cache = new UserCache(10, 60, TimeUnit.SECONDS);
+    User stale = new User();
+    stale.setId("1");
+    stale.setAccountName("jdoe");
+    stale.setEmail("jdoe@email.com");
+    stale.setAdmin(true);
+    cache.findByAccountName("jdoe", () -> {
+      cache.evict(stale);
+      return Optional.of(stale);
+    });
+    User updated = new User();
+    updated.setId("1");
+    updated.setAccountName("jdoe");
+    updated.setEmail("jdoe@email.com");
+    updated.setAdmin(false);
+    Optional<User> user = cache.findByAccountName("jdoe", () -> Optional.of(updated));
+    Assert.assertTrue(user.isPresent());
+    Assert.assertFalse(user.get().isAdmin());
+  }
+
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.decibeltx.studytracker.core.test.storage;
+
+import com.decibeltx.studytracker.core.model.Program;
+import com.decibeltx.studytracker.core.model.Study;
+import com.decibeltx.studytracker.core.storage.ContentAddressedStudyStorageService;
+import com.decibeltx.studytracker.core.storage.DeduplicationStatistics;
+import com.decibeltx.studytracker.core.storage.StorageFile;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ContentAddressedStudyStorageServiceTests {
+
+  private Path rootPath;
+
+  private ContentAddressedStudyStorageService storageService;
+
+  private Study study(Program program, String code) throws Exception {
+    Study study = new Study();
+    study.setProgram(program);
+    study.setName("Study " + code);
+    study.setCode(code);
+    storageService.createStudyFolder(study);
+    return study;
+  }
+
+  @Before
+  public void doBefore() throws Exception {
+    rootPath = Files.createTempDirectory("cas-storage");
+    storageService = new ContentAddressedStudyStorageService(rootPath, rootPath.resolve(".blobs"),
+        100, 60, TimeUnit.SECONDS, false);
+  }
+
+  @After
+  public void doAfter() throws Exception {
+    storageService.destroy();
+    FileUtils.deleteDirectory(rootPath.toFile());
+  }
+
+  @Test
+  public void deduplicationTest() throws Exception {
+    Program program = new Program();
+    program.setName("Program A");
+    storageService.createProgramFolder(program);
+    Study first = study(program, "PA-10001");
+    Study second = study(program, "PA-10002");
+
+    byte[] content = "plate map".getBytes(StandardCharsets.UTF_8);
+    StorageFile firstFile = storageService.saveStudyFile("plates.csv",
+        new ByteArrayInputStream(content), first);
+    StorageFile secondFile = storageService.saveStudyFile("plates.csv",
+        new ByteArrayInputStream(content), second);
+    Assert.assertArrayEquals(content, Files.readAllBytes(Paths.get(secondFile.getPath())));
+    Assert.assertTrue(Files.isSameFile(Paths.get(firstFile.getPath()),
+        Paths.get(secondFile.getPath())));
+    Assert.assertFalse(Files.getPosixFilePermissions(Paths.get(firstFile.getPath()))
+        .contains(PosixFilePermission.OWNER_WRITE));
+
+    DeduplicationStatistics statistics = storageService.getStatistics();
+    Assert.assertEquals(1, statistics.getBlobs());
+    Assert.assertEquals(2, statistics.getFiles());
+    Assert.assertEquals(content.length, statistics.getSavedBytes());
+
+    byte[] updated = "updated plate map".getBytes(StandardCharsets.UTF_8);
+    storageService.saveStudyFile("plates.csv", new ByteArrayInputStream(updated), first);
+    storageService.saveStudyFile("plates.csv", new ByteArrayInputStream(updated), second);
+    Assert.assertArrayEquals(updated, Files.readAllBytes(Paths.get(firstFile.getPath())));
+    statistics = storageService.getStatistics();
+    Assert.assertEquals(1, statistics.getBlobs());
+    Assert.assertEquals(2, statistics.getFiles());
+    Assert.assertEquals(updated.length, statistics.getStoredBytes());
+  }
+
+}
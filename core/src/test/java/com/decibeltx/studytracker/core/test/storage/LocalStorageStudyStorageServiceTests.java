@@ -17,23 +17,37 @@
 package com.decibeltx.studytracker.core.test.storage;
 
 import com.decibeltx.studytracker.core.example.ExampleDataGenerator;
+import com.decibeltx.studytracker.core.exception.InvalidRequestException;
 import com.decibeltx.studytracker.core.exception.RecordNotFoundException;
 import com.decibeltx.studytracker.core.model.Assay;
 import com.decibeltx.studytracker.core.model.AssayType;
 import com.decibeltx.studytracker.core.model.Program;
 import com.decibeltx.studytracker.core.model.Status;
 import com.decibeltx.studytracker.core.model.Study;
+import com.decibeltx.studytracker.core.model.UploadSession;
 import com.decibeltx.studytracker.core.model.User;
 import com.decibeltx.studytracker.core.repository.AssayRepository;
 import com.decibeltx.studytracker.core.repository.ProgramRepository;
 import com.decibeltx.studytracker.core.repository.StudyRepository;
 import com.decibeltx.studytracker.core.repository.UserRepository;
+import com.decibeltx.studytracker.core.storage.BasicStorageFile;
+import com.decibeltx.studytracker.core.storage.ChunkedUploadService;
 import com.decibeltx.studytracker.core.storage.LocalFileSystemStudyStorageService;
 import com.decibeltx.studytracker.core.storage.StorageFile;
 import com.decibeltx.studytracker.core.storage.StorageFolder;
+import com.decibeltx.studytracker.core.storage.StorageUtils;
+import com.decibeltx.studytracker.core.storage.UploadStream;
 import com.decibeltx.studytracker.core.storage.exception.StudyStorageDuplicateException;
+import com.decibeltx.studytracker.core.storage.exception.StudyStorageLimitExceededException;
 import com.decibeltx.studytracker.core.storage.exception.StudyStorageNotFoundException;
+import com.decibeltx.studytracker.core.storage.exception.StudyStorageWriteException;
 import com.decibeltx.studytracker.core.test.TestConfiguration;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.Optional;
@@ -44,6 +58,10 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
@@ -71,6 +89,9 @@ public class LocalStorageStudyStorageServiceTests {
   @Autowired
   private AssayRepository assayRepository;
 
+  @Autowired
+  private MongoOperations mongoOperations;
+
   @SuppressWarnings("SpringJavaInjectionPointsAutowiringInspection")
   @Autowired
   private ExampleDataGenerator exampleDataGenerator;
@@ -136,6 +157,13 @@ public class LocalStorageStudyStorageServiceTests {
     Assert.assertNotNull(file);
     Assert.assertTrue(file.getPath().endsWith("test.txt"));
 
+    StorageFolder studyFolder = storageService.getStudyFolder(study);
+    boolean listed = false;
+    for (StorageFile f : studyFolder.getFiles()) {
+      listed = listed || f.getPath().equals(file.getPath());
+    }
+    Assert.assertTrue(listed);
+
   }
 
   @Test
@@ -258,5 +286,139 @@ public class LocalStorageStudyStorageServiceTests {
     Assert.assertNull(folder);
   }
 
+  @Test
+  public void streamingStudyFileTest() throws Exception {
+    Study study = studyRepository.findByCode("CPA-10001")
+        .orElseThrow(RecordNotFoundException::new);
+    try {
+      storageService.createStudyFolder(study);
+    } catch (StudyStorageDuplicateException e) {
+      e.printStackTrace();
+    }
+
+    byte[] content = "streamed content".getBytes(StandardCharsets.UTF_8);
+    BasicStorageFile file = (BasicStorageFile) storageService.saveStudyFile("streamed.txt",
+        new UploadStream(new ByteArrayInputStream(content), 1024), study);
+    Assert.assertTrue(file.getPath().endsWith("streamed.txt"));
+    Assert.assertEquals(content.length, file.getSize().longValue());
+    Assert.assertEquals(64, file.getChecksum().length());
+    Assert.assertArrayEquals(content, Files.readAllBytes(Paths.get(file.getPath())));
+    Assert.assertEquals(Paths.get(file.getPath()),
+        storageService.getStudyFilePath(study, "streamed.txt"));
+    try {
+      storageService.getStudyFilePath(study, "../streamed.txt");
+      Assert.fail();
+    } catch (StudyStorageNotFoundException e) {
+      e.printStackTrace();
+    }
+
+    Exception exception = null;
+    try {
+      storageService.saveStudyFile("too-large.txt",
+          new UploadStream(new ByteArrayInputStream(content), 4), study);
+    } catch (Exception e) {
+      exception = e;
+    }
+    Assert.assertTrue(exception instanceof StudyStorageLimitExceededException);
+    Assert.assertFalse(Files.exists(Paths.get(file.getPath()).resolveSibling("too-large.txt")));
+  }
+
+  @Test
+  public void uploadFileNameTest() throws Exception {
+    Assert.assertEquals("data..v2.csv", StorageUtils.getUploadFileName("data..v2.csv"));
+    Assert.assertEquals(".upload-notes.txt", StorageUtils.getUploadFileName(".upload-notes.txt"));
+    for (String name : Arrays.asList(null, " ", ".", "..", "../data.csv", "a/b.csv", "a\\b.csv",
+        ".upload-1234.part")) {
+      try {
+        StorageUtils.getUploadFileName(name);
+        Assert.fail("Accepted file name: " + name);
+      } catch (StudyStorageWriteException e) {
+        Assert.assertTrue(e.getMessage().startsWith("Invalid file name"));
+      }
+    }
+  }
+
+  @Test
+  public void chunkedStudyFileUploadTest() throws Exception {
+    Study study = studyRepository.findByCode("CPA-10001")
+        .orElseThrow(RecordNotFoundException::new);
+    try {
+      storageService.createStudyFolder(study);
+    } catch (StudyStorageDuplicateException e) {
+      e.printStackTrace();
+    }
+    ChunkedUploadService uploadService = new ChunkedUploadService(storageService,
+        mongoOperations, Files.createTempDirectory("study-tracker-staging"), 1024, 4, 1024,
+        60000, 60000);
+
+    byte[] content = "chunked content".getBytes(StandardCharsets.UTF_8);
+    UploadSession session = uploadService.createStudySession(study, "chunked.txt",
+        content.length, 4L, null);
+    Assert.assertEquals(4, session.getChunkCount());
+    Assert.assertTrue(session.getReceivedChunks().isEmpty());
+
+    uploadService.putChunk(session.getId(), 3, new ByteArrayInputStream(content, 12, 3), null);
+    uploadService.putChunk(session.getId(), 1, new ByteArrayInputStream(content, 4, 4), null);
+    Exception exception = null;
+    try {
+      uploadService.putChunk(session.getId(), 0, new ByteArrayInputStream(content, 0, 4),
+          "0000");
+    } catch (Exception e) {
+      exception = e;
+    }
+    Assert.assertTrue(exception instanceof InvalidRequestException);
+    exception = null;
+    try {
+      uploadService.commitStudyFile(session.getId(), study);
+    } catch (Exception e) {
+      exception = e;
+    }
+    Assert.assertTrue(exception instanceof InvalidRequestException);
+
+    session = uploadService.findSession(session.getId()).orElseThrow(RecordNotFoundException::new);
+    Assert.assertEquals(Arrays.asList(1, 3), session.getReceivedChunks());
+    Assert.assertEquals(Arrays.asList(0, 2), session.getMissingChunks());
+    uploadService.putChunk(session.getId(), 2, new ByteArrayInputStream(content, 8, 4), null);
+    uploadService.putChunk(session.getId(), 0, new ByteArrayInputStream(content, 0, 4), null);
+
+    // A chunk write still in progress must prevent the session from being committed, unless its
+    // lease has expired
+    Query query = new Query(Criteria.where("id").is(session.getId()));
+    UploadSession.Writer writer = new UploadSession.Writer();
+    writer.setToken("writer-1");
+    writer.setIndex(0);
+    writer.setLeaseExpiresAt(new Date(System.currentTimeMillis() + 60000));
+    mongoOperations.updateFirst(query, new Update().push("writers", writer), UploadSession.class);
+    exception = null;
+    try {
+      uploadService.commitStudyFile(session.getId(), study);
+    } catch (Exception e) {
+      exception = e;
+    }
+    Assert.assertTrue(exception instanceof InvalidRequestException);
+    mongoOperations.updateFirst(query, new Update()
+            .set("writers.0.leaseExpiresAt", new Date(System.currentTimeMillis() - 1000)),
+        UploadSession.class);
+
+    StorageFile file = uploadService.commitStudyFile(session.getId(), study);
+    Assert.assertTrue(file.getPath().endsWith("chunked.txt"));
+    Assert.assertArrayEquals(content, Files.readAllBytes(Paths.get(file.getPath())));
+    Assert.assertFalse(uploadService.findSession(session.getId()).isPresent());
+
+    // Chunks received after an abort must not re-create the staged content
+    session = uploadService.createStudySession(study, "aborted.txt", content.length, 4L, null);
+    Path partPath = Paths.get(session.getStagingPath());
+    Assert.assertTrue(Files.exists(partPath));
+    uploadService.abort(session.getId());
+    Assert.assertFalse(Files.exists(partPath));
+    exception = null;
+    try {
+      uploadService.putChunk(session.getId(), 0, new ByteArrayInputStream(content, 0, 4), null);
+    } catch (Exception e) {
+      exception = e;
+    }
+    Assert.assertNotNull(exception);
+    Assert.assertFalse(Files.exists(partPath));
+  }
 
 }
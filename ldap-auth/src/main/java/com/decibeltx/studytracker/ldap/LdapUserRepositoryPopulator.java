@@ -34,6 +34,7 @@ public class LdapUserRepositoryPopulator {
 
   public void updateUserRepository() {
     LOGGER.info("Updating user repository from LDAP AD source...");
+    userService.clearCache();
     int count = 0;
     for (LdapUser ldapUser : userDetailsService.loadAllUsers()) {
       Optional<User> optional = userService.findByEmail(ldapUser.getEmail());
@@ -54,6 +55,7 @@ public class LdapUserRepositoryPopulator {
       }
       count++;
     }
+    userService.clearCache();
     LOGGER.info(String.format("Successfully updated %d user records.", count));
   }
 
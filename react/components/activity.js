@@ -38,6 +38,16 @@ const createMarkup = (content) => {
   return {__html: content};
 };
 
+// Returns the new value of a field from a change set, or the data itself for activity recorded
+// before change sets were introduced.
+const changedValue = (data, path) => {
+  if (!data || !data.changes) {
+    return data;
+  }
+  const change = data.changes.find(c => c.path === path);
+  return change ? change.newValue : null;
+};
+
 const ActivityIcon = ({action}) => {
   switch (action) {
     case studyActions.NEW_STUDY.value:
@@ -170,6 +180,16 @@ const ActivityIcon = ({action}) => {
 };
 
 const ActivityMessage = ({activity}) => {
+  if (activity.archived && !activity.data) {
+    return (
+        <p>
+          <a href={"/users/"
+          + activity.userAccountName}>{activity.userDisplayName}</a>
+          &nbsp;updated study:&nbsp;
+          <a href={"/studies/" + activity.studyCode}>{activity.studyCode}</a>
+        </p>
+    );
+  }
   switch (activity.action) {
     case studyActions.NEW_STUDY.value:
       return (
@@ -193,6 +213,28 @@ const ActivityMessage = ({activity}) => {
           </React.Fragment>
       );
     case studyActions.UPDATED_STUDY.value:
+      if (activity.data.changes) {
+        return (
+            <React.Fragment>
+              <p>
+                <a href={"/users/"
+                + activity.userAccountName}>{activity.userDisplayName}</a>
+                &nbsp;has made an edit to study&nbsp;
+                <a href={"/studies/"
+                + activity.studyCode}>{activity.studyCode}</a>:
+              </p>
+              <div className="bg-light text-secondary p-3">
+                <ul className="mb-0">
+                  {
+                    activity.data.changes.map(change => (
+                        <li key={change.path}>{change.path}</li>
+                    ))
+                  }
+                </ul>
+              </div>
+            </React.Fragment>
+        );
+      }
       return (
           <React.Fragment>
             <p>
@@ -229,7 +271,7 @@ const ActivityMessage = ({activity}) => {
             &nbsp;has updated the status of study&nbsp;
             <a href={"/studies/" + activity.studyCode}>{activity.studyCode}</a>
             &nbsp;to&nbsp;
-            <StatusBadge status={activity.data}/>
+            <StatusBadge status={changedValue(activity.data, "status")}/>
           </p>
       );
     case studyActions.FILE_UPLOADED.value:
@@ -514,4 +556,32 @@ export const ActivityTable = ({activity}) => {
         </tbody>
       </Table>
   )
-};
\ No newline at end of file
+};
+
+/**
+ * Fetches the next page of a study's activity, most recent first, and appends it to the
+ * component's activity state. Components using it keep activity, nextCursor,
+ * hasMore and isError in their state, and have a study prop.
+ */
+export const loadStudyActivity = (component) => {
+  let url = "/api/study/" + component.props.study.code
+      + "/activity?limit=100&sort=date,desc";
+  if (!!component.state.nextCursor) {
+    url = url + "&cursor=" + component.state.nextCursor;
+  }
+  return fetch(url)
+  .then(response => response.json())
+  .then(page => {
+    component.setState(state => ({
+      activity: [...state.activity, ...page.content],
+      nextCursor: page.nextCursor,
+      hasMore: page.hasMore
+    }));
+  })
+  .catch(error => {
+    console.error(error);
+    component.setState({
+      isError: true
+    });
+  });
+};
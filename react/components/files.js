@@ -82,10 +82,11 @@ const formatFileSize = (size) => {
  * @param folder
  * @param isError
  * @param isLoaded
+ * @param downloadUrl optional function returning the download API URL of a locally stored file
  * @returns {*}
  * @constructor
  */
-export const StorageFolderFileList = ({folder, isLoaded, isError}) => {
+export const StorageFolderFileList = ({folder, isLoaded, isError, downloadUrl}) => {
 
   if (isError) {
 
@@ -127,7 +128,8 @@ export const StorageFolderFileList = ({folder, isLoaded, isError}) => {
     .map(f => {
       return (
           <li key={"file-" + f.name}>
-            <a href={f.url} target="_blank">
+            <a href={!!downloadUrl && !!f.url && f.url.startsWith("/static/")
+                ? downloadUrl(f) : f.url} target="_blank">
               <FontAwesomeIcon icon={faFile}/> {f.name} - {formatFileSize(
                 f.size)}
             </a>
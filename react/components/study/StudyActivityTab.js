@@ -15,14 +15,28 @@
  */
 
 import React from "react";
-import {Col, Row} from 'reactstrap'
-import {ActivityTable} from "../activity";
+import {Button, Col, Row} from 'reactstrap'
+import {ActivityTable, loadStudyActivity} from "../activity";
 
 class StudyActivityTab extends React.Component {
 
   constructor(props) {
     super(props);
-    this.state = {};
+    this.state = {
+      activity: [],
+      nextCursor: null,
+      hasMore: false,
+      isError: false
+    };
+    this.loadActivity = this.loadActivity.bind(this);
+  }
+
+  componentDidMount() {
+    this.loadActivity();
+  }
+
+  loadActivity() {
+    loadStudyActivity(this);
   }
 
   render() {
@@ -38,10 +52,23 @@ class StudyActivityTab extends React.Component {
 
           <Row>
             <Col sm={12}>
-              <ActivityTable activity={this.props.study.activity}/>
+              <ActivityTable activity={this.state.activity}/>
             </Col>
           </Row>
 
+          {
+            this.state.hasMore
+                ? (
+                    <Row>
+                      <Col sm={12} className="text-center">
+                        <Button color={'info'} onClick={this.loadActivity}>
+                          Load More
+                        </Button>
+                      </Col>
+                    </Row>
+                ) : ''
+          }
+
         </div>
     )
 
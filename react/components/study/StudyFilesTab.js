@@ -122,6 +122,8 @@ class StudyFilesTabContent extends React.Component {
                   folder={this.state.folder}
                   isLoaded={this.state.isLoaded}
                   isError={this.state.isError}
+                  downloadUrl={f => "/api/study/" + this.props.study.code
+                      + "/storage/files/" + encodeURIComponent(f.name)}
               />
             </Col>
           </Row>
@@ -143,10 +143,12 @@ const columns = [
     headerStyle: {width: '10%'},
     formatter: (c, d, i, x) => {
       let links = [];
-      if (!!d.storageFolder) {
+      const folderUrl = !!d.storageFolder ? d.storageFolder.url
+          : d.storageFolderUrl;
+      if (!!folderUrl) {
         links.push(
             <a key={'files-links-' + d.id} target="_blank"
-               href={d.storageFolder.url}>Files</a>
+               href={folderUrl}>Files</a>
         )
       }
       if (!!d.notebookEntries && d.notebookEntries.length > 0) {
@@ -176,14 +178,14 @@ const columns = [
       const CRO = !!d.collaborator
           ? d.collaborator.organizationName +
           ' ' +
-          d.collaborator.contactName
+          (d.collaborator.contactName || '')
           : '';
       let text =
           d.name +
           ' ' +
           d.status +
           ' ' +
-          d.description +
+          (d.description || '') +
           ' ' +
           d.program.name +
           ' ' +
@@ -191,7 +193,7 @@ const columns = [
           ' ' +
           CRO +
           ' ' +
-          d.createdBy.displayName +
+          (!!d.createdBy ? d.createdBy.displayName : '') +
           ' ' +
           d.owner.displayName +
           ' ' +
@@ -222,13 +224,10 @@ const ExportToCsv = (props) => {
   );
 };
 
-const StudyList = ({studies, title, filters, user}) => {
+const StudyList = ({studies, activity, title, filters, user}) => {
 
-  // Get study activity
-  let activities = [];
-  studies.forEach(s => {
-    activities = [...activities, ...s.activity]
-  });
+  // Get recent study activity
+  let activities = [...(activity || [])];
   activities.sort((a, b) => {
     if (a.date > b.date) {
       return -1;
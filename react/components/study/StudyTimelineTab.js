@@ -15,14 +15,28 @@
  */
 
 import React from "react";
-import {Col, Row} from 'reactstrap'
-import {Timeline} from "../activity";
+import {Button, Col, Row} from 'reactstrap'
+import {Timeline, loadStudyActivity} from "../activity";
 
 class StudyTimelineTab extends React.Component {
 
   constructor(props) {
     super(props);
-    this.state = {};
+    this.state = {
+      activity: [],
+      nextCursor: null,
+      hasMore: false,
+      isError: false
+    };
+    this.loadActivity = this.loadActivity.bind(this);
+  }
+
+  componentDidMount() {
+    this.loadActivity();
+  }
+
+  loadActivity() {
+    loadStudyActivity(this);
   }
 
   render() {
@@ -44,10 +58,23 @@ class StudyTimelineTab extends React.Component {
 
           <Row>
             <Col sm={12}>
-              <Timeline activities={this.props.study.activity}/>
+              <Timeline activities={this.state.activity}/>
             </Col>
           </Row>
 
+          {
+            this.state.hasMore
+                ? (
+                    <Row>
+                      <Col sm={12} className="text-center">
+                        <Button color={'info'} onClick={this.loadActivity}>
+                          Load More
+                        </Button>
+                      </Col>
+                    </Row>
+                ) : ''
+          }
+
         </div>
     )
 
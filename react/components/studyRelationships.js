@@ -65,19 +65,7 @@ class StudyRelationships extends React.Component {
     .then(response => response.json())
     .then(json => {
       const options = json
-      .filter(s => s.code !== this.props.studyCode && s.active)
-      .sort((a, b) => {
-        const al = a.code + ": " + a.name;
-        const bl = b.code + ": " + b.name;
-        if (al > bl) {
-          return -1;
-        }
-        if (al < bl) {
-          return 1;
-        } else {
-          return 0;
-        }
-      })
+      .filter(s => s.code !== this.props.studyCode)
       .map(study => {
         return {
           label: study.code + ": " + study.name,
@@ -45,6 +45,7 @@ import {FontAwesomeIcon} from "@fortawesome/react-fontawesome";
 import {history} from '../App';
 import StandardWrapper from "../structure/StandardWrapper";
 import {connect} from 'react-redux';
+import {StorageFolderFileList} from "../components/files";
 
 class AssayDetailsView extends React.Component {
 
@@ -122,6 +123,54 @@ const AssayDetailHeader = ({study, assay}) => {
   );
 };
 
+class AssayFilesTab extends React.Component {
+
+  constructor(props) {
+    super(props);
+    this.state = {
+      isLoaded: false,
+      isError: false
+    };
+  }
+
+  componentDidMount() {
+    fetch("/api/study/" + this.props.study.code + "/assays/" + this.props.assay.code
+        + "/storage")
+    .then(response => {
+      if (response.ok) {
+        return response.json();
+      }
+      throw new Error("Failed to load assay folder.");
+    })
+    .then(json => {
+      this.setState({
+        folder: json,
+        isLoaded: true
+      })
+    })
+    .catch(e => {
+      console.error(e);
+      this.setState({
+        isError: true,
+        error: e.message
+      })
+    });
+  }
+
+  render() {
+    return (
+        <StorageFolderFileList
+            folder={this.state.folder}
+            isLoaded={this.state.isLoaded}
+            isError={this.state.isError}
+            downloadUrl={f => "/api/study/" + this.props.study.code + "/assays/"
+                + this.props.assay.code + "/storage/files/" + encodeURIComponent(f.name)}
+        />
+    )
+  }
+
+}
+
 class AssayDetails extends React.Component {
 
   constructor(props) {
@@ -364,13 +413,7 @@ class AssayDetails extends React.Component {
                 <TabContent activeTab={this.state.activeTab}>
 
                   <TabPane tabId="1">
-                    <Row className="justify-content-between align-items-center">
-                      <div className="col-auto">
-                        <p className="text-center">
-                          Files will go here.
-                        </p>
-                      </div>
-                    </Row>
+                    <AssayFilesTab study={study} assay={assay}/>
                   </TabPane>
 
                   <TabPane tabId="2">
@@ -27,6 +27,19 @@ import {withRouter} from 'react-router-dom';
 
 const qs = require('qs');
 
+const ACTIVITY_LIMIT = 100;
+const ACTIVITY_DAYS = 30;
+
+// Returns the ID of the program the study list is filtered to, if it is filtered to exactly one,
+// so that the activity panel can be scoped to it.
+const selectedProgram = filters => {
+  const programs = filters ? filters[filter.PROGRAM] : null;
+  if (Array.isArray(programs)) {
+    return programs.length === 1 ? programs[0] : null;
+  }
+  return programs || null;
+};
+
 class StudyListView extends React.Component {
 
   constructor(props) {
@@ -43,15 +56,18 @@ class StudyListView extends React.Component {
     const params = qs.parse(this.props.location.search,
         {ignoreQueryPrefix: true});
     let title = params.title || this.state.title;
-    let query = '';
+    let query = '?view=summary';
     if (!!params.search) {
-      query = "?search=" + params.search;
+      query = "?view=summary&search=" + encodeURIComponent(params.search);
       title = 'Search Results';
     }
+    this.program = selectedProgram(this.props.filters);
 
-    fetch("/api/study" + query)
-    .then(response => response.json())
-    .then(studies => {
+    Promise.all([
+      fetch("/api/study" + query).then(response => response.json()),
+      this.fetchActivity()
+    ])
+    .then(([studies, activity]) => {
 
       console.log(studies);
 
@@ -69,10 +85,13 @@ class StudyListView extends React.Component {
 
       this.setState({
         data: data,
+        activity: activity,
         isLoaded: true,
         title: title
       });
 
+      this.subscribeToActivity();
+
     })
     .catch(error => {
       console.error(error);
@@ -83,6 +102,56 @@ class StudyListView extends React.Component {
     });
   }
 
+  componentDidUpdate() {
+    const program = selectedProgram(this.props.filters);
+    if (this.state.isLoaded && program !== this.program) {
+      this.program = program;
+      this.reloadActivity();
+      this.subscribeToActivity();
+    }
+  }
+
+  componentWillUnmount() {
+    if (this.activityStream) {
+      this.activityStream.close();
+    }
+  }
+
+  // Fetches a single page of the most recent activity, limited to the selected program, if any.
+  fetchActivity() {
+    const from = new Date(Date.now() - ACTIVITY_DAYS * 24 * 60 * 60 * 1000);
+    let query = "?limit=" + ACTIVITY_LIMIT + "&from=" + from.toISOString();
+    if (!!this.program) {
+      query = query + "&program=" + this.program;
+    }
+    return fetch("/api/activity" + query)
+    .then(response => response.json())
+    .then(page => page.content);
+  }
+
+  reloadActivity() {
+    this.fetchActivity()
+    .then(activity => this.setState({activity: activity}))
+    .catch(error => console.error(error));
+  }
+
+  // Receives new activity as it happens, rather than re-fetching the activity list. The browser
+  // reconnects automatically, and the server replays anything missed since the last event.
+  subscribeToActivity() {
+    if (this.activityStream) {
+      this.activityStream.close();
+    }
+    this.activityStream = new EventSource("/api/activity/stream"
+        + (!!this.program ? "?program=" + this.program : ""));
+    this.activityStream.addEventListener("activity", event => {
+      const activity = JSON.parse(event.data);
+      this.setState(state => ({
+        activity: [activity, ...state.activity].slice(0, ACTIVITY_LIMIT)
+      }));
+    });
+    this.activityStream.addEventListener("reset", () => this.reloadActivity());
+  }
+
   render() {
 
     let content = <LoadingMessage/>;
@@ -114,6 +183,7 @@ class StudyListView extends React.Component {
         content =
             <StudyList
                 studies={this.state.data.dimensions.allData.top(Infinity)}
+                activity={this.state.activity}
                 title={this.state.title}
                 filters={this.props.filters}
                 user={this.props.user}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.decibeltx.studytracker.web;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+
+/**
+ * Writes stored files to HTTP responses. Supports conditional requests against a strong ETag
+ * derived from the file's size and modification time, and single byte ranges, honoring
+ * {@code If-Range}. File content is handed to the servlet container's sendfile support when
+ * available, and otherwise transferred from a {@link FileChannel}, so memory use does not depend
+ * on the file size. Requests for several ranges are answered with the whole file.
+ */
+public class StorageFileDownloader {
+
+  private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+  private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+  private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+  private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+  private final long sendfileThreshold;
+
+  public StorageFileDownloader(long sendfileThreshold) {
+    this.sendfileThreshold = sendfileThreshold;
+  }
+
+  /**
+   * Writes the file, or the requested part of it, to the response.
+   *
+   * @param path file to send
+   * @param request the download request
+   * @param response the response to write to
+   */
+  public void download(Path path, HttpServletRequest request, HttpServletResponse response)
+      throws IOException {
+
+    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+    long length = attributes.size();
+    long lastModified = TimeUnit.SECONDS.toMillis(attributes.lastModifiedTime()
+        .to(TimeUnit.SECONDS));
+    String etag = "\"" + Long.toHexString(length) + "-"
+        + Long.toHexString(attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS)) + "\"";
+
+    response.setHeader(HttpHeaders.ETAG, etag);
+    response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+    response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+    if (isNotModified(request, etag, lastModified)) {
+      response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      return;
+    }
+
+    long start = 0L;
+    long end = length - 1;
+    String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+    if (rangeHeader != null && isRangeCurrent(request, etag, lastModified)) {
+      List<HttpRange> ranges;
+      try {
+        ranges = HttpRange.parseRanges(rangeHeader);
+      } catch (IllegalArgumentException e) {
+        ranges = null;
+      }
+      if (ranges != null && ranges.size() == 1) {
+        HttpRange range = ranges.get(0);
+        start = range.getRangeStart(length);
+        end = Math.min(range.getRangeEnd(length), length - 1);
+        if (start >= length || start > end) {
+          response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+          response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+          return;
+        }
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setHeader(HttpHeaders.CONTENT_RANGE,
+            "bytes " + start + "-" + end + "/" + length);
+      }
+    }
+
+    long count = end - start + 1;
+    String contentType = Files.probeContentType(path);
+    response.setContentType(contentType != null
+        ? contentType : MediaType.APPLICATION_OCTET_STREAM_VALUE);
+    response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.builder("attachment")
+        .filename(path.getFileName().toString()).build().toString());
+    response.setContentLengthLong(count);
+    if ("HEAD".equals(request.getMethod()) || count <= 0) {
+      return;
+    }
+
+    if (count >= sendfileThreshold
+        && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+      request.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+      request.setAttribute(SENDFILE_START, start);
+      request.setAttribute(SENDFILE_END, end + 1);
+      return;
+    }
+
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+      long position = start;
+      long remaining = count;
+      while (remaining > 0) {
+        long transferred = channel.transferTo(position, remaining, target);
+        if (transferred <= 0) {
+          break;
+        }
+        position += transferred;
+        remaining -= transferred;
+      }
+    }
+
+  }
+
+  private static boolean isNotModified(HttpServletRequest request, String etag,
+      long lastModified) {
+    String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+    if (ifNoneMatch != null) {
+      for (String candidate : ifNoneMatch.split(",")) {
+        String value = candidate.trim();
+        if (value.startsWith("W/")) {
+          value = value.substring(2);
+        }
+        if ("*".equals(value) || etag.equals(value)) {
+          return true;
+        }
+      }
+      return false;
+    }
+    long ifModifiedSince = getDateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+    return ifModifiedSince != -1 && lastModified <= ifModifiedSince;
+  }
+
+  /**
+   * Returns true unless an {@code If-Range} precondition shows the client's partial copy is of a
+   * different version of the file.
+   */
+  private static boolean isRangeCurrent(HttpServletRequest request, String etag,
+      long lastModified) {
+    String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+    if (ifRange == null) {
+      return true;
+    }
+    ifRange = ifRange.trim();
+    if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+      return etag.equals(ifRange);
+    }
+    try {
+      return ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME)
+          .toInstant().toEpochMilli() == lastModified;
+    } catch (DateTimeParseException e) {
+      return false;
+    }
+  }
+
+  private static long getDateHeader(HttpServletRequest request, String name) {
+    try {
+      return request.getDateHeader(name);
+    } catch (IllegalArgumentException e) {
+      return -1L;
+    }
+  }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.decibeltx.studytracker.web;
+
+import com.decibeltx.studytracker.core.model.Study;
+import com.decibeltx.studytracker.core.storage.StorageFile;
+import com.decibeltx.studytracker.core.storage.StudyStorageService;
+import com.decibeltx.studytracker.core.storage.UploadStream;
+import com.decibeltx.studytracker.core.storage.exception.StudyStorageLimitExceededException;
+import java.nio.file.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Moves uploaded files into study storage. In streaming mode the multipart content is written
+ * directly to its destination by the {@link StudyStorageService}, with the size limit enforced
+ * and the checksum computed as it is read. Otherwise the file is first staged in the
+ * {@link FileStorageService} temporary directory and then copied.
+ */
+public class StudyFileUploader {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(StudyFileUploader.class);
+
+  private final StudyStorageService studyStorageService;
+
+  private final FileStorageService fileStorageService;
+
+  private final boolean streaming;
+
+  private final long maxSize;
+
+  public StudyFileUploader(StudyStorageService studyStorageService,
+      FileStorageService fileStorageService, boolean streaming, long maxSize) {
+    this.studyStorageService = studyStorageService;
+    this.fileStorageService = fileStorageService;
+    this.streaming = streaming;
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Saves the uploaded file to the study's storage folder.
+   *
+   * @param file uploaded file
+   * @param study target study
+   * @return the stored file
+   * @throws StudyStorageLimitExceededException if the file is larger than the maximum size
+   */
+  public StorageFile uploadStudyFile(MultipartFile file, Study study) throws Exception {
+    if (file.getSize() > maxSize) {
+      throw new StudyStorageLimitExceededException(
+          "Upload exceeds the maximum size of " + maxSize + " bytes");
+    }
+    if (!streaming) {
+      Path path = fileStorageService.store(file);
+      LOGGER.info(path.toString());
+      return studyStorageService.saveStudyFile(path.toFile(), study);
+    }
+    String fileName = StringUtils.cleanPath(file.getOriginalFilename());
+    try (UploadStream inputStream = new UploadStream(file.getInputStream(), maxSize)) {
+      StorageFile storageFile = studyStorageService.saveStudyFile(fileName, inputStream, study);
+      LOGGER.info(String.format("Stored %d bytes for file %s with SHA-256 checksum %s",
+          inputStream.getSize(), fileName, inputStream.getChecksum()));
+      return storageFile;
+    }
+  }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.decibeltx.studytracker.web.config;
+
+import com.decibeltx.studytracker.core.exception.InvalidRequestException;
+import com.decibeltx.studytracker.core.paging.CursorRequest;
+import org.springframework.core.MethodParameter;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * Resolves {@link CursorRequest} controller method arguments from the {@code sort}, {@code cursor}
+ * and {@code limit} request parameters. The sort parameter takes the form {@code property} or
+ * {@code property,desc}. Requested limits are clamped between one and the configured maximum.
+ */
+public class CursorRequestArgumentResolver implements HandlerMethodArgumentResolver {
+
+  private final int defaultLimit;
+
+  private final int maxLimit;
+
+  public CursorRequestArgumentResolver(int defaultLimit, int maxLimit) {
+    this.defaultLimit = defaultLimit;
+    this.maxLimit = maxLimit;
+  }
+
+  @Override
+  public boolean supportsParameter(MethodParameter parameter) {
+    return CursorRequest.class.equals(parameter.getParameterType());
+  }
+
+  @Override
+  public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+      NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+
+    String sort = null;
+    Direction direction = Direction.ASC;
+    String sortParam = webRequest.getParameter("sort");
+    if (StringUtils.hasText(sortParam)) {
+      String[] bits = sortParam.split(",");
+      sort = bits[0].trim();
+      if (bits.length > 1) {
+        direction = Direction.fromOptionalString(bits[1].trim())
+            .orElseThrow(() -> new InvalidRequestException("Invalid sort direction: " + bits[1]));
+      }
+    }
+
+    int limit = defaultLimit;
+    String limitParam = webRequest.getParameter("limit");
+    if (StringUtils.hasText(limitParam)) {
+      try {
+        limit = Integer.parseInt(limitParam);
+      } catch (NumberFormatException e) {
+        throw new InvalidRequestException("Invalid page limit: " + limitParam, e);
+      }
+    }
+
+    return CursorRequest.of(sort, direction, webRequest.getParameter("cursor"),
+        Math.max(1, Math.min(limit, maxLimit)));
+
+  }
+
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.decibeltx.studytracker.web.config;
+
+import com.decibeltx.studytracker.core.repository.support.DbRefResolutionScope;
+import java.io.IOException;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Opens a {@link DbRefResolutionScope} for the duration of each request, so that records
+ * referenced by several loaded documents (eg. the same owner or program on many studies) are
+ * fetched and materialized only once per request.
+ */
+public class DbRefResolutionScopeFilter extends OncePerRequestFilter {
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+      FilterChain filterChain) throws ServletException, IOException {
+    try (DbRefResolutionScope scope = DbRefResolutionScope.open()) {
+      filterChain.doFilter(request, response);
+    }
+  }
+
+}
@@ -16,20 +16,35 @@
 
 package com.decibeltx.studytracker.web.config;
 
+import com.decibeltx.studytracker.core.events.ActivityWriteBuffer;
+import com.decibeltx.studytracker.core.events.StudyEventDispatcher;
+import com.decibeltx.studytracker.core.events.outbox.EventOutbox;
 import com.decibeltx.studytracker.core.notebook.NotebookEntry;
 import com.decibeltx.studytracker.core.notebook.SimpleNotebookEntry;
+import com.decibeltx.studytracker.core.paging.CursorRequest;
+import com.decibeltx.studytracker.core.service.UserService;
 import com.decibeltx.studytracker.core.storage.BasicStorageFile;
 import com.decibeltx.studytracker.core.storage.BasicStorageFolder;
+import com.decibeltx.studytracker.core.storage.ChunkedUploadService;
 import com.decibeltx.studytracker.core.storage.StorageFile;
 import com.decibeltx.studytracker.core.storage.StorageFolder;
+import com.decibeltx.studytracker.core.storage.StudyStorageService;
 import com.decibeltx.studytracker.egnyte.entity.EgnyteFile;
 import com.decibeltx.studytracker.egnyte.entity.EgnyteFolder;
 import com.decibeltx.studytracker.idbs.eln.entities.IdbsNotebookEntry;
 import com.decibeltx.studytracker.web.FileSystemStorageService;
+import com.decibeltx.studytracker.web.StorageFileDownloader;
+import com.decibeltx.studytracker.web.StudyFileUploader;
+import com.decibeltx.studytracker.web.listeners.ActivityStreamBroadcaster;
+import com.decibeltx.studytracker.web.metrics.MicrometerStudyEventMetrics;
+import com.decibeltx.studytracker.web.metrics.StudyTrackerMeterBinder;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.module.SimpleModule;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
@@ -37,6 +52,9 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.core.env.Environment;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
@@ -55,14 +73,92 @@ public class WebAppConfiguration {
       public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/api/**");
       }
+
+      @Override
+      public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(cursorRequestArgumentResolver());
+      }
     };
   }
 
+  @Bean
+  public CursorRequestArgumentResolver cursorRequestArgumentResolver() {
+    return new CursorRequestArgumentResolver(
+        env.getProperty("pagination.default-limit", Integer.class, CursorRequest.DEFAULT_LIMIT),
+        env.getProperty("pagination.max-limit", Integer.class, 500)
+    );
+  }
+
+  @Bean
+  public DbRefResolutionScopeFilter dbRefResolutionScopeFilter() {
+    return new DbRefResolutionScopeFilter();
+  }
+
   @Bean
   public FileSystemStorageService fileSystemStorageService() {
     return new FileSystemStorageService(Paths.get(env.getRequiredProperty("storage.temp-dir")));
   }
 
+  @Bean
+  public StorageFileDownloader storageFileDownloader() {
+    return new StorageFileDownloader(
+        env.getProperty("storage.download.sendfile-threshold", DataSize.class,
+            DataSize.ofKilobytes(48)).toBytes()
+    );
+  }
+
+  @Bean
+  public StudyFileUploader studyFileUploader(StudyStorageService studyStorageService) {
+    return new StudyFileUploader(
+        studyStorageService,
+        fileSystemStorageService(),
+        env.getProperty("storage.upload.streaming", Boolean.class, true),
+        env.getProperty("storage.upload.max-size", DataSize.class, DataSize.ofGigabytes(2))
+            .toBytes()
+    );
+  }
+
+  @Bean(initMethod = "start")
+  public ChunkedUploadService chunkedUploadService(StudyStorageService studyStorageService,
+      MongoOperations mongoOperations) {
+    return new ChunkedUploadService(
+        studyStorageService,
+        mongoOperations,
+        Paths.get(env.getProperty("storage.upload.staging-dir", "/tmp/study-tracker-uploads")),
+        env.getProperty("storage.upload.max-size", DataSize.class, DataSize.ofGigabytes(2))
+            .toBytes(),
+        env.getProperty("storage.upload.chunk-size", DataSize.class, DataSize.ofMegabytes(8))
+            .toBytes(),
+        env.getProperty("storage.upload.max-chunk-size", DataSize.class,
+            DataSize.ofMegabytes(64)).toBytes(),
+        TimeUnit.HOURS.toMillis(env.getProperty("storage.upload.session-ttl-hours", Long.class,
+            24L)),
+        TimeUnit.MINUTES.toMillis(env.getProperty("storage.upload.chunk-lease-minutes",
+            Long.class, 15L))
+    );
+  }
+
+  @Bean
+  public ActivityStreamBroadcaster activityStreamBroadcaster() {
+    return new ActivityStreamBroadcaster(
+        env.getProperty("activity.stream.timeout-ms", Long.class, 1800000L),
+        env.getProperty("activity.stream.heartbeat-ms", Long.class, 30000L),
+        env.getProperty("activity.stream.sender-threads", Integer.class, 4)
+    );
+  }
+
+  @Bean
+  public MicrometerStudyEventMetrics micrometerStudyEventMetrics(MeterRegistry meterRegistry) {
+    return new MicrometerStudyEventMetrics(meterRegistry);
+  }
+
+  @Bean
+  public StudyTrackerMeterBinder studyTrackerMeterBinder(StudyEventDispatcher studyEventDispatcher,
+      ActivityWriteBuffer activityWriteBuffer, EventOutbox eventOutbox, UserService userService) {
+    return new StudyTrackerMeterBinder(studyEventDispatcher, activityWriteBuffer, eventOutbox,
+        userService, activityStreamBroadcaster());
+  }
+
   @Bean
   @Primary
   public ObjectMapper objectMapper() {
@@ -19,6 +19,8 @@ package com.decibeltx.studytracker.web.config;
 import com.decibeltx.studytracker.core.config.UserServiceAuditor;
 import com.decibeltx.studytracker.core.model.User;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.actuate.health.HealthEndpoint;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.annotation.Order;
@@ -30,6 +32,7 @@ import org.springframework.security.config.annotation.method.configuration.Enabl
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.security.web.authentication.HttpStatusEntryPoint;
 import org.springframework.security.web.authentication.www.BasicAuthenticationEntryPoint;
@@ -73,6 +76,8 @@ public class WebSecurityConfiguration {
           .antMatchers(HttpMethod.POST).fullyAuthenticated()
           .antMatchers(HttpMethod.PUT).fullyAuthenticated()
           .antMatchers(HttpMethod.DELETE).fullyAuthenticated()
+          .antMatchers(HttpMethod.GET, "/api/study/*/storage/files/**",
+              "/api/study/*/assays/*/storage/files/**").fullyAuthenticated()
           .anyRequest().permitAll()
           .and()
           .httpBasic()
@@ -92,9 +97,40 @@ public class WebSecurityConfiguration {
 
   }
 
-  @SuppressWarnings("SpringJavaInjectionPointsAutowiringInspection")
+  /**
+   * Requires authentication for all actuator endpoints other than health, so that metrics and
+   * other operational data are not publicly readable. Scrapers authenticate with HTTP basic.
+   */
   @Configuration
   @Order(2)
+  public static class ActuatorSecurityConfiguration extends WebSecurityConfigurerAdapter {
+
+    @SuppressWarnings("SpringJavaInjectionPointsAutowiringInspection")
+    @Autowired
+    private AuthenticationProvider authenticationProvider;
+
+    @Override
+    protected void configure(HttpSecurity http) throws Exception {
+      http
+          .requestMatcher(EndpointRequest.toAnyEndpoint())
+          .authenticationProvider(authenticationProvider)
+          .authorizeRequests()
+          .requestMatchers(EndpointRequest.to(HealthEndpoint.class)).permitAll()
+          .anyRequest().fullyAuthenticated()
+          .and()
+          .httpBasic()
+          .and()
+          .sessionManagement()
+          .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
+          .and()
+          .csrf().disable();
+    }
+
+  }
+
+  @SuppressWarnings("SpringJavaInjectionPointsAutowiringInspection")
+  @Configuration
+  @Order(3)
   public static class WebAppSecurityConfiguration extends WebSecurityConfigurerAdapter {
 
 
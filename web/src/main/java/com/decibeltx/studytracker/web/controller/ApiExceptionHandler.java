@@ -18,7 +18,9 @@ package com.decibeltx.studytracker.web.controller;
 
 import com.decibeltx.studytracker.core.exception.DuplicateRecordException;
 import com.decibeltx.studytracker.core.exception.InvalidConstraintException;
+import com.decibeltx.studytracker.core.exception.InvalidRequestException;
 import com.decibeltx.studytracker.core.exception.RecordNotFoundException;
+import com.decibeltx.studytracker.core.storage.exception.StudyStorageLimitExceededException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -27,6 +29,7 @@ import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
 @ControllerAdvice(basePackages = {"com.decibeltx.studytracker.web.controller.api"})
@@ -49,6 +52,13 @@ public class ApiExceptionHandler extends ResponseEntityExceptionHandler {
     return new ResponseEntity<>(apiError, HttpStatus.BAD_REQUEST);
   }
 
+  @ExceptionHandler(InvalidRequestException.class)
+  public final ResponseEntity<ApiError> invalidRequest(InvalidRequestException ex,
+      WebRequest request) {
+    ApiError apiError = new ApiError(ex.getMessage(), request.getDescription(false));
+    return new ResponseEntity<>(apiError, HttpStatus.BAD_REQUEST);
+  }
+
   @ExceptionHandler(RecordNotFoundException.class)
   public final ResponseEntity<ApiError> recordNotFound(RecordNotFoundException ex,
       WebRequest request) {
@@ -65,6 +75,20 @@ public class ApiExceptionHandler extends ResponseEntityExceptionHandler {
     return new ResponseEntity<>(apiError, HttpStatus.BAD_REQUEST);
   }
 
+  @ExceptionHandler(StudyStorageLimitExceededException.class)
+  public final ResponseEntity<ApiError> storageLimitExceeded(StudyStorageLimitExceededException ex,
+      WebRequest request) {
+    ApiError apiError = new ApiError(ex.getMessage(), request.getDescription(false));
+    return new ResponseEntity<>(apiError, HttpStatus.PAYLOAD_TOO_LARGE);
+  }
+
+  @ExceptionHandler(MaxUploadSizeExceededException.class)
+  public final ResponseEntity<ApiError> maxUploadSizeExceeded(MaxUploadSizeExceededException ex,
+      WebRequest request) {
+    ApiError apiError = new ApiError(ex.getMessage(), request.getDescription(false));
+    return new ResponseEntity<>(apiError, HttpStatus.PAYLOAD_TOO_LARGE);
+  }
+
   @ExceptionHandler(Exception.class)
   public final ResponseEntity<ApiError> genericException(Exception ex, WebRequest request) {
     ex.printStackTrace();
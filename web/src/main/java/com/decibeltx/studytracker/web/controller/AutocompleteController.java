@@ -16,10 +16,9 @@
 
 package com.decibeltx.studytracker.web.controller;
 
-import com.decibeltx.studytracker.core.model.Study;
-import com.decibeltx.studytracker.core.model.User;
-import com.decibeltx.studytracker.core.service.StudyService;
-import com.decibeltx.studytracker.core.service.UserService;
+import com.decibeltx.studytracker.core.model.StudySuggestion;
+import com.decibeltx.studytracker.core.model.UserSuggestion;
+import com.decibeltx.studytracker.core.service.AutocompleteService;
 import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -31,20 +30,25 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/api/autocomplete")
 public class AutocompleteController {
 
-  @Autowired
-  private UserService userService;
+  private static final int MAX_LIMIT = 100;
 
   @Autowired
-  private StudyService studyService;
+  private AutocompleteService autocompleteService;
 
   @GetMapping("/user")
-  public List<User> userSearch(@RequestParam("q") String keyword) {
-    return userService.search(keyword);
+  public List<UserSuggestion> userSearch(@RequestParam("q") String keyword,
+      @RequestParam(value = "limit", defaultValue = "20") int limit) {
+    return autocompleteService.suggestUsers(keyword, clamp(limit));
   }
 
   @GetMapping("/study")
-  public List<Study> studySearch(@RequestParam("q") String keyword) {
-    return studyService.search(keyword);
+  public List<StudySuggestion> studySearch(@RequestParam("q") String keyword,
+      @RequestParam(value = "limit", defaultValue = "20") int limit) {
+    return autocompleteService.suggestStudies(keyword, clamp(limit));
+  }
+
+  private static int clamp(int limit) {
+    return Math.max(1, Math.min(limit, MAX_LIMIT));
   }
 
 }
@@ -16,32 +16,111 @@
 
 package com.decibeltx.studytracker.web.controller.api;
 
+import com.decibeltx.studytracker.core.events.StudyEvent.Type;
+import com.decibeltx.studytracker.core.exception.InvalidRequestException;
+import com.decibeltx.studytracker.core.exception.RecordNotFoundException;
 import com.decibeltx.studytracker.core.model.Activity;
+import com.decibeltx.studytracker.core.model.ActivityFilter;
+import com.decibeltx.studytracker.core.model.Program;
+import com.decibeltx.studytracker.core.model.Study;
+import com.decibeltx.studytracker.core.model.User;
+import com.decibeltx.studytracker.core.paging.CursorPage;
+import com.decibeltx.studytracker.core.paging.CursorRequest;
 import com.decibeltx.studytracker.core.service.ActivityService;
+import com.decibeltx.studytracker.core.service.ProgramService;
+import com.decibeltx.studytracker.core.service.StudyService;
+import com.decibeltx.studytracker.core.service.UserService;
+import com.decibeltx.studytracker.web.listeners.ActivityStreamBroadcaster;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import javax.servlet.http.HttpServletRequest;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RequestMapping("/api/activity")
 @RestController
 public class ActivityController {
 
+  private static final int MAX_REPLAY = 500;
+
   @Autowired
   private ActivityService activityService;
 
+  @Autowired
+  private StudyService studyService;
+
+  @Autowired
+  private ProgramService programService;
+
+  @Autowired
+  private UserService userService;
+
+  @Autowired
+  private ActivityStreamBroadcaster activityStreamBroadcaster;
+
+  /**
+   * Returns all activity, or a cursor page of activity when the request includes a cursor, limit,
+   * or any of the program, user, type and date-range filters. Filtered pages are sorted by date,
+   * most recent first, unless another sort is requested.
+   */
   @GetMapping("")
-  public HttpEntity<?> getActivity(Pageable pageable, HttpServletRequest request) {
+  public HttpEntity<?> getActivity(
+      @RequestParam(value = "program", required = false) String programId,
+      @RequestParam(value = "user", required = false) String userId,
+      @RequestParam(value = "type", required = false) String type,
+      @RequestParam(value = "from", required = false)
+      @DateTimeFormat(iso = ISO.DATE_TIME) Date from,
+      @RequestParam(value = "to", required = false)
+      @DateTimeFormat(iso = ISO.DATE_TIME) Date to,
+      Pageable pageable,
+      CursorRequest cursorRequest,
+      HttpServletRequest request
+  ) {
     Map<String, String[]> params = request.getParameterMap();
-    if (params.containsKey("page") || params.containsKey("size")) {
+    if (programId != null || userId != null || type != null || from != null || to != null
+        || params.containsKey("cursor") || params.containsKey("limit")) {
+      ActivityFilter filter = new ActivityFilter();
+      if (programId != null) {
+        Program program = programService.findById(programId)
+            .orElseThrow(() -> new RecordNotFoundException("Cannot find program: " + programId));
+        filter.setProgramId(program.getId());
+      }
+      if (userId != null) {
+        User user = userService.findById(userId)
+            .orElseThrow(() -> new RecordNotFoundException("Cannot find user: " + userId));
+        filter.setUserId(user.getId());
+      }
+      if (type != null) {
+        try {
+          filter.setType(Type.valueOf(type));
+        } catch (IllegalArgumentException e) {
+          throw new InvalidRequestException("Invalid activity type: " + type);
+        }
+      }
+      filter.setFrom(from);
+      filter.setTo(to);
+      CursorRequest pageRequest = params.containsKey("sort") ? cursorRequest
+          : CursorRequest.of("date", Direction.DESC, cursorRequest.getCursor(),
+              cursorRequest.getLimit());
+      CursorPage<Activity> page = activityService.findPage(filter, pageRequest);
+      return new ResponseEntity<>(page, HttpStatus.OK);
+    } else if (params.containsKey("page") || params.containsKey("size")) {
       Page<Activity> page = activityService.findAll(pageable);
       return new ResponseEntity<>(page, HttpStatus.OK);
     } else if (params.containsKey("sort")) {
@@ -53,4 +132,42 @@ public class ActivityController {
     }
   }
 
+  /**
+   * Opens a server-sent event stream of new activity, optionally limited to a single study (by ID
+   * or code) or program. Clients reconnecting with a {@code Last-Event-ID} header are first sent
+   * the records they missed.
+   */
+  @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter streamActivity(
+      @RequestParam(value = "study", required = false) String studyId,
+      @RequestParam(value = "program", required = false) String programId,
+      @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+    if (lastEventId != null && !ObjectId.isValid(lastEventId)) {
+      throw new InvalidRequestException("Invalid event ID: " + lastEventId);
+    }
+    Study study = null;
+    Program program = null;
+    if (studyId != null) {
+      study = studyService.findById(studyId)
+          .orElseGet(() -> studyService.findByCode(studyId)
+              .orElseThrow(RecordNotFoundException::new));
+    } else if (programId != null) {
+      program = programService.findById(programId).orElseThrow(RecordNotFoundException::new);
+    }
+    SseEmitter emitter = activityStreamBroadcaster.subscribe(
+        study != null ? study.getId() : null, program != null ? program.getId() : null);
+    if (lastEventId != null) {
+      List<Activity> missed;
+      if (study != null) {
+        missed = activityService.findByStudyCreatedAfter(study, lastEventId, MAX_REPLAY + 1);
+      } else if (program != null) {
+        missed = activityService.findByProgramCreatedAfter(program, lastEventId, MAX_REPLAY + 1);
+      } else {
+        missed = activityService.findCreatedAfter(lastEventId, MAX_REPLAY + 1);
+      }
+      activityStreamBroadcaster.replay(emitter, missed, missed.size() <= MAX_REPLAY);
+    }
+    return emitter;
+  }
+
 }
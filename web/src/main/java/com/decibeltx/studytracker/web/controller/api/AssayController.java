@@ -20,13 +20,19 @@ import com.decibeltx.studytracker.core.exception.RecordNotFoundException;
 import com.decibeltx.studytracker.core.exception.StudyTrackerException;
 import com.decibeltx.studytracker.core.model.Assay;
 import com.decibeltx.studytracker.core.model.Status;
+import com.decibeltx.studytracker.core.paging.CursorPage;
+import com.decibeltx.studytracker.core.paging.CursorRequest;
 import com.decibeltx.studytracker.core.service.AssayService;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import javax.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -46,8 +52,15 @@ public class AssayController {
   private AssayService assayService;
 
   @GetMapping("")
-  public List<Assay> getAllAssays() {
-    return assayService.findAll();
+  public HttpEntity<?> getAllAssays(CursorRequest cursorRequest, HttpServletRequest request) {
+    Map<String, String[]> params = request.getParameterMap();
+    if (params.containsKey("cursor") || params.containsKey("limit")) {
+      CursorPage<Assay> page = assayService.findAll(cursorRequest);
+      return new ResponseEntity<>(page, HttpStatus.OK);
+    } else {
+      List<Assay> assays = assayService.findAll();
+      return new ResponseEntity<>(assays, HttpStatus.OK);
+    }
   }
 
   @GetMapping("/{id}")
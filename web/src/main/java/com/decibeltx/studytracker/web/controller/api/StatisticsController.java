@@ -0,0 +1,59 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.web.controller.api;
+
+import com.decibeltx.studytracker.core.exception.RecordNotFoundException;
+import com.decibeltx.studytracker.core.model.Status;
+import com.decibeltx.studytracker.core.service.StatisticsService;
+import com.decibeltx.studytracker.core.storage.ContentAddressedStudyStorageService;
+import com.decibeltx.studytracker.core.storage.DeduplicationStatistics;
+import com.decibeltx.studytracker.core.storage.StudyStorageService;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/stats")
+public class StatisticsController {
+
+  @Autowired
+  private StatisticsService statisticsService;
+
+  @Autowired(required = false)
+  private StudyStorageService studyStorageService;
+
+  @GetMapping("")
+  public Map<String, Map<String, Map<Status, Long>>> getStatistics() {
+    Map<String, Map<String, Map<Status, Long>>> statistics = new LinkedHashMap<>();
+    statistics.put("studiesByProgram", statisticsService.getStudyCountsByProgram());
+    statistics.put("assaysByType", statisticsService.getAssayCountsByType());
+    return statistics;
+  }
+
+  @GetMapping("/storage")
+  public DeduplicationStatistics getStorageStatistics() throws Exception {
+    if (!(studyStorageService instanceof ContentAddressedStudyStorageService)) {
+      throw new RecordNotFoundException("Storage statistics are not available for this backend");
+    }
+    return ((ContentAddressedStudyStorageService) studyStorageService).getStatistics();
+  }
+
+}
@@ -18,7 +18,17 @@ package com.decibeltx.studytracker.web.controller.api;
 
 import com.decibeltx.studytracker.core.model.Activity;
 import com.decibeltx.studytracker.core.model.Study;
+import com.decibeltx.studytracker.core.paging.CursorPage;
+import com.decibeltx.studytracker.core.paging.CursorRequest;
+import com.decibeltx.studytracker.core.service.ActivityService;
 import java.util.List;
+import java.util.Map;
+import javax.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -27,10 +37,21 @@ import org.springframework.web.bind.annotation.RestController;
 @RestController
 public class StudyActivityController extends StudyController {
 
-  @RequestMapping("")
-  public List<Activity> getStudyActivity(@PathVariable("studyId") String studyId) {
+  @Autowired
+  private ActivityService activityService;
+
+  @GetMapping("")
+  public HttpEntity<?> getStudyActivity(@PathVariable("studyId") String studyId,
+      CursorRequest cursorRequest, HttpServletRequest request) {
     Study study = this.getStudyFromIdentifier(studyId);
-    return study.getActivity();
+    Map<String, String[]> params = request.getParameterMap();
+    if (params.containsKey("cursor") || params.containsKey("limit")) {
+      CursorPage<Activity> page = activityService.findByStudy(study, cursorRequest);
+      return new ResponseEntity<>(page, HttpStatus.OK);
+    } else {
+      List<Activity> activities = activityService.findByStudy(study);
+      return new ResponseEntity<>(activities, HttpStatus.OK);
+    }
   }
 
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.decibeltx.studytracker.web.controller.api;
+
+import com.decibeltx.studytracker.core.exception.RecordNotFoundException;
+import com.decibeltx.studytracker.core.model.Assay;
+import com.decibeltx.studytracker.core.model.Study;
+import com.decibeltx.studytracker.core.storage.LocalFileSystemStudyStorageService;
+import com.decibeltx.studytracker.core.storage.StorageFolder;
+import com.decibeltx.studytracker.core.storage.StudyStorageService;
+import com.decibeltx.studytracker.core.storage.exception.StudyStorageNotFoundException;
+import com.decibeltx.studytracker.web.StorageFileDownloader;
+import java.nio.file.Path;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RequestMapping("/api/study/{studyId}/assays/{assayId}/storage")
+@RestController
+public class StudyAssayStorageController extends StudyController {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(StudyAssayStorageController.class);
+
+  @Autowired(required = false)
+  private StudyStorageService studyStorageService;
+
+  @Autowired
+  private StorageFileDownloader storageFileDownloader;
+
+  private Assay getStudyAssay(String studyId, String assayId) {
+    Study study = getStudyFromIdentifier(studyId);
+    Assay assay = getAssayFromIdentifier(assayId);
+    if (assay.getStudy() == null || !study.getId().equals(assay.getStudy().getId())) {
+      throw new RecordNotFoundException("Assay not found in study: " + assayId);
+    }
+    return assay;
+  }
+
+  @GetMapping("")
+  public StorageFolder getAssayStorageFolder(@PathVariable("studyId") String studyId,
+      @PathVariable("assayId") String assayId) throws Exception {
+    LOGGER.info("Fetching storage folder for assay: " + assayId);
+    Assay assay = getStudyAssay(studyId, assayId);
+    try {
+      return studyStorageService.getAssayFolder(assay);
+    } catch (StudyStorageNotFoundException e) {
+      throw new RecordNotFoundException("Storage folder not found for assay: " + assayId);
+    }
+  }
+
+  @GetMapping("/files/{name:.+}")
+  public void downloadAssayFile(@PathVariable("studyId") String studyId,
+      @PathVariable("assayId") String assayId, @PathVariable("name") String name,
+      HttpServletRequest request, HttpServletResponse response) throws Exception {
+    LOGGER.info(String.format("Downloading file %s for assay %s", name, assayId));
+    Assay assay = getStudyAssay(studyId, assayId);
+    if (!(studyStorageService instanceof LocalFileSystemStudyStorageService)) {
+      throw new RecordNotFoundException("File downloads are not supported by this storage service");
+    }
+    Path path;
+    try {
+      path = ((LocalFileSystemStudyStorageService) studyStorageService)
+          .getAssayFilePath(assay, name);
+    } catch (StudyStorageNotFoundException e) {
+      throw new RecordNotFoundException("File not found: " + name);
+    }
+    storageFileDownloader.download(path, request, response);
+  }
+
+}
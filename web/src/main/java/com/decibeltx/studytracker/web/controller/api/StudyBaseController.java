@@ -20,13 +20,16 @@ import com.decibeltx.studytracker.core.exception.RecordNotFoundException;
 import com.decibeltx.studytracker.core.exception.StudyTrackerException;
 import com.decibeltx.studytracker.core.model.Status;
 import com.decibeltx.studytracker.core.model.Study;
+import com.decibeltx.studytracker.core.model.StudyFilter;
 import com.decibeltx.studytracker.core.model.User;
+import com.decibeltx.studytracker.core.paging.CursorPage;
+import com.decibeltx.studytracker.core.paging.CursorRequest;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import javax.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpEntity;
@@ -54,7 +57,7 @@ public class StudyBaseController extends StudyController {
   private static final Logger LOGGER = LoggerFactory.getLogger(StudyBaseController.class);
 
   @GetMapping("")
-  public List<Study> getAllStudies(
+  public HttpEntity<?> getAllStudies(
       @RequestParam(value = "code", required = false) String code,
       @RequestParam(value = "owner", required = false) String owner,
       @RequestParam(value = "user", required = false) String userId,
@@ -62,48 +65,56 @@ public class StudyBaseController extends StudyController {
       @RequestParam(value = "legacy", defaultValue = "false") boolean legacy,
       @RequestParam(value = "external", defaultValue = "false") boolean external,
       @RequestParam(value = "my", defaultValue = "false") boolean my,
-      @RequestParam(value = "search", required = false) String search
+      @RequestParam(value = "search", required = false) String search,
+      @RequestParam(value = "view", required = false) String view,
+      CursorRequest cursorRequest,
+      HttpServletRequest request
   ) {
 
+    boolean paged = request.getParameterMap().containsKey("cursor")
+        || request.getParameterMap().containsKey("limit");
+    boolean summary = "summary".equals(view);
+
     // Search
     if (!StringUtils.isEmpty(search)) {
-      return getStudyService().search(search);
+      int limit = paged ? cursorRequest.getLimit() : Integer.MAX_VALUE;
+      List<?> results = summary
+          ? getStudyService().searchSummaries(search, limit)
+          : getStudyService().search(search, limit);
+      if (paged) {
+        return new ResponseEntity<>(new CursorPage<>(results, null, limit), HttpStatus.OK);
+      }
+      return new ResponseEntity<>(results, HttpStatus.OK);
     }
 
+    StudyFilter filter = new StudyFilter();
+
     // Find by owner
-    else if (owner != null) {
+    if (owner != null) {
       Optional<User> optional = getUserService().findById(owner);
       if (!optional.isPresent()) {
         throw new RecordNotFoundException("Cannot find user record: " + owner);
       }
-      return getStudyService().findAll()
-          .stream()
-          .filter(study -> study.getOwner().equals(owner) && study.isActive())
-          .collect(Collectors.toList());
+      filter.setOwnerId(optional.get().getId());
     }
 
-    // Find by user TODO
+    // Find by user
     else if (userId != null) {
       Optional<User> optional = getUserService().findById(userId);
       if (!optional.isPresent()) {
         throw new RecordNotFoundException("Cannot find user record: " + userId);
       }
-      return getStudyService().findAll()
-          .stream()
-          .filter(study -> study.getOwner().equals(optional.get().getId()) && study.isActive())
-          .collect(Collectors.toList());
+      filter.setUserId(optional.get().getId());
     }
 
-    // My studies TODO
+    // My studies
     else if (my) {
       try {
         UserDetails userDetails = (UserDetails) SecurityContextHolder.getContext()
             .getAuthentication().getPrincipal();
         User user = getUserService().findByAccountName(userDetails.getUsername())
             .orElseThrow(RecordNotFoundException::new);
-        return getStudyService().findAll().stream()
-            .filter(s -> s.getOwner().equals(user))
-            .collect(Collectors.toList());
+        filter.setOwnerId(user.getId());
       } catch (Exception e) {
         throw new StudyTrackerException(e);
       }
@@ -111,34 +122,43 @@ public class StudyBaseController extends StudyController {
 
     // Active
     else if (active) {
-      return getStudyService().findAll()
-          .stream()
-          .filter(study -> study.isActive() && Arrays.asList(Status.IN_PLANNING, Status.ACTIVE)
-              .contains(study.getStatus()))
-          .collect(Collectors.toList());
+      filter.setStatuses(Arrays.asList(Status.IN_PLANNING, Status.ACTIVE));
     }
 
     // Legacy
     else if (legacy) {
-      return getStudyService().findAll().stream()
-          .filter(s -> s.isLegacy() && s.isActive())
-          .collect(Collectors.toList());
+      filter.setLegacy(true);
     } else if (external) {
-      return getStudyService().findAll().stream()
-          .filter(s -> s.getCollaborator() != null)
-          .collect(Collectors.toList());
+      filter.setExternal(true);
+      filter.setActive(null);
     }
 
     // Find by code
     else if (code != null) {
-      return Collections.singletonList(
-          getStudyService().findByCode(code).orElseThrow(RecordNotFoundException::new));
+      Study study = getStudyService().findByCode(code).orElseThrow(RecordNotFoundException::new);
+      if (summary) {
+        return new ResponseEntity<>(getStudyService()
+            .findSummariesById(Collections.singletonList(study.getId())), HttpStatus.OK);
+      }
+      return new ResponseEntity<>(Collections.singletonList(study), HttpStatus.OK);
+    }
+
+    // Find all matching, one page at a time
+    if (paged) {
+      CursorPage<?> page = summary
+          ? getStudyService().findSummaryPage(filter, cursorRequest)
+          : getStudyService().findPage(filter, cursorRequest);
+      return new ResponseEntity<>(page, HttpStatus.OK);
+    }
+
+    // Lightweight summaries of all matching
+    else if (summary) {
+      return new ResponseEntity<>(getStudyService().findSummaries(filter), HttpStatus.OK);
     }
 
-    // Find all
+    // Find all matching
     else {
-      return getStudyService().findAll().stream().filter(Study::isActive)
-          .collect(Collectors.toList());
+      return new ResponseEntity<>(getStudyService().find(filter), HttpStatus.OK);
     }
   }
 
@@ -17,16 +17,22 @@
 package com.decibeltx.studytracker.web.controller.api;
 
 import com.decibeltx.studytracker.core.events.StudyEvent.Type;
+import com.decibeltx.studytracker.core.events.StudyEventData;
 import com.decibeltx.studytracker.core.events.StudyEventPublisher;
 import com.decibeltx.studytracker.core.exception.FileStorageException;
 import com.decibeltx.studytracker.core.exception.RecordNotFoundException;
 import com.decibeltx.studytracker.core.model.Study;
 import com.decibeltx.studytracker.core.model.User;
+import com.decibeltx.studytracker.core.storage.LocalFileSystemStudyStorageService;
 import com.decibeltx.studytracker.core.storage.StorageFile;
 import com.decibeltx.studytracker.core.storage.StorageFolder;
 import com.decibeltx.studytracker.core.storage.StudyStorageService;
-import com.decibeltx.studytracker.web.FileStorageService;
+import com.decibeltx.studytracker.core.storage.exception.StudyStorageNotFoundException;
+import com.decibeltx.studytracker.web.StorageFileDownloader;
+import com.decibeltx.studytracker.web.StudyFileUploader;
 import java.nio.file.Path;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -50,7 +56,10 @@ public class StudyStorageController extends StudyController {
   private static final Logger LOGGER = LoggerFactory.getLogger(StudyStorageController.class);
 
   @Autowired
-  private FileStorageService fileStorageService;
+  private StudyFileUploader studyFileUploader;
+
+  @Autowired
+  private StorageFileDownloader storageFileDownloader;
 
   @Autowired(required = false)
   private StudyStorageService studyStorageService;
@@ -75,17 +84,34 @@ public class StudyStorageController extends StudyController {
     User user = getUserService().findByAccountName(userDetails.getUsername())
         .orElseThrow(RecordNotFoundException::new);
     Study study = getStudyFromIdentifier(studyId);
-    Path path;
+    StorageFile storageFile;
     try {
-      path = fileStorageService.store(file);
-      LOGGER.info(path.toString());
+      storageFile = studyFileUploader.uploadStudyFile(file, study);
     } catch (FileStorageException e) {
       e.printStackTrace();
       return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
     }
-    StorageFile storageFile = studyStorageService.saveStudyFile(path.toFile(), study);
-    studyEventPublisher.publishStudyEvent(study, user, Type.FILE_UPLOADED, storageFile);
+    studyEventPublisher.publishStudyEvent(study, user, Type.FILE_UPLOADED,
+        StudyEventData.ofFile(storageFile));
     return new ResponseEntity<>(storageFile, HttpStatus.CREATED);
   }
 
+  @GetMapping("/files/{name:.+}")
+  public void downloadStudyFile(@PathVariable("studyId") String studyId,
+      @PathVariable("name") String name, HttpServletRequest request,
+      HttpServletResponse response) throws Exception {
+    Study study = getStudyFromIdentifier(studyId);
+    if (!(studyStorageService instanceof LocalFileSystemStudyStorageService)) {
+      throw new RecordNotFoundException("File downloads are not supported by this storage service");
+    }
+    Path path;
+    try {
+      path = ((LocalFileSystemStudyStorageService) studyStorageService)
+          .getStudyFilePath(study, name);
+    } catch (StudyStorageNotFoundException e) {
+      throw new RecordNotFoundException("File not found: " + name);
+    }
+    storageFileDownloader.download(path, request, response);
+  }
+
 }
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.decibeltx.studytracker.web.controller.api;
+
+import com.decibeltx.studytracker.core.events.StudyEvent.Type;
+import com.decibeltx.studytracker.core.events.StudyEventData;
+import com.decibeltx.studytracker.core.events.StudyEventPublisher;
+import com.decibeltx.studytracker.core.exception.InvalidRequestException;
+import com.decibeltx.studytracker.core.exception.RecordNotFoundException;
+import com.decibeltx.studytracker.core.model.Assay;
+import com.decibeltx.studytracker.core.model.Study;
+import com.decibeltx.studytracker.core.model.UploadSession;
+import com.decibeltx.studytracker.core.model.User;
+import com.decibeltx.studytracker.core.storage.ChunkedUploadService;
+import com.decibeltx.studytracker.core.storage.StorageFile;
+import java.util.Map;
+import javax.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Chunked, resumable uploads of large study and assay files. A client creates an upload session
+ * with the file's name and size, PUTs the raw content of each numbered chunk, in any order and in
+ * parallel, and commits the session once all chunks are received. After an interruption, the
+ * session lists the chunks received so far, so only the missing chunks need to be sent again.
+ */
+@RequestMapping("/api/study/{studyId}")
+@RestController
+public class StudyStorageUploadController extends StudyController {
+
+  private static final Logger LOGGER = LoggerFactory
+      .getLogger(StudyStorageUploadController.class);
+
+  @Autowired
+  private ChunkedUploadService chunkedUploadService;
+
+  @Autowired
+  private StudyEventPublisher studyEventPublisher;
+
+  private User getAuthenticatedUser() {
+    UserDetails userDetails = (UserDetails) SecurityContextHolder.getContext().getAuthentication()
+        .getPrincipal();
+    return getUserService().findByAccountName(userDetails.getUsername())
+        .orElseThrow(RecordNotFoundException::new);
+  }
+
+  private static String getFileName(Map<String, Object> params) {
+    if (!(params.get("fileName") instanceof String)) {
+      throw new InvalidRequestException("No file name provided.");
+    }
+    return (String) params.get("fileName");
+  }
+
+  private static long getSize(Map<String, Object> params) {
+    if (!(params.get("size") instanceof Number)) {
+      throw new InvalidRequestException("No file size provided.");
+    }
+    return ((Number) params.get("size")).longValue();
+  }
+
+  private static Long getChunkSize(Map<String, Object> params) {
+    Object chunkSize = params.get("chunkSize");
+    return chunkSize instanceof Number ? ((Number) chunkSize).longValue() : null;
+  }
+
+  private UploadSession getSession(Study study, String uploadId) {
+    UploadSession session = chunkedUploadService.findSession(uploadId)
+        .orElseThrow(() -> new RecordNotFoundException("Upload session not found: " + uploadId));
+    if (!study.getId().equals(session.getStudyId())) {
+      throw new RecordNotFoundException("Upload session not found: " + uploadId);
+    }
+    return session;
+  }
+
+  @PostMapping("/storage/uploads")
+  public HttpEntity<UploadSession> createStudyUpload(@PathVariable("studyId") String studyId,
+      @RequestBody Map<String, Object> params) throws Exception {
+    Study study = getStudyFromIdentifier(studyId);
+    LOGGER.info(String.format("Starting upload of file %s for study %s",
+        params.get("fileName"), study.getCode()));
+    UploadSession session = chunkedUploadService.createStudySession(study, getFileName(params),
+        getSize(params), getChunkSize(params), getAuthenticatedUser());
+    return new ResponseEntity<>(session, HttpStatus.CREATED);
+  }
+
+  @PostMapping("/assays/{assayId}/storage/uploads")
+  public HttpEntity<UploadSession> createAssayUpload(@PathVariable("studyId") String studyId,
+      @PathVariable("assayId") String assayId, @RequestBody Map<String, Object> params)
+      throws Exception {
+    Study study = getStudyFromIdentifier(studyId);
+    Assay assay = getAssayFromIdentifier(assayId);
+    if (assay.getStudy() == null || !study.getId().equals(assay.getStudy().getId())) {
+      throw new RecordNotFoundException("Assay not found in study: " + assayId);
+    }
+    LOGGER.info(String.format("Starting upload of file %s for assay %s",
+        params.get("fileName"), assay.getCode()));
+    UploadSession session = chunkedUploadService.createAssaySession(assay, getFileName(params),
+        getSize(params), getChunkSize(params), getAuthenticatedUser());
+    return new ResponseEntity<>(session, HttpStatus.CREATED);
+  }
+
+  @GetMapping("/storage/uploads/{uploadId}")
+  public UploadSession getUpload(@PathVariable("studyId") String studyId,
+      @PathVariable("uploadId") String uploadId) {
+    return getSession(getStudyFromIdentifier(studyId), uploadId);
+  }
+
+  @PutMapping("/storage/uploads/{uploadId}/chunks/{index}")
+  public UploadSession putUploadChunk(@PathVariable("studyId") String studyId,
+      @PathVariable("uploadId") String uploadId, @PathVariable("index") int index,
+      @RequestHeader(value = "X-Checksum-SHA256", required = false) String checksum,
+      HttpServletRequest request) throws Exception {
+    getSession(getStudyFromIdentifier(studyId), uploadId);
+    return chunkedUploadService.putChunk(uploadId, index, request.getInputStream(), checksum);
+  }
+
+  @PostMapping("/storage/uploads/{uploadId}/commit")
+  public HttpEntity<StorageFile> commitUpload(@PathVariable("studyId") String studyId,
+      @PathVariable("uploadId") String uploadId) throws Exception {
+    Study study = getStudyFromIdentifier(studyId);
+    UploadSession session = getSession(study, uploadId);
+    User user = getAuthenticatedUser();
+    StorageFile storageFile;
+    if (session.getAssayId() != null) {
+      Assay assay = getAssayFromIdentifier(session.getAssayId());
+      storageFile = chunkedUploadService.commitAssayFile(uploadId, assay);
+    } else {
+      storageFile = chunkedUploadService.commitStudyFile(uploadId, study);
+    }
+    LOGGER.info("Uploaded file: " + storageFile.getName());
+    studyEventPublisher.publishStudyEvent(study, user, Type.FILE_UPLOADED,
+        StudyEventData.ofFile(storageFile));
+    return new ResponseEntity<>(storageFile, HttpStatus.CREATED);
+  }
+
+  @DeleteMapping("/storage/uploads/{uploadId}")
+  public HttpEntity<?> abortUpload(@PathVariable("studyId") String studyId,
+      @PathVariable("uploadId") String uploadId) {
+    getSession(getStudyFromIdentifier(studyId), uploadId);
+    chunkedUploadService.abort(uploadId);
+    return new ResponseEntity<>(HttpStatus.OK);
+  }
+
+}
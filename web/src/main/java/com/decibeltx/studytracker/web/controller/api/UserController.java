@@ -18,10 +18,17 @@ package com.decibeltx.studytracker.web.controller.api;
 
 import com.decibeltx.studytracker.core.exception.RecordNotFoundException;
 import com.decibeltx.studytracker.core.model.User;
+import com.decibeltx.studytracker.core.paging.CursorPage;
+import com.decibeltx.studytracker.core.paging.CursorRequest;
 import com.decibeltx.studytracker.core.service.UserService;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import javax.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -36,8 +43,16 @@ public class UserController {
   private UserService userService;
 
   @GetMapping("")
-  public List<User> getAllUsers() throws Exception {
-    return userService.findAll();
+  public HttpEntity<?> getAllUsers(CursorRequest cursorRequest, HttpServletRequest request)
+      throws Exception {
+    Map<String, String[]> params = request.getParameterMap();
+    if (params.containsKey("cursor") || params.containsKey("limit")) {
+      CursorPage<User> page = userService.findAll(cursorRequest);
+      return new ResponseEntity<>(page, HttpStatus.OK);
+    } else {
+      List<User> users = userService.findAll();
+      return new ResponseEntity<>(users, HttpStatus.OK);
+    }
   }
 
   @GetMapping("/{id}")
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.decibeltx.studytracker.web.listeners;
+
+import com.decibeltx.studytracker.core.events.NewActivityEvent;
+import com.decibeltx.studytracker.core.model.Activity;
+import com.decibeltx.studytracker.core.model.Study;
+import java.io.IOException;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
+
+/**
+ * Pushes newly written {@link Activity} records to clients subscribed through server-sent events.
+ * Connections are held open by the servlet container's asynchronous request support, so idle
+ * subscribers do not tie up a thread each. Records are fanned out, and keep-alive comments sent,
+ * from a single background thread onto a bounded queue per subscriber, so slow clients do not
+ * delay activity writes. Each subscriber's queue is drained by a small shared pool of sender
+ * threads, one subscriber at a time per thread, so a slow client only delays its own events.
+ * Subscribers whose connections fail, or whose queues overflow, are dropped, and are expected to
+ * reconnect with the ID of the last event they received.
+ */
+public class ActivityStreamBroadcaster implements DisposableBean {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ActivityStreamBroadcaster.class);
+
+  public static final String ACTIVITY_EVENT = "activity";
+
+  public static final String RESET_EVENT = "reset";
+
+  private static final int MAX_QUEUED_EVENTS = 1000;
+
+  private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+  private final ScheduledExecutorService executor = Executors
+      .newSingleThreadScheduledExecutor(r -> new Thread(r, "activity-stream"));
+
+  private final ExecutorService senders;
+
+  private final long timeoutMillis;
+
+  public ActivityStreamBroadcaster(long timeoutMillis, long heartbeatMillis, int senderThreads) {
+    this.timeoutMillis = timeoutMillis;
+    AtomicInteger senderCount = new AtomicInteger();
+    this.senders = Executors.newFixedThreadPool(senderThreads,
+        r -> new Thread(r, "activity-stream-sender-" + senderCount.incrementAndGet()));
+    executor.scheduleWithFixedDelay(this::heartbeat, heartbeatMillis, heartbeatMillis,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Opens a new subscription. Activity for all studies is sent if neither a study nor a program
+   * ID is given.
+   *
+   * @param studyId optional study to limit the feed to
+   * @param programId optional program to limit the feed to
+   * @return the emitter for the subscriber's connection
+   */
+  public SseEmitter subscribe(String studyId, String programId) {
+    SseEmitter emitter = new SseEmitter(timeoutMillis);
+    Subscription subscription = new Subscription(emitter, studyId, programId);
+    emitter.onCompletion(() -> subscriptions.remove(subscription));
+    emitter.onTimeout(() -> subscriptions.remove(subscription));
+    emitter.onError(e -> subscriptions.remove(subscription));
+    subscriptions.add(subscription);
+    return emitter;
+  }
+
+  /**
+   * Sends records that a subscriber missed while disconnected. If more records were missed than
+   * can be replayed, a {@code reset} event tells the client to reload its activity instead.
+   *
+   * @param emitter the subscriber's emitter
+   * @param activities the missed records, oldest first
+   * @param complete false if there are more missed records than those given
+   */
+  public void replay(SseEmitter emitter, List<Activity> activities, boolean complete) {
+    try {
+      if (complete) {
+        for (Activity activity : activities) {
+          emitter.send(toEvent(activity));
+        }
+      } else {
+        emitter.send(SseEmitter.event().name(RESET_EVENT).data(""));
+      }
+    } catch (IOException e) {
+      emitter.completeWithError(e);
+    }
+  }
+
+  @EventListener
+  public void onNewActivity(NewActivityEvent event) {
+    if (!subscriptions.isEmpty() && !executor.isShutdown()) {
+      executor.execute(() -> broadcast(event.getActivities()));
+    }
+  }
+
+  public int getSubscriberCount() {
+    return subscriptions.size();
+  }
+
+  private void broadcast(List<Activity> activities) {
+    for (Subscription subscription : subscriptions) {
+      for (Activity activity : activities) {
+        if (subscription.matches(activity) && !enqueue(subscription, toEvent(activity))) {
+          break;
+        }
+      }
+    }
+  }
+
+  private void heartbeat() {
+    for (Subscription subscription : subscriptions) {
+      if (subscription.queued.get() == 0) {
+        enqueue(subscription, SseEmitter.event().comment("keep-alive"));
+      }
+    }
+  }
+
+  /**
+   * Adds an event to the subscriber's queue, and starts draining the queue if it is not already
+   * being drained. Returns false, and drops the subscriber, if the queue is full.
+   */
+  private boolean enqueue(Subscription subscription, SseEventBuilder event) {
+    if (subscription.queued.incrementAndGet() > MAX_QUEUED_EVENTS) {
+      LOGGER.debug("Dropping activity stream subscriber with a full event queue");
+      close(subscription);
+      return false;
+    }
+    subscription.queue.add(event);
+    schedule(subscription);
+    return true;
+  }
+
+  private void schedule(Subscription subscription) {
+    if (subscription.sending.compareAndSet(false, true)) {
+      try {
+        senders.execute(() -> drain(subscription));
+      } catch (RejectedExecutionException e) {
+        subscription.sending.set(false);
+      }
+    }
+  }
+
+  private void drain(Subscription subscription) {
+    try {
+      SseEventBuilder event;
+      while ((event = subscription.queue.poll()) != null) {
+        subscription.queued.decrementAndGet();
+        subscription.emitter.send(event);
+      }
+    } catch (IOException | IllegalStateException e) {
+      LOGGER.debug("Dropping activity stream subscriber", e);
+      subscriptions.remove(subscription);
+      subscription.queue.clear();
+      return;
+    }
+    subscription.sending.set(false);
+    if (!subscription.queue.isEmpty()) {
+      schedule(subscription);
+    }
+  }
+
+  private void close(Subscription subscription) {
+    subscriptions.remove(subscription);
+    subscription.queue.clear();
+    try {
+      subscription.emitter.complete();
+    } catch (IllegalStateException e) {
+      LOGGER.debug("Activity stream subscriber already closed", e);
+    }
+  }
+
+  private static SseEventBuilder toEvent(Activity activity) {
+    return SseEmitter.event()
+        .id(activity.getId())
+        .name(ACTIVITY_EVENT)
+        .data(activity, MediaType.APPLICATION_JSON);
+  }
+
+  @Override
+  public void destroy() {
+    executor.shutdownNow();
+    senders.shutdownNow();
+    for (Subscription subscription : subscriptions) {
+      subscription.emitter.complete();
+    }
+    subscriptions.clear();
+  }
+
+  private static final class Subscription {
+
+    private final SseEmitter emitter;
+    private final String studyId;
+    private final String programId;
+    private final Queue<SseEventBuilder> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicBoolean sending = new AtomicBoolean();
+
+    private Subscription(SseEmitter emitter, String studyId, String programId) {
+      this.emitter = emitter;
+      this.studyId = studyId;
+      this.programId = programId;
+    }
+
+    private boolean matches(Activity activity) {
+      Study study = activity.getStudy();
+      if (studyId != null) {
+        return study != null && studyId.equals(study.getId());
+      }
+      if (programId != null) {
+        return programId.equals(activity.getProgramId());
+      }
+      return true;
+    }
+
+  }
+
+}
@@ -16,6 +16,7 @@
 
 package com.decibeltx.studytracker.web.listeners;
 
+import com.decibeltx.studytracker.core.events.AsyncStudyEventListener;
 import com.decibeltx.studytracker.core.events.StudyEvent;
 import com.decibeltx.studytracker.core.events.StudyEvent.Type;
 import com.decibeltx.studytracker.core.model.ExternalLink;
@@ -29,13 +30,12 @@ import com.decibeltx.studytracker.teams.TeamsMessagingService;
 import com.decibeltx.studytracker.teams.entity.DriveItem;
 import java.io.File;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.ApplicationListener;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Component;
 
 @Component
-public class NewStudyMessagingListener implements ApplicationListener<StudyEvent> {
+public class NewStudyMessagingListener {
 
   @Autowired(required = false)
   private MessagingService messagingService;
@@ -46,7 +46,7 @@ public class NewStudyMessagingListener implements ApplicationListener<StudyEvent
   @Autowired
   private StudyExternalLinkService externalLinkService;
 
-  @Override
+  @AsyncStudyEventListener(durable = true, types = Type.NEW_STUDY)
   public void onApplicationEvent(StudyEvent studyEvent) {
     if (messagingService != null && studyEvent.getType().equals(Type.NEW_STUDY)) {
       Study study = studyEvent.getStudy();
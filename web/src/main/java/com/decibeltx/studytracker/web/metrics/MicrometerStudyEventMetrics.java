@@ -0,0 +1,60 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.decibeltx.studytracker.web.metrics;
+
+import com.decibeltx.studytracker.core.events.StudyEventMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records event publish and listener latencies as Micrometer timers, tagged by event type,
+ * listener and outcome.
+ */
+public class MicrometerStudyEventMetrics implements StudyEventMetrics {
+
+  public static final String PUBLISH_TIMER = "studytracker.events.publish";
+
+  public static final String LISTENER_TIMER = "studytracker.events.listener";
+
+  private final MeterRegistry registry;
+
+  public MicrometerStudyEventMetrics(MeterRegistry registry) {
+    this.registry = registry;
+  }
+
+  @Override
+  public void recordPublish(String event, long nanos) {
+    Timer.builder(PUBLISH_TIMER)
+        .description("Time spent publishing a study event, including synchronous listeners")
+        .tag("event", event)
+        .register(registry)
+        .record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void recordListener(String listener, String event, Outcome outcome, long nanos) {
+    Timer.builder(LISTENER_TIMER)
+        .description("Time spent in a single event listener invocation")
+        .tag("listener", listener)
+        .tag("event", event)
+        .tag("outcome", outcome.name().toLowerCase())
+        .register(registry)
+        .record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+}
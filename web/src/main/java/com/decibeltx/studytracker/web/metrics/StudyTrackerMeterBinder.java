@@ -0,0 +1,163 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.decibeltx.studytracker.web.metrics;
+
+import com.decibeltx.studytracker.core.events.ActivityWriteBuffer;
+import com.decibeltx.studytracker.core.events.StudyEventDispatcher;
+import com.decibeltx.studytracker.core.events.outbox.EventOutbox;
+import com.decibeltx.studytracker.core.model.OutboxEvent.Status;
+import com.decibeltx.studytracker.core.service.UserService;
+import com.decibeltx.studytracker.web.listeners.ActivityStreamBroadcaster;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exposes the counters already kept by the event dispatcher, activity write buffer, outbox,
+ * user cache and activity stream as gauges and function counters, so they are sampled on
+ * each scrape rather than pushed. Outbox counts require a database query, so they are refreshed
+ * at most once per {@link #OUTBOX_COUNT_TTL_MILLIS} and shared across the per-status gauges.
+ */
+public class StudyTrackerMeterBinder implements MeterBinder {
+
+  static final long OUTBOX_COUNT_TTL_MILLIS = 30000L;
+
+  private final StudyEventDispatcher dispatcher;
+
+  private final ActivityWriteBuffer writeBuffer;
+
+  private final EventOutbox outbox;
+
+  private final UserService userService;
+
+  private final ActivityStreamBroadcaster broadcaster;
+
+  private Map<Status, Long> outboxCounts = Collections.emptyMap();
+
+  private long outboxCountedAt;
+
+  public StudyTrackerMeterBinder(StudyEventDispatcher dispatcher,
+      ActivityWriteBuffer writeBuffer, EventOutbox outbox, UserService userService,
+      ActivityStreamBroadcaster broadcaster) {
+    this.dispatcher = dispatcher;
+    this.writeBuffer = writeBuffer;
+    this.outbox = outbox;
+    this.userService = userService;
+    this.broadcaster = broadcaster;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+
+    Gauge.builder("studytracker.events.dispatcher.queue", dispatcher,
+        StudyEventDispatcher::getQueueDepth)
+        .description("Events waiting in the async dispatcher queues")
+        .register(registry);
+    FunctionCounter.builder("studytracker.events.dispatcher.submitted", dispatcher,
+        StudyEventDispatcher::getSubmittedCount)
+        .register(registry);
+    FunctionCounter.builder("studytracker.events.dispatcher.blocked", dispatcher,
+        StudyEventDispatcher::getBlockedCount)
+        .description("Publishes that waited for room in a full dispatcher queue")
+        .register(registry);
+    FunctionCounter.builder("studytracker.events.dispatcher.failed", dispatcher,
+        StudyEventDispatcher::getFailedCount)
+        .register(registry);
+
+    Gauge.builder("studytracker.activity.buffer.pending", writeBuffer,
+        ActivityWriteBuffer::getPendingCount)
+        .description("Activity records waiting to be flushed")
+        .register(registry);
+    FunctionCounter.builder("studytracker.activity.buffer.flushes", writeBuffer,
+        ActivityWriteBuffer::getFlushCount)
+        .register(registry);
+    FunctionCounter.builder("studytracker.activity.buffer.written", writeBuffer,
+        ActivityWriteBuffer::getWrittenCount)
+        .register(registry);
+    FunctionCounter.builder("studytracker.activity.buffer.failed", writeBuffer,
+        ActivityWriteBuffer::getFailedCount)
+        .register(registry);
+    FunctionTimer.builder("studytracker.activity.buffer.flush", writeBuffer,
+        ActivityWriteBuffer::getFlushCount, b -> b.getTotalFlushTime(TimeUnit.NANOSECONDS),
+        TimeUnit.NANOSECONDS)
+        .description("Time spent writing activity batches")
+        .register(registry);
+    TimeGauge.builder("studytracker.activity.buffer.flush.max", writeBuffer, TimeUnit.NANOSECONDS,
+        b -> b.getSlowestFlushTime(TimeUnit.NANOSECONDS))
+        .description("Slowest activity batch write")
+        .register(registry);
+    Gauge.builder("studytracker.activity.buffer.batch.mean", writeBuffer,
+        ActivityWriteBuffer::getMeanBatchSize)
+        .description("Mean number of activity records per batch")
+        .register(registry);
+    Gauge.builder("studytracker.activity.buffer.batch.max", writeBuffer,
+        ActivityWriteBuffer::getLargestBatchSize)
+        .description("Largest activity batch written")
+        .register(registry);
+
+    for (Status status : Status.values()) {
+      Gauge.builder("studytracker.events.outbox", this, b -> b.getOutboxCount(status))
+          .description("Outbox events by delivery status")
+          .tag("status", status.name().toLowerCase())
+          .register(registry);
+    }
+
+    FunctionCounter.builder("studytracker.cache.hits", userService,
+        s -> s.getCacheStatistics().getHits())
+        .tag("cache", "users")
+        .register(registry);
+    FunctionCounter.builder("studytracker.cache.misses", userService,
+        s -> s.getCacheStatistics().getMisses())
+        .tag("cache", "users")
+        .register(registry);
+    FunctionCounter.builder("studytracker.cache.evictions", userService,
+        s -> s.getCacheStatistics().getEvictions())
+        .tag("cache", "users")
+        .register(registry);
+    Gauge.builder("studytracker.cache.size", userService,
+        s -> s.getCacheStatistics().getSize())
+        .tag("cache", "users")
+        .register(registry);
+
+    Gauge.builder("studytracker.activity.stream.subscribers", broadcaster,
+        ActivityStreamBroadcaster::getSubscriberCount)
+        .description("Open activity stream connections")
+        .register(registry);
+
+  }
+
+  private synchronized long getOutboxCount(Status status) {
+    long now = System.currentTimeMillis();
+    if (outboxCounts.isEmpty() || now - outboxCountedAt >= OUTBOX_COUNT_TTL_MILLIS) {
+      Map<Status, Long> counts = new EnumMap<>(Status.class);
+      for (Status s : Status.values()) {
+        counts.put(s, outbox.count(s));
+      }
+      outboxCounts = counts;
+      outboxCountedAt = now;
+    }
+    return outboxCounts.getOrDefault(status, 0L);
+  }
+
+}
@@ -133,4 +133,17 @@ public class AuthenticationTests {
         .andExpect(MockMvcResultMatchers.status().isCreated());
   }
 
+  @Test
+  public void actuatorRequiresAuthenticationTest() throws Exception {
+    mockMvc.perform(MockMvcRequestBuilders.get("/actuator/health"))
+        .andExpect(MockMvcResultMatchers.status().isOk());
+    mockMvc.perform(MockMvcRequestBuilders.get("/actuator/metrics"))
+        .andExpect(MockMvcResultMatchers.status().isUnauthorized());
+    mockMvc.perform(MockMvcRequestBuilders.get("/actuator/metrics")
+        .with(SecurityMockMvcRequestPostProcessors.httpBasic(
+            env.getRequiredProperty("ldap.example.username"),
+            env.getRequiredProperty("ldap.example.password"))))
+        .andExpect(MockMvcResultMatchers.status().isOk());
+  }
+
 }
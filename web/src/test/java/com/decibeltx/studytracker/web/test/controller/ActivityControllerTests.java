@@ -16,17 +16,23 @@
 
 package com.decibeltx.studytracker.web.test.controller;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasKey;
 import static org.hamcrest.Matchers.is;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.decibeltx.studytracker.core.example.ExampleDataGenerator;
+import com.decibeltx.studytracker.core.model.Activity;
 import com.decibeltx.studytracker.core.model.Status;
 import com.decibeltx.studytracker.core.model.Study;
+import com.decibeltx.studytracker.core.service.ActivityService;
 import com.decibeltx.studytracker.core.service.StudyService;
 import com.decibeltx.studytracker.web.test.TestApplication;
+import java.util.List;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -34,6 +40,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
@@ -50,6 +57,8 @@ public class ActivityControllerTests {
   private ExampleDataGenerator exampleDataGenerator;
   @Autowired
   private StudyService studyService;
+  @Autowired
+  private ActivityService activityService;
 
   @Before
   public void doBefore() {
@@ -87,11 +96,11 @@ public class ActivityControllerTests {
         .andExpect(jsonPath("$[0]", hasKey("action")))
         .andExpect(jsonPath("$[0].action", is("STUDY_STATUS_CHANGED")))
         .andExpect(jsonPath("$[0]", hasKey("data")))
-        .andExpect(jsonPath("$[0].data", is("COMPLETE")))
+        .andExpect(jsonPath("$[0].data.changes[0].newValue", is("COMPLETE")))
         .andExpect(jsonPath("$[1]", hasKey("action")))
         .andExpect(jsonPath("$[1].action", is("STUDY_STATUS_CHANGED")))
         .andExpect(jsonPath("$[1]", hasKey("data")))
-        .andExpect(jsonPath("$[1].data", is("ON_HOLD")));
+        .andExpect(jsonPath("$[1].data.changes[0].newValue", is("ON_HOLD")));
 
   }
 
@@ -116,11 +125,69 @@ public class ActivityControllerTests {
         .andExpect(jsonPath("$.content[0]", hasKey("action")))
         .andExpect(jsonPath("$.content[0].action", is("STUDY_STATUS_CHANGED")))
         .andExpect(jsonPath("$.content[0]", hasKey("data")))
-        .andExpect(jsonPath("$.content[0].data", is("COMPLETE")))
+        .andExpect(jsonPath("$.content[0].data.changes[0].newValue", is("COMPLETE")))
         .andExpect(jsonPath("$.content[1]", hasKey("action")))
         .andExpect(jsonPath("$.content[1].action", is("STUDY_STATUS_CHANGED")))
         .andExpect(jsonPath("$.content[1]", hasKey("data")))
-        .andExpect(jsonPath("$.content[1].data", is("ON_HOLD")));
+        .andExpect(jsonPath("$.content[1].data.changes[0].newValue", is("ON_HOLD")));
+
+  }
+
+  @Test
+  public void getFilteredActivityTest() throws Exception {
+
+    Study study = studyService.findAll().get(0);
+    studyService.updateStatus(study, Status.ON_HOLD);
+    studyService.updateStatus(study, Status.COMPLETE);
+
+    mockMvc.perform(get("/api/activity?type=STUDY_STATUS_CHANGED&program="
+        + study.getProgram().getId()))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$", hasKey("content")))
+        .andExpect(jsonPath("$", hasKey("nextCursor")))
+        .andExpect(jsonPath("$.size", is(2)))
+        .andExpect(jsonPath("$.content[0].action", is("STUDY_STATUS_CHANGED")))
+        .andExpect(jsonPath("$.content[0].data.changes[0].newValue", is("COMPLETE")))
+        .andExpect(jsonPath("$.content[1].data.changes[0].newValue", is("ON_HOLD")));
+
+    mockMvc.perform(get("/api/activity?limit=1&user=" + study.getLastModifiedBy().getId()))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.size", is(1)))
+        .andExpect(jsonPath("$.hasMore", is(true)))
+        .andExpect(jsonPath("$.content[0].data.changes[0].newValue", is("COMPLETE")));
+
+    mockMvc.perform(get("/api/activity?from=2100-01-01T00:00:00.000Z"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.size", is(0)));
+
+    mockMvc.perform(get("/api/activity?type=NOT_A_TYPE"))
+        .andExpect(status().isBadRequest());
+
+    mockMvc.perform(get("/api/activity?program=missing"))
+        .andExpect(status().isNotFound());
+
+  }
+
+  @Test
+  public void activityStreamReplayTest() throws Exception {
+
+    List<Activity> activities = activityService.findAll(Sort.by("id"));
+    String lastEventId = activities.get(activities.size() - 1).getId();
+    Study study = studyService.findAll().get(0);
+    studyService.updateStatus(study, Status.ON_HOLD);
+
+    mockMvc.perform(get("/api/activity/stream").header("Last-Event-ID", lastEventId))
+        .andExpect(request().asyncStarted())
+        .andExpect(content().string(containsString("event:activity")))
+        .andExpect(content().string(containsString("STUDY_STATUS_CHANGED")));
+
+    mockMvc.perform(get("/api/activity/stream?study=" + study.getCode())
+        .header("Last-Event-ID", lastEventId))
+        .andExpect(request().asyncStarted())
+        .andExpect(content().string(containsString(study.getCode())));
+
+    mockMvc.perform(get("/api/activity/stream").header("Last-Event-ID", "bad-id"))
+        .andExpect(status().isBadRequest());
 
   }
 
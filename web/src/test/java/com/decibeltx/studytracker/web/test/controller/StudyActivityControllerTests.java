@@ -16,7 +16,11 @@
 
 package com.decibeltx.studytracker.web.test.controller;
 
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.decibeltx.studytracker.core.example.ExampleDataGenerator;
@@ -66,4 +70,13 @@ public class StudyActivityControllerTests {
 
   }
 
+  @Test
+  public void getPagedStudyActivityTest() throws Exception {
+    mockMvc.perform(get("/api/study/PPB-10001/activity?limit=3&sort=date,desc"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.content", hasSize(3)))
+        .andExpect(jsonPath("$.hasMore", is(true)))
+        .andExpect(jsonPath("$.nextCursor", notNullValue()));
+  }
+
 }
@@ -19,6 +19,7 @@ package com.decibeltx.studytracker.web.test.controller;
 import static org.hamcrest.Matchers.hasKey;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
@@ -55,6 +56,7 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 @SpringBootTest(classes = TestApplication.class, webEnvironment = WebEnvironment.RANDOM_PORT)
 @RunWith(SpringRunner.class)
@@ -95,6 +97,77 @@ public class StudyBaseControllerTests {
     ;
   }
 
+  @Test
+  public void studySummariesTest() throws Exception {
+    mockMvc.perform(get("/api/study?view=summary"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$", hasSize(NUM_STUDIES)))
+        .andExpect(jsonPath("$[0]", hasKey("code")))
+        .andExpect(jsonPath("$[0]", hasKey("status")))
+        .andExpect(jsonPath("$[0].program", hasKey("name")))
+        .andExpect(jsonPath("$[0].owner", hasKey("displayName")))
+        .andExpect(jsonPath("$[0]", not(hasKey("users"))))
+        .andExpect(jsonPath("$[0]", not(hasKey("activity"))));
+  }
+
+  @Test
+  public void pagedStudiesTest() throws Exception {
+    MvcResult result = mockMvc.perform(get("/api/study?limit=4&sort=code"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.content", hasSize(4)))
+        .andExpect(jsonPath("$.content[0].code", is("CPA-10001")))
+        .andExpect(jsonPath("$.hasMore", is(true)))
+        .andExpect(jsonPath("$.nextCursor", notNullValue()))
+        .andReturn();
+    String cursor = objectMapper.readTree(result.getResponse().getContentAsString())
+        .get("nextCursor").asText();
+    mockMvc.perform(get("/api/study?limit=4&sort=code&cursor=" + cursor))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.content", hasSize(NUM_STUDIES - 4)))
+        .andExpect(jsonPath("$.hasMore", is(false)));
+    mockMvc.perform(get("/api/study?limit=4&sort=name&cursor=" + cursor))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  public void pagedFilteredStudiesTest() throws Exception {
+    User user = userRepository.findByAccountName("jsmith")
+        .orElseThrow(RecordNotFoundException::new);
+    mockMvc.perform(get("/api/study?limit=1&sort=code&owner=" + user.getId()))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.content", hasSize(1)))
+        .andExpect(jsonPath("$.content[0].owner.id", is(user.getId())));
+    mockMvc.perform(get("/api/study?legacy=true&limit=0"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.limit", is(1)))
+        .andExpect(jsonPath("$.content", hasSize(1)));
+    mockMvc.perform(get("/api/study?limit=4&sort=description"))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  public void filteredStudySummariesTest() throws Exception {
+    User user = userRepository.findByAccountName("jsmith")
+        .orElseThrow(RecordNotFoundException::new);
+    mockMvc.perform(get("/api/study?view=summary&owner=" + user.getId()))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$[0].owner.id", is(user.getId())))
+        .andExpect(jsonPath("$[0]", not(hasKey("description"))));
+    mockMvc.perform(get("/api/study?view=summary&limit=2&sort=updatedAt"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.content", hasSize(2)))
+        .andExpect(jsonPath("$.content[0]", not(hasKey("description"))))
+        .andExpect(jsonPath("$.nextCursor", notNullValue()));
+    mockMvc.perform(get("/api/study?view=summary&search=CPA-10001"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$[0].code", is("CPA-10001")))
+        .andExpect(jsonPath("$[0]", not(hasKey("description"))));
+    mockMvc.perform(get("/api/study?view=summary&code=CPA-10001"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$", hasSize(1)))
+        .andExpect(jsonPath("$[0].program.name", is("Clinical Program A")));
+  }
+
   @Test
   public void findStudyByIdTest() throws Exception {
     mockMvc.perform(get("/api/study/CPA-10001"))
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2020 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.decibeltx.studytracker.web.test.controller;
+
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.decibeltx.studytracker.core.example.ExampleDataGenerator;
+import com.decibeltx.studytracker.core.exception.RecordNotFoundException;
+import com.decibeltx.studytracker.core.model.Study;
+import com.decibeltx.studytracker.core.service.StudyService;
+import com.decibeltx.studytracker.core.storage.StudyStorageService;
+import com.decibeltx.studytracker.web.StudyFileUploader;
+import com.decibeltx.studytracker.web.test.TestApplication;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+import org.springframework.web.multipart.MultipartFile;
+
+@SpringBootTest(classes = TestApplication.class, webEnvironment = WebEnvironment.RANDOM_PORT,
+    properties = "storage.upload.max-size=1KB")
+@RunWith(SpringRunner.class)
+@AutoConfigureMockMvc
+@ActiveProfiles({"test", "example"})
+public class StudyStorageControllerTests {
+
+  @Autowired
+  private MockMvc mockMvc;
+  @Autowired
+  private ExampleDataGenerator exampleDataGenerator;
+  @Autowired
+  private StudyService studyService;
+  @Autowired
+  private StudyStorageService studyStorageService;
+  @SpyBean
+  private StudyFileUploader studyFileUploader;
+
+  private static final String DOWNLOAD_URL = "/api/study/CPA-10001/storage/files/download-test.txt";
+
+  @Before
+  public void doBefore() throws Exception {
+    exampleDataGenerator.populateDatabase();
+    exampleDataGenerator.createStudyFolders();
+    Study study = studyService.findByCode("CPA-10001").orElseThrow(RecordNotFoundException::new);
+    studyStorageService.saveStudyFile("download-test.txt",
+        new ByteArrayInputStream("0123456789".getBytes(StandardCharsets.UTF_8)), study);
+  }
+
+  @Test
+  public void uploadStudyFileTest() throws Exception {
+    MockMultipartFile file = new MockMultipartFile("file", "upload-test.txt", "text/plain",
+        "This is a test.".getBytes());
+    mockMvc.perform(multipart("/api/study/CPA-10001/storage")
+        .file(file)
+        .with(user("jsmith")))
+        .andExpect(status().isCreated())
+        .andExpect(jsonPath("$.name", is("upload-test.txt")))
+        .andExpect(jsonPath("$.size", is(15)));
+  }
+
+  @Test
+  public void uploadOversizedStudyFileTest() throws Exception {
+    byte[] content = new byte[2048];
+    Arrays.fill(content, (byte) 'a');
+    MockMultipartFile file = new MockMultipartFile("file", "oversized-test.txt", "text/plain",
+        content);
+    mockMvc.perform(multipart("/api/study/CPA-10001/storage")
+        .file(file)
+        .with(user("jsmith")))
+        .andExpect(status().isPayloadTooLarge());
+  }
+
+  @Test
+  public void multipartLimitExceededTest() throws Exception {
+    doThrow(new MaxUploadSizeExceededException(1024L))
+        .when(studyFileUploader).uploadStudyFile(any(MultipartFile.class), any());
+    MockMultipartFile file = new MockMultipartFile("file", "upload-test.txt", "text/plain",
+        "This is a test.".getBytes());
+    mockMvc.perform(multipart("/api/study/CPA-10001/storage")
+        .file(file)
+        .with(user("jsmith")))
+        .andExpect(status().isPayloadTooLarge());
+  }
+
+  @Test
+  public void downloadStudyFileTest() throws Exception {
+    mockMvc.perform(get(DOWNLOAD_URL).with(user("jsmith")))
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+        .andExpect(header().exists(HttpHeaders.ETAG))
+        .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 10L))
+        .andExpect(content().string("0123456789"));
+    mockMvc.perform(get("/api/study/CPA-10001/storage/files/missing.txt").with(user("jsmith")))
+        .andExpect(status().isNotFound());
+  }
+
+  @Test
+  public void downloadSingleRangeTest() throws Exception {
+    mockMvc.perform(get(DOWNLOAD_URL)
+        .header(HttpHeaders.RANGE, "bytes=2-5")
+        .with(user("jsmith")))
+        .andExpect(status().isPartialContent())
+        .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-5/10"))
+        .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 4L))
+        .andExpect(content().string("2345"));
+  }
+
+  @Test
+  public void downloadSuffixRangeTest() throws Exception {
+    mockMvc.perform(get(DOWNLOAD_URL)
+        .header(HttpHeaders.RANGE, "bytes=-3")
+        .with(user("jsmith")))
+        .andExpect(status().isPartialContent())
+        .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 7-9/10"))
+        .andExpect(content().string("789"));
+  }
+
+  @Test
+  public void downloadUnsatisfiableRangeTest() throws Exception {
+    mockMvc.perform(get(DOWNLOAD_URL)
+        .header(HttpHeaders.RANGE, "bytes=20-30")
+        .with(user("jsmith")))
+        .andExpect(status().isRequestedRangeNotSatisfiable())
+        .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */10"));
+  }
+
+  @Test
+  public void downloadStaleIfRangeTest() throws Exception {
+    mockMvc.perform(get(DOWNLOAD_URL)
+        .header(HttpHeaders.RANGE, "bytes=2-5")
+        .header(HttpHeaders.IF_RANGE, "\"stale\"")
+        .with(user("jsmith")))
+        .andExpect(status().isOk())
+        .andExpect(header().doesNotExist(HttpHeaders.CONTENT_RANGE))
+        .andExpect(content().string("0123456789"));
+  }
+
+  @Test
+  public void downloadIfNoneMatchTest() throws Exception {
+    String etag = mockMvc.perform(get(DOWNLOAD_URL).with(user("jsmith")))
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    mockMvc.perform(get(DOWNLOAD_URL)
+        .header(HttpHeaders.IF_NONE_MATCH, etag)
+        .with(user("jsmith")))
+        .andExpect(status().isNotModified())
+        .andExpect(content().string(""));
+    mockMvc.perform(get(DOWNLOAD_URL)
+        .header(HttpHeaders.RANGE, "bytes=2-5")
+        .header(HttpHeaders.IF_RANGE, etag)
+        .with(user("jsmith")))
+        .andExpect(status().isPartialContent())
+        .andExpect(content().string("2345"));
+  }
+
+  @Test
+  public void assayStorageFolderTest() throws Exception {
+    exampleDataGenerator.createAssayFolders();
+    mockMvc.perform(get("/api/study/PPB-10001/assays/PPB-10001-00001/storage"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.files").isArray());
+    mockMvc.perform(get("/api/study/CPA-10001/assays/PPB-10001-00001/storage"))
+        .andExpect(status().isNotFound());
+  }
+
+}